@@ -17,47 +17,42 @@
 package com.epam.deltix.orderbook.benchmark;
 
 import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
 import com.epam.deltix.timebase.messages.universal.*;
 import com.epam.deltix.util.collections.generated.ObjectArrayList;
 import org.openjdk.jol.info.GraphLayout;
 
-import java.util.ArrayList;
 import java.util.Random;
 
 public abstract class AbstractOrderBookBenchmarkAll {
 
-    final ArrayList<L2EntryUpdate> updateOffers = new ArrayList<>();
-    final ArrayList<L2EntryUpdate> updateBids = new ArrayList<>();
+    static final long SEED = 42;
+    static final int NUMBER_OF_UPDATES = 1 << 16;
 
     final PackageHeader packageHeader = new PackageHeader();
 
     final Random random = new Random();
 
+    /**
+     * Pre-generated L2 stream of inserts, updates and deletes skewed to the top of the book.
+     */
+    MarketDataGenerator.Workload workload;
+
     void initUpdateMarketData(final int maxDepth,
-                              final int numberOfExchange) {
-        for (int exchangeId = 0; exchangeId < numberOfExchange; exchangeId++) {
-            for (int level = 0; level < maxDepth; ++level) {
-                final L2EntryUpdate entryUpdate = new L2EntryUpdate();
-                entryUpdate.setPrice(Decimal64Utils.fromDouble(maxDepth + level));
-                entryUpdate.setSize(Decimal64Utils.fromDouble(10));
-                entryUpdate.setLevel((short) level);
-                entryUpdate.setSide(QuoteSide.ASK);
-                entryUpdate.setExchangeId(exchangeId);
-                entryUpdate.setAction(BookUpdateAction.UPDATE);
-                updateOffers.add(entryUpdate);
-            }
-
-            for (int level = 0; level < maxDepth; ++level) {
-                final L2EntryUpdate entryUpdate = new L2EntryUpdate();
-                entryUpdate.setPrice(Decimal64Utils.fromDouble(maxDepth - level));
-                entryUpdate.setSize(Decimal64Utils.fromDouble(10));
-                entryUpdate.setLevel((short) level);
-                entryUpdate.setSide(QuoteSide.BID);
-                entryUpdate.setExchangeId(exchangeId);
-                entryUpdate.setAction(BookUpdateAction.UPDATE);
-                updateBids.add(entryUpdate);
-            }
+                              final int numberOfExchange,
+                              final CharSequence symbol) {
+        workload = new MarketDataGenerator(DataModelType.LEVEL_TWO, SEED)
+                .symbol(symbol)
+                .numberOfExchanges(numberOfExchange)
+                .depth(maxDepth)
+                .generate(NUMBER_OF_UPDATES);
+    }
+
+    void applyVendorSnapshots(final OrderBook<?> orderBook) {
+        for (final PackageHeader snapshot : workload.getSnapshots()) {
+            orderBook.update(snapshot);
         }
+        workload.rewind();
     }
 
     PackageHeader createVendorUpdate(final int maxDepth,
@@ -95,14 +90,8 @@ public abstract class AbstractOrderBookBenchmarkAll {
         return packageHeader;
     }
 
-    void generateUpdateMarketDate(final int maxDepth,
-                                  final int numberOfExchange,
-                                  final CharSequence symbol) {
-        final int level = random.nextInt(maxDepth * numberOfExchange);
-        packageHeader.getEntries().clear();
-        packageHeader.setSymbol(symbol);
-        packageHeader.setPackageType(PackageType.INCREMENTAL_UPDATE);
-        packageHeader.getEntries().add(random.nextInt(2) == 0 ? updateOffers.get(level) : updateBids.get(level));
+    PackageHeader nextUpdateMarketData() {
+        return workload.next();
     }
 
     void totalSize(final Object object) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookAnalytics;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping imbalance, microprice and weighted mid over top {@code K} levels: {@link OrderBookAnalytics}
+ * attached to the book versus recalculation from {@link MarketSide} on every read.
+ * After every update metrics are read {@code reads} times (e.g. by several strategies).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class AnalyticsBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final long SEED = 42;
+    private static final int NUMBER_OF_UPDATES = 1 << 16;
+
+    @Param({"1", "5", "10"})
+    private int k;
+
+    @Param({"1", "4"})
+    private int reads;
+
+    @Param({"40"})
+    private int depth;
+
+    private OrderBook<OrderBookQuote> plainBook;
+    private OrderBook<OrderBookQuote> analyticsBook;
+    private OrderBookAnalytics analytics;
+    private MarketDataGenerator.Workload plainWorkload;
+    private MarketDataGenerator.Workload analyticsWorkload;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(AnalyticsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setUp() {
+        final OrderBookOptions commonOptions = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(depth)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        plainBook = OrderBookFactory.create(commonOptions);
+
+        analytics = new OrderBookAnalytics(k);
+        analyticsBook = OrderBookFactory.create(new OrderBookOptionsBuilder()
+                .parent(commonOptions)
+                .analytics(analytics)
+                .build());
+
+        plainWorkload = generate();
+        analyticsWorkload = generate();
+    }
+
+    @Benchmark
+    public boolean updateOnly() {
+        return plainBook.update(plainWorkload.next());
+    }
+
+    @Benchmark
+    public void attached(final Blackhole blackhole) {
+        blackhole.consume(analyticsBook.update(analyticsWorkload.next()));
+        for (int i = 0; i < reads; i++) {
+            blackhole.consume(analytics.getImbalance(k));
+            blackhole.consume(analytics.getMicroprice(k));
+            blackhole.consume(analytics.getWeightedMid(k));
+        }
+    }
+
+    @Benchmark
+    public void recomputeOnRead(final Blackhole blackhole) {
+        blackhole.consume(plainBook.update(plainWorkload.next()));
+        final MarketSide<OrderBookQuote> asks = plainBook.getMarketSide(QuoteSide.ASK);
+        final MarketSide<OrderBookQuote> bids = plainBook.getMarketSide(QuoteSide.BID);
+        for (int i = 0; i < reads; i++) {
+            final double bidSize = size(bids);
+            final double askSize = size(asks);
+            final double bidVwap = notional(bids) / bidSize;
+            final double askVwap = notional(asks) / askSize;
+            blackhole.consume((bidSize - askSize) / (bidSize + askSize));
+            blackhole.consume((askVwap * bidSize + bidVwap * askSize) / (bidSize + askSize));
+            blackhole.consume((bidVwap + askVwap) / 2);
+        }
+    }
+
+    private double size(final MarketSide<OrderBookQuote> side) {
+        double size = 0;
+        for (int level = 0, n = Math.min(k, side.depth()); level < n; level++) {
+            size += Decimal64Utils.toDouble(side.getQuote(level).getSize());
+        }
+        return size;
+    }
+
+    private double notional(final MarketSide<OrderBookQuote> side) {
+        double notional = 0;
+        for (int level = 0, n = Math.min(k, side.depth()); level < n; level++) {
+            final OrderBookQuote quote = side.getQuote(level);
+            notional += Decimal64Utils.toDouble(quote.getSize()) * Decimal64Utils.toDouble(quote.getPrice());
+        }
+        return notional;
+    }
+
+    private MarketDataGenerator.Workload generate() {
+        return new MarketDataGenerator(DataModelType.LEVEL_TWO, SEED)
+                .symbol(SYMBOL)
+                .depth(depth)
+                .generate(NUMBER_OF_UPDATES);
+    }
+
+}
@@ -32,7 +32,6 @@ import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.util.concurrent.TimeUnit;
-import java.util.stream.IntStream;
 
 @State(Scope.Benchmark)
 @BenchmarkMode(Mode.AverageTime)
@@ -67,25 +66,20 @@ public class ConsolidateOrderBookIncrementalUpdateBenchmark extends AbstractOrde
 
     @Setup
     public void initUpdate() {
-        initUpdateMarketData(numberOfExchange, maxDepth);
+        initUpdateMarketData(maxDepth, numberOfExchange, SYMBOL_BTS);
     }
 
     @Setup(value = Level.Iteration)
     public void setUpVendorUpdate() {
-        IntStream.range(0, numberOfExchange)
-                .forEach(exchangeId -> orderBook.update(createVendorUpdate(maxDepth, exchangeId, SYMBOL_BTS)));
+        applyVendorSnapshots(orderBook);
         totalSize(orderBook);
     }
 
-    @Setup(value = Level.Invocation)
-    public void setUp() {
-        generateUpdateMarketDate(maxDepth, numberOfExchange, SYMBOL_BTS);
-    }
-
     @Benchmark
     public PackageHeader randomIncrementalUpdate() {
-        orderBook.update(packageHeader);
-        return packageHeader;
+        final PackageHeader update = nextUpdateMarketData();
+        orderBook.update(update);
+        return update;
     }
 
 }
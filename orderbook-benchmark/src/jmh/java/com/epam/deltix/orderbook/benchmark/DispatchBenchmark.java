@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end overhead of {@link OrderBook#update} (symbol check, package type dispatch, validation and entry loop)
+ * compared with the same book change applied through {@link OrderBookUpdater}.
+ * <ul>
+ *     <li>{@code foreignSymbol} - package of another symbol, rejected by symbol check when symbol is configured.</li>
+ *     <li>{@code unhandledEntry} - incremental package with single entry the book doesn't handle (trade).</li>
+ *     <li>{@code update} - incremental package with one entry which doesn't change shape of the book.</li>
+ *     <li>{@code updatePrimitive} - the same change through {@link OrderBookUpdater}, no message plumbing.</li>
+ * </ul>
+ * Difference between {@code update} and {@code updatePrimitive} is cost of dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class DispatchBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final String FOREIGN_SYMBOL = "ETH";
+    private static final String QUOTE_ID = "Q1";
+    private static final long EXCHANGE_ID = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long ASK_PRICE = Decimal64Utils.fromLong(101);
+    private static final long BID_PRICE = Decimal64Utils.fromLong(99);
+
+    @Param({"LEVEL_ONE", "LEVEL_TWO", "LEVEL_THREE"})
+    private DataModelType quoteLevels;
+
+    @Param({"true", "false"})
+    private boolean withSymbol;
+
+    private OrderBook<OrderBookQuote> book;
+    private OrderBookUpdater updater;
+
+    private PackageHeader foreignPackage;
+    private PackageHeader unhandledPackage;
+    private PackageHeader updatePackage;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(DispatchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setUp() {
+        final OrderBookOptionsBuilder builder = new OrderBookOptionsBuilder();
+        if (withSymbol) {
+            builder.symbol(SYMBOL);
+        }
+        builder.orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(quoteLevels)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT);
+        book = OrderBookFactory.create(builder.build());
+        updater = (OrderBookUpdater) book;
+
+        final PackageHeader snapshot = newPackage(SYMBOL, PackageType.VENDOR_SNAPSHOT);
+        snapshot.getEntries().add(newEntry(QuoteSide.ASK, ASK_PRICE));
+        snapshot.getEntries().add(newEntry(QuoteSide.BID, BID_PRICE));
+        if (!book.update(snapshot)) {
+            throw new IllegalStateException("Snapshot is not applied: " + quoteLevels);
+        }
+
+        foreignPackage = newPackage(FOREIGN_SYMBOL, PackageType.INCREMENTAL_UPDATE);
+        foreignPackage.getEntries().add(new TradeEntry());
+
+        unhandledPackage = newPackage(SYMBOL, PackageType.INCREMENTAL_UPDATE);
+        final TradeEntry trade = new TradeEntry();
+        trade.setExchangeId(EXCHANGE_ID);
+        trade.setPrice(ASK_PRICE);
+        trade.setSize(Decimal64Utils.ONE);
+        unhandledPackage.getEntries().add(trade);
+
+        updatePackage = newPackage(SYMBOL, PackageType.INCREMENTAL_UPDATE);
+        updatePackage.getEntries().add(newUpdateEntry());
+    }
+
+    @Benchmark
+    public boolean foreignSymbol() {
+        return book.update(foreignPackage);
+    }
+
+    @Benchmark
+    public boolean unhandledEntry() {
+        return book.update(unhandledPackage);
+    }
+
+    @Benchmark
+    public boolean update() {
+        return book.update(updatePackage);
+    }
+
+    @Benchmark
+    public boolean updatePrimitive() {
+        switch (quoteLevels) {
+            case LEVEL_ONE:
+                return updater.applyL1(EXCHANGE_ID, QuoteSide.ASK, ASK_PRICE, Decimal64Utils.ONE, 1, 0);
+            case LEVEL_TWO:
+                return updater.applyL2Update(EXCHANGE_ID, QuoteSide.ASK, 0, BookUpdateAction.UPDATE,
+                        ASK_PRICE, Decimal64Utils.ONE, 1, 0);
+            case LEVEL_THREE:
+                return updater.applyL3Update(EXCHANGE_ID, QuoteSide.ASK, QuoteUpdateAction.MODIFY,
+                        QUOTE_ID, null, ASK_PRICE, Decimal64Utils.ONE, 0);
+            default:
+                throw new UnsupportedOperationException("Unsupported quote levels: " + quoteLevels);
+        }
+    }
+
+    private static PackageHeader newPackage(final String symbol, final PackageType type) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(symbol);
+        pck.setPackageType(type);
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    /**
+     * Snapshot entry: single quote (level) on the side.
+     */
+    private BaseEntryInfo newEntry(final QuoteSide side, final long price) {
+        switch (quoteLevels) {
+            case LEVEL_ONE:
+                final L1Entry l1 = new L1Entry();
+                l1.setExchangeId(EXCHANGE_ID);
+                l1.setSide(side);
+                l1.setPrice(price);
+                l1.setSize(Decimal64Utils.ONE);
+                l1.setNumberOfOrders(1);
+                return l1;
+            case LEVEL_TWO:
+                final L2EntryNew l2 = new L2EntryNew();
+                l2.setExchangeId(EXCHANGE_ID);
+                l2.setSide(side);
+                l2.setLevel((short) 0);
+                l2.setPrice(price);
+                l2.setSize(Decimal64Utils.ONE);
+                l2.setNumberOfOrders(1);
+                return l2;
+            case LEVEL_THREE:
+                final L3EntryNew l3 = new L3EntryNew();
+                l3.setExchangeId(EXCHANGE_ID);
+                l3.setSide(side);
+                l3.setInsertType(InsertType.ADD_BACK);
+                l3.setQuoteId(side == QuoteSide.ASK ? QUOTE_ID : "B" + QUOTE_ID);
+                l3.setPrice(price);
+                l3.setSize(Decimal64Utils.ONE);
+                return l3;
+            default:
+                throw new UnsupportedOperationException("Unsupported quote levels: " + quoteLevels);
+        }
+    }
+
+    /**
+     * Incremental entry which sets the same price and size of the best ask, so the book stays the same.
+     */
+    private BaseEntryInfo newUpdateEntry() {
+        switch (quoteLevels) {
+            case LEVEL_ONE:
+                return newEntry(QuoteSide.ASK, ASK_PRICE);
+            case LEVEL_TWO:
+                final L2EntryUpdate l2 = new L2EntryUpdate();
+                l2.setExchangeId(EXCHANGE_ID);
+                l2.setSide(QuoteSide.ASK);
+                l2.setLevel((short) 0);
+                l2.setAction(BookUpdateAction.UPDATE);
+                l2.setPrice(ASK_PRICE);
+                l2.setSize(Decimal64Utils.ONE);
+                l2.setNumberOfOrders(1);
+                return l2;
+            case LEVEL_THREE:
+                // Modify can't increase size, so the same size is used
+                final L3EntryUpdate l3 = new L3EntryUpdate();
+                l3.setExchangeId(EXCHANGE_ID);
+                l3.setSide(QuoteSide.ASK);
+                l3.setAction(QuoteUpdateAction.MODIFY);
+                l3.setQuoteId(QUOTE_ID);
+                l3.setPrice(ASK_PRICE);
+                l3.setSize(Decimal64Utils.ONE);
+                return l3;
+            default:
+                throw new UnsupportedOperationException("Unsupported quote levels: " + quoteLevels);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.timebase.messages.universal.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of entry type dispatch on polymorphic entry stream: instanceof on concrete classes (previous implementation),
+ * instanceof on *Info interfaces (current implementation) and switch on cached per class type code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OperationsPerInvocation(EntryDispatchBenchmark.STREAM_SIZE)
+public class EntryDispatchBenchmark {
+
+    static final int STREAM_SIZE = 1024;
+
+    private static final int UNKNOWN = 0;
+    private static final int L2_NEW = 1;
+    private static final int L2_UPDATE = 2;
+    private static final int L3_NEW = 3;
+    private static final int L3_UPDATE = 4;
+    private static final int STATISTICS = 5;
+
+    private static final ClassValue<Integer> TYPE_CODES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            if (L2EntryNewInfo.class.isAssignableFrom(type)) {
+                return L2_NEW;
+            } else if (L2EntryUpdateInfo.class.isAssignableFrom(type)) {
+                return L2_UPDATE;
+            } else if (L3EntryNewInfo.class.isAssignableFrom(type)) {
+                return L3_NEW;
+            } else if (L3EntryUpdateInfo.class.isAssignableFrom(type)) {
+                return L3_UPDATE;
+            } else if (StatisticsEntryInfo.class.isAssignableFrom(type)) {
+                return STATISTICS;
+            }
+            return UNKNOWN;
+        }
+    };
+
+    /**
+     * Number of different entry classes in the stream: 1 - monomorphic, 2 - bimorphic, 6 - megamorphic.
+     */
+    @Param({"1", "2", "6"})
+    private int numberOfTypes;
+
+    private final BaseEntryInfo[] entries = new BaseEntryInfo[STREAM_SIZE];
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(EntryDispatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setUp() {
+        final BaseEntryInfo[] prototypes = {
+                new L2EntryUpdate(), new L2EntryNew(), new L3EntryNew(),
+                new L3EntryUpdate(), new StatisticsEntry(), new TradeEntry()
+        };
+        final Random random = new Random(42);
+        for (int i = 0; i < STREAM_SIZE; i++) {
+            entries[i] = prototypes[random.nextInt(numberOfTypes)];
+        }
+    }
+
+    @Benchmark
+    public int concreteInstanceOf() {
+        int sum = 0;
+        for (final BaseEntryInfo entry : entries) {
+            if (entry instanceof L2EntryNew) {
+                sum += L2_NEW;
+            } else if (entry instanceof L2EntryUpdate) {
+                sum += L2_UPDATE;
+            } else if (entry instanceof L3EntryNew) {
+                sum += L3_NEW;
+            } else if (entry instanceof L3EntryUpdate) {
+                sum += L3_UPDATE;
+            } else if (entry instanceof StatisticsEntry) {
+                sum += STATISTICS;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int interfaceInstanceOf() {
+        int sum = 0;
+        for (final BaseEntryInfo entry : entries) {
+            if (entry instanceof L2EntryNewInfo) {
+                sum += L2_NEW;
+            } else if (entry instanceof L2EntryUpdateInfo) {
+                sum += L2_UPDATE;
+            } else if (entry instanceof L3EntryNewInfo) {
+                sum += L3_NEW;
+            } else if (entry instanceof L3EntryUpdateInfo) {
+                sum += L3_UPDATE;
+            } else if (entry instanceof StatisticsEntryInfo) {
+                sum += STATISTICS;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int typeCodeSwitch() {
+        int sum = 0;
+        for (final BaseEntryInfo entry : entries) {
+            switch (TYPE_CODES.get(entry.getClass())) {
+                case L2_NEW:
+                    sum += L2_NEW;
+                    break;
+                case L2_UPDATE:
+                    sum += L2_UPDATE;
+                    break;
+                case L3_NEW:
+                    sum += L3_NEW;
+                    break;
+                case L3_UPDATE:
+                    sum += L3_UPDATE;
+                    break;
+                case STATISTICS:
+                    sum += STATISTICS;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return sum;
+    }
+
+}
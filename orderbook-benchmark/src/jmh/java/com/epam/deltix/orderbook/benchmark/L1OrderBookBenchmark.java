@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * L1 order book: snapshot and incremental update from messages and incremental update from primitives
+ * ({@link OrderBookUpdater}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class L1OrderBookBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final long EXCHANGE_ID = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final int RANDOM_SIZE = 1 << 12;
+
+    @Param({"true", "false"})
+    private boolean shouldStoreQuoteTimestamps;
+
+    private OrderBook<OrderBookQuote> book;
+    private OrderBookUpdater updater;
+
+    private final PackageHeader snapshot = new PackageHeader();
+    private final L1Entry snapshotAsk = new L1Entry();
+    private final L1Entry snapshotBid = new L1Entry();
+    private final PackageHeader update = new PackageHeader();
+    private final L1Entry entry = new L1Entry();
+
+    private final long[] prices = new long[RANDOM_SIZE];
+    private final long[] sizes = new long[RANDOM_SIZE];
+    private final QuoteSide[] sides = new QuoteSide[RANDOM_SIZE];
+    private int cursor;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(L1OrderBookBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setUp() {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(DataModelType.LEVEL_ONE)
+                .shouldStoreQuoteTimestamps(shouldStoreQuoteTimestamps)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        book = OrderBookFactory.create(opt);
+        updater = (OrderBookUpdater) book;
+
+        final Random random = new Random(42);
+        for (int i = 0; i < RANDOM_SIZE; i++) {
+            sides[i] = random.nextBoolean() ? QuoteSide.ASK : QuoteSide.BID;
+            prices[i] = Decimal64Utils.fromLong(sides[i] == QuoteSide.ASK ? 100 + random.nextInt(10) : 99 - random.nextInt(10));
+            sizes[i] = Decimal64Utils.fromLong(1 + random.nextInt(1000));
+        }
+
+        snapshot.setSymbol(SYMBOL);
+        snapshot.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        snapshot.setEntries(new ObjectArrayList<>());
+        snapshot.getEntries().add(snapshotAsk);
+        snapshot.getEntries().add(snapshotBid);
+        initEntry(snapshotAsk, QuoteSide.ASK, Decimal64Utils.fromLong(100));
+        initEntry(snapshotBid, QuoteSide.BID, Decimal64Utils.fromLong(99));
+
+        update.setSymbol(SYMBOL);
+        update.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        update.setEntries(new ObjectArrayList<>());
+        update.getEntries().add(entry);
+        initEntry(entry, QuoteSide.ASK, Decimal64Utils.fromLong(100));
+
+        book.update(snapshot);
+    }
+
+    @Benchmark
+    public boolean snapshot() {
+        return book.update(snapshot);
+    }
+
+    @Benchmark
+    public boolean incrementalUpdate() {
+        final int i = next();
+        entry.setSide(sides[i]);
+        entry.setPrice(prices[i]);
+        entry.setSize(sizes[i]);
+        return book.update(update);
+    }
+
+    @Benchmark
+    public boolean incrementalUpdatePrimitive() {
+        final int i = next();
+        return updater.applyL1(EXCHANGE_ID, sides[i], prices[i], sizes[i], 1, 0);
+    }
+
+    private int next() {
+        final int i = cursor;
+        cursor = (i + 1) & (RANDOM_SIZE - 1);
+        return i;
+    }
+
+    private static void initEntry(final L1Entry entry, final QuoteSide side, final long price) {
+        entry.setExchangeId(EXCHANGE_ID);
+        entry.setSide(side);
+        entry.setPrice(price);
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setNumberOfOrders(1);
+    }
+
+}
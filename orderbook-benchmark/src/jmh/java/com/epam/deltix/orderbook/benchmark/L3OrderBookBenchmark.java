@@ -0,0 +1,314 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.Exchange;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * L3 order book operations: add/cancel, modify, replace, snapshot (built with {@code buildFromSorted}),
+ * iteration, lookup of quote by id and replay of synthetic feed generated by {@link MarketDataGenerator}.
+ * <p>
+ * Book with one exchange is {@link OrderBookType#SINGLE_EXCHANGE}, otherwise {@link OrderBookType#CONSOLIDATED}.
+ * Run with {@link GCProfiler} (see {@link #main}) to get {@code gc.alloc.rate.norm} along with time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class L3OrderBookBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final int ORDERS_PER_LEVEL = 10;
+    private static final int RANDOM_SIZE = 1 << 14;
+
+    /**
+     * Total number of orders in the book.
+     */
+    @Param({"1000", "10000", "100000"})
+    private int bookSize;
+
+    @Param({"1", "4"})
+    private int numberOfExchanges;
+
+    @Param({"8", "32"})
+    private int quoteIdLength;
+
+    private OrderBook<OrderBookQuote> book;
+    private PackageHeader[] snapshots;
+
+    // Orders of the book: [exchange][side][order]
+    private String[][][] quoteIds;
+    private long[][][] prices;
+    private long[] exchangeIds;
+    private MarketSide<OrderBookQuote>[][] exchangeSides;
+    private int ordersPerSide;
+
+    // Pre-generated random choices: exchange, side and order
+    private final int[] randomExchange = new int[RANDOM_SIZE];
+    private final int[] randomSide = new int[RANDOM_SIZE];
+    private final int[] randomOrder = new int[RANDOM_SIZE];
+    private int cursor;
+
+    private final PackageHeader newPackage = new PackageHeader();
+    private final L3EntryNew entryNew = new L3EntryNew();
+    private final PackageHeader updatePackage = new PackageHeader();
+    private final L3EntryUpdate entryUpdate = new L3EntryUpdate();
+    private String newQuoteId;
+
+    // Synthetic feed (see MarketDataGenerator) replayed on separate book
+    private OrderBook<OrderBookQuote> replayBook;
+    private MarketDataGenerator.Workload workload;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(L3OrderBookBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ordersPerSide = Math.max(1, bookSize / (2 * numberOfExchanges));
+
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(numberOfExchanges == 1 ? OrderBookType.SINGLE_EXCHANGE : OrderBookType.CONSOLIDATED)
+                .quoteLevels(DataModelType.LEVEL_THREE)
+                .initialDepth(ordersPerSide)
+                .maxDepth(ordersPerSide * 2)
+                .initialExchangesPoolSize(numberOfExchanges)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        book = OrderBookFactory.create(opt);
+        replayBook = OrderBookFactory.create(opt);
+        workload = new MarketDataGenerator(DataModelType.LEVEL_THREE, 42)
+                .symbol(SYMBOL)
+                .numberOfExchanges(numberOfExchanges)
+                .depth(ordersPerSide)
+                .generate(1 << 16);
+
+        final Random random = new Random(42);
+        exchangeIds = new long[numberOfExchanges];
+        quoteIds = new String[numberOfExchanges][2][ordersPerSide];
+        prices = new long[numberOfExchanges][2][ordersPerSide];
+        snapshots = new PackageHeader[numberOfExchanges];
+        for (int exchange = 0; exchange < numberOfExchanges; exchange++) {
+            exchangeIds[exchange] = AlphanumericUtils.toAlphanumericUInt64("EXCH" + exchange);
+            snapshots[exchange] = newSnapshot(exchange, random);
+        }
+
+        for (int i = 0; i < RANDOM_SIZE; i++) {
+            randomExchange[i] = random.nextInt(numberOfExchanges);
+            randomSide[i] = random.nextInt(2);
+            randomOrder[i] = random.nextInt(ordersPerSide);
+        }
+
+        newQuoteId = quoteId('N', 0, 0);
+        newPackage.setSymbol(SYMBOL);
+        newPackage.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        newPackage.setEntries(new ObjectArrayList<>());
+        newPackage.getEntries().add(entryNew);
+        entryNew.setInsertType(InsertType.ADD_BACK);
+        entryNew.setSize(Decimal64Utils.ONE);
+
+        updatePackage.setSymbol(SYMBOL);
+        updatePackage.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        updatePackage.setEntries(new ObjectArrayList<>());
+        updatePackage.getEntries().add(entryUpdate);
+
+        applySnapshots();
+        exchangeSides = new MarketSide[numberOfExchanges][2];
+        for (int exchange = 0; exchange < numberOfExchanges; exchange++) {
+            final Exchange<OrderBookQuote> holder = book.getExchanges().getById(exchangeIds[exchange]).get();
+            exchangeSides[exchange][0] = holder.getMarketSide(QuoteSide.ASK);
+            exchangeSides[exchange][1] = holder.getMarketSide(QuoteSide.BID);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void applySnapshots() {
+        for (final PackageHeader snapshot : snapshots) {
+            book.update(snapshot);
+        }
+        for (final PackageHeader snapshot : workload.getSnapshots()) {
+            replayBook.update(snapshot);
+        }
+        workload.rewind();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public boolean addCancel() {
+        final int i = next();
+        final int exchange = randomExchange[i];
+        final int side = randomSide[i];
+
+        entryNew.setExchangeId(exchangeIds[exchange]);
+        entryNew.setSide(side == 0 ? QuoteSide.ASK : QuoteSide.BID);
+        entryNew.setPrice(prices[exchange][side][randomOrder[i]]);
+        entryNew.setQuoteId(newQuoteId);
+        final boolean added = book.update(newPackage);
+
+        setUpdate(QuoteUpdateAction.CANCEL, exchange, side, newQuoteId, entryNew.getPrice());
+        return book.update(updatePackage) & added;
+    }
+
+    @Benchmark
+    public boolean modify() {
+        final int i = next();
+        final int exchange = randomExchange[i];
+        final int side = randomSide[i];
+        final int order = randomOrder[i];
+        // Modify is not allowed to increase size, so minimal size is used
+        setUpdate(QuoteUpdateAction.MODIFY, exchange, side, quoteIds[exchange][side][order], prices[exchange][side][order]);
+        return book.update(updatePackage);
+    }
+
+    @Benchmark
+    public boolean replace() {
+        final int i = next();
+        final int exchange = randomExchange[i];
+        final int side = randomSide[i];
+        // Move the order to the price of another random order of the same side, so shape of the book is kept
+        final int j = next();
+        setUpdate(QuoteUpdateAction.REPLACE, exchange, side, quoteIds[exchange][side][randomOrder[i]],
+                prices[exchange][side][randomOrder[j]]);
+        return book.update(updatePackage);
+    }
+
+    @Benchmark
+    public boolean snapshot() {
+        return book.update(snapshots[randomExchange[next()]]);
+    }
+
+    /**
+     * Mix of adds, modifies, cancels (mostly of recent orders) and replaces near the top of the book.
+     */
+    @Benchmark
+    public boolean replay() {
+        return replayBook.update(workload.next());
+    }
+
+    @Benchmark
+    public long iterate() {
+        @Decimal long total = Decimal64Utils.ZERO;
+        for (final OrderBookQuote quote : book.getMarketSide(QuoteSide.ASK)) {
+            total = Decimal64Utils.add(total, quote.getSize());
+        }
+        for (final OrderBookQuote quote : book.getMarketSide(QuoteSide.BID)) {
+            total = Decimal64Utils.add(total, quote.getSize());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void lookup(final Blackhole blackhole) {
+        final int i = next();
+        final int exchange = randomExchange[i];
+        final int side = randomSide[i];
+        blackhole.consume(exchangeSides[exchange][side].getQuote(quoteIds[exchange][side][randomOrder[i]]));
+    }
+
+    private int next() {
+        final int i = cursor;
+        cursor = (i + 1) & (RANDOM_SIZE - 1);
+        return i;
+    }
+
+    private void setUpdate(final QuoteUpdateAction action,
+                           final int exchange,
+                           final int side,
+                           final CharSequence quoteId,
+                           final long price) {
+        entryUpdate.setAction(action);
+        entryUpdate.setExchangeId(exchangeIds[exchange]);
+        entryUpdate.setSide(side == 0 ? QuoteSide.ASK : QuoteSide.BID);
+        entryUpdate.setQuoteId(quoteId);
+        entryUpdate.setPrice(price);
+        entryUpdate.setSize(Decimal64Utils.ONE);
+    }
+
+    /**
+     * Snapshot of one exchange: orders sorted from best to worst price, {@link #ORDERS_PER_LEVEL} orders per price.
+     */
+    private PackageHeader newSnapshot(final int exchange, final Random random) {
+        final PackageHeader snapshot = new PackageHeader();
+        snapshot.setSymbol(SYMBOL);
+        snapshot.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        snapshot.setEntries(new ObjectArrayList<>(ordersPerSide * 2));
+        for (int side = 0; side < 2; side++) {
+            for (int order = 0; order < ordersPerSide; order++) {
+                final int level = order / ORDERS_PER_LEVEL;
+                final long price = Decimal64Utils.fromLong(side == 0 ? 100_000 + level : 99_999 - level);
+                final String quoteId = quoteId(side == 0 ? 'A' : 'B', exchange, order);
+                quoteIds[exchange][side][order] = quoteId;
+                prices[exchange][side][order] = price;
+
+                final L3EntryNew entry = new L3EntryNew();
+                entry.setInsertType(InsertType.ADD_BACK);
+                entry.setExchangeId(exchangeIds[exchange]);
+                entry.setSide(side == 0 ? QuoteSide.ASK : QuoteSide.BID);
+                entry.setQuoteId(quoteId);
+                entry.setPrice(price);
+                entry.setSize(Decimal64Utils.fromLong(1 + random.nextInt(100)));
+                snapshot.getEntries().add(entry);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Unique quote id of {@link #quoteIdLength} characters: side, exchange and zero padded order number.
+     */
+    private String quoteId(final char side, final int exchange, final int order) {
+        final StringBuilder sb = new StringBuilder(quoteIdLength);
+        sb.append(side).append(exchange);
+        final String number = Integer.toString(order);
+        for (int i = sb.length() + number.length(); i < quoteIdLength; i++) {
+            sb.append('0');
+        }
+        return sb.append(number).toString();
+    }
+
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Seeded generator of synthetic market data for benchmarks.
+ * <p>
+ * Generator keeps its own model of the book (per exchange and side), so every generated entry is valid
+ * for the book built from generated snapshots:
+ * <ul>
+ *     <li>arrivals of events are Poisson or self-exciting Hawkes process (bursts), events arrived within
+ *     batch window are packed into one package;</li>
+ *     <li>levels are drawn from truncated geometric distribution, so most of the activity is near the best price;</li>
+ *     <li>L2: mix of insert, update and delete of levels;</li>
+ *     <li>L3: mix of add, modify, cancel and replace of orders, cancels prefer recently added orders.</li>
+ * </ul>
+ * Prices never cross: asks are above and bids are below the fixed center price.
+ * Depth of every side is kept between min and max depth (levels for L2, orders for L3).
+ * <p>
+ * Stream is generated upfront ({@link #generate(int)}), so creation of messages doesn't affect measurements.
+ * The same seed and settings always produce the same stream.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class MarketDataGenerator {
+
+    public enum Arrivals {
+        POISSON,
+        HAWKES
+    }
+
+    private static final long BASE_TIME_MS = 1_600_000_000_000L;
+    private static final long CENTER_TICKS = 1_000_000;
+
+    private static final int INSERT = 0;
+    private static final int UPDATE = 1;
+    private static final int DELETE = 2;
+
+    private static final int ADD = 0;
+    private static final int MODIFY = 1;
+    private static final int CANCEL = 2;
+    private static final int REPLACE = 3;
+
+    private final DataModelType quoteLevels;
+    private final Random random;
+
+    private CharSequence symbol = "BTC";
+    private int numberOfExchanges = 1;
+    private int depth = 100;
+    private int minDepth = 50;
+    private int maxDepth = 200;
+    @Decimal
+    private long tickSize = Decimal64Utils.parse("0.01");
+    private int maxSize = 100;
+
+    private Arrivals arrivals = Arrivals.POISSON;
+    private double rate = 100_000;
+    private double hawkesAlpha;
+    private double hawkesBeta;
+    private long batchWindowNanos = 1_000;
+    private int maxEntriesPerPackage = 16;
+
+    private double levelSkew = 0.4;
+    private double[] l2Weights = {0.3, 0.4, 0.3};
+    private double[] l3Weights = {0.45, 0.1, 0.4, 0.05};
+    private double recentCancelProbability = 0.7;
+    private int recentWindow = 32;
+
+    // State of generation
+    private long[] exchangeIds;
+    private Levels[][] levels;
+    private Orders[][] orders;
+    private long nextQuoteId;
+    private double time;
+    private double excitation;
+    private double pendingArrival;
+
+    /**
+     * @param quoteLevels {@link DataModelType#LEVEL_TWO} or {@link DataModelType#LEVEL_THREE}
+     * @param seed        seed of random generator
+     */
+    public MarketDataGenerator(final DataModelType quoteLevels, final long seed) {
+        if (quoteLevels != DataModelType.LEVEL_TWO && quoteLevels != DataModelType.LEVEL_THREE) {
+            throw new IllegalArgumentException("Unsupported quote levels: " + quoteLevels);
+        }
+        this.quoteLevels = quoteLevels;
+        this.random = new Random(seed);
+    }
+
+    public MarketDataGenerator symbol(final CharSequence symbol) {
+        this.symbol = symbol;
+        return this;
+    }
+
+    public MarketDataGenerator numberOfExchanges(final int numberOfExchanges) {
+        if (numberOfExchanges <= 0) {
+            throw new IllegalArgumentException("Illegal number of exchanges: " + numberOfExchanges);
+        }
+        this.numberOfExchanges = numberOfExchanges;
+        return this;
+    }
+
+    /**
+     * Depth of snapshot (levels for L2, orders for L3 per side), depth is kept between {@code depth / 2}
+     * and {@code depth * 2}.
+     */
+    public MarketDataGenerator depth(final int depth) {
+        return depth(depth, Math.max(1, depth / 2), depth * 2);
+    }
+
+    public MarketDataGenerator depth(final int depth, final int minDepth, final int maxDepth) {
+        if (minDepth <= 0 || depth < minDepth || maxDepth < depth) {
+            throw new IllegalArgumentException("Illegal depth: " + minDepth + " <= " + depth + " <= " + maxDepth);
+        }
+        this.depth = depth;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public MarketDataGenerator tickSize(@Decimal final long tickSize) {
+        this.tickSize = tickSize;
+        return this;
+    }
+
+    /**
+     * Sizes are uniformly distributed in {@code [1, maxSize]}.
+     */
+    public MarketDataGenerator maxSize(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Illegal max size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * @param rate events per second
+     */
+    public MarketDataGenerator poisson(final double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Illegal rate: " + rate);
+        }
+        this.arrivals = Arrivals.POISSON;
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * Hawkes process with exponential kernel: intensity is {@code baseRate + sum(alpha * exp(-beta * (t - ti)))}.
+     *
+     * @param baseRate background events per second
+     * @param alpha    jump of intensity after every event
+     * @param beta     decay of intensity per second, {@code alpha / beta} (mean number of events triggered
+     *                 by one event) must be less than 1
+     */
+    public MarketDataGenerator hawkes(final double baseRate, final double alpha, final double beta) {
+        if (baseRate <= 0 || alpha < 0 || beta <= 0 || alpha >= beta) {
+            throw new IllegalArgumentException("Illegal Hawkes parameters: " + baseRate + ", " + alpha + ", " + beta);
+        }
+        this.arrivals = Arrivals.HAWKES;
+        this.rate = baseRate;
+        this.hawkesAlpha = alpha;
+        this.hawkesBeta = beta;
+        return this;
+    }
+
+    /**
+     * Events arrived within {@code windowNanos} from the first event of package are packed into one package.
+     */
+    public MarketDataGenerator batchWindow(final long windowNanos, final int maxEntriesPerPackage) {
+        if (windowNanos < 0 || maxEntriesPerPackage <= 0) {
+            throw new IllegalArgumentException("Illegal batch window: " + windowNanos + ", " + maxEntriesPerPackage);
+        }
+        this.batchWindowNanos = windowNanos;
+        this.maxEntriesPerPackage = maxEntriesPerPackage;
+        return this;
+    }
+
+    /**
+     * @param skew probability of the best level, probability of every next level is {@code (1 - skew)} times lower
+     */
+    public MarketDataGenerator levelSkew(final double skew) {
+        if (skew <= 0 || skew >= 1) {
+            throw new IllegalArgumentException("Illegal level skew: " + skew);
+        }
+        this.levelSkew = skew;
+        return this;
+    }
+
+    public MarketDataGenerator l2Mix(final double insert, final double update, final double delete) {
+        this.l2Weights = weights(insert, update, delete);
+        return this;
+    }
+
+    public MarketDataGenerator l3Mix(final double add, final double modify, final double cancel, final double replace) {
+        this.l3Weights = weights(add, modify, cancel, replace);
+        return this;
+    }
+
+    /**
+     * @param probability probability that cancel hits one of the {@code window} most recently added orders
+     */
+    public MarketDataGenerator recentCancels(final double probability, final int window) {
+        if (probability < 0 || probability > 1 || window <= 0) {
+            throw new IllegalArgumentException("Illegal recent cancels: " + probability + ", " + window);
+        }
+        this.recentCancelProbability = probability;
+        this.recentWindow = window;
+        return this;
+    }
+
+    public long getExchangeId(final int exchange) {
+        return AlphanumericUtils.toAlphanumericUInt64("EXCH" + exchange);
+    }
+
+    /**
+     * Generates snapshots of the new random book (one per exchange) followed by incremental updates.
+     *
+     * @param numberOfPackages number of incremental update packages
+     */
+    public Workload generate(final int numberOfPackages) {
+        initState();
+        final PackageHeader[] snapshots = new PackageHeader[numberOfExchanges];
+        for (int exchange = 0; exchange < numberOfExchanges; exchange++) {
+            snapshots[exchange] = newSnapshot(exchange);
+        }
+
+        final PackageHeader[] updates = new PackageHeader[numberOfPackages];
+        final long[] arrivalNanos = new long[numberOfPackages];
+        pendingArrival = nextArrival();
+        for (int i = 0; i < numberOfPackages; i++) {
+            final double start = pendingArrival;
+            final long nanos = (long) (start * 1e9);
+            final PackageHeader pck = newPackage(PackageType.INCREMENTAL_UPDATE, nanos / 1_000_000);
+            do {
+                nextEntry(pck.getEntries());
+                pendingArrival = nextArrival();
+            } while ((pendingArrival - start) * 1e9 <= batchWindowNanos && pck.getEntries().size() < maxEntriesPerPackage);
+            updates[i] = pck;
+            arrivalNanos[i] = nanos;
+        }
+        return new Workload(snapshots, updates, arrivalNanos);
+    }
+
+    private void initState() {
+        exchangeIds = new long[numberOfExchanges];
+        levels = new Levels[numberOfExchanges][2];
+        orders = new Orders[numberOfExchanges][2];
+        nextQuoteId = 0;
+        time = 0;
+        excitation = 0;
+        for (int exchange = 0; exchange < numberOfExchanges; exchange++) {
+            exchangeIds[exchange] = getExchangeId(exchange);
+            for (int side = 0; side < 2; side++) {
+                if (quoteLevels == DataModelType.LEVEL_TWO) {
+                    levels[exchange][side] = initLevels();
+                } else {
+                    orders[exchange][side] = initOrders();
+                }
+            }
+        }
+    }
+
+    private Levels initLevels() {
+        final Levels result = new Levels(maxDepth);
+        int ticks = 0;
+        for (int level = 0; level < depth; level++) {
+            ticks += 1 + random.nextInt(2);
+            result.insert(level, ticks, nextSize());
+        }
+        return result;
+    }
+
+    private Orders initOrders() {
+        final Orders result = new Orders(recentWindow);
+        int ticks = 1;
+        for (int i = 0; i < depth; i++) {
+            if (i > 0 && random.nextInt(3) == 0) {
+                ticks += 1 + (random.nextInt(5) == 0 ? 1 : 0);
+            }
+            result.add(newQuoteId(), ticks, nextSize());
+        }
+        return result;
+    }
+
+    /**
+     * Snapshot of exchange: levels (or orders) sorted from best to worst, asks first.
+     */
+    private PackageHeader newSnapshot(final int exchange) {
+        final PackageHeader pck = newPackage(PackageType.VENDOR_SNAPSHOT, 0);
+        for (int side = 0; side < 2; side++) {
+            final QuoteSide quoteSide = side == 0 ? QuoteSide.ASK : QuoteSide.BID;
+            if (quoteLevels == DataModelType.LEVEL_TWO) {
+                final Levels sideLevels = levels[exchange][side];
+                for (int level = 0; level < sideLevels.depth; level++) {
+                    pck.getEntries().add(l2New(exchange, quoteSide, level, sideLevels.ticks[level], sideLevels.sizes[level]));
+                }
+            } else {
+                // Orders are created from best to worst price
+                for (final Order order : orders[exchange][side].alive) {
+                    pck.getEntries().add(l3New(exchange, quoteSide, order));
+                }
+            }
+        }
+        return pck;
+    }
+
+    private void nextEntry(final ObjectArrayList<BaseEntryInfo> entries) {
+        final int exchange = random.nextInt(numberOfExchanges);
+        final int side = random.nextInt(2);
+        if (quoteLevels == DataModelType.LEVEL_TWO) {
+            entries.add(nextL2Entry(exchange, side));
+        } else {
+            entries.add(nextL3Entry(exchange, side));
+        }
+    }
+
+    private BaseEntryInfo nextL2Entry(final int exchange, final int side) {
+        final Levels sideLevels = levels[exchange][side];
+        final QuoteSide quoteSide = side == 0 ? QuoteSide.ASK : QuoteSide.BID;
+        int action = choose(l2Weights);
+        if (action == INSERT && sideLevels.depth >= maxDepth) {
+            action = DELETE;
+        } else if (action == DELETE && sideLevels.depth <= minDepth) {
+            action = INSERT;
+        }
+
+        if (action == INSERT) {
+            // Find the first level (starting from random one) with a free tick before it
+            int level = nextLevel(sideLevels.depth + 1);
+            while (level < sideLevels.depth && sideLevels.ticks[level] - (level == 0 ? 0 : sideLevels.ticks[level - 1]) < 2) {
+                level++;
+            }
+            final int lo = level == 0 ? 0 : sideLevels.ticks[level - 1];
+            final int hi = level == sideLevels.depth ? lo + 3 : sideLevels.ticks[level];
+            final int ticks = lo + 1 + random.nextInt(hi - lo - 1);
+            final int size = nextSize();
+            sideLevels.insert(level, ticks, size);
+            return l2New(exchange, quoteSide, level, ticks, size);
+        }
+
+        final int level = nextLevel(sideLevels.depth);
+        final L2EntryUpdate entry = new L2EntryUpdate();
+        entry.setExchangeId(exchangeIds[exchange]);
+        entry.setSide(quoteSide);
+        entry.setLevel((short) level);
+        entry.setPrice(price(quoteSide, sideLevels.ticks[level]));
+        if (action == UPDATE) {
+            final int size = nextSize();
+            sideLevels.sizes[level] = size;
+            entry.setAction(BookUpdateAction.UPDATE);
+            entry.setSize(Decimal64Utils.fromLong(size));
+            entry.setNumberOfOrders(1);
+        } else {
+            sideLevels.delete(level);
+            entry.setAction(BookUpdateAction.DELETE);
+            entry.setSize(Decimal64Utils.ZERO);
+        }
+        return entry;
+    }
+
+    private BaseEntryInfo nextL3Entry(final int exchange, final int side) {
+        final Orders sideOrders = orders[exchange][side];
+        final QuoteSide quoteSide = side == 0 ? QuoteSide.ASK : QuoteSide.BID;
+        int action = choose(l3Weights);
+        if (action == ADD && sideOrders.size() >= maxDepth) {
+            action = CANCEL;
+        } else if (action != ADD && sideOrders.size() <= minDepth) {
+            action = ADD;
+        }
+
+        if (action == ADD) {
+            final Order order = sideOrders.add(newQuoteId(), nextOrderTicks(sideOrders), nextSize());
+            return l3New(exchange, quoteSide, order);
+        }
+
+        Order order = sideOrders.alive.get(random.nextInt(sideOrders.size()));
+        if (action == MODIFY && order.size <= 1) {
+            action = CANCEL;
+        }
+        if (action == CANCEL && random.nextDouble() < recentCancelProbability) {
+            final Order recent = sideOrders.recent[random.nextInt(recentWindow)];
+            if (recent != null && recent.position >= 0) {
+                order = recent;
+            }
+        }
+
+        final L3EntryUpdate entry = new L3EntryUpdate();
+        entry.setExchangeId(exchangeIds[exchange]);
+        entry.setSide(quoteSide);
+        entry.setQuoteId(order.quoteId);
+        if (action == MODIFY) {
+            // Modify is not allowed to increase size
+            order.size = 1 + random.nextInt(order.size - 1);
+            entry.setAction(QuoteUpdateAction.MODIFY);
+        } else if (action == CANCEL) {
+            sideOrders.remove(order);
+            entry.setAction(QuoteUpdateAction.CANCEL);
+        } else {
+            sideOrders.remove(order);
+            order = sideOrders.add(order.quoteId, nextOrderTicks(sideOrders), nextSize());
+            entry.setAction(QuoteUpdateAction.REPLACE);
+        }
+        entry.setPrice(price(quoteSide, order.ticks));
+        entry.setSize(Decimal64Utils.fromLong(order.size));
+        return entry;
+    }
+
+    /**
+     * Price of new order: one tick better than the best price, at the best price or deeper.
+     */
+    private int nextOrderTicks(final Orders sideOrders) {
+        final int best = sideOrders.levels.isEmpty() ? 1 : sideOrders.levels.firstKey();
+        return Math.max(1, best - 1 + nextLevel(sideOrders.levels.size() + 2));
+    }
+
+    /**
+     * Truncated geometric distribution on {@code [0, bound)}.
+     */
+    private int nextLevel(final int bound) {
+        final double q = 1 - levelSkew;
+        final double u = random.nextDouble() * (1 - Math.pow(q, bound));
+        final int level = (int) (Math.log(1 - u) / Math.log(q));
+        return Math.min(level, bound - 1);
+    }
+
+    private double nextArrival() {
+        if (arrivals == Arrivals.POISSON) {
+            time += exponential(rate);
+            return time;
+        }
+        // Ogata thinning: intensity only decays between events, so current intensity is the upper bound
+        while (true) {
+            final double upper = rate + excitation;
+            final double wait = exponential(upper);
+            time += wait;
+            excitation *= Math.exp(-hawkesBeta * wait);
+            if (random.nextDouble() * upper <= rate + excitation) {
+                excitation += hawkesAlpha;
+                return time;
+            }
+        }
+    }
+
+    private double exponential(final double intensity) {
+        return -Math.log(1 - random.nextDouble()) / intensity;
+    }
+
+    private int choose(final double[] weights) {
+        double value = random.nextDouble() * weights[weights.length - 1];
+        for (int i = 0; i < weights.length; i++) {
+            if (value < weights[i]) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private int nextSize() {
+        return 1 + random.nextInt(maxSize);
+    }
+
+    private String newQuoteId() {
+        return "Q" + nextQuoteId++;
+    }
+
+    @Decimal
+    private long price(final QuoteSide side, final int ticks) {
+        return Decimal64Utils.multiply(Decimal64Utils.fromLong(side == QuoteSide.ASK ? CENTER_TICKS + ticks : CENTER_TICKS - ticks), tickSize);
+    }
+
+    private PackageHeader newPackage(final PackageType type, final long timestampMs) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(symbol);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(BASE_TIME_MS + timestampMs);
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private L2EntryNew l2New(final int exchange, final QuoteSide side, final int level, final int ticks, final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeIds[exchange]);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(price(side, ticks));
+        entry.setSize(Decimal64Utils.fromLong(size));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private L3EntryNew l3New(final int exchange, final QuoteSide side, final Order order) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setExchangeId(exchangeIds[exchange]);
+        entry.setSide(side);
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setQuoteId(order.quoteId);
+        entry.setPrice(price(side, order.ticks));
+        entry.setSize(Decimal64Utils.fromLong(order.size));
+        return entry;
+    }
+
+    /**
+     * @return cumulative weights
+     */
+    private static double[] weights(final double... weights) {
+        final double[] result = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("Illegal weight: " + weights[i]);
+            }
+            sum += weights[i];
+            result[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Sum of weights must be positive");
+        }
+        return result;
+    }
+
+    /**
+     * Pre-generated stream: snapshots of all exchanges followed by incremental updates.
+     */
+    public static final class Workload {
+
+        private final PackageHeader[] snapshots;
+        private final PackageHeader[] updates;
+        private final long[] arrivalNanos;
+        private int cursor;
+
+        private Workload(final PackageHeader[] snapshots, final PackageHeader[] updates, final long[] arrivalNanos) {
+            this.snapshots = snapshots;
+            this.updates = updates;
+            this.arrivalNanos = arrivalNanos;
+        }
+
+        public PackageHeader[] getSnapshots() {
+            return snapshots;
+        }
+
+        public PackageHeader[] getUpdates() {
+            return updates;
+        }
+
+        /**
+         * Arrival time of every update package in nanoseconds from the start of the stream.
+         */
+        public long[] getArrivalNanos() {
+            return arrivalNanos;
+        }
+
+        public int getNumberOfEntries() {
+            int result = 0;
+            for (final PackageHeader update : updates) {
+                result += update.getEntries().size();
+            }
+            return result;
+        }
+
+        /**
+         * Next package of the stream. Stream is replayed in cycle, every cycle starts with snapshots
+         * which bring the book back to the initial state.
+         */
+        public PackageHeader next() {
+            final int i = cursor;
+            cursor = i + 1 == snapshots.length + updates.length ? 0 : i + 1;
+            return i < snapshots.length ? snapshots[i] : updates[i - snapshots.length];
+        }
+
+        /**
+         * Moves to the first update. Snapshots should be applied by caller.
+         */
+        public void rewind() {
+            cursor = snapshots.length;
+        }
+
+    }
+
+    /**
+     * L2 side: levels sorted from best to worst, price is distance from center in ticks.
+     */
+    private static final class Levels {
+        private final int[] ticks;
+        private final int[] sizes;
+        private int depth;
+
+        private Levels(final int maxDepth) {
+            this.ticks = new int[maxDepth];
+            this.sizes = new int[maxDepth];
+        }
+
+        private void insert(final int level, final int price, final int size) {
+            System.arraycopy(ticks, level, ticks, level + 1, depth - level);
+            System.arraycopy(sizes, level, sizes, level + 1, depth - level);
+            ticks[level] = price;
+            sizes[level] = size;
+            depth++;
+        }
+
+        private void delete(final int level) {
+            System.arraycopy(ticks, level + 1, ticks, level, depth - level - 1);
+            System.arraycopy(sizes, level + 1, sizes, level, depth - level - 1);
+            depth--;
+        }
+    }
+
+    private static final class Order {
+        private final String quoteId;
+        private final int ticks;
+        private int size;
+        private int position;
+
+        private Order(final String quoteId, final int ticks, final int size) {
+            this.quoteId = quoteId;
+            this.ticks = ticks;
+            this.size = size;
+        }
+    }
+
+    /**
+     * L3 side: live orders (unordered), number of orders per price and recently added orders.
+     */
+    private static final class Orders {
+        private final ArrayList<Order> alive = new ArrayList<>();
+        private final TreeMap<Integer, Integer> levels = new TreeMap<>();
+        private final Order[] recent;
+        private int recentIndex;
+
+        private Orders(final int recentWindow) {
+            this.recent = new Order[recentWindow];
+        }
+
+        private int size() {
+            return alive.size();
+        }
+
+        private Order add(final String quoteId, final int ticks, final int size) {
+            final Order order = new Order(quoteId, ticks, size);
+            order.position = alive.size();
+            alive.add(order);
+            levels.merge(ticks, 1, Integer::sum);
+            recent[recentIndex] = order;
+            recentIndex = (recentIndex + 1) % recent.length;
+            return order;
+        }
+
+        private void remove(final Order order) {
+            final Order last = alive.remove(alive.size() - 1);
+            if (last != order) {
+                alive.set(order.position, last);
+                last.position = order.position;
+            }
+            order.position = -1;
+            levels.computeIfPresent(order.ticks, (ticks, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import com.epam.deltix.timebase.messages.universal.PackageHeader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregate throughput of many books updated by many threads, where books don't fit into CPU caches.
+ * <p>
+ * Every thread owns its own {@code numberOfBooks / threads} books and its own synthetic stream
+ * (see {@link MarketDataGenerator}), every book replays the stream from its own position.
+ * Book to update is chosen round-robin or by Zipf distribution (few hot symbols and long tail).
+ * JMH sums throughput of all threads, so result is messages per second of the whole JVM.
+ * <p>
+ * {@link #main} runs thread counts from 1 to number of cores. Add {@code -prof perfnorm} (Linux) to see
+ * LLC misses per message of different market side implementations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class MultiBookBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final int NUMBER_OF_UPDATES = 1 << 12;
+    private static final int SCHEDULE_SIZE = 1 << 16;
+
+    public enum Distribution {
+        ROUND_ROBIN,
+        ZIPF
+    }
+
+    public enum Book {
+        L2(DataModelType.LEVEL_TWO, false),
+        L2_COMPACT(DataModelType.LEVEL_TWO, true),
+        L3(DataModelType.LEVEL_THREE, false);
+
+        private final DataModelType quoteLevels;
+        private final boolean isCompact;
+
+        Book(final DataModelType quoteLevels, final boolean isCompact) {
+            this.quoteLevels = quoteLevels;
+            this.isCompact = isCompact;
+        }
+    }
+
+    /**
+     * Total number of books of all threads.
+     */
+    @Param({"1", "100", "10000", "100000"})
+    private int numberOfBooks;
+
+    @Param({"ROUND_ROBIN", "ZIPF"})
+    private Distribution distribution;
+
+    @Param({"L2", "L2_COMPACT", "L3"})
+    private Book book;
+
+    /**
+     * Levels (L2) or orders (L3) per side.
+     */
+    @Param({"10"})
+    private int depth;
+
+    private OrderBook<OrderBookQuote>[] books;
+    // Snapshots followed by updates, every book has its own position
+    private PackageHeader[] stream;
+    private int[] positions;
+    // Pre-generated order of books (Zipf only)
+    private int[] schedule;
+    private int cursor;
+
+    public static void main(final String[] args) throws RunnerException {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        // 1, 2, 4, ... and number of cores
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            final Options opt = new OptionsBuilder()
+                    .include(MultiBookBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(opt).run();
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp(final ThreadParams threadParams) {
+        final int threadIndex = threadParams.getThreadIndex();
+        final int booksPerThread = Math.max(1, numberOfBooks / threadParams.getThreadCount());
+
+        final MarketDataGenerator.Workload workload = new MarketDataGenerator(book.quoteLevels, threadIndex)
+                .symbol(SYMBOL)
+                .depth(depth)
+                .generate(NUMBER_OF_UPDATES);
+        final PackageHeader[] snapshots = workload.getSnapshots();
+        final PackageHeader[] updates = workload.getUpdates();
+        stream = Arrays.copyOf(snapshots, snapshots.length + updates.length);
+        System.arraycopy(updates, 0, stream, snapshots.length, updates.length);
+
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(book.quoteLevels)
+                .isCompactVersion(book.isCompact)
+                .initialDepth(depth)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        books = new OrderBook[booksPerThread];
+        positions = new int[booksPerThread];
+        for (int i = 0; i < booksPerThread; i++) {
+            books[i] = OrderBookFactory.create(opt);
+            for (final PackageHeader snapshot : snapshots) {
+                books[i].update(snapshot);
+            }
+            positions[i] = snapshots.length;
+        }
+
+        if (distribution == Distribution.ZIPF) {
+            schedule = new int[SCHEDULE_SIZE];
+            zipf(schedule, booksPerThread, new Random(threadIndex));
+        }
+    }
+
+    @Benchmark
+    public boolean update() {
+        final int index;
+        if (schedule == null) {
+            index = cursor;
+            cursor = index + 1 == books.length ? 0 : index + 1;
+        } else {
+            index = schedule[cursor];
+            cursor = (cursor + 1) & (SCHEDULE_SIZE - 1);
+        }
+
+        final int position = positions[index];
+        positions[index] = position + 1 == stream.length ? 0 : position + 1;
+        return books[index].update(stream[position]);
+    }
+
+    /**
+     * Zipf distribution with exponent 1: book {@code k} is chosen {@code k + 1} times less often than book 0.
+     */
+    private static void zipf(final int[] schedule, final int numberOfBooks, final Random random) {
+        final double[] cdf = new double[numberOfBooks];
+        double sum = 0;
+        for (int k = 0; k < numberOfBooks; k++) {
+            sum += 1.0 / (k + 1);
+            cdf[k] = sum;
+        }
+        for (int i = 0; i < schedule.length; i++) {
+            final int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            schedule[i] = Math.min(k >= 0 ? k : -k - 1, numberOfBooks - 1);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory footprint suite: retained size (JOL) of every book type, empty and filled to given depth.
+ * <p>
+ * Report is written as CSV ({@code footprint.report}, default {@code footprint.csv}) with bytes per book
+ * and per level (per order for L3). When {@code footprint.baseline} (previous report) is given, footprint
+ * of filled books is compared with it and process exits with code 1 if any book has grown more than
+ * {@code footprint.threshold} (default 0.05, i.e. 5%).
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookFootprint {
+
+    private static final String SYMBOL = "BTC";
+    private static final String HEADER =
+            "book,timestamps,initialDepth,maxDepth,exchanges,fillDepth,emptyBytes,filledBytes,bytesPerLevel";
+    // Number of key columns in report
+    private static final int KEY_COLUMNS = 6;
+
+    private static final int[] FILL_DEPTHS = {10, 100, 1000};
+
+    enum Book {
+        L1(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false),
+        L2_SINGLE(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false),
+        L2_SINGLE_COMPACT(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, true),
+        L2_AGGREGATED(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false),
+        L2_CONSOLIDATED(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false),
+        L3_SINGLE(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false),
+        L3_CONSOLIDATED(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false);
+
+        private final DataModelType quoteLevels;
+        private final OrderBookType type;
+        private final boolean isCompact;
+
+        Book(final DataModelType quoteLevels, final OrderBookType type, final boolean isCompact) {
+            this.quoteLevels = quoteLevels;
+            this.type = type;
+            this.isCompact = isCompact;
+        }
+
+        private boolean isMultiExchange() {
+            return type != OrderBookType.SINGLE_EXCHANGE;
+        }
+    }
+
+    private OrderBookFootprint() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Path report = Paths.get(System.getProperty("footprint.report", "footprint.csv"));
+        final String baseline = System.getProperty("footprint.baseline");
+        final double threshold = Double.parseDouble(System.getProperty("footprint.threshold", "0.05"));
+
+        final List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (final Book book : Book.values()) {
+            for (final boolean timestamps : new boolean[]{false, true}) {
+                if (book.isCompact && timestamps) {
+                    continue; // compact book doesn't store timestamps
+                }
+                for (final int initialDepth : new int[]{10, 1000}) {
+                    for (final int exchanges : book.isMultiExchange() ? new int[]{1, 4} : new int[]{1}) {
+                        for (final int fillDepth : book.quoteLevels == DataModelType.LEVEL_ONE ? new int[]{1} : FILL_DEPTHS) {
+                            lines.add(measure(book, timestamps, initialDepth, Math.max(initialDepth, fillDepth * 2), exchanges, fillDepth));
+                        }
+                    }
+                }
+            }
+        }
+        Files.write(report, lines, StandardCharsets.UTF_8);
+        lines.forEach(System.out::println);
+
+        if (baseline != null && !compare(lines, Files.readAllLines(Paths.get(baseline), StandardCharsets.UTF_8), threshold)) {
+            System.exit(1);
+        }
+    }
+
+    private static String measure(final Book book,
+                                  final boolean timestamps,
+                                  final int initialDepth,
+                                  final int maxDepth,
+                                  final int exchanges,
+                                  final int fillDepth) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(book.type)
+                .quoteLevels(book.quoteLevels)
+                .isCompactVersion(book.isCompact)
+                .shouldStoreQuoteTimestamps(timestamps)
+                .initialDepth(initialDepth)
+                .maxDepth(maxDepth)
+                .initialExchangesPoolSize(exchanges)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        final OrderBook<OrderBookQuote> orderBook = OrderBookFactory.create(opt);
+        final long emptyBytes = GraphLayout.parseInstance(orderBook).totalSize();
+
+        final PackageHeader[] snapshots;
+        if (book.quoteLevels == DataModelType.LEVEL_ONE) {
+            snapshots = new PackageHeader[]{l1Snapshot()};
+        } else {
+            snapshots = new MarketDataGenerator(book.quoteLevels, 42)
+                    .symbol(SYMBOL)
+                    .numberOfExchanges(exchanges)
+                    .depth(fillDepth)
+                    .generate(0)
+                    .getSnapshots();
+        }
+        for (final PackageHeader snapshot : snapshots) {
+            if (!orderBook.update(snapshot)) {
+                throw new IllegalStateException("Snapshot is not applied: " + orderBook.getDescription());
+            }
+        }
+        final long filledBytes = GraphLayout.parseInstance(orderBook).totalSize();
+        final long levels = 2L * fillDepth * exchanges;
+
+        return book + "," + timestamps + "," + initialDepth + "," + maxDepth + "," + exchanges + "," + fillDepth + "," +
+                emptyBytes + "," + filledBytes + "," + (filledBytes - emptyBytes) / levels;
+    }
+
+    /**
+     * @return false if filled book of any configuration has grown more than threshold
+     */
+    private static boolean compare(final List<String> report, final List<String> baseline, final double threshold) {
+        final Map<String, Long> expected = new HashMap<>();
+        for (final String line : baseline.subList(1, baseline.size())) {
+            expected.put(key(line), filledBytes(line));
+        }
+        boolean ok = true;
+        for (final String line : report.subList(1, report.size())) {
+            final Long previous = expected.get(key(line));
+            if (previous == null) {
+                continue;
+            }
+            final long current = filledBytes(line);
+            if (current > previous * (1 + threshold)) {
+                System.out.printf("REGRESSION %s: %d -> %d byte(s) (+%.1f%%)%n",
+                        key(line), previous, current, 100.0 * (current - previous) / previous);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private static String key(final String line) {
+        final String[] columns = line.split(",");
+        return String.join(",", Arrays.copyOf(columns, KEY_COLUMNS));
+    }
+
+    private static long filledBytes(final String line) {
+        return Long.parseLong(line.split(",")[KEY_COLUMNS + 1]);
+    }
+
+    private static PackageHeader l1Snapshot() {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setEntries(new ObjectArrayList<>());
+        for (final QuoteSide side : new QuoteSide[]{QuoteSide.ASK, QuoteSide.BID}) {
+            final L1Entry entry = new L1Entry();
+            entry.setExchangeId(AlphanumericUtils.toAlphanumericUInt64("EXCH0"));
+            entry.setSide(side);
+            entry.setPrice(Decimal64Utils.fromLong(side == QuoteSide.ASK ? 101 : 99));
+            entry.setSize(Decimal64Utils.ONE);
+            entry.setNumberOfOrders(1);
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.benchmark;
+
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import com.epam.deltix.timebase.messages.universal.PackageHeader;
+import org.HdrHistogram.Histogram;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail latency of incremental updates: pre-generated stream (see {@link MarketDataGenerator}) is replayed
+ * at fixed rate and latency of every package is recorded into HDR histogram.
+ * <ul>
+ *     <li>response - from intended (scheduled) start of update to its end, so stalls delay all following updates
+ *     and are not hidden (coordinated omission);</li>
+ *     <li>service - time of update itself, corrected for coordinated omission by
+ *     {@link Histogram#recordValueWithExpectedInterval}.</li>
+ * </ul>
+ * Settings (system properties): {@code latency.rate} - packages per second, {@code latency.warmup} and
+ * {@code latency.duration} - seconds, {@code latency.depths} - comma separated depths,
+ * {@code latency.books} - comma separated names of {@link Book}.
+ * <p>
+ * Snapshots which restart the stream after its end are applied out of the schedule and are not recorded.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookLatencyBenchmark {
+
+    private static final String SYMBOL = "BTC";
+    private static final long SEED = 42;
+    private static final int NUMBER_OF_UPDATES = 1 << 18;
+
+    enum Book {
+        L2_SINGLE(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false, 1),
+        L2_SINGLE_COMPACT(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, true, 1),
+        L2_AGGREGATED(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false, 4),
+        L2_CONSOLIDATED(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false, 4),
+        L3_SINGLE(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false, 1),
+        L3_CONSOLIDATED(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false, 4);
+
+        private final DataModelType quoteLevels;
+        private final OrderBookType type;
+        private final boolean isCompact;
+        private final int numberOfExchanges;
+
+        Book(final DataModelType quoteLevels,
+             final OrderBookType type,
+             final boolean isCompact,
+             final int numberOfExchanges) {
+            this.quoteLevels = quoteLevels;
+            this.type = type;
+            this.isCompact = isCompact;
+            this.numberOfExchanges = numberOfExchanges;
+        }
+    }
+
+    private OrderBookLatencyBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int rate = Integer.getInteger("latency.rate", 100_000);
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("latency.warmup", 5));
+        final long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("latency.duration", 10));
+        final String[] depths = System.getProperty("latency.depths", "40,1000").split(",");
+        final String books = System.getProperty("latency.books");
+        final List<String> selected = books == null ? null : Arrays.asList(books.split(","));
+
+        System.out.printf("Rate: %d packages/s, latency in nanoseconds%n", rate);
+        System.out.printf("%-18s %-9s %6s %10s %10s %10s %10s %10s %10s%n",
+                "Book", "Latency", "Depth", "p50", "p99", "p99.9", "p99.99", "max", "count");
+        for (final Book book : Book.values()) {
+            if (selected != null && !selected.contains(book.name())) {
+                continue;
+            }
+            for (final String depth : depths) {
+                run(book, Integer.parseInt(depth.trim()), rate, warmupNanos, durationNanos);
+            }
+        }
+    }
+
+    private static void run(final Book book,
+                            final int depth,
+                            final int rate,
+                            final long warmupNanos,
+                            final long durationNanos) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(book.type)
+                .quoteLevels(book.quoteLevels)
+                .isCompactVersion(book.isCompact)
+                .initialDepth(depth)
+                .initialExchangesPoolSize(book.numberOfExchanges)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        final OrderBook<OrderBookQuote> orderBook = OrderBookFactory.create(opt);
+        final MarketDataGenerator.Workload workload = new MarketDataGenerator(book.quoteLevels, SEED)
+                .symbol(SYMBOL)
+                .numberOfExchanges(book.numberOfExchanges)
+                .depth(depth)
+                .generate(NUMBER_OF_UPDATES);
+
+        final Histogram response = new Histogram(3);
+        final Histogram service = new Histogram(3);
+        replay(orderBook, workload, rate, warmupNanos, response, service);
+        response.reset();
+        service.reset();
+        replay(orderBook, workload, rate, durationNanos, response, service);
+
+        print(book, "response", depth, response);
+        print(book, "service", depth, service);
+    }
+
+    private static void replay(final OrderBook<OrderBookQuote> orderBook,
+                               final MarketDataGenerator.Workload workload,
+                               final int rate,
+                               final long durationNanos,
+                               final Histogram response,
+                               final Histogram service) {
+        final long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        final PackageHeader[] updates = workload.getUpdates();
+        applySnapshots(orderBook, workload);
+
+        int index = 0;
+        long intended = System.nanoTime();
+        long deadline = intended + durationNanos;
+        while (intended < deadline) {
+            if (index == updates.length) {
+                applySnapshots(orderBook, workload);
+                index = 0;
+                // Shift schedule, so time of snapshots isn't counted as delay of the next update
+                final long now = System.nanoTime();
+                deadline += now - intended;
+                intended = now;
+            }
+
+            long start;
+            while ((start = System.nanoTime()) < intended) {
+                Thread.onSpinWait();
+            }
+            orderBook.update(updates[index++]);
+            final long end = System.nanoTime();
+
+            response.recordValue(end - intended);
+            service.recordValueWithExpectedInterval(end - start, interval);
+            intended += interval;
+        }
+    }
+
+    private static void applySnapshots(final OrderBook<OrderBookQuote> orderBook,
+                                       final MarketDataGenerator.Workload workload) {
+        for (final PackageHeader snapshot : workload.getSnapshots()) {
+            orderBook.update(snapshot);
+        }
+    }
+
+    private static void print(final Book book, final String latency, final int depth, final Histogram histogram) {
+        System.out.printf("%-18s %-9s %6d %10d %10d %10d %10d %10d %10d%n",
+                book, latency, depth,
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9),
+                histogram.getValueAtPercentile(99.99),
+                histogram.getMaxValue(),
+                histogram.getTotalCount());
+    }
+
+}
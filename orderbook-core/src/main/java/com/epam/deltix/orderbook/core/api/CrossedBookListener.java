@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.api;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.util.annotations.Alphanumeric;
+
+/**
+ * User-defined handler of crossed (best ask is below best bid) or locked (best ask equals best bid) state
+ * of consolidated and aggregated order books.
+ * <p>
+ * Order book compares its best ask and best bid once message (or primitive update) is completely applied,
+ * so transient states inside of a package are not reported. Callback is invoked from the thread updating the book,
+ * when book becomes crossed; with {@link com.epam.deltix.orderbook.core.options.CrossedBookMode#REPORT}
+ * it is not invoked again until the cross is resolved.
+ *
+ * @author Andrii_Ostapenko1
+ * @see com.epam.deltix.orderbook.core.options.CrossedBookMode
+ */
+public interface CrossedBookListener {
+
+    /**
+     * Called when the best ask price of the book is not above the best bid price.
+     *
+     * @param askExchangeId - exchange of the best ask
+     * @param bidExchangeId - exchange of the best bid, same as {@code askExchangeId} if exchange is crossed itself
+     * @param askPrice      - best ask price
+     * @param bidPrice      - best bid price, equals to {@code askPrice} if book is locked
+     */
+    void onCrossed(@Alphanumeric long askExchangeId,
+                   @Alphanumeric long bidExchangeId,
+                   @Decimal long askPrice,
+                   @Decimal long bidPrice);
+}
@@ -33,6 +33,11 @@ import java.util.function.Predicate;
  */
 public interface MarketSide<Quote> extends IterableMarketSide<Quote> {
 
+    /**
+     * Level returned by price lookup methods when there is no quote with requested price.
+     */
+    int NOT_FOUND = -1;
+
     /**
      * Get side of quote(ASK or BID).
      *
@@ -115,6 +120,56 @@ public interface MarketSide<Quote> extends IterableMarketSide<Quote> {
      */
     boolean hasQuote(CharSequence quoteId);
 
+    /**
+     * Get quote by price in O(log n) without memory allocation.
+     * <p>
+     * If several quotes have the same price (consolidated L2 book, L3 book), returns the first (highest priority)
+     * one, following quotes with the same price can be reached by iterator.
+     * Compact order book returns reusable quote instance, which is valid until the next call.
+     *
+     * @param price - price to use
+     * @return quote or null if there is no quote with given price
+     */
+    Quote getQuoteByPrice(@Decimal long price);
+
+    /**
+     * Get level by price in O(log n) without memory allocation.
+     * <p>
+     * If several quotes have the same price (consolidated L2 book), returns level of the first one.
+     * L3 book has no quote levels, so level of L3 book is the number of better prices: orders with the same price
+     * form one level. It is found in O(level * log n), one lookup per better price.
+     *
+     * @param price - price to use
+     * @return level or {@link #NOT_FOUND} if there is no quote with given price
+     */
+    int getLevelByPrice(@Decimal long price);
+
+    /**
+     * Get level of the quote with the nearest price in given direction, inclusive, in O(log n) without memory
+     * allocation. For example, {@link PriceDirection#UP} on ASK side finds level at which quote with given price
+     * would be inserted, while {@link PriceDirection#DOWN} finds best level not worse than given price.
+     * <p>
+     * If several quotes have the nearest price (consolidated L2 book), returns level of the first one.
+     * Level of L3 book is the number of better prices, as in {@link #getLevelByPrice(long)}.
+     *
+     * @param price     - price to use
+     * @param direction - direction of search
+     * @return level or {@link #NOT_FOUND} if there is no quote with price in given direction
+     */
+    int getNearestLevel(@Decimal long price, PriceDirection direction);
+
+    /**
+     * Get quote with the nearest price in given direction, inclusive, in O(log n) without memory allocation.
+     * <p>
+     * If several quotes have the nearest price (consolidated L2 book, L3 book), returns the first one.
+     *
+     * @param price     - price to use
+     * @param direction - direction of search
+     * @return quote or null if there is no quote with price in given direction
+     * @see #getQuoteByPrice(long)
+     */
+    Quote getNearestQuote(@Decimal long price, PriceDirection direction);
+
     @Override
     default Iterator<Quote> iterator() {
         return iterator(0);
@@ -53,6 +53,7 @@ public class OrderBookFactory {
      * @throws IllegalArgumentException - if some options does not supported.
      * @see OrderBook
      * @see OrderBookQuote
+     * @see OrderBookUpdater
      */
     public static <Quote extends OrderBookQuote> OrderBook<Quote> create(final OrderBookOptions options) {
         if (Objects.isNull(options)) {
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.api;
+
+/**
+ * User-defined sink of order book processing metrics.
+ * <p>
+ * Callbacks are invoked on the hot path from the thread updating the book, so implementations
+ * must be cheap and must not allocate memory. All methods are no-op by default, so the default instance
+ * ({@link com.epam.deltix.orderbook.core.options.Defaults#METRICS}) is eliminated by JIT.
+ *
+ * @author Andrii_Ostapenko1
+ * @see com.epam.deltix.orderbook.core.impl.CountingOrderBookMetrics
+ */
+public interface OrderBookMetrics {
+
+    /**
+     * Should order book measure duration of updates?
+     * Called once when order book is created, if {@code false} the durations passed to
+     * {@link #onIncrementalUpdate(long)} and {@link #onSnapshot(long)} are zero.
+     *
+     * @return flag
+     */
+    default boolean isLatencyEnabled() {
+        return false;
+    }
+
+    /**
+     * Called when incremental update package is processed.
+     *
+     * @param durationNanos duration of processing in nanoseconds
+     */
+    default void onIncrementalUpdate(final long durationNanos) {
+    }
+
+    /**
+     * Called when snapshot package is applied to the book.
+     *
+     * @param durationNanos duration of processing in nanoseconds
+     */
+    default void onSnapshot(final long durationNanos) {
+    }
+
+    /**
+     * Called when incoming entry is rejected by validation (invalid insert or update).
+     */
+    default void onEntryRejected() {
+    }
+
+    /**
+     * Called when order book detects inconsistent state and starts waiting for snapshot.
+     */
+    default void onBroken() {
+    }
+
+    /**
+     * Called when quote pool is empty and new quote is allocated.
+     */
+    default void onPoolMiss() {
+    }
+}
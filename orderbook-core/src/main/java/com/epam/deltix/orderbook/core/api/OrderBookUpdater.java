@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.api;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
+import com.epam.deltix.timebase.messages.universal.InsertType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.QuoteUpdateAction;
+import com.epam.deltix.util.annotations.Alphanumeric;
+
+/**
+ * Low level API to apply incremental updates to the order book straight from primitives,
+ * without building market data messages.
+ * <p>
+ * Every method is the equivalent of {@link OrderBook#update} with {@code INCREMENTAL_UPDATE} package
+ * containing the single entry of corresponding type, except that the symbol of the book is not checked and update
+ * is not written into the journal. Snapshots must still be processed with {@link OrderBook#update}.
+ * <p>
+ * Single exchange order books created by {@link OrderBookFactory} implement this interface, multi exchange books don't.
+ * Entries of other quote levels than the one of the book are rejected (methods return {@code false}),
+ * the same way as {@link OrderBook#update} does with such entries.
+ *
+ * @author Andrii_Ostapenko1
+ * @see com.epam.deltix.orderbook.core.impl.OrderBookBufferDecoder
+ */
+public interface OrderBookUpdater {
+
+    /**
+     * Equivalent of {@link com.epam.deltix.timebase.messages.universal.L1Entry}: insert or update the top of the book.
+     *
+     * @param exchangeId     - exchange code
+     * @param side           - side of quote
+     * @param price          - price
+     * @param size           - size
+     * @param numberOfOrders - number of orders
+     * @param timestamp      - timestamp of update
+     * @return {@code true} if entry is processed
+     */
+    boolean applyL1(@Alphanumeric long exchangeId,
+                    QuoteSide side,
+                    @Decimal long price,
+                    @Decimal long size,
+                    long numberOfOrders,
+                    long timestamp);
+
+    /**
+     * Equivalent of {@link com.epam.deltix.timebase.messages.universal.L2EntryNew}: insert one level.
+     *
+     * @param exchangeId     - exchange code
+     * @param side           - side of quote
+     * @param level          - level to insert
+     * @param price          - price
+     * @param size           - size
+     * @param numberOfOrders - number of orders
+     * @param timestamp      - timestamp of update
+     * @return {@code true} if entry is processed
+     */
+    boolean applyL2New(@Alphanumeric long exchangeId,
+                       QuoteSide side,
+                       int level,
+                       @Decimal long price,
+                       @Decimal long size,
+                       long numberOfOrders,
+                       long timestamp);
+
+    /**
+     * Equivalent of {@link com.epam.deltix.timebase.messages.universal.L2EntryUpdate}: update or delete one level.
+     *
+     * @param exchangeId     - exchange code
+     * @param side           - side of quote
+     * @param level          - level to update
+     * @param action         - update action
+     * @param price          - price
+     * @param size           - size
+     * @param numberOfOrders - number of orders
+     * @param timestamp      - timestamp of update
+     * @return {@code true} if entry is processed
+     */
+    boolean applyL2Update(@Alphanumeric long exchangeId,
+                          QuoteSide side,
+                          int level,
+                          BookUpdateAction action,
+                          @Decimal long price,
+                          @Decimal long size,
+                          long numberOfOrders,
+                          long timestamp);
+
+    /**
+     * Equivalent of {@link com.epam.deltix.timebase.messages.universal.L3EntryNew}: insert one order.
+     *
+     * @param exchangeId    - exchange code
+     * @param side          - side of quote
+     * @param insertType    - insert type
+     * @param quoteId       - quote id
+     * @param participantId - participant id (may be {@code null})
+     * @param price         - price
+     * @param size          - size
+     * @param timestamp     - timestamp of update
+     * @return {@code true} if entry is processed
+     */
+    boolean applyL3New(@Alphanumeric long exchangeId,
+                       QuoteSide side,
+                       InsertType insertType,
+                       CharSequence quoteId,
+                       CharSequence participantId,
+                       @Decimal long price,
+                       @Decimal long size,
+                       long timestamp);
+
+    /**
+     * Equivalent of {@link com.epam.deltix.timebase.messages.universal.L3EntryUpdate}: cancel, modify or replace one order.
+     *
+     * @param exchangeId    - exchange code
+     * @param side          - side of quote
+     * @param action        - update action
+     * @param quoteId       - quote id
+     * @param participantId - participant id (may be {@code null})
+     * @param price         - price
+     * @param size          - size
+     * @param timestamp     - timestamp of update
+     * @return {@code true} if entry is processed
+     */
+    boolean applyL3Update(@Alphanumeric long exchangeId,
+                          QuoteSide side,
+                          QuoteUpdateAction action,
+                          CharSequence quoteId,
+                          CharSequence participantId,
+                          @Decimal long price,
+                          @Decimal long size,
+                          long timestamp);
+
+}
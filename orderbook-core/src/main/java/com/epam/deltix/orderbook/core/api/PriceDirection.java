@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.api;
+
+/**
+ * Direction of search of the nearest price in {@link MarketSide}.
+ * Direction is absolute, so it means the same for both sides of the book.
+ *
+ * @author Andrii_Ostapenko1
+ * @see MarketSide#getNearestLevel(long, PriceDirection)
+ * @see MarketSide#getNearestQuote(long, PriceDirection)
+ */
+public enum PriceDirection {
+    /**
+     * Nearest price greater than or equal to the given one.
+     */
+    UP,
+
+    /**
+     * Nearest price less than or equal to the given one.
+     */
+    DOWN
+}
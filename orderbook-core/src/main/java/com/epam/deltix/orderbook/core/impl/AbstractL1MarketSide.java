@@ -50,6 +50,11 @@ abstract class AbstractL1MarketSide<Quote extends OrderBookQuote> implements L1M
         return !isEmpty() && level == 0 ? getBestQuote() : null;
     }
 
+    @Override
+    public long getPrice(final int level) {
+        return quote.getPrice();
+    }
+
     @Override
     public long getTotalQuantity() {
         if (Objects.nonNull(quote)) {
@@ -85,6 +85,11 @@ abstract class AbstractL2MarketSide<Quote extends MutableOrderBookQuote> impleme
         return data.get(level);
     }
 
+    @Override
+    public long getPrice(final int level) {
+        return data.get(level).getPrice();
+    }
+
     @Override
     public void add(final int level, final Quote insert) {
         data.add(level, insert);
@@ -17,7 +17,11 @@
 package com.epam.deltix.orderbook.core.impl;
 
 import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
+import com.epam.deltix.orderbook.core.api.PriceDirection;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.TypeConstants;
 import com.epam.deltix.timebase.messages.service.FeedStatus;
@@ -29,6 +33,9 @@ import com.epam.deltix.util.collections.generated.ObjectList;
 
 /**
  * Main class for L2 quote level order book.
+ * <p>
+ * Merged sides keep only the best {@code maxDepth} levels. Deeper quotes stay in exchange books only (truncated)
+ * and are promoted to merged side when its top levels are removed.
  *
  * @author Andrii_Ostapenko1
  */
@@ -37,7 +44,7 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
     protected final L2MarketSide<Quote> bids;
     protected final L2MarketSide<Quote> asks;
 
-    protected final ObjectPool<Quote> pool;
+    protected final Pool<Quote> pool;
 
     protected final MutableExchangeList<MutableExchange<Quote, L2Processor<Quote>>> exchanges;
 
@@ -45,19 +52,27 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
     protected final DisconnectMode disconnectMode;
     protected final ValidationOptions validationOptions;
     private final OrderBookOptions options;
+    private final OrderBookMetrics metrics;
+    private final CrossedBookDetector<Quote, L2Processor<Quote>> crossedBook;
 
-    AbstractL2MultiExchangeProcessor(final OrderBookOptions options, final ObjectPool<Quote> pool) {
+    // Exchange books have quotes which are not in merged side
+    private boolean isAsksTruncated;
+    private boolean isBidsTruncated;
+
+    AbstractL2MultiExchangeProcessor(final OrderBookOptions options, final Pool<Quote> pool) {
         this.options = options;
+        this.metrics = options.getMetrics().orElse(Defaults.METRICS);
         this.validationOptions = options.getInvalidQuoteMode().orElse(Defaults.VALIDATION_OPTIONS);
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
+        this.crossedBook = new CrossedBookDetector<>(options);
 
         final int maxDepth = options.getMaxDepth().orElse(Defaults.MAX_DEPTH);
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final int exchanges = options.getInitialExchangesPoolSize().orElse(Defaults.INITIAL_EXCHANGES_POOL_SIZE);
         this.pool = pool;
         this.exchanges = new MutableExchangeListImpl<>(exchanges);
-        this.asks = L2MarketSide.factory(exchanges * depth, Defaults.MAX_DEPTH, QuoteSide.ASK);
-        this.bids = L2MarketSide.factory(exchanges * depth, Defaults.MAX_DEPTH, QuoteSide.BID);
+        this.asks = L2MarketSide.factory(Math.min(exchanges * depth, maxDepth), maxDepth, QuoteSide.ASK);
+        this.bids = L2MarketSide.factory(Math.min(exchanges * depth, maxDepth), maxDepth, QuoteSide.BID);
     }
 
     @Override
@@ -107,7 +122,9 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
                 final L2Processor<Quote> exchange = holder.get().getProcessor();
 
                 unmapQuote(exchange);
-                return exchange.processSecurityFeedStatus(msg);
+                final boolean isProcessed = exchange.processSecurityFeedStatus(msg);
+                fillUp();
+                return isProcessed;
             }
         }
         return false;
@@ -124,7 +141,9 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         final L2Processor<Quote> exchange = holder.get().getProcessor();
 
         unmapQuote(exchange);
-        return exchange.processBookResetEntry(pck, msg);
+        final boolean isProcessed = exchange.processBookResetEntry(pck, msg);
+        fillUp();
+        return isProcessed;
     }
 
     @Override
@@ -133,6 +152,7 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
 
         // we assume that all entries in the message are from the same exchange
         @Alphanumeric final long exchangeId = entries.get(0).getExchangeId();
+        crossedBook.onUpdate(exchangeId);
 
         final Option<MutableExchange<Quote, L2Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
 
@@ -143,11 +163,13 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         final L2Processor<Quote> exchange = holder.get().getProcessor();
         if (exchange.isSnapshotAllowed(msg)) {
             unmapQuote(exchange);
-            if (exchange.processL2Snapshot(msg)) {
+            final boolean isProcessed = exchange.processL2Snapshot(msg);
+            if (isProcessed) {
                 mapQuote(exchange, QuoteSide.BID);
                 mapQuote(exchange, QuoteSide.ASK);
-                return true;
             }
+            fillUp();
+            return isProcessed;
         }
         return false;
     }
@@ -158,6 +180,7 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         final QuoteSide side = msg.getSide();
         final int level = msg.getLevel();
         @Alphanumeric final long exchangeId = msg.getExchangeId();
+        crossedBook.onUpdate(exchangeId);
 
         final Option<MutableExchange<Quote, L2Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
         // Duplicate
@@ -171,7 +194,10 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         if (marketSide.isInvalidInsert(level, msg.getPrice(), msg.getSize(), exchangeId)) {
             if (validationOptions.isQuoteInsert()) {
                 unmapQuote(exchange);
-                exchange.processL2EntryNew(pck, msg);
+                exchange.processL2EntryNew(pck, msg); // rejected (and counted) by exchange processor
+                fillUp();
+            } else {
+                metrics.onEntryRejected();
             }
             return null;
         }
@@ -185,9 +211,11 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         // We process quote as new by single exchange and then insert it to the aggregated  book
         final Quote quote = exchange.processL2EntryNew(pck, msg);
         if (quote == null) {
+            fillUp();
             return null;
         }
         final Quote insertQuote = insertQuote(quote, side);
+        fillUp();
         return insertQuote;
     }
 
@@ -198,6 +226,7 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         final QuoteSide side = msg.getSide();
         @Alphanumeric final long exchangeId = msg.getExchangeId();
         final BookUpdateAction action = msg.getAction();
+        crossedBook.onUpdate(exchangeId);
 
         final Option<MutableExchange<Quote, L2Processor<Quote>>> exchange = getExchanges().getById(exchangeId);
 
@@ -211,7 +240,10 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         if (marketSide.isInvalidUpdate(action, level, msg.getPrice(), msg.getSize(), exchangeId)) {
             if (validationOptions.isQuoteUpdate()) {
                 unmapQuote(exchangeId);
-                exchange.get().getProcessor().processL2EntryUpdate(pck, msg);
+                exchange.get().getProcessor().processL2EntryUpdate(pck, msg); // rejected (and counted) by exchange processor
+                fillUp();
+            } else {
+                metrics.onEntryRejected();
             }
             return false;
         }
@@ -221,6 +253,9 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         if (bookUpdateAction == BookUpdateAction.DELETE) {
             final Quote quote = marketSide.getQuote(level);
             removeQuote(quote, side);
+            final boolean isProcessed = exchange.get().getProcessor().processL2EntryUpdate(pck, msg);
+            fillUp();
+            return isProcessed;
         } else if (bookUpdateAction == BookUpdateAction.UPDATE) {
             final Quote quote = marketSide.getQuote(level);
             updateQuote(quote, side, msg);
@@ -228,6 +263,30 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
         return exchange.get().getProcessor().processL2EntryUpdate(pck, msg);
     }
 
+    @Override
+    public void invalidate(@Alphanumeric final long exchangeId) {
+        final Option<MutableExchange<Quote, L2Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
+        if (holder.hasValue()) {
+            final L2Processor<Quote> exchange = holder.get().getProcessor();
+            unmapQuote(exchange);
+            exchange.invalidate();
+            fillUp();
+        }
+    }
+
+    @Override
+    public boolean checkCrossedBook() {
+        // One exchange at most: if the book is still crossed, the next package decides what is stale
+        final L2Processor<Quote> stale = crossedBook.check(asks, bids, exchanges);
+        if (stale != null) {
+            unmapQuote(stale);
+            stale.invalidate();
+            fillUp();
+            return true;
+        }
+        return false;
+    }
+
     protected abstract void updateQuote(final Quote previous,
                                         final QuoteSide side,
                                         final L2EntryUpdateInfo update);
@@ -268,6 +327,130 @@ abstract class AbstractL2MultiExchangeProcessor<Quote extends MutableOrderBookQu
 
     protected abstract L2Processor<Quote> unmapQuote(L2Processor<Quote> exchange);
 
+    /**
+     * Checks if merged side contains given quote of exchange book.
+     *
+     * @param quote      - quote of exchange book
+     * @param marketSide - merged side
+     * @return true if quote is accounted in merged side
+     */
+    protected abstract boolean contains(Quote quote, L2MarketSide<Quote> marketSide);
+
+    /**
+     * Checks if quote, which should be inserted at given level of merged side, has to stay in exchange book only:
+     * merged side is full or better quotes are already truncated. Marks side as truncated in this case.
+     *
+     * @param marketSide - merged side
+     * @param level      - level of insertion
+     * @return true if quote is truncated
+     */
+    protected boolean isTruncated(final L2MarketSide<Quote> marketSide, final int level) {
+        if (level == marketSide.depth() && (marketSide.isFull() || isTruncated(marketSide))) {
+            setTruncated(marketSide, true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the worst quote of full merged side to free level for better quote.
+     *
+     * @param marketSide - merged side
+     * @return removed quote
+     */
+    protected Quote evictWorstQuote(final L2MarketSide<Quote> marketSide) {
+        setTruncated(marketSide, true);
+        return marketSide.removeWorstQuote();
+    }
+
+    private boolean isTruncated(final L2MarketSide<Quote> marketSide) {
+        return marketSide == asks ? isAsksTruncated : isBidsTruncated;
+    }
+
+    private void setTruncated(final L2MarketSide<Quote> marketSide, final boolean isTruncated) {
+        if (marketSide == asks) {
+            isAsksTruncated = isTruncated;
+        } else {
+            isBidsTruncated = isTruncated;
+        }
+    }
+
+    /**
+     * Promotes truncated quotes of exchange books to merged sides while they have free levels.
+     */
+    private void fillUp() {
+        fillUp(asks);
+        fillUp(bids);
+    }
+
+    private void fillUp(final L2MarketSide<Quote> marketSide) {
+        while (isTruncated(marketSide) && !marketSide.isFull()) {
+            setTruncated(marketSide, false);
+            if (promote(marketSide)) {
+                setTruncated(marketSide, true);
+            }
+        }
+    }
+
+    /**
+     * Inserts into merged side truncated quotes of all exchanges with the best price.
+     *
+     * @param marketSide - merged side
+     * @return false if exchange books have no truncated quotes
+     */
+    private boolean promote(final L2MarketSide<Quote> marketSide) {
+        final QuoteSide side = marketSide.getSide();
+        final Quote worst = marketSide.getWorstQuote();
+        Quote best = null;
+        for (final MutableExchange<Quote, L2Processor<Quote>> exchange : exchanges) {
+            final Quote quote = getTruncatedQuote(exchange.getProcessor().getMarketSide(side), marketSide, worst);
+            if (quote != null && (best == null || isBetter(quote, best, side))) {
+                best = quote;
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        @Decimal final long price = best.getPrice();
+        for (final MutableExchange<Quote, L2Processor<Quote>> exchange : exchanges) {
+            final Quote quote = getTruncatedQuote(exchange.getProcessor().getMarketSide(side), marketSide, worst);
+            if (quote != null && Decimal64Utils.isEqual(quote.getPrice(), price)) {
+                insertQuote(quote, marketSide);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the best quote of exchange book which is not in merged side. All quotes with prices better than
+     * the worst price of merged side are always in merged side.
+     */
+    private Quote getTruncatedQuote(final L2MarketSide<Quote> exchangeSide,
+                                    final L2MarketSide<Quote> marketSide,
+                                    final Quote worst) {
+        if (worst == null) {
+            return exchangeSide.getBestQuote();
+        }
+        final PriceDirection worse = marketSide.getSide() == QuoteSide.ASK ? PriceDirection.UP : PriceDirection.DOWN;
+        final int level = exchangeSide.getNearestLevel(worst.getPrice(), worse);
+        if (level == MarketSide.NOT_FOUND) {
+            return null;
+        }
+        final Quote quote = exchangeSide.getQuote(level);
+        if (Decimal64Utils.isEqual(quote.getPrice(), worst.getPrice()) && contains(quote, marketSide)) {
+            return exchangeSide.getQuote(level + 1);
+        }
+        return quote;
+    }
+
+    private static boolean isBetter(final MutableOrderBookQuote quote,
+                                    final MutableOrderBookQuote other,
+                                    final QuoteSide side) {
+        return side == QuoteSide.ASK ?
+                Decimal64Utils.isLess(quote.getPrice(), other.getPrice()) :
+                Decimal64Utils.isGreater(quote.getPrice(), other.getPrice());
+    }
+
     /**
      * Get stock exchange holder by id(create new if it does not exist).
      *
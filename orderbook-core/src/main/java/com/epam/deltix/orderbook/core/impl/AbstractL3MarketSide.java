@@ -19,6 +19,7 @@ package com.epam.deltix.orderbook.core.impl;
 import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.orderbook.core.api.EntryValidationCode;
+import com.epam.deltix.orderbook.core.api.PriceDirection;
 import com.epam.deltix.orderbook.core.impl.collections.rbt.RBTree;
 import com.epam.deltix.timebase.messages.universal.InsertType;
 import com.epam.deltix.timebase.messages.universal.QuoteSide;
@@ -37,6 +38,10 @@ abstract class AbstractL3MarketSide<Quote extends MutableOrderBookQuote> impleme
     protected final RBTree<Quote, Quote> data;
     private final CharSeqToObjMap<CharSequence, Quote> quoteHashMap;
     private final ReusableIterator<Quote> itr;
+    // Reusable key for price lookups, sequence number is Long.MIN_VALUE
+    private final Quote searchKey = (Quote) new MutableOrderBookQuoteImpl();
+    // Reusable key for skipping orders of one price, sequence number is Long.MAX_VALUE
+    private final Quote skipKey = (Quote) new MutableOrderBookQuoteL3Impl();
     // This parameter is used to limit maximum elements and to understand whether the side is full or not.
     private final int maxDepth;
     private long virtualClock;
@@ -46,6 +51,7 @@ abstract class AbstractL3MarketSide<Quote extends MutableOrderBookQuote> impleme
         this.data = new RBTree<>(initialCapacity, new QuoteComparator());
         this.itr = new ReusableIterator<>();
         this.quoteHashMap = new CharSeqToObjMap<>();
+        this.skipKey.setSequenceNumber(Long.MAX_VALUE);
         virtualClock = 0;
     }
 
@@ -116,6 +122,16 @@ abstract class AbstractL3MarketSide<Quote extends MutableOrderBookQuote> impleme
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean contains(final Quote quote) {
+        return data.get(quote) == quote;
+    }
+
+    @Override
+    public Quote getNextQuote(final Quote quote) {
+        return data.higherKey(quote);
+    }
+
     @Override
     public boolean isFull() {
         return depth() == maxDepth;
@@ -139,6 +155,59 @@ abstract class AbstractL3MarketSide<Quote extends MutableOrderBookQuote> impleme
         return quoteHashMap.containsKey(quoteId);
     }
 
+    @Override
+    public Quote getQuoteByPrice(@Decimal final long price) {
+        final Quote quote = ceilingByPrice(price);
+        return quote != null && Decimal64Utils.isEqual(quote.getPrice(), price) ? quote : null;
+    }
+
+    @Override
+    public int getLevelByPrice(@Decimal final long price) {
+        final Quote quote = getQuoteByPrice(price);
+        return quote == null ? NOT_FOUND : getLevel(quote.getPrice());
+    }
+
+    @Override
+    public int getNearestLevel(@Decimal final long price, final PriceDirection direction) {
+        final Quote quote = getNearestQuote(price, direction);
+        return quote == null ? NOT_FOUND : getLevel(quote.getPrice());
+    }
+
+    @Override
+    public Quote getNearestQuote(@Decimal final long price, final PriceDirection direction) {
+        Objects.requireNonNull(direction);
+        final Quote quote = ceilingByPrice(price);
+        if ((getSide() == QuoteSide.ASK) == (direction == PriceDirection.UP) ||
+                (quote != null && Decimal64Utils.isEqual(quote.getPrice(), price))) {
+            return quote;
+        }
+        // Last order with better price, search key still holds given price
+        final Quote better = data.lowerKey(searchKey);
+        return better == null ? null : ceilingByPrice(better.getPrice());
+    }
+
+    /**
+     * Counts prices better than given existing price, one tree lookup per price.
+     */
+    private int getLevel(@Decimal final long price) {
+        int level = 0;
+        for (Quote quote = data.firstKey(); Decimal64Utils.isNotEqual(quote.getPrice(), price); level++) {
+            // Skip key follows all orders with the same price
+            skipKey.setPrice(quote.getPrice());
+            quote = data.higherKey(skipKey);
+        }
+        return level;
+    }
+
+    /**
+     * Finds the first order with price equal to or worse than given price.
+     * Search key has the smallest sequence number, so no order with the same price precedes it.
+     */
+    private Quote ceilingByPrice(@Decimal final long price) {
+        searchKey.setPrice(price);
+        return data.ceilingKey(searchKey);
+    }
+
     @Override
     public Quote getWorstQuote() {
         if (isEmpty()) {
@@ -89,6 +89,11 @@ abstract class CompactAbstractL2MarketSide<Quote extends MutableOrderBookQuote>
         return holder;
     }
 
+    @Override
+    public long getPrice(final int level) {
+        return data[level << 1];
+    }
+
     @Override
     public void add(final int level, final long price, final long size) {
         final int idx = level << 1;
@@ -17,7 +17,6 @@
 package com.epam.deltix.orderbook.core.impl;
 
 import com.epam.deltix.dfp.Decimal;
-import com.epam.deltix.orderbook.core.api.MarketSide;
 import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
 import com.epam.deltix.timebase.messages.universal.QuoteSide;
 import com.epam.deltix.util.annotations.Alphanumeric;
@@ -27,7 +26,7 @@ import java.util.Objects;
 /**
  * @author Andrii_Ostapenko1
  */
-interface CompactL2MarketSide<Quote> extends MarketSide<Quote> {
+interface CompactL2MarketSide<Quote> extends PriceLevelMarketSide<Quote> {
 
     static <Quote extends MutableOrderBookQuote> CompactL2MarketSide<Quote> factory(final int maxDepth,
                                                                                     final QuoteSide side) {
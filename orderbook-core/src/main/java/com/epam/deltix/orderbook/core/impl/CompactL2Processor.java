@@ -63,13 +63,13 @@ interface CompactL2Processor<Quote> extends QuoteProcessor<Quote> {
     boolean isSnapshotAllowed(PackageHeaderInfo msg);
 
     default boolean processIncrementalUpdate(PackageHeaderInfo pck, final BaseEntryInfo entryInfo) {
-        if (entryInfo instanceof L2EntryNew) {
-            final L2EntryNew entry = (L2EntryNew) entryInfo;
+        if (entryInfo instanceof L2EntryNewInfo) {
+            final L2EntryNewInfo entry = (L2EntryNewInfo) entryInfo;
             return processL2EntryNew(pck, entry) != null;
-        } else if (entryInfo instanceof L2EntryUpdate) {
-            final L2EntryUpdate entry = (L2EntryUpdate) entryInfo;
+        } else if (entryInfo instanceof L2EntryUpdateInfo) {
+            final L2EntryUpdateInfo entry = (L2EntryUpdateInfo) entryInfo;
             return processL2EntryUpdate(pck, entry);
-        } else if (entryInfo instanceof StatisticsEntry) {
+        } else if (entryInfo instanceof StatisticsEntryInfo) {
             return true;
         }
         return false;
@@ -17,6 +17,8 @@
 package com.epam.deltix.orderbook.core.impl;
 
 import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.TypeConstants;
 import com.epam.deltix.timebase.messages.service.FeedStatus;
@@ -32,13 +34,15 @@ import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
 /**
  * @author Andrii_Ostapenko1
  */
-public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements CompactL2Processor<Quote> {
+public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
+        implements CompactL2Processor<Quote>, UpdatableQuoteProcessor<Quote> {
 
     protected final CompactL2MarketSide<Quote> bids;
     protected final CompactL2MarketSide<Quote> asks;
     private final MutableExchangeList<MutableExchange<Quote, CompactL2Processor<Quote>>> exchanges;
 
     private final EventHandler eventHandler;
+    private final OrderBookMetrics metrics;
 
     //Parameters
     private final ValidationOptions validationOptions;
@@ -48,6 +52,7 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
         this.validationOptions = options.getInvalidQuoteMode().orElse(Defaults.VALIDATION_OPTIONS);
         this.eventHandler = new EventHandlerImpl(options);
+        this.metrics = options.getMetrics().orElse(Defaults.METRICS);
 
         this.exchanges = new MutableExchangeListImpl<>();
 
@@ -63,7 +68,43 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
 
     @Override
     public Quote processL2EntryNew(final PackageHeaderInfo pck, final L2EntryNewInfo msg) {
-        final long exchangeId = msg.getExchangeId();
+        return processL2EntryNew(msg.getExchangeId(), msg.getSide(), msg.getLevel(), msg.getPrice(), msg.getSize());
+    }
+
+    @Override
+    public boolean processL2EntryUpdate(final PackageHeaderInfo pck, final L2EntryUpdateInfo msg) {
+        return processL2EntryUpdate(msg.getExchangeId(), msg.getSide(), msg.getLevel(), msg.getAction(),
+                msg.getPrice(), msg.getSize());
+    }
+
+    @Override
+    public boolean applyL2New(@Alphanumeric final long exchangeId,
+                              final QuoteSide side,
+                              final int level,
+                              @Decimal final long price,
+                              @Decimal final long size,
+                              final long numberOfOrders,
+                              final long timestamp) {
+        return processL2EntryNew(exchangeId, side, level, price, size) != null;
+    }
+
+    @Override
+    public boolean applyL2Update(@Alphanumeric final long exchangeId,
+                                 final QuoteSide side,
+                                 final int level,
+                                 final BookUpdateAction action,
+                                 @Decimal final long price,
+                                 @Decimal final long size,
+                                 final long numberOfOrders,
+                                 final long timestamp) {
+        return processL2EntryUpdate(exchangeId, side, level, action, price, size);
+    }
+
+    private Quote processL2EntryNew(@Alphanumeric final long exchangeId,
+                                    final QuoteSide side,
+                                    final int level,
+                                    @Decimal final long price,
+                                    @Decimal final long size) {
         final Option<MutableExchange<Quote, CompactL2Processor<Quote>>> exchange = getOrCreateExchange(exchangeId);
         if (!exchange.hasValue()) {
             return null;
@@ -73,11 +114,10 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
             return null;
         }
 
-        final QuoteSide side = msg.getSide();
         final CompactL2MarketSide<Quote> marketSide = exchange.get().getProcessor().getMarketSide(side);
-        final int level = msg.getLevel();
 
-        if (marketSide.isInvalidInsert(level, msg.getPrice(), msg.getSize(), exchangeId)) {
+        if (marketSide.isInvalidInsert(level, price, size, exchangeId)) {
+            metrics.onEntryRejected();
             if (validationOptions.isQuoteInsert()) {
                 clear();
                 eventHandler.onBroken();
@@ -88,17 +128,16 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         if (marketSide.isFull()) {
             marketSide.removeWorstQuote();
         }
-        marketSide.add(level, msg.getPrice(), msg.getSize());
+        marketSide.add(level, price, size);
         return marketSide.getQuote(level);
     }
 
-    @Override
-    public boolean processL2EntryUpdate(final PackageHeaderInfo pck, final L2EntryUpdateInfo msg) {
-        final QuoteSide side = msg.getSide();
-        final int level = msg.getLevel();
-        @Alphanumeric final long exchangeId = msg.getExchangeId();
-        final BookUpdateAction action = msg.getAction();
-
+    private boolean processL2EntryUpdate(@Alphanumeric final long exchangeId,
+                                         final QuoteSide side,
+                                         final int level,
+                                         final BookUpdateAction action,
+                                         @Decimal final long price,
+                                         @Decimal final long size) {
         final Option<MutableExchange<Quote, CompactL2Processor<Quote>>> exchange = getExchanges().getById(exchangeId);
         if (!exchange.hasValue()) {
             return false;
@@ -109,7 +148,8 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         }
 
         final CompactL2MarketSide<Quote> marketSide = exchange.get().getProcessor().getMarketSide(side);
-        if (marketSide.isInvalidUpdate(action, level, msg.getPrice(), msg.getSize(), exchangeId)) {
+        if (marketSide.isInvalidUpdate(action, level, price, size, exchangeId)) {
+            metrics.onEntryRejected();
             if (validationOptions.isQuoteUpdate()) {
                 clear();
                 eventHandler.onBroken();
@@ -121,7 +161,7 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         if (action == BookUpdateAction.DELETE) {
             marketSide.remove(level);
         } else if (action == BookUpdateAction.UPDATE) {
-            marketSide.set(level, msg.getPrice(), msg.getSize());
+            marketSide.set(level, price, size);
         }
         return true;
     }
@@ -139,8 +179,8 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         int bidCnt = 0;
         for (int i = 0; i < entries.size(); i++) {
             final BaseEntryInfo e = entries.get(i);
-            if (e instanceof L2EntryNewInterface) {
-                final L2EntryNewInterface entry = (L2EntryNewInterface) e;
+            if (e instanceof L2EntryNewInfo) {
+                final L2EntryNewInfo entry = (L2EntryNewInfo) e;
 
                 final int level = entry.getLevel();
                 final QuoteSide side = entry.getSide();
@@ -233,6 +273,12 @@ public class CompactL2SingleExchangeQuoteProcessor<Quote extends MutableOrderBoo
         releaseAndClean(bids);
     }
 
+    @Override
+    public void invalidate() {
+        clear();
+        eventHandler.onBroken();
+    }
+
     @Override
     public boolean isEmpty() {
         return asks.isEmpty() && bids.isEmpty();
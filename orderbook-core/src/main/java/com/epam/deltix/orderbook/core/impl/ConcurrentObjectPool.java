@@ -0,0 +1,445 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Thread safe {@link Pool} which can be shared by order books updated from different threads.
+ * <p>
+ * Every thread borrows and releases items through its own cache of two magazines (arrays of {@code magazineSize}
+ * items), without any synchronization. Only when both magazines of the thread are empty (on borrow)
+ * or full (on release), the whole magazine is exchanged with the global depot under the lock,
+ * so the depot is touched at most once per {@code magazineSize} operations.
+ * Items are returned to the cache of the releasing thread, which is the owning thread when each book
+ * is updated by a single thread.
+ * <p>
+ * Max idle size bounds the number of items kept by the depot, every thread can additionally cache up to
+ * {@code 2 * magazineSize} items. Call {@link #releaseThreadCache()} when a worker thread stops using the pool,
+ * otherwise items cached by the thread stay out of the depot while the thread is alive. Caches of terminated
+ * threads are reclaimed outside the hot path: when a new thread starts using the pool, on {@link #prewarm(int)},
+ * {@link #trim(int)} and when statistics are read. Borrow and release never walk caches of other threads.
+ * Statistics are aggregated from all thread caches without synchronization, so they are approximate
+ * while the pool is in use.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class ConcurrentObjectPool<T> implements Pool<T> {
+
+    /**
+     * Default number of items in one magazine.
+     */
+    public static final int DEFAULT_MAGAZINE_SIZE = 64;
+
+    private final Supplier<T> factory;
+    private final Consumer<T> releaseCallback;
+    private final Runnable missCallback;
+    private final int maxIdleSize;
+    private final int magazineSize;
+    private final int maxFullMagazines;
+
+    private final ThreadLocal<Magazines> magazines;
+    private final List<Magazines> threadCaches = new CopyOnWriteArrayList<>();
+
+    // Depot, guarded by lock
+    private final Object lock = new Object();
+    private Object[][] fullMagazines = new Object[4][];
+    private int fullCount;
+    private Object[][] emptyMagazines = new Object[4][];
+    private int emptyCount;
+    // Statistics of detached threads
+    private int retiredBorrowed;
+    private long retiredMissCount;
+    private long retiredDroppedCount;
+
+    public ConcurrentObjectPool(final int initialSize, final Supplier<T> factory) {
+        this(initialSize, factory, null, null, Integer.MAX_VALUE, DEFAULT_MAGAZINE_SIZE);
+    }
+
+    /**
+     * @param initialSize     number of items created upfront (rounded up to whole magazines)
+     * @param factory         factory of new items
+     * @param releaseCallback called for every released item (may be {@code null})
+     * @param missCallback    called when pool is empty and new item is created by factory on borrow (may be {@code null}),
+     *                        called from borrowing threads, so it should be thread safe
+     * @param maxIdleSize     max number of idle items kept by depot, items released above this limit are dropped
+     * @param magazineSize    number of items in one magazine
+     */
+    public ConcurrentObjectPool(final int initialSize,
+                                final Supplier<T> factory,
+                                final Consumer<T> releaseCallback,
+                                final Runnable missCallback,
+                                final int maxIdleSize,
+                                final int magazineSize) {
+        if (initialSize < 0) {
+            throw new IllegalArgumentException("Illegal size: " + initialSize);
+        }
+        if (maxIdleSize < 0) {
+            throw new IllegalArgumentException("Illegal max idle size: " + maxIdleSize);
+        }
+        if (magazineSize <= 0) {
+            throw new IllegalArgumentException("Illegal magazine size: " + magazineSize);
+        }
+        this.factory = factory;
+        this.releaseCallback = releaseCallback;
+        this.missCallback = missCallback;
+        this.maxIdleSize = maxIdleSize;
+        this.magazineSize = magazineSize;
+        this.maxFullMagazines = maxIdleSize / magazineSize;
+        this.magazines = ThreadLocal.withInitial(this::newThreadCache);
+        prewarm(initialSize);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T borrow() {
+        final Magazines cache = magazines.get();
+        if (++cache.borrowed > cache.highWaterMark) {
+            cache.highWaterMark = cache.borrowed;
+        }
+        if (cache.loadedSize == 0) {
+            if (cache.previousSize > 0) {
+                cache.swap();
+            } else if (!loadFullMagazine(cache)) {
+                cache.missCount++;
+                if (missCallback != null) {
+                    missCallback.run();
+                }
+                return factory.get();
+            }
+        }
+        final int last = --cache.loadedSize;
+        final Object item = cache.loaded[last];
+        cache.loaded[last] = null; // clear reference to borrowed item
+        assert item != null;
+        return (T) item;
+    }
+
+    @Override
+    public void release(final T item) {
+        if (item != null) {
+            final Magazines cache = magazines.get();
+            cache.borrowed--;
+            if (cache.loadedSize == magazineSize) {
+                if (cache.previousSize == 0) {
+                    cache.swap();
+                } else if (!unloadFullMagazine(cache)) {
+                    cache.droppedCount++;
+                    return;
+                }
+            }
+            cache.loaded[cache.loadedSize++] = item;
+
+            if (releaseCallback != null) {
+                releaseCallback.accept(item);
+            }
+        }
+    }
+
+    /**
+     * Reclaims caches of terminated threads, then creates items until depot holds at least {@code idleSize}
+     * idle items (but not more than max idle size).
+     *
+     * @param idleSize desired number of idle items
+     */
+    @Override
+    public void prewarm(final int idleSize) {
+        reapThreadCaches();
+        final long magazinesNeeded = ((long) Math.min(idleSize, maxIdleSize) + magazineSize - 1) / magazineSize;
+        final int target = (int) Math.min(magazinesNeeded, maxFullMagazines);
+        synchronized (lock) {
+            while (fullCount < target) {
+                final Object[] magazine = new Object[magazineSize];
+                for (int i = 0; i < magazineSize; i++) {
+                    final T item = factory.get();
+                    assert item != null;
+                    magazine[i] = item;
+                }
+                pushFull(magazine);
+            }
+        }
+    }
+
+    /**
+     * Reclaims caches of terminated threads, then releases idle items of depot above {@code idleSize}
+     * to Java Garbage Collector. Caches of live threads are not affected.
+     * <p>
+     * Magazines of released items are kept empty, so exchanges with depot after trim don't allocate.
+     *
+     * @param idleSize number of idle items to keep
+     */
+    @Override
+    public void trim(final int idleSize) {
+        if (idleSize < 0) {
+            throw new IllegalArgumentException("Illegal size: " + idleSize);
+        }
+        reapThreadCaches();
+        final int keep = idleSize / magazineSize;
+        synchronized (lock) {
+            while (fullCount > keep) {
+                final Object[] magazine = fullMagazines[--fullCount];
+                fullMagazines[fullCount] = null;
+                Arrays.fill(magazine, null);
+                pushEmpty(magazine);
+            }
+        }
+    }
+
+    /**
+     * Clear depot and release its objects to Java Garbage Collector. Caches of live threads are not affected.
+     */
+    @Override
+    public void clear() {
+        trim(0);
+    }
+
+    /**
+     * Moves items cached by the calling thread to the depot and detaches the thread from the pool.
+     * Items that don't fill the whole magazine are dropped.
+     */
+    public void releaseThreadCache() {
+        retire(magazines.get());
+        magazines.remove();
+    }
+
+    /**
+     * Moves items cached by terminated threads to the depot. Walks caches of all threads, so it is never called
+     * from borrow or release.
+     *
+     * @return true if cache of at least one thread was reclaimed
+     */
+    private boolean reapThreadCaches() {
+        boolean isReaped = false;
+        for (final Magazines cache : threadCaches) {
+            if (cache.isOwnerTerminated()) {
+                isReaped |= retire(cache);
+            }
+        }
+        return isReaped;
+    }
+
+    /**
+     * Moves items of thread cache to the depot. Called by the owning thread or after the owning thread
+     * has terminated (termination of the thread happens-before detection of termination by {@link Thread#isAlive()}).
+     *
+     * @return false if cache is already retired
+     */
+    private boolean retire(final Magazines cache) {
+        if (!threadCaches.remove(cache)) {
+            return false;
+        }
+        // Fill loaded magazine from previous one
+        while (cache.previousSize > 0 && cache.loadedSize < magazineSize) {
+            cache.loaded[cache.loadedSize++] = cache.previous[--cache.previousSize];
+            cache.previous[cache.previousSize] = null;
+        }
+        synchronized (lock) {
+            if (cache.loadedSize == magazineSize && fullCount < maxFullMagazines) {
+                pushFull(cache.loaded);
+            }
+            if (cache.previousSize == magazineSize && fullCount < maxFullMagazines) {
+                pushFull(cache.previous);
+            }
+            retiredBorrowed += cache.borrowed;
+            retiredMissCount += cache.missCount;
+            retiredDroppedCount += cache.droppedCount;
+        }
+        return true;
+    }
+
+    /**
+     * Approximate number of idle items in depot and all thread caches.
+     */
+    @Override
+    public int getTotalSize() {
+        reapThreadCaches();
+        int size;
+        synchronized (lock) {
+            size = fullCount * magazineSize;
+        }
+        for (final Magazines cache : threadCaches) {
+            size += cache.loadedSize + cache.previousSize;
+        }
+        return size;
+    }
+
+    @Override
+    public int getBorrowedCount() {
+        reapThreadCaches();
+        int borrowed;
+        synchronized (lock) {
+            borrowed = retiredBorrowed;
+        }
+        for (final Magazines cache : threadCaches) {
+            borrowed += cache.borrowed;
+        }
+        return borrowed;
+    }
+
+    /**
+     * Sum of high-water marks of all threads: upper bound of max number of items borrowed at the same time.
+     */
+    @Override
+    public int getHighWaterMark() {
+        reapThreadCaches();
+        int highWaterMark = 0;
+        for (final Magazines cache : threadCaches) {
+            highWaterMark += cache.highWaterMark;
+        }
+        return highWaterMark;
+    }
+
+    @Override
+    public long getMissCount() {
+        reapThreadCaches();
+        long missCount;
+        synchronized (lock) {
+            missCount = retiredMissCount;
+        }
+        for (final Magazines cache : threadCaches) {
+            missCount += cache.missCount;
+        }
+        return missCount;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        reapThreadCaches();
+        long droppedCount;
+        synchronized (lock) {
+            droppedCount = retiredDroppedCount;
+        }
+        for (final Magazines cache : threadCaches) {
+            droppedCount += cache.droppedCount;
+        }
+        return droppedCount;
+    }
+
+    @Override
+    public int getMaxIdleSize() {
+        return maxIdleSize;
+    }
+
+    public int getMagazineSize() {
+        return magazineSize;
+    }
+
+    private Magazines newThreadCache() {
+        reapThreadCaches();
+        final Magazines cache = new Magazines(magazineSize, Thread.currentThread());
+        threadCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Replaces empty loaded magazine of the thread with full magazine from depot.
+     *
+     * @return false if depot has no full magazines
+     */
+    private boolean loadFullMagazine(final Magazines cache) {
+        synchronized (lock) {
+            if (fullCount == 0) {
+                return false;
+            }
+            pushEmpty(cache.loaded);
+            cache.loaded = fullMagazines[--fullCount];
+            fullMagazines[fullCount] = null;
+        }
+        cache.loadedSize = magazineSize;
+        return true;
+    }
+
+    /**
+     * Replaces full loaded magazine of the thread with empty magazine from depot.
+     *
+     * @return false if depot is full
+     */
+    private boolean unloadFullMagazine(final Magazines cache) {
+        synchronized (lock) {
+            if (fullCount >= maxFullMagazines) {
+                return false;
+            }
+            pushFull(cache.loaded);
+            if (emptyCount > 0) {
+                cache.loaded = emptyMagazines[--emptyCount];
+                emptyMagazines[emptyCount] = null;
+            } else {
+                cache.loaded = new Object[magazineSize];
+            }
+        }
+        cache.loadedSize = 0;
+        return true;
+    }
+
+    private void pushFull(final Object[] magazine) {
+        if (fullCount == fullMagazines.length) {
+            fullMagazines = Arrays.copyOf(fullMagazines, fullCount << 1);
+        }
+        fullMagazines[fullCount++] = magazine;
+    }
+
+    private void pushEmpty(final Object[] magazine) {
+        if (emptyCount == emptyMagazines.length) {
+            emptyMagazines = Arrays.copyOf(emptyMagazines, emptyCount << 1);
+        }
+        emptyMagazines[emptyCount++] = magazine;
+    }
+
+    /**
+     * Cache of the thread: loaded and previous magazines with statistics. Written only by the owning thread.
+     * Owner is referenced weakly, so the pool does not keep terminated threads reachable.
+     */
+    private static final class Magazines {
+        private final WeakReference<Thread> owner;
+
+        private Object[] loaded;
+        private int loadedSize;
+        private Object[] previous;
+        private int previousSize;
+
+        private int borrowed;
+        private int highWaterMark;
+        private long missCount;
+        private long droppedCount;
+
+        private Magazines(final int magazineSize, final Thread owner) {
+            this.owner = new WeakReference<>(owner);
+            this.loaded = new Object[magazineSize];
+            this.previous = new Object[magazineSize];
+        }
+
+        private boolean isOwnerTerminated() {
+            final Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private void swap() {
+            final Object[] magazine = loaded;
+            final int size = loadedSize;
+            loaded = previous;
+            loadedSize = previousSize;
+            previous = magazine;
+            previousSize = size;
+        }
+    }
+
+}
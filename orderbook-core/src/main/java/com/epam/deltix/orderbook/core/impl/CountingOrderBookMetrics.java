@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
+
+/**
+ * {@link OrderBookMetrics} implementation based on primitive counters with optional latency histograms.
+ * <p>
+ * Use one instance per order book. Not thread safe: counters must be read from the thread updating the book
+ * (or with external synchronization).
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class CountingOrderBookMetrics implements OrderBookMetrics {
+
+    private final LatencyHistogram updateLatency;
+    private final LatencyHistogram snapshotLatency;
+
+    private long incrementalUpdates;
+    private long snapshots;
+    private long rejectedEntries;
+    private long brokenEvents;
+    private long poolMisses;
+
+    /**
+     * Creates counters without latency histograms.
+     */
+    public CountingOrderBookMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param withLatency whether update and snapshot latencies are measured
+     */
+    public CountingOrderBookMetrics(final boolean withLatency) {
+        this.updateLatency = withLatency ? new LatencyHistogram() : null;
+        this.snapshotLatency = withLatency ? new LatencyHistogram() : null;
+    }
+
+    @Override
+    public boolean isLatencyEnabled() {
+        return updateLatency != null;
+    }
+
+    @Override
+    public void onIncrementalUpdate(final long durationNanos) {
+        incrementalUpdates++;
+        if (updateLatency != null) {
+            updateLatency.record(durationNanos);
+        }
+    }
+
+    @Override
+    public void onSnapshot(final long durationNanos) {
+        snapshots++;
+        if (snapshotLatency != null) {
+            snapshotLatency.record(durationNanos);
+        }
+    }
+
+    @Override
+    public void onEntryRejected() {
+        rejectedEntries++;
+    }
+
+    @Override
+    public void onBroken() {
+        brokenEvents++;
+    }
+
+    @Override
+    public void onPoolMiss() {
+        poolMisses++;
+    }
+
+    public long getIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    public long getRejectedEntries() {
+        return rejectedEntries;
+    }
+
+    public long getBrokenEvents() {
+        return brokenEvents;
+    }
+
+    public long getPoolMisses() {
+        return poolMisses;
+    }
+
+    /**
+     * @return histogram of incremental update latencies or {@code null} if latency is not measured
+     */
+    public LatencyHistogram getUpdateLatency() {
+        return updateLatency;
+    }
+
+    /**
+     * @return histogram of snapshot latencies or {@code null} if latency is not measured
+     */
+    public LatencyHistogram getSnapshotLatency() {
+        return snapshotLatency;
+    }
+
+    public void reset() {
+        incrementalUpdates = 0;
+        snapshots = 0;
+        rejectedEntries = 0;
+        brokenEvents = 0;
+        poolMisses = 0;
+        if (updateLatency != null) {
+            updateLatency.reset();
+            snapshotLatency.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CountingOrderBookMetrics{" +
+                "incrementalUpdates=" + incrementalUpdates +
+                ", snapshots=" + snapshots +
+                ", rejectedEntries=" + rejectedEntries +
+                ", brokenEvents=" + brokenEvents +
+                ", poolMisses=" + poolMisses +
+                '}';
+    }
+}
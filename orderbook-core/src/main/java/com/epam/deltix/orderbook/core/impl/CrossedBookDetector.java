@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.CrossedBookMode;
+import com.epam.deltix.orderbook.core.options.Defaults;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.timebase.messages.TypeConstants;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.util.annotations.Alphanumeric;
+
+/**
+ * Detects crossed or locked state of multi exchange book by comparing its best ask and best bid,
+ * so the check costs two best quote lookups instead of a scan of the book.
+ * Exchanges of the best quotes are looked up only when the book is crossed.
+ *
+ * @author Andrii_Ostapenko1
+ * @see CrossedBookMode
+ */
+final class CrossedBookDetector<Quote extends OrderBookQuote, Processor> {
+
+    private final CrossedBookMode mode;
+    private final CrossedBookListener listener;
+
+    // Exchange of the last applied entry: quotes of other exchanges are not newer
+    @Alphanumeric
+    private long updatedExchangeId = TypeConstants.EXCHANGE_NULL;
+
+    // Crossed state is already reported
+    private boolean isCrossed;
+
+    CrossedBookDetector(final OrderBookOptions options) {
+        this.mode = options.getCrossedBookMode().orElse(Defaults.CROSSED_BOOK_MODE);
+        this.listener = options.getCrossedBookListener().orElse(Defaults.CROSSED_BOOK_LISTENER);
+    }
+
+    /**
+     * Remembers exchange of entry which is going to be applied.
+     *
+     * @param exchangeId - exchange id
+     */
+    void onUpdate(@Alphanumeric final long exchangeId) {
+        updatedExchangeId = exchangeId;
+    }
+
+    /**
+     * Checks if the book is crossed and reports it to listener.
+     *
+     * @param asks      - merged ask side
+     * @param bids      - merged bid side
+     * @param exchanges - exchanges of the book
+     * @return processor of stale exchange which has to be cleared or null if nothing has to be cleared
+     */
+    Processor check(final MarketSide<Quote> asks,
+                    final MarketSide<Quote> bids,
+                    final MutableExchangeList<MutableExchange<Quote, Processor>> exchanges) {
+        final Quote bestAsk = asks.getBestQuote();
+        final Quote bestBid = bids.getBestQuote();
+        if (bestAsk == null || bestBid == null || Decimal64Utils.isGreater(bestAsk.getPrice(), bestBid.getPrice())) {
+            isCrossed = false;
+            return null;
+        }
+        if (isCrossed) {
+            return null;
+        }
+
+        @Decimal final long askPrice = bestAsk.getPrice();
+        @Decimal final long bidPrice = bestBid.getPrice();
+        final MutableExchange<Quote, Processor> askExchange = findExchange(exchanges, QuoteSide.ASK, askPrice);
+        final MutableExchange<Quote, Processor> bidExchange = findExchange(exchanges, QuoteSide.BID, bidPrice);
+        listener.onCrossed(getExchangeId(askExchange), getExchangeId(bidExchange), askPrice, bidPrice);
+
+        if (mode != CrossedBookMode.CLEAR_STALE_EXCHANGE || askExchange == null || bidExchange == null) {
+            isCrossed = true;
+            return null;
+        }
+        if (askExchange == bidExchange || askExchange.getExchangeId() != updatedExchangeId) {
+            return askExchange.getProcessor();
+        }
+        return bidExchange.getProcessor();
+    }
+
+    /**
+     * Finds exchange with the best quote of given price, exchange updated last is preferred.
+     */
+    private MutableExchange<Quote, Processor> findExchange(
+            final MutableExchangeList<MutableExchange<Quote, Processor>> exchanges,
+            final QuoteSide side,
+            @Decimal final long price) {
+        MutableExchange<Quote, Processor> result = null;
+        for (final MutableExchange<Quote, Processor> exchange : exchanges) {
+            final Quote quote = exchange.getMarketSide(side).getBestQuote();
+            if (quote != null && Decimal64Utils.isEqual(quote.getPrice(), price)) {
+                result = exchange;
+                if (exchange.getExchangeId() == updatedExchangeId) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Alphanumeric
+    private static long getExchangeId(final MutableExchange<?, ?> exchange) {
+        return exchange != null ? exchange.getExchangeId() : TypeConstants.EXCHANGE_NULL;
+    }
+}
@@ -1,6 +1,7 @@
 package com.epam.deltix.orderbook.core.impl;
 
 
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.universal.PackageType;
 
@@ -24,12 +25,14 @@ class EventHandlerImpl implements EventHandler {
     private final ResetMode resetMode;
     private final PeriodicalSnapshotMode periodicalSnapshotMode;
     private final DisconnectMode disconnectMode;
+    private final OrderBookMetrics metrics;
 
     EventHandlerImpl(final OrderBookOptions options) {
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
         this.updateMode = options.getUpdateMode().orElse(Defaults.UPDATE_MODE);
         this.resetMode = options.getResetMode().orElse(Defaults.RESET_MODE);
         this.periodicalSnapshotMode = options.getPeriodicalSnapshotMode().orElse(Defaults.PERIODICAL_SNAPSHOT_MODE);
+        this.metrics = options.getMetrics().orElse(Defaults.METRICS);
 
         this.isPeriodicalSnapshotAllowed = periodicalSnapshotMode != PeriodicalSnapshotMode.SKIP_ALL;
         this.isWaitingForSnapshot = (updateMode == UpdateMode.WAITING_FOR_SNAPSHOT);
@@ -73,6 +76,7 @@ class EventHandlerImpl implements EventHandler {
 
     @Override
     public void onBroken() {
+        metrics.onBroken();
         isWaitingForSnapshot = true;
         isPeriodicalSnapshotAllowed = periodicalSnapshotMode != PeriodicalSnapshotMode.SKIP_ALL;
     }
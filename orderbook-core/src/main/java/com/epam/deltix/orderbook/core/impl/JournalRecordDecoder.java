@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.timebase.messages.service.FeedStatus;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static com.epam.deltix.orderbook.core.impl.OrderBookJournal.*;
+
+/**
+ * Decodes bodies of records written by {@link OrderBookJournal} (everything after record length and type)
+ * into reusable message instances: decoded message is valid only until the next call.
+ * Does not allocate memory once internal entry pools are warmed up.
+ * <p>
+ * Not thread safe!
+ *
+ * @author Andrii_Ostapenko1
+ */
+final class JournalRecordDecoder {
+
+    private static final PackageType[] PACKAGE_TYPES = PackageType.values();
+    private static final QuoteSide[] QUOTE_SIDES = QuoteSide.values();
+    private static final BookUpdateAction[] BOOK_UPDATE_ACTIONS = BookUpdateAction.values();
+    private static final QuoteUpdateAction[] QUOTE_UPDATE_ACTIONS = QuoteUpdateAction.values();
+    private static final InsertType[] INSERT_TYPES = InsertType.values();
+    private static final DataModelType[] DATA_MODEL_TYPES = DataModelType.values();
+    private static final FeedStatus[] FEED_STATUSES = FeedStatus.values();
+
+    private final PackageHeader packageHeader = new PackageHeader();
+    private final ObjectArrayList<BaseEntryInfo> entries = new ObjectArrayList<>();
+    private final SecurityFeedStatusMessage feedStatus = new SecurityFeedStatusMessage();
+    private final StringBuilder symbol = new StringBuilder();
+
+    private final ArrayList<L1Entry> l1Entries = new ArrayList<>();
+    private final ArrayList<L2EntryNew> l2EntriesNew = new ArrayList<>();
+    private final ArrayList<L2EntryUpdate> l2EntriesUpdate = new ArrayList<>();
+    private final ArrayList<L3EntryNew> l3EntriesNew = new ArrayList<>();
+    private final ArrayList<L3EntryUpdate> l3EntriesUpdate = new ArrayList<>();
+    private final ArrayList<BookResetEntry> resetEntries = new ArrayList<>();
+    private final ArrayList<StringBuilder> quoteIds = new ArrayList<>();
+    private final ArrayList<StringBuilder> participantIds = new ArrayList<>();
+
+    JournalRecordDecoder() {
+        packageHeader.setEntries(entries);
+    }
+
+    PackageHeader readPackageHeader(final ByteBuffer buffer) {
+        readHeader(packageHeader, buffer);
+        packageHeader.setPackageType(decode(PACKAGE_TYPES, buffer.get()));
+        // Absent sequence number is stored as INT64_NULL, which is null value of the field
+        packageHeader.setSequenceNumber(buffer.getLong());
+        entries.clear();
+
+        int l1 = 0, l2New = 0, l2Update = 0, l3New = 0, l3Update = 0, reset = 0, ids = 0;
+        final int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalStateException("Illegal number of journal entries: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            final byte entryType = buffer.get();
+            switch (entryType) {
+                case L1_ENTRY:
+                    entries.add(readPriceEntry(borrow(l1Entries, l1++, L1Entry::new), buffer));
+                    break;
+                case L2_ENTRY_NEW: {
+                    final L2EntryNew entry = readPriceEntry(borrow(l2EntriesNew, l2New++, L2EntryNew::new), buffer);
+                    entry.setLevel(buffer.getShort());
+                    entries.add(entry);
+                    break;
+                }
+                case L2_ENTRY_UPDATE: {
+                    final L2EntryUpdate entry = readPriceEntry(borrow(l2EntriesUpdate, l2Update++, L2EntryUpdate::new), buffer);
+                    entry.setLevel(buffer.getShort());
+                    entry.setAction(decode(BOOK_UPDATE_ACTIONS, buffer.get()));
+                    entries.add(entry);
+                    break;
+                }
+                case L3_ENTRY_NEW: {
+                    final L3EntryNew entry = readPriceEntry(borrow(l3EntriesNew, l3New++, L3EntryNew::new), buffer);
+                    entry.setInsertType(decode(INSERT_TYPES, buffer.get()));
+                    entry.setQuoteId(getAscii(borrow(quoteIds, ids, StringBuilder::new), buffer));
+                    entry.setParticipantId(getAscii(borrow(participantIds, ids++, StringBuilder::new), buffer));
+                    entries.add(entry);
+                    break;
+                }
+                case L3_ENTRY_UPDATE: {
+                    final L3EntryUpdate entry = readPriceEntry(borrow(l3EntriesUpdate, l3Update++, L3EntryUpdate::new), buffer);
+                    entry.setAction(decode(QUOTE_UPDATE_ACTIONS, buffer.get()));
+                    entry.setQuoteId(getAscii(borrow(quoteIds, ids, StringBuilder::new), buffer));
+                    entry.setParticipantId(getAscii(borrow(participantIds, ids++, StringBuilder::new), buffer));
+                    entries.add(entry);
+                    break;
+                }
+                case BOOK_RESET_ENTRY: {
+                    final BookResetEntry entry = borrow(resetEntries, reset++, BookResetEntry::new);
+                    entry.setExchangeId(buffer.getLong());
+                    entry.setModelType(decode(DATA_MODEL_TYPES, buffer.get()));
+                    entries.add(entry);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown journal entry type: " + entryType);
+            }
+        }
+        return packageHeader;
+    }
+
+    SecurityFeedStatusMessage readSecurityFeedStatus(final ByteBuffer buffer) {
+        readHeader(feedStatus, buffer);
+        feedStatus.setExchangeId(buffer.getLong());
+        feedStatus.setStatus(decode(FEED_STATUSES, buffer.get()));
+        return feedStatus;
+    }
+
+    private void readHeader(final PackageHeader msg, final ByteBuffer buffer) {
+        msg.setTimeStampMs(buffer.getLong());
+        msg.setOriginalTimestamp(buffer.getLong());
+        msg.setSymbol(getAscii(symbol, buffer));
+    }
+
+    private void readHeader(final SecurityFeedStatusMessage msg, final ByteBuffer buffer) {
+        msg.setTimeStampMs(buffer.getLong());
+        buffer.getLong(); // original timestamp is not used for status messages
+        msg.setSymbol(getAscii(symbol, buffer));
+    }
+
+    private static <T extends BasePriceEntry> T readPriceEntry(final T entry, final ByteBuffer buffer) {
+        entry.setExchangeId(buffer.getLong());
+        entry.setSide(decode(QUOTE_SIDES, buffer.get()));
+        entry.setPrice(buffer.getLong());
+        entry.setSize(buffer.getLong());
+        entry.setNumberOfOrders(buffer.getLong());
+        return entry;
+    }
+
+    private static CharSequence getAscii(final StringBuilder dst, final ByteBuffer buffer) {
+        final short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        dst.setLength(0);
+        for (int i = 0; i < length; i++) {
+            dst.append((char) buffer.get());
+        }
+        return dst;
+    }
+
+    private static <T> T borrow(final ArrayList<T> pool, final int idx, final Supplier<T> factory) {
+        if (idx == pool.size()) {
+            pool.add(factory.get());
+        }
+        return pool.get(idx);
+    }
+
+    private static <T extends Enum<T>> T decode(final T[] values, final byte code) {
+        return code == 0 ? null : values[code - 1];
+    }
+
+}
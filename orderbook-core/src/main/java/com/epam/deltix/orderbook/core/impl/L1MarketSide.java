@@ -17,7 +17,6 @@
 package com.epam.deltix.orderbook.core.impl;
 
 
-import com.epam.deltix.orderbook.core.api.MarketSide;
 import com.epam.deltix.timebase.messages.universal.QuoteSide;
 
 import java.util.Objects;
@@ -25,7 +24,7 @@ import java.util.Objects;
 /**
  * @author Andrii_Ostapenko1
  */
-interface L1MarketSide<Quote> extends MarketSide<Quote> {
+interface L1MarketSide<Quote> extends PriceLevelMarketSide<Quote> {
 
     static <Quote extends MutableOrderBookQuote> L1MarketSide<Quote> factory(final QuoteSide side) {
         Objects.requireNonNull(side);
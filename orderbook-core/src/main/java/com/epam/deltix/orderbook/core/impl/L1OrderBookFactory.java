@@ -48,11 +48,12 @@ public class L1OrderBookFactory {
     public static <Quote extends OrderBookQuote> OrderBook<Quote> newSingleExchangeBook(final OrderBookOptions options) {
         final int initialSize = 2;
 
-        final ObjectPool<? extends MutableOrderBookQuote> pool = (ObjectPool<? extends MutableOrderBookQuote>)
+        final Pool<? extends MutableOrderBookQuote> pool = (Pool<? extends MutableOrderBookQuote>)
                 options.getSharedObjectPool().orElse(QuotePoolFactory.create(options, initialSize));
 
-        final QuoteProcessor<? extends MutableOrderBookQuote> processor = new L1SingleExchangeQuoteProcessor<>(options, pool);
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        final UpdatableQuoteProcessor<? extends MutableOrderBookQuote> processor = new L1SingleExchangeQuoteProcessor<>(options, pool);
+        return (OrderBook<Quote>) new UpdatableOrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 
 }
@@ -52,7 +52,7 @@ interface L1Processor<Quote> extends QuoteProcessor<Quote> {
             //TODO need processing return value
             processL1EntryNew(pck, l1EntryNewInfo);
             return true;
-        } else if (entryInfo instanceof StatisticsEntry) {
+        } else if (entryInfo instanceof StatisticsEntryInfo) {
             return true;
         }
         return false;
@@ -17,6 +17,7 @@
 package com.epam.deltix.orderbook.core.impl;
 
 
+import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.orderbook.core.api.ExchangeList;
 import com.epam.deltix.orderbook.core.options.Defaults;
 import com.epam.deltix.orderbook.core.options.DisconnectMode;
@@ -28,12 +29,14 @@ import com.epam.deltix.timebase.messages.universal.*;
 import com.epam.deltix.util.annotations.Alphanumeric;
 import com.epam.deltix.util.collections.generated.ObjectList;
 
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
+
 /**
  * @author Andrii_Ostapenko1
  */
-class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L1Processor<Quote> {
+class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L1Processor<Quote>, UpdatableQuoteProcessor<Quote> {
 
-    private final ObjectPool<Quote> pool;
+    private final Pool<Quote> pool;
 
     protected final L1MarketSide<Quote> bids;
     protected final L1MarketSide<Quote> asks;
@@ -45,7 +48,7 @@ class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implem
     private final DisconnectMode disconnectMode;
 
     L1SingleExchangeQuoteProcessor(final OrderBookOptions options,
-                                   final ObjectPool<Quote> pool) {
+                                   final Pool<Quote> pool) {
         this.pool = pool;
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
         this.eventHandler = new EventHandlerImpl(options);
@@ -71,6 +74,12 @@ class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implem
         releaseAndClean(bids);
     }
 
+    @Override
+    public void invalidate() {
+        clear();
+        eventHandler.onBroken();
+    }
+
     @Override
     public boolean isEmpty() {
         return asks.isEmpty() && bids.isEmpty();
@@ -78,7 +87,27 @@ class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implem
 
     @Override
     public Quote processL1EntryNew(final PackageHeaderInfo pck, final L1EntryInfo msg) {
-        @Alphanumeric final long exchangeId = msg.getExchangeId();
+        return processL1EntryNew(msg.getExchangeId(), msg.getSide(), msg.getPrice(), msg.getSize(),
+                msg.getNumberOfOrders(), pck.getTimeStampMs(), pck.getOriginalTimestamp());
+    }
+
+    @Override
+    public boolean applyL1(@Alphanumeric final long exchangeId,
+                           final QuoteSide side,
+                           @Decimal final long price,
+                           @Decimal final long size,
+                           final long numberOfOrders,
+                           final long timestamp) {
+        return processL1EntryNew(exchangeId, side, price, size, numberOfOrders, timestamp, TIMESTAMP_UNKNOWN) != null;
+    }
+
+    private Quote processL1EntryNew(@Alphanumeric final long exchangeId,
+                                    final QuoteSide side,
+                                    @Decimal final long price,
+                                    @Decimal final long size,
+                                    final long numberOfOrders,
+                                    final long timestamp,
+                                    final long originalTimestamp) {
         final Option<MutableExchange<Quote, L1Processor<Quote>>> exchange = getOrCreateExchange(exchangeId);
         if (!exchange.hasValue()) {
             // TODO add null check
@@ -89,7 +118,6 @@ class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implem
             return null;
         }
 
-        final QuoteSide side = msg.getSide();
         final L1MarketSide<Quote> marketSide = exchange.get().getProcessor().getMarketSide(side);
 
         final Quote quote;
@@ -99,7 +127,12 @@ class L1SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implem
         } else {
             quote = marketSide.getBestQuote();
         }
-        quote.copyFrom(pck, msg);
+        quote.setPrice(price);
+        quote.setSize(size);
+        quote.setNumberOfOrders(numberOfOrders);
+        quote.setExchangeId(exchangeId);
+        quote.setTimestamp(timestamp);
+        quote.setOriginalTimestamp(originalTimestamp);
         return quote;
     }
 
@@ -32,7 +32,7 @@ import static com.epam.deltix.dfp.Decimal64Utils.*;
  */
 class L2AggregatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends AbstractL2MultiExchangeProcessor<Quote> {
 
-    L2AggregatedQuoteProcessor(final OrderBookOptions options, final ObjectPool<Quote> pool) {
+    L2AggregatedQuoteProcessor(final OrderBookOptions options, final Pool<Quote> pool) {
         super(options, pool);
     }
 
@@ -92,6 +92,12 @@ class L2AggregatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends Ab
             }
         }
 
+        if (isTruncated(marketSide, level)) {
+            return insert;
+        }
+        if (marketSide.isFull()) {
+            pool.release(evictWorstQuote(marketSide));
+        }
         quote = pool.borrow();
         quote.copyFrom(insert);
         quote.setExchangeId(TypeConstants.INT64_NULL);
@@ -99,6 +105,12 @@ class L2AggregatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends Ab
         return quote;
     }
 
+    @Override
+    protected boolean contains(final Quote quote, final L2MarketSide<Quote> marketSide) {
+        // Level of merged side aggregates quotes of all exchanges with its price
+        return marketSide.binarySearch(quote) != L2MarketSide.NOT_FOUND;
+    }
+
     @Override
     public void clear() {
         for (int i = 0; i < asks.depth(); i++) {
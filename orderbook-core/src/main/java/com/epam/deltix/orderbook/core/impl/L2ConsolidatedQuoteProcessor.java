@@ -29,7 +29,7 @@ import java.util.StringJoiner;
  */
 class L2ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends AbstractL2MultiExchangeProcessor<Quote> {
 
-    L2ConsolidatedQuoteProcessor(final OrderBookOptions options, final ObjectPool<Quote> pool) {
+    L2ConsolidatedQuoteProcessor(final OrderBookOptions options, final Pool<Quote> pool) {
         super(options, pool);
     }
 
@@ -54,22 +54,50 @@ class L2ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends
 
     @Override
     public boolean removeQuote(final Quote remove, final L2MarketSide<Quote> marketSide) {
-        final int level = marketSide.binarySearch(remove);
+        final int level = indexOf(remove, marketSide);
         if (level != L2MarketSide.NOT_FOUND) {
-            if (remove.equals(marketSide.getQuote(level))) {
-                marketSide.remove(level);
-                return true;
+            marketSide.remove(level);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Quote insertQuote(final Quote insert, final L2MarketSide<Quote> marketSide) {
+        final int level = marketSide.binarySearchNextLevelByPrice(insert);
+        if (isTruncated(marketSide, level)) {
+            return insert;
+        }
+        if (marketSide.isFull()) {
+            evictWorstQuote(marketSide);
+        }
+        marketSide.add(level, insert);
+        return insert;
+    }
+
+    @Override
+    protected boolean contains(final Quote quote, final L2MarketSide<Quote> marketSide) {
+        return indexOf(quote, marketSide) != L2MarketSide.NOT_FOUND;
+    }
+
+    /**
+     * Finds level of given exchange quote among quotes of all exchanges with the same price.
+     */
+    private int indexOf(final Quote find, final L2MarketSide<Quote> marketSide) {
+        final int level = marketSide.binarySearch(find);
+        if (level != L2MarketSide.NOT_FOUND) {
+            if (find.equals(marketSide.getQuote(level))) {
+                return level;
             } else {
                 final int depth = marketSide.depth();
                 for (int i = 0, k = level + i; i < depth; i++, k = level + i) {
                     if (marketSide.hasLevel(k)) {
                         final Quote quote = marketSide.getQuote(k);
-                        if (Decimal64Utils.isNotEqual(remove.getPrice(), quote.getPrice())) {
+                        if (Decimal64Utils.isNotEqual(find.getPrice(), quote.getPrice())) {
                             break;
                         }
-                        if (remove.equals(quote)) {
-                            marketSide.remove(k);
-                            return true;
+                        if (find.equals(quote)) {
+                            return k;
                         }
                     }
                 }
@@ -77,25 +105,17 @@ class L2ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> extends
                 for (int i = 0, k = level - i; i < depth; i++, k = level - i) {
                     if (marketSide.hasLevel(k)) {
                         final Quote quote = marketSide.getQuote(k);
-                        if (Decimal64Utils.isNotEqual(remove.getPrice(), quote.getPrice())) {
+                        if (Decimal64Utils.isNotEqual(find.getPrice(), quote.getPrice())) {
                             break;
                         }
-                        if (remove.equals(quote)) {
-                            marketSide.remove(k);
-                            return true;
+                        if (find.equals(quote)) {
+                            return k;
                         }
                     }
                 }
             }
         }
-        return false;
-    }
-
-    @Override
-    public Quote insertQuote(final Quote insert, final L2MarketSide<Quote> marketSide) {
-        final int level = marketSide.binarySearchNextLevelByPrice(insert);
-        marketSide.add(level, insert);
-        return insert;
+        return L2MarketSide.NOT_FOUND;
     }
 
     @Override
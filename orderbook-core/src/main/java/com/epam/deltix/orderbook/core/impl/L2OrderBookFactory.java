@@ -51,16 +51,17 @@ public class L2OrderBookFactory {
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final boolean isCompact = options.isCompactVersion().orElse(false);
 
-        final QuoteProcessor<? extends MutableOrderBookQuote> processor;
+        final UpdatableQuoteProcessor<? extends MutableOrderBookQuote> processor;
         if (isCompact) {
             processor = new CompactL2SingleExchangeQuoteProcessor<>(options);
         } else {
-            final ObjectPool<? extends MutableOrderBookQuote> pool =
-                    (ObjectPool<? extends MutableOrderBookQuote>) options.getSharedObjectPool().orElse(QuotePoolFactory.create(options, depth));
+            final Pool<? extends MutableOrderBookQuote> pool =
+                    (Pool<? extends MutableOrderBookQuote>) options.getSharedObjectPool().orElse(QuotePoolFactory.create(options, depth));
             processor = new L2SingleExchangeQuoteProcessor<>(options, pool);
         }
 
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        return (OrderBook<Quote>) new UpdatableOrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 
     /**
@@ -76,11 +77,12 @@ public class L2OrderBookFactory {
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final int exchanges = options.getInitialExchangesPoolSize().orElse(Defaults.INITIAL_EXCHANGES_POOL_SIZE);
 
-        final ObjectPool<? extends MutableOrderBookQuote> pool = (ObjectPool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
+        final Pool<? extends MutableOrderBookQuote> pool = (Pool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
                         .orElse(QuotePoolFactory.create(options, exchanges * depth));
 
         final QuoteProcessor<? extends MutableOrderBookQuote> processor = new L2ConsolidatedQuoteProcessor<>(options, pool);
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 
     /**
@@ -96,10 +98,11 @@ public class L2OrderBookFactory {
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final int exchanges = options.getInitialExchangesPoolSize().orElse(Defaults.INITIAL_EXCHANGES_POOL_SIZE);
 
-        final ObjectPool<? extends MutableOrderBookQuote> pool = (ObjectPool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
+        final Pool<? extends MutableOrderBookQuote> pool = (Pool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
                         .orElse(QuotePoolFactory.create(options, exchanges * depth * 4));
 
         final QuoteProcessor<? extends MutableOrderBookQuote> processor = new L2AggregatedQuoteProcessor<>(options, pool);
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 }
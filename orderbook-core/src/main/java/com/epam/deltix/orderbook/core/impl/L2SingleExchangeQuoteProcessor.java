@@ -17,6 +17,8 @@
 package com.epam.deltix.orderbook.core.impl;
 
 import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.TypeConstants;
 import com.epam.deltix.timebase.messages.service.FeedStatus;
@@ -25,6 +27,7 @@ import com.epam.deltix.timebase.messages.universal.*;
 import com.epam.deltix.util.annotations.Alphanumeric;
 import com.epam.deltix.util.collections.generated.ObjectList;
 
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
 import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
 import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
 
@@ -32,24 +35,26 @@ import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
 /**
  * @author Andrii_Ostapenko1
  */
-public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L2Processor<Quote> {
+public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L2Processor<Quote>, UpdatableQuoteProcessor<Quote> {
 
-    protected final ObjectPool<Quote> pool;
+    protected final Pool<Quote> pool;
 
     protected final L2MarketSide<Quote> bids;
     protected final L2MarketSide<Quote> asks;
     private final MutableExchangeList<MutableExchange<Quote, L2Processor<Quote>>> exchanges;
 
     private final EventHandler eventHandler;
+    private final OrderBookMetrics metrics;
 
     //Parameters
     private final ValidationOptions validationOptions;
     private final DisconnectMode disconnectMode;
 
-    public L2SingleExchangeQuoteProcessor(final OrderBookOptions options, final ObjectPool<Quote> pool) {
+    public L2SingleExchangeQuoteProcessor(final OrderBookOptions options, final Pool<Quote> pool) {
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
         this.validationOptions = options.getInvalidQuoteMode().orElse(Defaults.VALIDATION_OPTIONS);
         this.eventHandler = new EventHandlerImpl(options);
+        this.metrics = options.getMetrics().orElse(Defaults.METRICS);
 
         this.pool = pool;
         this.exchanges = new MutableExchangeListImpl<>();
@@ -61,7 +66,7 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
     }
 
     public L2SingleExchangeQuoteProcessor(final OrderBookOptions options,
-                                          final ObjectPool<Quote> pool,
+                                          final Pool<Quote> pool,
                                           @Alphanumeric final long exchangeId) {
         this(options, pool);
         getOrCreateExchange(exchangeId);
@@ -74,7 +79,54 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
 
     @Override
     public Quote processL2EntryNew(final PackageHeaderInfo pck, final L2EntryNewInfo msg) {
-        final long exchangeId = msg.getExchangeId();
+        return processL2EntryNew(msg.getExchangeId(), msg.getSide(), msg.getLevel(),
+                msg.getPrice(), msg.getSize(), msg.getNumberOfOrders(),
+                pck.getTimeStampMs(), pck.getOriginalTimestamp());
+    }
+
+    @Override
+    public boolean processL2EntryUpdate(final PackageHeaderInfo pck, final L2EntryUpdateInfo msg) {
+        return processL2EntryUpdate(msg.getExchangeId(), msg.getSide(), msg.getLevel(), msg.getAction(),
+                msg.getPrice(), msg.getSize(), msg.getNumberOfOrders(),
+                pck.getTimeStampMs(), pck.getOriginalTimestamp());
+    }
+
+    @Override
+    public boolean applyL2New(@Alphanumeric final long exchangeId,
+                              final QuoteSide side,
+                              final int level,
+                              @Decimal final long price,
+                              @Decimal final long size,
+                              final long numberOfOrders,
+                              final long timestamp) {
+        return processL2EntryNew(exchangeId, side, level, price, size, numberOfOrders, timestamp, TIMESTAMP_UNKNOWN) != null;
+    }
+
+    @Override
+    public boolean applyL2Update(@Alphanumeric final long exchangeId,
+                                 final QuoteSide side,
+                                 final int level,
+                                 final BookUpdateAction action,
+                                 @Decimal final long price,
+                                 @Decimal final long size,
+                                 final long numberOfOrders,
+                                 final long timestamp) {
+        return processL2EntryUpdate(exchangeId, side, level, action, price, size, numberOfOrders, timestamp, TIMESTAMP_UNKNOWN);
+    }
+
+    /**
+     * Level2-new applied from primitives, shared by message and primitive API.
+     *
+     * @return insert quote or {@code null} if entry is rejected
+     */
+    protected Quote processL2EntryNew(@Alphanumeric final long exchangeId,
+                                      final QuoteSide side,
+                                      final int level,
+                                      @Decimal final long price,
+                                      @Decimal final long size,
+                                      final long numberOfOrders,
+                                      final long timestamp,
+                                      final long originalTimestamp) {
         final Option<MutableExchange<Quote, L2Processor<Quote>>> exchange = getOrCreateExchange(exchangeId);
         if (!exchange.hasValue()) {
             // TODO Log warning!!
@@ -86,11 +138,10 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             return null;
         }
 
-        final QuoteSide side = msg.getSide();
         final L2MarketSide<Quote> marketSide = exchange.get().getProcessor().getMarketSide(side);
-        final int level = msg.getLevel();
 
-        if (marketSide.isInvalidInsert(level, msg.getPrice(), msg.getSize(), exchangeId)) {
+        if (marketSide.isInvalidInsert(level, price, size, exchangeId)) {
+            metrics.onEntryRejected();
             if (validationOptions.isQuoteInsert()) {
                 clear();
                 eventHandler.onBroken();
@@ -106,18 +157,25 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         } else {
             quote = pool.borrow();
         }
-        quote.copyFrom(pck, msg);
+        set(quote, exchangeId, price, size, numberOfOrders, timestamp, originalTimestamp);
         marketSide.add(level, quote);
         return quote;
     }
 
-    @Override
-    public boolean processL2EntryUpdate(final PackageHeaderInfo pck, final L2EntryUpdateInfo msg) {
-        final QuoteSide side = msg.getSide();
-        final int level = msg.getLevel();
-        @Alphanumeric final long exchangeId = msg.getExchangeId();
-        final BookUpdateAction action = msg.getAction();
-
+    /**
+     * Level2-update applied from primitives, shared by message and primitive API.
+     *
+     * @return true if quote was updated, false if quote was not found
+     */
+    protected boolean processL2EntryUpdate(@Alphanumeric final long exchangeId,
+                                           final QuoteSide side,
+                                           final int level,
+                                           final BookUpdateAction action,
+                                           @Decimal final long price,
+                                           @Decimal final long size,
+                                           final long numberOfOrders,
+                                           final long timestamp,
+                                           final long originalTimestamp) {
         final Option<MutableExchange<Quote, L2Processor<Quote>>> exchange = getExchanges().getById(exchangeId);
         if (!exchange.hasValue()) {
             // TODO move to another palace
@@ -129,7 +187,8 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         }
 
         final L2MarketSide<Quote> marketSide = exchange.get().getProcessor().getMarketSide(side);
-        if (marketSide.isInvalidUpdate(action, level, msg.getPrice(), msg.getSize(), exchangeId)) {
+        if (marketSide.isInvalidUpdate(action, level, price, size, exchangeId)) {
+            metrics.onEntryRejected();
             if (validationOptions.isQuoteUpdate()) {
                 clear();
                 eventHandler.onBroken();
@@ -143,7 +202,7 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             pool.release(remove);
         } else if (action == BookUpdateAction.UPDATE) {
             final Quote quote = marketSide.getQuote(level);
-            quote.copyFrom(pck, msg);
+            set(quote, exchangeId, price, size, numberOfOrders, timestamp, originalTimestamp);
         }
         return true;
     }
@@ -163,8 +222,8 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         int bidCnt = 0;
         for (int i = 0; i < entries.size(); i++) {
             final BaseEntryInfo e = entries.get(i);
-            if (e instanceof L2EntryNewInterface) {
-                final L2EntryNewInterface entry = (L2EntryNewInterface) e;
+            if (e instanceof L2EntryNewInfo) {
+                final L2EntryNewInfo entry = (L2EntryNewInfo) e;
 
 //              //We expect that all entries are sorted by side and level
 //              if (entry == null || entry.getSide() == null ||
@@ -290,6 +349,12 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         releaseAndClean(bids);
     }
 
+    @Override
+    public void invalidate() {
+        clear();
+        eventHandler.onBroken();
+    }
+
     @Override
     public boolean isEmpty() {
         return asks.isEmpty() && bids.isEmpty();
@@ -341,6 +406,21 @@ public class L2SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
 //        }
 //    }
 
+    private static void set(final MutableOrderBookQuote quote,
+                            @Alphanumeric final long exchangeId,
+                            @Decimal final long price,
+                            @Decimal final long size,
+                            final long numberOfOrders,
+                            final long timestamp,
+                            final long originalTimestamp) {
+        quote.setPrice(price);
+        quote.setSize(size);
+        quote.setNumberOfOrders(numberOfOrders);
+        quote.setExchangeId(exchangeId);
+        quote.setTimestamp(timestamp);
+        quote.setOriginalTimestamp(originalTimestamp);
+    }
+
     /**
      * Get stock exchange holder by id(create new if it does not exist).
      * You can create only one exchange.
@@ -5,6 +5,7 @@ import com.epam.deltix.containers.AlphanumericUtils;
 import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.orderbook.core.api.EntryValidationCode;
+import com.epam.deltix.orderbook.core.api.PriceDirection;
 import com.epam.deltix.orderbook.core.impl.collections.rbt.RBTree;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.TypeConstants;
@@ -21,14 +22,22 @@ import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
 import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
 
 /**
+ * Consolidated order book for L3 quote level.
+ * <p>
+ * Consolidated sides keep only the best {@code maxDepth} quotes. Deeper quotes stay in exchange books only (truncated)
+ * and are promoted to consolidated side when its top quotes are removed.
+ * <p>
+ * Snapshot of exchange is merged into consolidated sides and exchange is removed from them in linear time
+ * by rebuilding the sides from sorted quotes, unless exchange has few quotes and per-quote updates are cheaper.
+ *
  * @author Andrii_Ostapenko1
  */
 class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implements L3Processor<Quote> {
 
-    protected final L3MarketSide<Quote> bids;
-    protected final L3MarketSide<Quote> asks;
+    protected final ConsolidatedL3MarketSide<Quote> bids;
+    protected final ConsolidatedL3MarketSide<Quote> asks;
 
-    protected final ObjectPool<Quote> pool;
+    protected final Pool<Quote> pool;
 
     protected final MutableExchangeList<MutableExchange<Quote, L3Processor<Quote>>> exchanges;
 
@@ -36,20 +45,27 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
     protected final DisconnectMode disconnectMode;
     protected final ValidationOptions validationOptions;
     private final OrderBookOptions options;
+    private final CrossedBookDetector<Quote, L3Processor<Quote>> crossedBook;
+
+    // Exchange books have quotes which are not in consolidated side
+    private boolean isAsksTruncated;
+    private boolean isBidsTruncated;
 
     L3ConsolidatedQuoteProcessor(final OrderBookOptions options,
-                                 final ObjectPool<Quote> pool) {
+                                 final Pool<Quote> pool) {
         this.options = options;
         this.validationOptions = options.getInvalidQuoteMode().orElse(Defaults.VALIDATION_OPTIONS);
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
+        this.crossedBook = new CrossedBookDetector<>(options);
 
         final int maxDepth = options.getMaxDepth().orElse(Defaults.MAX_DEPTH);
         final int initialDepth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final int numberOfExchanges = options.getInitialExchangesPoolSize().orElse(Defaults.INITIAL_EXCHANGES_POOL_SIZE);
         this.pool = pool;
         this.exchanges = new MutableExchangeListImpl<>(numberOfExchanges);
-        this.asks = new ConsolidatedL3MarketSide.ASKS<>(numberOfExchanges * initialDepth, Defaults.MAX_DEPTH);
-        this.bids = new ConsolidatedL3MarketSide.BIDS<>(numberOfExchanges * initialDepth, Defaults.MAX_DEPTH);
+        final int initialCapacity = Math.min(numberOfExchanges * initialDepth, maxDepth);
+        this.asks = new ConsolidatedL3MarketSide.ASKS<>(initialCapacity, maxDepth);
+        this.bids = new ConsolidatedL3MarketSide.BIDS<>(initialCapacity, maxDepth);
     }
 
     @Override
@@ -99,7 +115,9 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
                 final L3Processor<Quote> exchange = holder.get().getProcessor();
 
                 subtractExchange(exchange);
-                return exchange.processSecurityFeedStatus(msg);
+                final boolean isProcessed = exchange.processSecurityFeedStatus(msg);
+                fillUp();
+                return isProcessed;
             }
         }
         return false;
@@ -116,7 +134,9 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
         final L3Processor<Quote> exchange = holder.get().getProcessor();
 
         subtractExchange(exchange);
-        return exchange.processBookResetEntry(pck, msg);
+        final boolean isProcessed = exchange.processBookResetEntry(pck, msg);
+        fillUp();
+        return isProcessed;
     }
 
     @Override
@@ -125,6 +145,7 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
 
         // we assume that all entries in the message are from the same exchange
         @Alphanumeric final long exchangeId = entries.get(0).getExchangeId();
+        crossedBook.onUpdate(exchangeId);
         final Option<MutableExchange<Quote, L3Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
 
         if (!holder.hasValue()) {
@@ -134,18 +155,27 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
         final L3Processor<Quote> exchange = holder.get().getProcessor();
         if (exchange.isSnapshotAllowed(msg)) {
             subtractExchange(exchange);
-            if (exchange.processL3Snapshot(msg)) {
+            final boolean isProcessed = exchange.processL3Snapshot(msg);
+            if (isProcessed) {
                 addExchange(exchange);
-                return true;
             }
+            fillUp();
+            return isProcessed;
         }
         return false;
     }
 
     @Override
     public Quote processL3EntryNew(final PackageHeaderInfo pck, final L3EntryNewInfo msg) {
+        final Quote quote = addL3EntryNew(pck, msg);
+        fillUp();
+        return quote;
+    }
+
+    private Quote addL3EntryNew(final PackageHeaderInfo pck, final L3EntryNewInfo msg) {
         final QuoteSide side = msg.getSide();
         @Alphanumeric final long exchangeId = msg.getExchangeId();
+        crossedBook.onUpdate(exchangeId);
 
         final Option<MutableExchange<Quote, L3Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
         if (!holder.hasValue() || holder.get().getProcessor().isWaitingForSnapshot()) {
@@ -187,7 +217,7 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
             exchange.processL3EntryNew(pck, msg);
             return null;
         }
-        consolidatedMarketSide.add(quote);
+        insertQuote(quote, consolidatedMarketSide);
         return quote;
     }
 
@@ -210,7 +240,7 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
             consolidatedNewSide.remove(quote);
             quote.copyFrom(pck, msg);
             newSide.add(quote);
-            consolidatedNewSide.add(quote);
+            insertQuote(quote, consolidatedNewSide);
             return true;
         }
 
@@ -233,7 +263,7 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
             }
             newQuote.copyFrom(pck, msg);
             newSide.add(newQuote);
-            consolidatedNewSide.add(newQuote);
+            insertQuote(newQuote, consolidatedNewSide);
             return true;
         }
 
@@ -291,7 +321,14 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
     @Override
     public boolean processL3EntryUpdate(final PackageHeaderInfo pck,
                                         final L3EntryUpdateInfo msg) {
+        final boolean isProcessed = applyL3EntryUpdate(pck, msg);
+        fillUp();
+        return isProcessed;
+    }
+
+    private boolean applyL3EntryUpdate(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
         @Alphanumeric final long exchangeId = msg.getExchangeId();
+        crossedBook.onUpdate(exchangeId);
 
         final Option<MutableExchange<Quote, L3Processor<Quote>>> holder = getExchanges().getById(exchangeId);
         if (!holder.hasValue() || holder.get().getProcessor().isWaitingForSnapshot()) {
@@ -315,40 +352,153 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
         return exchange.processL3EntryUpdate(pck, msg);
     }
 
-    private void addExchange(final L3Processor<Quote> exchange) {
-        {
-            final L3MarketSide<Quote> srcMarketSide = exchange.getMarketSide(ASK);
-            final L3MarketSide<Quote> dstMarketSide = getMarketSide(ASK);
-            for (final Quote quote : srcMarketSide) {
-                dstMarketSide.add(quote);
-            }
+    @Override
+    public void invalidate(@Alphanumeric final long exchangeId) {
+        final Option<MutableExchange<Quote, L3Processor<Quote>>> holder = getOrCreateExchange(exchangeId);
+        if (holder.hasValue()) {
+            final L3Processor<Quote> exchange = holder.get().getProcessor();
+            subtractExchange(exchange);
+            exchange.invalidate();
+            fillUp();
         }
+    }
 
-        {
-            final L3MarketSide<Quote> srcMarketSide = exchange.getMarketSide(BID);
-            final L3MarketSide<Quote> dstMarketSide = getMarketSide(BID);
+    @Override
+    public boolean checkCrossedBook() {
+        // One exchange at most: if the book is still crossed, the next package decides what is stale
+        final L3Processor<Quote> stale = crossedBook.check(asks, bids, exchanges);
+        if (stale != null) {
+            subtractExchange(stale);
+            stale.invalidate();
+            fillUp();
+            return true;
+        }
+        return false;
+    }
+
+    private void addExchange(final L3Processor<Quote> exchange) {
+        addExchange(exchange.getMarketSide(ASK), asks);
+        addExchange(exchange.getMarketSide(BID), bids);
+    }
+
+    private void addExchange(final L3MarketSide<Quote> srcMarketSide,
+                             final ConsolidatedL3MarketSide<Quote> dstMarketSide) {
+        if (isBulk(srcMarketSide, dstMarketSide)) {
+            if (dstMarketSide.addAll(srcMarketSide, isTruncated(dstMarketSide))) {
+                setTruncated(dstMarketSide, true);
+            }
+        } else {
             for (final Quote quote : srcMarketSide) {
-                dstMarketSide.add(quote);
+                insertQuote(quote, dstMarketSide);
             }
         }
     }
 
     public void subtractExchange(final L3Processor<Quote> exchange) {
-        {
-            final L3MarketSide<Quote> srcMarketSide = exchange.getMarketSide(ASK);
-            final L3MarketSide<Quote> dstMarketSide = getMarketSide(ASK);
+        subtractExchange(exchange.getMarketSide(ASK), asks);
+        subtractExchange(exchange.getMarketSide(BID), bids);
+    }
+
+    private void subtractExchange(final L3MarketSide<Quote> srcMarketSide,
+                                  final ConsolidatedL3MarketSide<Quote> dstMarketSide) {
+        if (srcMarketSide.isEmpty()) {
+            return;
+        }
+        if (isBulk(srcMarketSide, dstMarketSide)) {
+            dstMarketSide.removeAll(srcMarketSide.getBestQuote().getExchangeId());
+        } else {
             for (final Quote quote : srcMarketSide) {
                 dstMarketSide.remove(quote);
             }
         }
+    }
 
-        {
-            final L3MarketSide<Quote> srcMarketSide = exchange.getMarketSide(BID);
-            final L3MarketSide<Quote> dstMarketSide = getMarketSide(BID);
-            for (final Quote quote : srcMarketSide) {
-                dstMarketSide.remove(quote);
+    /**
+     * Rebuilding of consolidated side is linear in its depth, while per-quote updates
+     * take logarithmic time for every quote of exchange side.
+     */
+    private static boolean isBulk(final L3MarketSide<?> srcMarketSide, final L3MarketSide<?> dstMarketSide) {
+        final int depth = dstMarketSide.depth();
+        final int height = Integer.SIZE - Integer.numberOfLeadingZeros(depth);
+        return (long) srcMarketSide.depth() * height >= depth;
+    }
+
+    /**
+     * Adds quote of exchange book to consolidated side, unless consolidated side is full or better quotes
+     * are already truncated and quote is not better than the worst one.
+     */
+    private void insertQuote(final Quote quote, final L3MarketSide<Quote> marketSide) {
+        if (marketSide.isFull() || isTruncated(marketSide)) {
+            final Quote worst = marketSide.getWorstQuote();
+            if (worst == null || !isBetter(quote.getPrice(), worst.getPrice(), marketSide.getSide())) {
+                setTruncated(marketSide, true);
+                return;
+            }
+            if (marketSide.isFull()) {
+                marketSide.remove(worst);
+                setTruncated(marketSide, true);
+            }
+        }
+        marketSide.add(quote);
+    }
+
+    /**
+     * Promotes truncated quotes of exchange books to consolidated sides while they have free levels.
+     */
+    private void fillUp() {
+        fillUp(asks);
+        fillUp(bids);
+    }
+
+    private void fillUp(final L3MarketSide<Quote> marketSide) {
+        while (isTruncated(marketSide) && !marketSide.isFull()) {
+            final Quote quote = getTruncatedQuote(marketSide);
+            if (quote == null) {
+                setTruncated(marketSide, false);
+            } else {
+                marketSide.add(quote);
+            }
+        }
+    }
+
+    /**
+     * Finds the best quote of exchange books which is not in consolidated side. All quotes with prices better
+     * than the worst price of consolidated side are always in consolidated side.
+     */
+    private Quote getTruncatedQuote(final L3MarketSide<Quote> marketSide) {
+        final QuoteSide side = marketSide.getSide();
+        final Quote worst = marketSide.getWorstQuote();
+        final PriceDirection worse = side == ASK ? PriceDirection.UP : PriceDirection.DOWN;
+        Quote best = null;
+        for (final MutableExchange<Quote, L3Processor<Quote>> exchange : exchanges) {
+            final L3MarketSide<Quote> exchangeSide = exchange.getProcessor().getMarketSide(side);
+            Quote quote = worst == null ?
+                    exchangeSide.getBestQuote() :
+                    exchangeSide.getNearestQuote(worst.getPrice(), worse);
+            while (quote != null && marketSide.contains(quote)) {
+                quote = exchangeSide.getNextQuote(quote);
+            }
+            if (quote != null && (best == null || isBetter(quote.getPrice(), best.getPrice(), side))) {
+                best = quote;
             }
         }
+        return best;
+    }
+
+    private boolean isTruncated(final L3MarketSide<Quote> marketSide) {
+        return marketSide == asks ? isAsksTruncated : isBidsTruncated;
+    }
+
+    private void setTruncated(final L3MarketSide<Quote> marketSide, final boolean isTruncated) {
+        if (marketSide == asks) {
+            isAsksTruncated = isTruncated;
+        } else {
+            isBidsTruncated = isTruncated;
+        }
+    }
+
+    private static boolean isBetter(@Decimal final long price, @Decimal final long other, final QuoteSide side) {
+        return side == ASK ? Decimal64Utils.isLess(price, other) : Decimal64Utils.isGreater(price, other);
     }
 
     /**
@@ -397,13 +547,21 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
     abstract static class ConsolidatedL3MarketSide<Quote extends MutableOrderBookQuote> implements L3MarketSide<Quote> {
         protected final RBTree<Quote, Quote> data;
         private final ReusableIterator<Quote> itr;
+        // Reusable key for price lookups, sequence number is Long.MIN_VALUE
+        private final Quote searchKey = (Quote) new MutableOrderBookQuoteImpl();
+        // Reusable key for skipping orders of one price, sequence number is Long.MAX_VALUE
+        private final Quote skipKey = (Quote) new MutableOrderBookQuoteL3Impl();
         private final int maxDepth;
+        // Reusable list of sorted quotes for rebuilding of the side
+        private final ArrayList<Quote> sorted;
         private long virtualClock;
 
         ConsolidatedL3MarketSide(final int initialCapacity, final int maxDepth) {
             this.maxDepth = maxDepth;
             this.data = new RBTree<>(initialCapacity, new QuoteComparator());
+            this.sorted = new ArrayList<>(initialCapacity);
             this.itr = new ReusableIterator<>();
+            this.skipKey.setSequenceNumber(Long.MAX_VALUE);
             virtualClock = Long.MIN_VALUE;
         }
 
@@ -459,9 +617,8 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
 
         @Override
         public Quote remove(final Quote delete) {
-            final Quote res = data.remove(delete);
-            assert res != null;
-            return res;
+            // Quote of exchange book can be truncated from consolidated side
+            return data.remove(delete);
         }
 
         @Override
@@ -469,6 +626,86 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
             throw new UnsupportedOperationException();
         }
 
+        /**
+         * Merges quotes of exchange side into this side in linear time. Merged side keeps the best
+         * {@code maxDepth} quotes, quotes of exchange follow quotes of this side with the same price.
+         *
+         * @param quotes      - quotes of exchange side sorted from best to worst
+         * @param isTruncated - whether better quotes of exchange books are truncated from this side:
+         *                    then only quotes better than the worst quote of this side are merged
+         * @return true if some quotes of exchange or of this side are truncated
+         */
+        boolean addAll(final L3MarketSide<Quote> quotes, final boolean isTruncated) {
+            final Quote worst = getWorstQuote();
+            if (isTruncated && worst == null) {
+                return !quotes.isEmpty();
+            }
+
+            final Iterator<Quote> existing = iterator();
+            Quote current = existing.hasNext() ? existing.next() : null;
+            boolean isDropped = false;
+            for (final Quote quote : quotes) {
+                if (isTruncated && !isBetter(quote.getPrice(), worst.getPrice())) {
+                    isDropped = true;
+                    break;
+                }
+                while (current != null && sorted.size() < maxDepth &&
+                        !isBetter(quote.getPrice(), current.getPrice())) {
+                    sorted.add(current);
+                    current = existing.hasNext() ? existing.next() : null;
+                }
+                if (sorted.size() == maxDepth) {
+                    isDropped = true;
+                    break;
+                }
+                quote.setSequenceNumber(virtualClock++);
+                sorted.add(quote);
+            }
+            while (current != null && sorted.size() < maxDepth) {
+                sorted.add(current);
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            rebuild();
+            return isDropped || current != null;
+        }
+
+        /**
+         * Removes all quotes of exchange in linear time.
+         *
+         * @param exchangeId - id of exchange
+         */
+        void removeAll(@Alphanumeric final long exchangeId) {
+            for (final Quote quote : this) {
+                if (quote.getExchangeId() != exchangeId) {
+                    sorted.add(quote);
+                }
+            }
+            if (sorted.size() == depth()) {
+                sorted.clear();
+            } else {
+                rebuild();
+            }
+        }
+
+        private void rebuild() {
+            data.buildFromSorted(sorted);
+            sorted.clear();
+        }
+
+        private boolean isBetter(@Decimal final long price, @Decimal final long other) {
+            return getSide() == ASK ? Decimal64Utils.isLess(price, other) : Decimal64Utils.isGreater(price, other);
+        }
+
+        @Override
+        public boolean contains(final Quote quote) {
+            return data.get(quote) == quote;
+        }
+
+        @Override
+        public Quote getNextQuote(final Quote quote) {
+            return data.higherKey(quote);
+        }
+
         @Override
         public boolean isFull() {
             return depth() == maxDepth;
@@ -492,6 +729,59 @@ class L3ConsolidatedQuoteProcessor<Quote extends MutableOrderBookQuote> implemen
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public Quote getQuoteByPrice(@Decimal final long price) {
+            final Quote quote = ceilingByPrice(price);
+            return quote != null && Decimal64Utils.isEqual(quote.getPrice(), price) ? quote : null;
+        }
+
+        @Override
+        public int getLevelByPrice(@Decimal final long price) {
+            final Quote quote = getQuoteByPrice(price);
+            return quote == null ? NOT_FOUND : getLevel(quote.getPrice());
+        }
+
+        @Override
+        public int getNearestLevel(@Decimal final long price, final PriceDirection direction) {
+            final Quote quote = getNearestQuote(price, direction);
+            return quote == null ? NOT_FOUND : getLevel(quote.getPrice());
+        }
+
+        @Override
+        public Quote getNearestQuote(@Decimal final long price, final PriceDirection direction) {
+            Objects.requireNonNull(direction);
+            final Quote quote = ceilingByPrice(price);
+            if ((getSide() == ASK) == (direction == PriceDirection.UP) ||
+                    (quote != null && Decimal64Utils.isEqual(quote.getPrice(), price))) {
+                return quote;
+            }
+            // Last order with better price, search key still holds given price
+            final Quote better = data.lowerKey(searchKey);
+            return better == null ? null : ceilingByPrice(better.getPrice());
+        }
+
+        /**
+         * Counts prices better than given existing price, one tree lookup per price.
+         */
+        private int getLevel(@Decimal final long price) {
+            int level = 0;
+            for (Quote quote = data.firstKey(); Decimal64Utils.isNotEqual(quote.getPrice(), price); level++) {
+                // Skip key follows all orders with the same price
+                skipKey.setPrice(quote.getPrice());
+                quote = data.higherKey(skipKey);
+            }
+            return level;
+        }
+
+        /**
+         * Finds the first order with price equal to or worse than given price.
+         * Search key has the smallest sequence number, so no order with the same price precedes it.
+         */
+        private Quote ceilingByPrice(@Decimal final long price) {
+            searchKey.setPrice(price);
+            return data.ceilingKey(searchKey);
+        }
+
         @Override
         public Quote getWorstQuote() {
             if (isEmpty()) {
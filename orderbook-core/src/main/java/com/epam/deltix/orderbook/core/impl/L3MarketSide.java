@@ -113,6 +113,22 @@ interface L3MarketSide<Quote> extends MarketSide<Quote> {
      */
     boolean hasQuote(CharSequence quoteId);
 
+    /**
+     * Checks if given quote instance is in the market side.
+     *
+     * @param quote the quote to check
+     * @return true if the market side contains this quote
+     */
+    boolean contains(Quote quote);
+
+    /**
+     * Get quote which follows given one in order of priority.
+     *
+     * @param quote the quote to start from, it does not have to be in the market side
+     * @return the next quote or null if there is no such quote
+     */
+    Quote getNextQuote(Quote quote);
+
     /**
      * Checks if the current market side is full.
      *
@@ -51,11 +51,12 @@ public class L3OrderBookFactory {
         final int maxDepth = options.getMaxDepth().orElse(Defaults.MAX_DEPTH);
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
 
-        final ObjectPool<? extends MutableOrderBookQuote> pool =
-                (ObjectPool<? extends MutableOrderBookQuote>) options.getSharedObjectPool().orElse(QuotePoolFactory.create(options, depth));
+        final Pool<? extends MutableOrderBookQuote> pool =
+                (Pool<? extends MutableOrderBookQuote>) options.getSharedObjectPool().orElse(QuotePoolFactory.create(options, depth));
 
-        final QuoteProcessor<? extends MutableOrderBookQuote> processor = new L3SingleExchangeQuoteProcessor<>(options, pool);
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        final UpdatableQuoteProcessor<? extends MutableOrderBookQuote> processor = new L3SingleExchangeQuoteProcessor<>(options, pool);
+        return (OrderBook<Quote>) new UpdatableOrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 
     /**
@@ -71,10 +72,11 @@ public class L3OrderBookFactory {
         final int depth = options.getInitialDepth().orElse(Math.min(Defaults.INITIAL_DEPTH, maxDepth));
         final int exchanges = options.getInitialExchangesPoolSize().orElse(Defaults.INITIAL_EXCHANGES_POOL_SIZE);
 
-        final ObjectPool<? extends MutableOrderBookQuote> pool = (ObjectPool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
+        final Pool<? extends MutableOrderBookQuote> pool = (Pool<? extends MutableOrderBookQuote>) options.getSharedObjectPool()
                         .orElse(QuotePoolFactory.create(options, exchanges * depth));
 
         final QuoteProcessor<? extends MutableOrderBookQuote> processor = new L3ConsolidatedQuoteProcessor<>(options, pool);
-        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor);
+        return (OrderBook<Quote>) new OrderBookDecorator<>(options.getSymbol(), processor, options.getJournal(),
+                options.getMetrics(), options.getAnalytics(), options.getBuckets(), options.getSequenceTracker());
     }
 }
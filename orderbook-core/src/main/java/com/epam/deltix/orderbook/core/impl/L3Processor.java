@@ -57,13 +57,13 @@ interface L3Processor<Quote> extends QuoteProcessor<Quote> {
     boolean isSnapshotAllowed(PackageHeaderInfo msg);
 
     default boolean processIncrementalUpdate(final PackageHeaderInfo pck, final BaseEntryInfo entryInfo) {
-        if (entryInfo instanceof L3EntryNew) {
-            final L3EntryNew entry = (L3EntryNew) entryInfo;
+        if (entryInfo instanceof L3EntryNewInfo) {
+            final L3EntryNewInfo entry = (L3EntryNewInfo) entryInfo;
             return processL3EntryNew(pck, entry) != null;
-        } else if (entryInfo instanceof L3EntryUpdate) {
-            final L3EntryUpdate entry = (L3EntryUpdate) entryInfo;
+        } else if (entryInfo instanceof L3EntryUpdateInfo) {
+            final L3EntryUpdateInfo entry = (L3EntryUpdateInfo) entryInfo;
             return processL3EntryUpdate(pck, entry);
-        } else if (entryInfo instanceof StatisticsEntry) {
+        } else if (entryInfo instanceof StatisticsEntryInfo) {
             return true;
         }
         return false;
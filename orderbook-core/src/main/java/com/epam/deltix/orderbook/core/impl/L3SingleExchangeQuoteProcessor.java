@@ -17,14 +17,15 @@
 package com.epam.deltix.orderbook.core.impl;
 
 
+import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.dfp.Decimal64Utils;
 import com.epam.deltix.orderbook.core.api.EntryValidationCode;
 import com.epam.deltix.orderbook.core.api.ErrorListener;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.options.Defaults;
 import com.epam.deltix.orderbook.core.options.DisconnectMode;
 import com.epam.deltix.orderbook.core.options.OrderBookOptions;
 import com.epam.deltix.orderbook.core.options.ValidationOptions;
-import com.epam.deltix.timebase.messages.MarketMessageInfo;
 import com.epam.deltix.timebase.messages.MessageInfo;
 import com.epam.deltix.timebase.messages.TypeConstants;
 import com.epam.deltix.timebase.messages.service.FeedStatus;
@@ -35,15 +36,16 @@ import com.epam.deltix.util.collections.generated.ObjectList;
 
 import java.util.ArrayList;
 
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
 import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
 import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
 
 /**
  * @author Andrii_Ostapenko1
  */
-public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L3Processor<Quote> {
+public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote> implements L3Processor<Quote>, UpdatableQuoteProcessor<Quote> {
 
-    protected final ObjectPool<Quote> pool;
+    protected final Pool<Quote> pool;
     private final L3MarketSide<Quote> bids;
     private final L3MarketSide<Quote> asks;
 
@@ -58,16 +60,18 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
     private final ValidationOptions validationOptions;
     private final DisconnectMode disconnectMode;
     private final ErrorListener errorListener;
+    private final OrderBookMetrics metrics;
 
 
     private final ArrayList<Quote> asksList;
     private final ArrayList<Quote> bidsList;
 
-    public L3SingleExchangeQuoteProcessor(final OrderBookOptions options, final ObjectPool<Quote> pool) {
+    public L3SingleExchangeQuoteProcessor(final OrderBookOptions options, final Pool<Quote> pool) {
         this.disconnectMode = options.getDisconnectMode().orElse(Defaults.DISCONNECT_MODE);
         this.validationOptions = options.getInvalidQuoteMode().orElse(Defaults.VALIDATION_OPTIONS);
         this.eventHandler = new EventHandlerImpl(options);
         this.errorListener = options.getErrorListener().orElse(Defaults.DEFAULT_ERROR_LISTENER);
+        this.metrics = options.getMetrics().orElse(Defaults.METRICS);
 
         this.pool = pool;
 
@@ -84,17 +88,72 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         return "L3/Single exchange";
     }
 
-    public void failInsert(final PackageHeaderInfo pck, final EntryValidationCode errorCode) {
+    public void failInsert(final MessageInfo pck, final EntryValidationCode errorCode) {
+        metrics.onEntryRejected();
         if (validationOptions.isQuoteInsert()) {
             clear();
-            errorListener.onError(pck, errorCode);
+            onError(pck, errorCode);
             eventHandler.onBroken();
         }
     }
 
     @Override
     public Quote processL3EntryNew(final PackageHeaderInfo pck, final L3EntryNewInfo msg) {
-        if (!validExchange(pck, msg.getExchangeId())) {
+        return processL3EntryNew(pck, msg.getExchangeId(), msg.getSide(), msg.getInsertType(),
+                msg.getQuoteId(), msg.getParticipantId(), msg.getPrice(), msg.getSize(),
+                pck.getTimeStampMs(), pck.getOriginalTimestamp());
+    }
+
+    @Override
+    public boolean processL3EntryUpdate(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
+        return processL3EntryUpdate(pck, msg.getExchangeId(), msg.getSide(), msg.getAction(),
+                msg.getQuoteId(), msg.getParticipantId(), msg.getPrice(), msg.getSize(),
+                pck.getTimeStampMs(), pck.getOriginalTimestamp());
+    }
+
+    @Override
+    public boolean applyL3New(@Alphanumeric final long exchangeId,
+                              final QuoteSide side,
+                              final InsertType insertType,
+                              final CharSequence quoteId,
+                              final CharSequence participantId,
+                              @Decimal final long price,
+                              @Decimal final long size,
+                              final long timestamp) {
+        return processL3EntryNew(null, exchangeId, side, insertType, quoteId, participantId, price, size,
+                timestamp, TIMESTAMP_UNKNOWN) != null;
+    }
+
+    @Override
+    public boolean applyL3Update(@Alphanumeric final long exchangeId,
+                                 final QuoteSide side,
+                                 final QuoteUpdateAction action,
+                                 final CharSequence quoteId,
+                                 final CharSequence participantId,
+                                 @Decimal final long price,
+                                 @Decimal final long size,
+                                 final long timestamp) {
+        return processL3EntryUpdate(null, exchangeId, side, action, quoteId, participantId, price, size,
+                timestamp, TIMESTAMP_UNKNOWN);
+    }
+
+    /**
+     * Level3-new applied from primitives, shared by message and primitive API.
+     *
+     * @param pck - package to report errors with ({@code null} for primitive API)
+     * @return inserted quote or {@code null} if entry is rejected
+     */
+    protected Quote processL3EntryNew(final MessageInfo pck,
+                                      @Alphanumeric final long exchangeId,
+                                      final QuoteSide side,
+                                      final InsertType insertType,
+                                      final CharSequence quoteId,
+                                      final CharSequence participantId,
+                                      @Decimal final long price,
+                                      @Decimal final long size,
+                                      final long timestamp,
+                                      final long originalTimestamp) {
+        if (!validExchange(pck, exchangeId)) {
             return null;
         }
 
@@ -102,9 +161,8 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             return null;
         }
 
-        final QuoteSide side = msg.getSide();
         final L3MarketSide<Quote> marketSide = getMarketSide(side);
-        final EntryValidationCode errorCode = marketSide.isInvalidInsert(msg.getInsertType(), msg.getQuoteId(), msg.getPrice(), msg.getSize(), side);
+        final EntryValidationCode errorCode = marketSide.isInvalidInsert(insertType, quoteId, price, size, side);
         if (errorCode != null) {
             failInsert(pck, errorCode);
             return null;
@@ -113,8 +171,8 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         final Quote quote;
         if (marketSide.isFull()) { // CAREFUL! In this case we can't guarantee uniqueness of quoteIds
             final Quote worstQuote = marketSide.getWorstQuote();
-            if (side == ASK && Decimal64Utils.isGreater(worstQuote.getPrice(), msg.getPrice()) ||
-                    side == BID && Decimal64Utils.isGreater(msg.getPrice(), worstQuote.getPrice())) {
+            if (side == ASK && Decimal64Utils.isGreater(worstQuote.getPrice(), price) ||
+                    side == BID && Decimal64Utils.isGreater(price, worstQuote.getPrice())) {
                 quote = marketSide.remove(worstQuote.getQuoteId());
             } else {
                 return null;
@@ -123,7 +181,7 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             quote = pool.borrow();
         }
 
-        quote.copyFrom(pck, msg);
+        set(quote, exchangeId, quoteId, participantId, price, size, timestamp, originalTimestamp);
         if (!marketSide.add(quote)) {
             pool.release(quote);
             failInsert(pck, EntryValidationCode.DUPLICATE_QUOTE_ID);
@@ -132,29 +190,72 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         return quote;
     }
 
-    public boolean failUpdate(final MarketMessageInfo message, final EntryValidationCode errorCode) {
+    /**
+     * Level3-update applied from primitives, shared by message and primitive API.
+     *
+     * @param pck - package to report errors with ({@code null} for primitive API)
+     * @return true if update is processed
+     */
+    protected boolean processL3EntryUpdate(final MessageInfo pck,
+                                           @Alphanumeric final long exchangeId,
+                                           final QuoteSide side,
+                                           final QuoteUpdateAction action,
+                                           final CharSequence quoteId,
+                                           final CharSequence participantId,
+                                           @Decimal final long price,
+                                           @Decimal final long size,
+                                           final long timestamp,
+                                           final long originalTimestamp) {
+        if (!validExchange(pck, exchangeId)) {
+            return false;
+        }
+
+        if (isWaitingForSnapshot()) {
+            return false;
+        }
+
+        if (action == QuoteUpdateAction.CANCEL) {
+            return handleCancel(pck, side, quoteId);
+        }
+        if (action == QuoteUpdateAction.REPLACE) {
+            return handleReplace(pck, exchangeId, side, quoteId, participantId, price, size, timestamp, originalTimestamp);
+        }
+        if (action == QuoteUpdateAction.MODIFY) {
+            return handleModify(pck, exchangeId, side, quoteId, participantId, price, size, timestamp, originalTimestamp);
+        }
+        return failUpdate(pck, EntryValidationCode.UNSUPPORTED_UPDATE_ACTION);
+    }
+
+    public boolean failUpdate(final MessageInfo message, final EntryValidationCode errorCode) {
+        metrics.onEntryRejected();
         if (validationOptions.isQuoteUpdate()) {
             clear();
-            errorListener.onError(message, errorCode);
+            onError(message, errorCode);
             eventHandler.onBroken();
             return false;
         }
         return true; // skip invalid update
     }
 
-    public boolean handleReplace(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
-        final QuoteSide side = msg.getSide();
-        final CharSequence quoteId = msg.getQuoteId();
+    public boolean handleReplace(final MessageInfo pck,
+                                 @Alphanumeric final long exchangeId,
+                                 final QuoteSide side,
+                                 final CharSequence quoteId,
+                                 final CharSequence participantId,
+                                 @Decimal final long price,
+                                 @Decimal final long size,
+                                 final long timestamp,
+                                 final long originalTimestamp) {
         final L3MarketSide<Quote> newSide = getMarketSide(side);
 
-        final EntryValidationCode errorCode = newSide.isInvalidInsert(InsertType.ADD_BACK, quoteId, msg.getPrice(), msg.getSize(), side);
+        final EntryValidationCode errorCode = newSide.isInvalidInsert(InsertType.ADD_BACK, quoteId, price, size, side);
         if (errorCode != null) {
             return failUpdate(pck, errorCode);
         }
 
         final Quote quote = newSide.remove(quoteId);
         if (quote != null) { // replace didn't change side
-            quote.copyFrom(pck, msg);
+            set(quote, exchangeId, quoteId, participantId, price, size, timestamp, originalTimestamp);
             newSide.add(quote);
             return true;
         }
@@ -166,14 +267,14 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             if (newSide.isFull()) {
                 pool.release(removed);
                 final Quote worstQuote = newSide.getWorstQuote();
-                if (side == ASK && Decimal64Utils.isGreater(worstQuote.getPrice(), msg.getPrice()) ||
-                        side == BID && Decimal64Utils.isGreater(msg.getPrice(), worstQuote.getPrice())) {
+                if (side == ASK && Decimal64Utils.isGreater(worstQuote.getPrice(), price) ||
+                        side == BID && Decimal64Utils.isGreater(price, worstQuote.getPrice())) {
                     newQuote = newSide.remove(worstQuote.getQuoteId());
                 } else {
                     return true;
                 }
             }
-            newQuote.copyFrom(pck, msg);
+            set(newQuote, exchangeId, quoteId, participantId, price, size, timestamp, originalTimestamp);
             newSide.add(newQuote);
             return true;
         }
@@ -181,9 +282,8 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         return failUpdate(pck, EntryValidationCode.UNKNOWN_QUOTE_ID);
     }
 
-    public boolean handleCancel(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
-        final CharSequence quoteId = msg.getQuoteId();
-        final QuoteSide side = msg.getSide() == ASK ? ASK : BID;
+    public boolean handleCancel(final MessageInfo pck, final QuoteSide quoteSide, final CharSequence quoteId) {
+        final QuoteSide side = quoteSide == ASK ? ASK : BID;
 
         Quote removed = getMarketSide(side).remove(quoteId);
         if (removed == null) {
@@ -198,44 +298,28 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         return true;
     }
 
-    public boolean handleModify(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
-        final QuoteSide side = msg.getSide(); // probably we should validate that side != null immediately?
-        final CharSequence quoteId = msg.getQuoteId();
+    public boolean handleModify(final MessageInfo pck,
+                                @Alphanumeric final long exchangeId,
+                                final QuoteSide side,
+                                final CharSequence quoteId,
+                                final CharSequence participantId,
+                                @Decimal final long price,
+                                @Decimal final long size,
+                                final long timestamp,
+                                final long originalTimestamp) {
+        // probably we should validate that side != null immediately?
         final L3MarketSide<Quote> marketSide = getMarketSide(side);
         final Quote quote = marketSide.getQuote(quoteId);
 
-        final EntryValidationCode errorCode = marketSide.isInvalidUpdate(quote, msg.getQuoteId(), msg.getPrice(), msg.getSize(), side);
+        final EntryValidationCode errorCode = marketSide.isInvalidUpdate(quote, quoteId, price, size, side);
         if (errorCode != null) {
             return failUpdate(pck, errorCode);
         }
 
-        quote.copyFrom(pck, msg);
+        set(quote, exchangeId, quoteId, participantId, price, size, timestamp, originalTimestamp);
         return true;
     }
 
-    @Override
-    public boolean processL3EntryUpdate(final PackageHeaderInfo pck, final L3EntryUpdateInfo msg) {
-        if (!validExchange(pck, msg.getExchangeId())) {
-            return false;
-        }
-
-        if (isWaitingForSnapshot()) {
-            return false;
-        }
-
-        final QuoteUpdateAction action = msg.getAction();
-        if (action == QuoteUpdateAction.CANCEL) {
-            return handleCancel(pck, msg);
-        }
-        if (action == QuoteUpdateAction.REPLACE) {
-            return handleReplace(pck, msg);
-        }
-        if (action == QuoteUpdateAction.MODIFY) {
-            return handleModify(pck, msg);
-        }
-        return failUpdate(pck, EntryValidationCode.UNSUPPORTED_UPDATE_ACTION);
-    }
-
     @Override
     public boolean processL3Snapshot(final PackageHeaderInfo pck) {
         if (!isSnapshotAllowed(pck)) {
@@ -249,8 +333,8 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         final int len = entries.size();
         for (int i = 0; i < len; i++) {
             final BaseEntryInfo e = entries.get(i);
-            if (e instanceof L3EntryNewInterface) {
-                final L3EntryNewInterface entry = (L3EntryNewInterface) e;
+            if (e instanceof L3EntryNewInfo) {
+                final L3EntryNewInfo entry = (L3EntryNewInfo) e;
                 if (!validExchange(pck, entry.getExchangeId())) {
                     // We expect that exchangeId is valid and all entries have the same exchangeId
                     continue;
@@ -347,6 +431,12 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         releaseAndClean(bids);
     }
 
+    @Override
+    public void invalidate() {
+        clear();
+        eventHandler.onBroken();
+    }
+
     @Override
     public boolean isEmpty() {
         return asks.isEmpty() && bids.isEmpty();
@@ -379,9 +469,35 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
         side.clear();
     }
 
+    private static void set(final MutableOrderBookQuote quote,
+                            @Alphanumeric final long exchangeId,
+                            final CharSequence quoteId,
+                            final CharSequence participantId,
+                            @Decimal final long price,
+                            @Decimal final long size,
+                            final long timestamp,
+                            final long originalTimestamp) {
+        quote.setPrice(price);
+        quote.setSize(size);
+        quote.setExchangeId(exchangeId);
+        quote.setQuoteId(quoteId);
+        quote.setParticipantId(participantId);
+        quote.setTimestamp(timestamp);
+        quote.setOriginalTimestamp(originalTimestamp);
+    }
+
+    /**
+     * Primitive API has no message to report errors with, such errors are counted by metrics only.
+     */
+    private void onError(final MessageInfo pck, final EntryValidationCode errorCode) {
+        if (pck != null) {
+            errorListener.onError(pck, errorCode);
+        }
+    }
+
     private boolean validExchange(final MessageInfo pck, @Alphanumeric final long exchangeId) {
         if (TypeConstants.ALPHANUMERIC_NULL == exchangeId) {
-            errorListener.onError(pck, EntryValidationCode.MISSING_EXCHANGE_ID);
+            onError(pck, EntryValidationCode.MISSING_EXCHANGE_ID);
             return false;
         }
 
@@ -389,7 +505,7 @@ public class L3SingleExchangeQuoteProcessor<Quote extends MutableOrderBookQuote>
             this.exchangeId = exchangeId;
         } else {
             if (this.exchangeId != exchangeId) {
-                errorListener.onError(pck, EntryValidationCode.EXCHANGE_ID_MISMATCH);
+                onError(pck, EntryValidationCode.EXCHANGE_ID_MISMATCH);
                 return false;
             }
         }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import java.util.Arrays;
+
+/**
+ * Allocation free histogram of latencies with power of two buckets:
+ * bucket {@code i} counts values in range {@code [2^(i-1), 2^i)}, bucket 0 counts zero values.
+ * <p>
+ * Percentiles are reported as upper bound of bucket, so precision is within factor of two.
+ * Not thread safe!
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE; // values are never negative
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long max;
+    private long sum;
+
+    /**
+     * Records value.
+     *
+     * @param value value to record, negative values are recorded as zero
+     */
+    public void record(final long value) {
+        final long v = Math.max(value, 0);
+        counts[Long.SIZE - Long.numberOfLeadingZeros(v)]++;
+        totalCount++;
+        sum += v;
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Upper bound of value at given percentile.
+     *
+     * @param percentile percentile in range [0, 100]
+     * @return value or zero if histogram is empty
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final long threshold = Math.max(1, (long) Math.ceil(totalCount * Math.min(percentile, 100.0) / 100.0));
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i];
+            if (count >= threshold) {
+                return Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+        sum = 0;
+    }
+
+}
@@ -68,6 +68,14 @@ interface MutableOrderBookQuote extends OrderBookQuote, Comparable<MutableOrderB
         //do nothing
     }
 
+    default void setQuoteId(CharSequence quoteId) {
+        //do nothing
+    }
+
+    default void setParticipantId(CharSequence participantId) {
+        //do nothing
+    }
+
     default long getSequenceNumber() {
         // return nothing
         return Long.MIN_VALUE;
@@ -57,12 +57,11 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
      */
     private final BinaryAsciiString quoteId = new BinaryAsciiString(32);
 
-    private static final BinaryAsciiString DEFAULT_PARTICIPANT_ID = new BinaryAsciiString(0);
-
     /**
      * Id of participant (or broker ID).
+     * Allocated together with quote (pooled), so copying of participant id doesn't allocate memory on update.
      */
-    private BinaryAsciiString participantId = DEFAULT_PARTICIPANT_ID;
+    private final BinaryAsciiString participantId = new BinaryAsciiString(32);
 
     /**
      * Sequence number of a quote, required for chronological ordering
@@ -121,6 +120,11 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
         return quoteId;
     }
 
+    @Override
+    public void setQuoteId(final CharSequence quoteId) {
+        copyFrom(quoteId, this.quoteId);
+    }
+
     @Override
     public boolean hasQuoteId() {
         return !this.quoteId.isEmpty();
@@ -131,6 +135,11 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
         return participantId;
     }
 
+    @Override
+    public void setParticipantId(final CharSequence participantId) {
+        copyFrom(participantId, this.participantId);
+    }
+
     @Override
     public boolean hasParticipantId() {
         return !participantId.isEmpty();
@@ -168,7 +177,7 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
         this.price = src.getPrice();
         this.exchangeId = src.getExchangeId();
         copyFrom(src.getQuoteId(), this.quoteId);
-        copyFromParticipantId(src.getParticipantId());
+        copyFrom(src.getParticipantId(), this.participantId);
     }
 
     @Override
@@ -178,7 +187,7 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
         this.price = src.getPrice();
         this.exchangeId = src.getExchangeId();
         copyFrom(src.getQuoteId(), this.quoteId);
-        copyFromParticipantId(src.getParticipantId());
+        copyFrom(src.getParticipantId(), this.participantId);
     }
 
     @Override
@@ -229,15 +238,4 @@ class MutableOrderBookQuoteL3Impl implements MutableOrderBookQuote {
             dst.clear();
         }
     }
-
-    private void copyFromParticipantId(final CharSequence src) {
-        if (src != null) {
-            if (this.participantId == DEFAULT_PARTICIPANT_ID) {
-                this.participantId = new BinaryAsciiString(32);
-            }
-            this.participantId.assign(src);
-        } else {
-            this.participantId.clear();
-        }
-    }
 }
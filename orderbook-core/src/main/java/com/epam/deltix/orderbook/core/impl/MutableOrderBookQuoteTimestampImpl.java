@@ -29,6 +29,11 @@ class MutableOrderBookQuoteTimestampImpl extends MutableOrderBookQuoteImpl {
         return originalTimestamp != TIMESTAMP_UNKNOWN;
     }
 
+    @Override
+    public void setTimestamp(final long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     @Override
     public long getTimestamp() {
         return timestamp;
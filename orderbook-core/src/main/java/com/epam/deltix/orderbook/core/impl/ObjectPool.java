@@ -21,41 +21,78 @@ import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * Never-shrinking version of ObjectPool. Not thread safe
+ * Pool of reusable objects. Not thread safe
+ * <p>
+ * Pool keeps statistics (borrowed, idle, high-water mark of borrowed items, factory misses) and can bound
+ * the number of idle items: items released above {@code maxIdleSize} are dropped (left to Java Garbage Collector)
+ * without any allocation. Use {@link #prewarm(int)} to create items upfront and {@link #trim(int)} to release
+ * idle items outside the hot path.
+ *
+ * @see ConcurrentObjectPool
  */
-public final class ObjectPool<T> {
+public final class ObjectPool<T> implements Pool<T> {
 
     private final Supplier<T> factory;
     private final Consumer<T> releaseCallback;
+    private final Runnable missCallback;
+    private final int maxIdleSize;
     private Object[] array;
     private int size;
 
+    // Statistics
+    private int borrowed;
+    private int highWaterMark;
+    private long missCount;
+    private long droppedCount;
+
     //TODO add javadoc
     public ObjectPool(final int initialSize, final Supplier<T> factory) {
         this(initialSize, factory, null);
     }
 
     public ObjectPool(final int initialSize, final Supplier<T> factory, final Consumer<T> releaseCallback) {
+        this(initialSize, factory, releaseCallback, null);
+    }
+
+    public ObjectPool(final int initialSize,
+                      final Supplier<T> factory,
+                      final Consumer<T> releaseCallback,
+                      final Runnable missCallback) {
+        this(initialSize, factory, releaseCallback, missCallback, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param initialSize     number of items created upfront
+     * @param factory         factory of new items
+     * @param releaseCallback called for every released item (may be {@code null})
+     * @param missCallback    called when pool is empty and new item is created by factory on borrow (may be {@code null})
+     * @param maxIdleSize     max number of idle items kept by pool, items released above this limit are dropped
+     */
+    public ObjectPool(final int initialSize,
+                      final Supplier<T> factory,
+                      final Consumer<T> releaseCallback,
+                      final Runnable missCallback,
+                      final int maxIdleSize) {
         if (initialSize < 0) {
             throw new IllegalArgumentException("Illegal size: " + initialSize);
         }
-        this.releaseCallback = releaseCallback;
-
-        final Object[] array = new Object[(initialSize == 0) ? 1 : initialSize];
-
-        for (int i = 0; i < initialSize; i++) {
-            final T item = factory.get();
-            assert item != null;
-            array[i] = item;
+        if (maxIdleSize < 0) {
+            throw new IllegalArgumentException("Illegal max idle size: " + maxIdleSize);
         }
-
-        this.size = initialSize;
+        this.releaseCallback = releaseCallback;
+        this.missCallback = missCallback;
+        this.maxIdleSize = maxIdleSize;
         this.factory = factory;
-        this.array = array;
+        this.array = new Object[(initialSize == 0) ? 1 : initialSize];
+        fill(initialSize);
     }
 
+    @Override
     @SuppressWarnings("unchecked")
     public T borrow() {
+        if (++borrowed > highWaterMark) {
+            highWaterMark = borrowed;
+        }
         if (size > 0) {
             final int last = --size;
             final Object item = array[last];
@@ -63,12 +100,23 @@ public final class ObjectPool<T> {
             assert item != null;
             return (T) item;
         } else {
+            missCount++;
+            if (missCallback != null) {
+                missCallback.run();
+            }
             return factory.get();
         }
     }
 
+    @Override
     public void release(final T item) {
         if (item != null) {
+            borrowed--;
+            if (size >= maxIdleSize) {
+                droppedCount++;
+                return;
+            }
+
             if (size == array.length) {
                 array = Arrays.copyOf(array, size << 1);
             }
@@ -81,14 +129,100 @@ public final class ObjectPool<T> {
         }
     }
 
+    /**
+     * Creates items until pool holds at least {@code idleSize} idle items (but not more than max idle size).
+     *
+     * @param idleSize desired number of idle items
+     */
+    @Override
+    public void prewarm(final int idleSize) {
+        fill(idleSize);
+    }
+
+    private void fill(final int idleSize) {
+        final int target = Math.min(idleSize, maxIdleSize);
+        if (target > array.length) {
+            array = Arrays.copyOf(array, target);
+        }
+        while (size < target) {
+            final T item = factory.get();
+            assert item != null;
+            array[size++] = item;
+        }
+    }
+
+    /**
+     * Releases idle items above {@code idleSize} to Java Garbage Collector.
+     * <p>
+     * Internal storage keeps its capacity (shrunk to max idle size only), so releases after trim don't allocate.
+     *
+     * @param idleSize number of idle items to keep
+     */
+    @Override
+    public void trim(final int idleSize) {
+        if (idleSize < 0) {
+            throw new IllegalArgumentException("Illegal size: " + idleSize);
+        }
+        if (size > idleSize) {
+            Arrays.fill(array, idleSize, size, null);
+            size = idleSize;
+        }
+        final int capacity = Math.max(maxIdleSize, 1);
+        if (array.length > capacity) {
+            array = Arrays.copyOf(array, capacity);
+        }
+    }
+
+    /**
+     * Number of idle items.
+     */
+    @Override
     public int getTotalSize() {
         return size;
     }
 
+    /**
+     * Number of items borrowed and not yet released.
+     */
+    @Override
+    public int getBorrowedCount() {
+        return borrowed;
+    }
+
+    /**
+     * Max number of items borrowed at the same time.
+     */
+    @Override
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Number of items created by factory on borrow from empty pool.
+     */
+    @Override
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Number of items dropped on release because of max idle size.
+     */
+    @Override
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public int getMaxIdleSize() {
+        return maxIdleSize;
+    }
+
     /**
      * Clear all entries and release all cached objects to Java Garbage Collector
      */
-    private void clear() {
+    @Override
+    public void clear() {
         Arrays.fill(array, 0, size, null);
         size = 0;
     }
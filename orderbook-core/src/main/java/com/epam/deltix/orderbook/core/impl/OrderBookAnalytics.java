@@ -0,0 +1,279 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+
+import java.util.Arrays;
+
+/**
+ * Microstructure metrics of order book over top {@code K} price levels, kept up to date by the book itself.
+ * <p>
+ * For every configured depth {@code K}, with {@code bidSize}/{@code askSize} - total size of top {@code K} levels
+ * of the side and {@code bidVwap}/{@code askVwap} - their size-weighted average price:
+ * <ul>
+ *     <li>imbalance = (bidSize - askSize) / (bidSize + askSize), in range [-1, 1];</li>
+ *     <li>microprice = (askVwap * bidSize + bidVwap * askSize) / (bidSize + askSize),
+ *     for {@code K = 1} this is classic microprice of the top of book;</li>
+ *     <li>weighted mid = (bidVwap + askVwap) / 2.</li>
+ * </ul>
+ * Levels are distinct prices, so several quotes of consolidated book (or orders of L3 book) with the same price
+ * form one level. If side has fewer than {@code K} levels, all its levels are used.
+ * Metrics are {@link Double#NaN} while any side of the book is empty.
+ * <p>
+ * Attach analytics to order book with
+ * {@link com.epam.deltix.orderbook.core.options.BindOrderBookOptionsBuilder#analytics(OrderBookAnalytics)}:
+ * book reports every applied entry, and after the message metrics are recalculated for sides whose top levels
+ * have changed only. Recalculation of a side visits its quotes at the top levels of the maximal depth once
+ * (for L3 or consolidated book this includes every order at these prices), changes deeper in the book cost nothing.
+ * Reads are O(1). Neither updates nor reads allocate memory.
+ * <p>
+ * Not thread safe! One instance can be attached to one order book only.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookAnalytics {
+
+    private static final int NOT_CONFIGURED = -1;
+
+    // Configured depths in ascending order
+    private final int[] depths;
+    private final int[] indexByDepth;
+
+    private final double[] bidSizes;
+    private final double[] askSizes;
+    private final double[] bidNotionals;
+    private final double[] askNotionals;
+
+    private final double[] imbalances;
+    private final double[] microprices;
+    private final double[] weightedMids;
+    private final TopLevelChanges changes = new TopLevelChanges();
+    private boolean isAttached;
+
+    /**
+     * Creates analytics for given depths.
+     *
+     * @param depths - numbers of top levels to use, at least one, every depth should be positive
+     */
+    public OrderBookAnalytics(final int... depths) {
+        if (depths == null || depths.length == 0) {
+            throw new IllegalArgumentException("At least one depth is required");
+        }
+        this.depths = Arrays.stream(depths).sorted().distinct().toArray();
+        if (this.depths[0] <= 0) {
+            throw new IllegalArgumentException("Illegal depth: " + this.depths[0]);
+        }
+        this.indexByDepth = new int[this.depths[this.depths.length - 1] + 1];
+        Arrays.fill(indexByDepth, NOT_CONFIGURED);
+        for (int i = 0; i < this.depths.length; i++) {
+            indexByDepth[this.depths[i]] = i;
+        }
+
+        final int size = this.depths.length;
+        this.bidSizes = new double[size];
+        this.askSizes = new double[size];
+        this.bidNotionals = new double[size];
+        this.askNotionals = new double[size];
+        this.imbalances = new double[size];
+        this.microprices = new double[size];
+        this.weightedMids = new double[size];
+        Arrays.fill(imbalances, Double.NaN);
+        Arrays.fill(microprices, Double.NaN);
+        Arrays.fill(weightedMids, Double.NaN);
+    }
+
+    /**
+     * @return configured depths in ascending order
+     */
+    public int[] getDepths() {
+        return depths.clone();
+    }
+
+    /**
+     * Order book imbalance over top levels.
+     *
+     * @param depth - configured number of top levels
+     * @return imbalance in range [-1, 1] (positive if bids are heavier) or {@link Double#NaN} if book side is empty
+     */
+    public double getImbalance(final int depth) {
+        return imbalances[indexOf(depth)];
+    }
+
+    /**
+     * Microprice over top levels.
+     *
+     * @param depth - configured number of top levels
+     * @return microprice or {@link Double#NaN} if book side is empty
+     */
+    public double getMicroprice(final int depth) {
+        return microprices[indexOf(depth)];
+    }
+
+    /**
+     * Microprice over top levels as Decimal64.
+     *
+     * @param depth - configured number of top levels
+     * @return microprice or {@link Decimal64Utils#NaN} if book side is empty
+     */
+    @Decimal
+    public long getMicropriceDecimal(final int depth) {
+        return Decimal64Utils.fromDouble(getMicroprice(depth));
+    }
+
+    /**
+     * Depth-weighted mid price: average of volume-weighted prices of top levels of both sides.
+     *
+     * @param depth - configured number of top levels
+     * @return weighted mid or {@link Double#NaN} if book side is empty
+     */
+    public double getWeightedMid(final int depth) {
+        return weightedMids[indexOf(depth)];
+    }
+
+    /**
+     * Depth-weighted mid price as Decimal64.
+     *
+     * @param depth - configured number of top levels
+     * @return weighted mid or {@link Decimal64Utils#NaN} if book side is empty
+     */
+    @Decimal
+    public long getWeightedMidDecimal(final int depth) {
+        return Decimal64Utils.fromDouble(getWeightedMid(depth));
+    }
+
+    /**
+     * Attaches analytics to the order book. Called once by every order book created with analytics.
+     *
+     * @throws IllegalStateException if analytics are already attached to another order book
+     */
+    void attach() {
+        if (isAttached) {
+            throw new IllegalStateException("Analytics are already attached to another order book");
+        }
+        isAttached = true;
+    }
+
+    /**
+     * Records change of one level or quote of the book. Called by order book for every applied entry.
+     *
+     * @param side  - side of the change or {@code null} if both sides could change
+     * @param level - level of the change or {@link TopLevelChanges#UNKNOWN_LEVEL}
+     * @param price - price of the change or {@link Decimal64Utils#NaN} if unknown
+     */
+    void onChange(final QuoteSide side, final int level, @Decimal final long price) {
+        changes.onChange(side, level, price);
+    }
+
+    /**
+     * Records change of the whole book. Called by order book on snapshot, reset or clear.
+     */
+    void onChange() {
+        changes.onChange();
+    }
+
+    /**
+     * Recalculates metrics of changed sides. Called by order book after every processed message.
+     *
+     * @param asks - ask side of the book
+     * @param bids - bid side of the book
+     */
+    void update(final MarketSide<?> asks, final MarketSide<?> bids) {
+        final boolean isAsksChanged = changes.isChanged(QuoteSide.ASK);
+        final boolean isBidsChanged = changes.isChanged(QuoteSide.BID);
+        if (!isAsksChanged && !isBidsChanged) {
+            return;
+        }
+        if (isAsksChanged) {
+            accumulate(QuoteSide.ASK, asks, askSizes, askNotionals);
+        }
+        if (isBidsChanged) {
+            accumulate(QuoteSide.BID, bids, bidSizes, bidNotionals);
+        }
+
+        for (int i = 0; i < depths.length; i++) {
+            final double bidSize = bidSizes[i];
+            final double askSize = askSizes[i];
+            final double totalSize = bidSize + askSize;
+            if (bidSize > 0 && askSize > 0) {
+                final double bidVwap = bidNotionals[i] / bidSize;
+                final double askVwap = askNotionals[i] / askSize;
+                imbalances[i] = (bidSize - askSize) / totalSize;
+                microprices[i] = (askVwap * bidSize + bidVwap * askSize) / totalSize;
+                weightedMids[i] = (bidVwap + askVwap) / 2;
+            } else {
+                imbalances[i] = Double.NaN;
+                microprices[i] = Double.NaN;
+                weightedMids[i] = Double.NaN;
+            }
+        }
+    }
+
+    private void accumulate(final QuoteSide side,
+                            final MarketSide<?> quotes,
+                            final double[] sizes,
+                            final double[] notionals) {
+        int index = 0;
+        int levels = 0;
+        int count = 0;
+        double size = 0;
+        double notional = 0;
+        @Decimal long lastPrice = Decimal64Utils.NaN;
+        for (final Object item : quotes) {
+            final OrderBookQuote quote = (OrderBookQuote) item;
+            @Decimal final long price = quote.getPrice();
+            if (levels == 0 || Decimal64Utils.isNotEqual(price, lastPrice)) {
+                // New level: sums contain exactly 'levels' levels
+                while (index < depths.length && depths[index] == levels) {
+                    sizes[index] = size;
+                    notionals[index] = notional;
+                    index++;
+                }
+                if (index == depths.length) {
+                    // Quotes starting from this one are below the maximal depth
+                    changes.onRecalculated(side, count, lastPrice);
+                    return;
+                }
+                levels++;
+                lastPrice = price;
+            }
+            final double quoteSize = Decimal64Utils.toDouble(quote.getSize());
+            size += quoteSize;
+            notional += quoteSize * Decimal64Utils.toDouble(price);
+            count++;
+        }
+        for (; index < depths.length; index++) {
+            sizes[index] = size;
+            notionals[index] = notional;
+        }
+        // Every quote of the side is used
+        changes.onRecalculated(side, Integer.MAX_VALUE, Decimal64Utils.NaN);
+    }
+
+    private int indexOf(final int depth) {
+        final int index = depth > 0 && depth < indexByDepth.length ? indexByDepth[depth] : NOT_CONFIGURED;
+        if (index == NOT_CONFIGURED) {
+            throw new IllegalArgumentException("Depth is not configured: " + depth);
+        }
+        return index;
+    }
+
+}
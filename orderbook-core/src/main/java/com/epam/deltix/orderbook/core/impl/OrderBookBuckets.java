@@ -0,0 +1,310 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+
+/**
+ * Views of order book with prices coarsened to buckets of configured sizes (e.g. $1 buckets on BTC),
+ * kept up to date by the book itself.
+ * <p>
+ * Price of ASK quote is rounded up and price of BID quote is rounded down to the multiple of bucket size,
+ * so bucket price is never better than prices of its quotes. Size and number of orders of a bucket are totals
+ * of its quotes. Only non-empty buckets are kept: bucket {@code 0} is the best one, up to {@code maxBuckets}
+ * buckets per side for every configured bucket size.
+ * <p>
+ * Attach buckets to order book with
+ * {@link com.epam.deltix.orderbook.core.options.BindOrderBookOptionsBuilder#buckets(OrderBookBuckets)}:
+ * book reports every applied entry, and after the message views of all configured bucket sizes are rebuilt
+ * for sides whose buckets have changed only, in a single pass over quotes of the side, which stops as soon as
+ * the coarsest view is complete. Changes of quotes beyond the last buckets cost nothing.
+ * Reads are O(1) per bucket and never access the book, so they can be mixed with iteration over its market sides.
+ * Neither updates nor reads allocate memory.
+ * <p>
+ * Not thread safe! One instance can be attached to one order book only.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookBuckets {
+
+    private static final int ASK_INDEX = 0;
+    private static final int BID_INDEX = 1;
+
+    private final int maxBuckets;
+    // Configured bucket sizes in ascending order
+    private final long[] bucketSizes;
+
+    // Views are stored by slot = (bucket size index * 2 + side index), buckets of the slot start at slot * maxBuckets
+    private final int[] depths;
+    private final long[] prices;
+    private final long[] sizes;
+    private final long[] numberOfOrders;
+
+    private final boolean[] isComplete;
+    private final TopLevelChanges changes = new TopLevelChanges();
+    private boolean isAttached;
+
+    /**
+     * Creates buckets for given bucket sizes.
+     *
+     * @param maxBuckets  - max number of buckets per side, should be positive
+     * @param bucketSizes - bucket sizes to use, at least one, every bucket size should be positive and distinct
+     */
+    public OrderBookBuckets(final int maxBuckets, @Decimal final long... bucketSizes) {
+        if (maxBuckets <= 0) {
+            throw new IllegalArgumentException("Illegal number of buckets: " + maxBuckets);
+        }
+        if (bucketSizes == null || bucketSizes.length == 0) {
+            throw new IllegalArgumentException("At least one bucket size is required");
+        }
+        this.maxBuckets = maxBuckets;
+        this.bucketSizes = bucketSizes.clone();
+        for (@Decimal final long bucketSize : this.bucketSizes) {
+            if (!Decimal64Utils.isFinite(bucketSize) || !Decimal64Utils.isGreater(bucketSize, Decimal64Utils.ZERO)) {
+                throw new IllegalArgumentException("Illegal bucket size: " + Decimal64Utils.toString(bucketSize));
+            }
+        }
+        sort(this.bucketSizes);
+        for (int i = 1; i < this.bucketSizes.length; i++) {
+            if (Decimal64Utils.isEqual(this.bucketSizes[i - 1], this.bucketSizes[i])) {
+                throw new IllegalArgumentException("Duplicate bucket size: " + Decimal64Utils.toString(this.bucketSizes[i]));
+            }
+        }
+
+        final int slots = this.bucketSizes.length * 2;
+        this.depths = new int[slots];
+        this.prices = new long[slots * maxBuckets];
+        this.sizes = new long[slots * maxBuckets];
+        this.numberOfOrders = new long[slots * maxBuckets];
+        this.isComplete = new boolean[this.bucketSizes.length];
+    }
+
+    /**
+     * @return configured bucket sizes in ascending order
+     */
+    public long[] getBucketSizes() {
+        return bucketSizes.clone();
+    }
+
+    /**
+     * @return max number of buckets per side
+     */
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * Number of non-empty buckets of the side.
+     *
+     * @param bucketSize - configured bucket size
+     * @param side       - side to use
+     * @return number of buckets
+     */
+    public int depth(@Decimal final long bucketSize, final QuoteSide side) {
+        return depths[slotOf(bucketSize, side)];
+    }
+
+    /**
+     * Price of the bucket.
+     *
+     * @param bucketSize - configured bucket size
+     * @param side       - side to use
+     * @param bucket     - bucket to use, {@code 0} is the best one
+     * @return price of the bucket
+     * @throws IndexOutOfBoundsException if there is no such bucket
+     */
+    @Decimal
+    public long getPrice(@Decimal final long bucketSize, final QuoteSide side, final int bucket) {
+        return prices[indexOf(slotOf(bucketSize, side), bucket)];
+    }
+
+    /**
+     * Total size of quotes of the bucket.
+     *
+     * @param bucketSize - configured bucket size
+     * @param side       - side to use
+     * @param bucket     - bucket to use, {@code 0} is the best one
+     * @return size of the bucket
+     * @throws IndexOutOfBoundsException if there is no such bucket
+     */
+    @Decimal
+    public long getSize(@Decimal final long bucketSize, final QuoteSide side, final int bucket) {
+        return sizes[indexOf(slotOf(bucketSize, side), bucket)];
+    }
+
+    /**
+     * Total number of orders of quotes of the bucket.
+     *
+     * @param bucketSize - configured bucket size
+     * @param side       - side to use
+     * @param bucket     - bucket to use, {@code 0} is the best one
+     * @return number of orders of the bucket
+     * @throws IndexOutOfBoundsException if there is no such bucket
+     */
+    public long getNumberOfOrders(@Decimal final long bucketSize, final QuoteSide side, final int bucket) {
+        return numberOfOrders[indexOf(slotOf(bucketSize, side), bucket)];
+    }
+
+    /**
+     * Attaches buckets to the order book. Called once by every order book created with buckets.
+     *
+     * @throws IllegalStateException if buckets are already attached to another order book
+     */
+    void attach() {
+        if (isAttached) {
+            throw new IllegalStateException("Buckets are already attached to another order book");
+        }
+        isAttached = true;
+    }
+
+    /**
+     * Records change of one level or quote of the book. Called by order book for every applied entry.
+     *
+     * @param side  - side of the change or {@code null} if both sides could change
+     * @param level - level of the change or {@link TopLevelChanges#UNKNOWN_LEVEL}
+     * @param price - price of the change or {@link Decimal64Utils#NaN} if unknown
+     */
+    void onChange(final QuoteSide side, final int level, @Decimal final long price) {
+        changes.onChange(side, level, price);
+    }
+
+    /**
+     * Records change of the whole book. Called by order book on snapshot, reset or clear.
+     */
+    void onChange() {
+        changes.onChange();
+    }
+
+    /**
+     * Rebuilds buckets of changed sides. Called by order book after every processed message.
+     *
+     * @param asks - ask side of the book
+     * @param bids - bid side of the book
+     */
+    void update(final MarketSide<?> asks, final MarketSide<?> bids) {
+        if (changes.isChanged(QuoteSide.ASK)) {
+            accumulate(QuoteSide.ASK, asks);
+        }
+        if (changes.isChanged(QuoteSide.BID)) {
+            accumulate(QuoteSide.BID, bids);
+        }
+    }
+
+    private void accumulate(final QuoteSide side, final MarketSide<?> quotes) {
+        final boolean isAsk = side == QuoteSide.ASK;
+        final int sideIndex = isAsk ? ASK_INDEX : BID_INDEX;
+        for (int i = 0; i < bucketSizes.length; i++) {
+            depths[(i << 1) + sideIndex] = 0;
+            isComplete[i] = false;
+        }
+        int incomplete = bucketSizes.length;
+        int level = 0;
+        for (final Object item : quotes) {
+            final OrderBookQuote quote = (OrderBookQuote) item;
+            @Decimal final long price = quote.getPrice();
+            for (int i = 0; i < bucketSizes.length; i++) {
+                if (isComplete[i]) {
+                    continue;
+                }
+                final int slot = (i << 1) + sideIndex;
+                final int depth = depths[slot];
+                final int last = slot * maxBuckets + depth - 1;
+                if (depth > 0 && isWithin(isAsk, price, prices[last])) {
+                    sizes[last] = Decimal64Utils.add(sizes[last], quote.getSize());
+                    numberOfOrders[last] += quote.getNumberOfOrders();
+                } else if (depth == maxBuckets) {
+                    // Quotes are sorted, so the rest of them is beyond the last bucket too
+                    isComplete[i] = true;
+                    incomplete--;
+                } else {
+                    prices[last + 1] = isAsk ?
+                            Decimal64Utils.roundTowardsPositiveInfinity(price, bucketSizes[i]) :
+                            Decimal64Utils.roundTowardsNegativeInfinity(price, bucketSizes[i]);
+                    sizes[last + 1] = quote.getSize();
+                    numberOfOrders[last + 1] = quote.getNumberOfOrders();
+                    depths[slot] = depth + 1;
+                }
+            }
+            if (incomplete == 0) {
+                // Quote inserted before this one may still fall into the last buckets
+                changes.onRecalculated(side, level + 1, getWorstPrice(isAsk, sideIndex));
+                return;
+            }
+            level++;
+        }
+        // Every quote of the side is used
+        changes.onRecalculated(side, Integer.MAX_VALUE, Decimal64Utils.NaN);
+    }
+
+    /**
+     * @return the worst price of the last buckets of complete views of the side
+     */
+    @Decimal
+    private long getWorstPrice(final boolean isAsk, final int sideIndex) {
+        @Decimal long worstPrice = Decimal64Utils.NaN;
+        for (int i = 0; i < bucketSizes.length; i++) {
+            @Decimal final long price = prices[((i << 1) + sideIndex) * maxBuckets + maxBuckets - 1];
+            if (Decimal64Utils.isNaN(worstPrice) || !isWithin(isAsk, price, worstPrice)) {
+                worstPrice = price;
+            }
+        }
+        return worstPrice;
+    }
+
+    /**
+     * @return true if quote price falls into the bucket with given price
+     */
+    private static boolean isWithin(final boolean isAsk, @Decimal final long price, @Decimal final long bucketPrice) {
+        return isAsk ? Decimal64Utils.isLessOrEqual(price, bucketPrice) : Decimal64Utils.isGreaterOrEqual(price, bucketPrice);
+    }
+
+    private int slotOf(@Decimal final long bucketSize, final QuoteSide side) {
+        for (int i = 0; i < bucketSizes.length; i++) {
+            if (Decimal64Utils.isEqual(bucketSizes[i], bucketSize)) {
+                return (i << 1) + (side == QuoteSide.ASK ? ASK_INDEX : BID_INDEX);
+            }
+        }
+        throw new IllegalArgumentException("Bucket size is not configured: " + Decimal64Utils.toString(bucketSize));
+    }
+
+    private int indexOf(final int slot, final int bucket) {
+        if (bucket < 0 || bucket >= depths[slot]) {
+            throw new IndexOutOfBoundsException("Bucket: " + bucket + ", depth: " + depths[slot]);
+        }
+        return slot * maxBuckets + bucket;
+    }
+
+    /**
+     * Sorts Decimal64 values in ascending order (raw values of Decimal64 are not ordered).
+     */
+    private static void sort(@Decimal final long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            @Decimal final long value = values[i];
+            int j = i - 1;
+            while (j >= 0 && Decimal64Utils.isGreater(values[j], value)) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
+import com.epam.deltix.timebase.messages.universal.InsertType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.QuoteUpdateAction;
+import com.epam.deltix.util.annotations.Alphanumeric;
+
+import java.nio.ByteBuffer;
+
+import static com.epam.deltix.orderbook.core.impl.OrderBookJournal.*;
+
+/**
+ * Flyweight decoder which applies incremental entries straight from the binary buffer to the order book
+ * via {@link OrderBookUpdater}, without building market data messages.
+ * <p>
+ * Entries are expected in the layout of {@link OrderBookJournal} entries (big-endian):
+ * <pre>
+ * byte   entry type (1 - L1, 2 - L2 new, 3 - L2 update, 4 - L3 new, 5 - L3 update, 6 - book reset)
+ * long   exchange id
+ * (book reset) byte model type
+ * (others)     byte side, long price, long size, long numberOfOrders
+ *   (L2 new)    short level
+ *   (L2 update) short level, byte action
+ *   (L3 new)    byte insert type, quoteId, participantId
+ *   (L3 update) byte action, quoteId, participantId
+ * </pre>
+ * Enums are stored as ordinal + 1 (zero for {@code null}), strings as short length (-1 for {@code null})
+ * followed by ASCII bytes. Book reset entries can't be applied incrementally, they are skipped.
+ * <p>
+ * Not thread safe! Decoder keeps reusable buffers for quote ids, so it doesn't allocate memory.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookBufferDecoder {
+
+    private static final QuoteSide[] QUOTE_SIDES = QuoteSide.values();
+    private static final BookUpdateAction[] BOOK_UPDATE_ACTIONS = BookUpdateAction.values();
+    private static final QuoteUpdateAction[] QUOTE_UPDATE_ACTIONS = QuoteUpdateAction.values();
+    private static final InsertType[] INSERT_TYPES = InsertType.values();
+
+    private final StringBuilder quoteId = new StringBuilder();
+    private final StringBuilder participantId = new StringBuilder();
+
+    /**
+     * Decodes entries starting at the current buffer position and applies them to the book.
+     * Buffer position is moved after the last decoded entry.
+     *
+     * @param buffer    - source buffer
+     * @param count     - number of entries to decode
+     * @param timestamp - timestamp of update
+     * @param updater   - order book to update
+     * @return number of successfully applied entries
+     * @throws IllegalArgumentException if buffer contains unknown entry type
+     */
+    public int apply(final ByteBuffer buffer,
+                     final int count,
+                     final long timestamp,
+                     final OrderBookUpdater updater) {
+        int applied = 0;
+        for (int i = 0; i < count; i++) {
+            if (applyEntry(buffer, timestamp, updater)) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Decodes one entry at the current buffer position and applies it to the book.
+     * Buffer position is moved after the entry.
+     *
+     * @param buffer    - source buffer
+     * @param timestamp - timestamp of update
+     * @param updater   - order book to update
+     * @return true if entry is applied
+     * @throws IllegalArgumentException if buffer contains unknown entry type
+     */
+    public boolean applyEntry(final ByteBuffer buffer,
+                              final long timestamp,
+                              final OrderBookUpdater updater) {
+        final byte type = buffer.get();
+        @Alphanumeric final long exchangeId = buffer.getLong();
+        if (type == BOOK_RESET_ENTRY) {
+            buffer.get(); // model type
+            return false;
+        }
+
+        final QuoteSide side = decode(QUOTE_SIDES, buffer.get());
+        final long price = buffer.getLong();
+        final long size = buffer.getLong();
+        final long numberOfOrders = buffer.getLong();
+        switch (type) {
+            case L1_ENTRY:
+                return updater.applyL1(exchangeId, side, price, size, numberOfOrders, timestamp);
+            case L2_ENTRY_NEW:
+                return updater.applyL2New(exchangeId, side, buffer.getShort(), price, size, numberOfOrders, timestamp);
+            case L2_ENTRY_UPDATE: {
+                final short level = buffer.getShort();
+                final BookUpdateAction action = decode(BOOK_UPDATE_ACTIONS, buffer.get());
+                return updater.applyL2Update(exchangeId, side, level, action, price, size, numberOfOrders, timestamp);
+            }
+            case L3_ENTRY_NEW: {
+                final InsertType insertType = decode(INSERT_TYPES, buffer.get());
+                final CharSequence id = getAscii(buffer, quoteId);
+                final CharSequence participant = getAscii(buffer, participantId);
+                return updater.applyL3New(exchangeId, side, insertType, id, participant, price, size, timestamp);
+            }
+            case L3_ENTRY_UPDATE: {
+                final QuoteUpdateAction action = decode(QUOTE_UPDATE_ACTIONS, buffer.get());
+                final CharSequence id = getAscii(buffer, quoteId);
+                final CharSequence participant = getAscii(buffer, participantId);
+                return updater.applyL3Update(exchangeId, side, action, id, participant, price, size, timestamp);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown entry type: " + type);
+        }
+    }
+
+    private static CharSequence getAscii(final ByteBuffer buffer, final StringBuilder dst) {
+        final short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        dst.setLength(0);
+        for (int i = 0; i < length; i++) {
+            dst.append((char) buffer.get());
+        }
+        return dst;
+    }
+
+    private static <T extends Enum<T>> T decode(final T[] values, final byte code) {
+        return code == 0 ? null : values[code - 1];
+    }
+
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.Exchange;
+import com.epam.deltix.orderbook.core.api.ExchangeList;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.Option;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.annotations.Alphanumeric;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Function;
+
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
+
+/**
+ * Binary checkpoint of order book state.
+ * <p>
+ * Writes the full state of an order book (per exchange quotes of both sides, quote ids and
+ * waiting for snapshot state) into compact binary form and restores it back.
+ * Restore is done through the regular snapshot path of the book, so L3 sides are rebuilt with
+ * {@link L3MarketSide#buildFromSorted(ArrayList)} and L2 sides are filled level by level without reordering.
+ * Exchanges which were waiting for snapshot at the time of the checkpoint are not restored and keep waiting.
+ * <p>
+ * Record layout (big-endian):
+ * <pre>
+ * int    record length (without this field)
+ * short  symbol length (-1 if absent), symbol ASCII bytes
+ * byte   quote levels (ordinal of {@link DataModelType})
+ * int    number of exchanges
+ *   long   exchange id
+ *   byte   flags (bit 0: waiting for snapshot)
+ *   [ASK, BID]
+ *     int    depth
+ *       long price, long size, long numberOfOrders, long originalTimestamp, long timestamp
+ *       (L3 only) short quoteId length, bytes, short participantId length, bytes
+ * </pre>
+ * File layout is {@code int magic, int version, int number of records} followed by records.
+ * <p>
+ * Not thread safe! Instance keeps reusable buffers, so one instance can restore thousands of books
+ * without extra allocations per book.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookCheckpoint {
+
+    public static final int MAGIC = 0x4F42434B; // "OBCK"
+    public static final int VERSION = 1;
+
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final byte FLAG_WAITING_FOR_SNAPSHOT = 1;
+    private static final int QUOTE_SIZE = 5 * Long.BYTES;
+
+    private final PackageHeader packageHeader = new PackageHeader();
+    private final ObjectArrayList<BaseEntryInfo> entries = new ObjectArrayList<>();
+    private final StringBuilder symbol = new StringBuilder();
+
+    private final ArrayList<L1Entry> l1Entries = new ArrayList<>();
+    private final ArrayList<L2EntryNew> l2Entries = new ArrayList<>();
+    private final ArrayList<L3EntryNew> l3Entries = new ArrayList<>();
+    private final ArrayList<StringBuilder> quoteIds = new ArrayList<>();
+    private final ArrayList<StringBuilder> participantIds = new ArrayList<>();
+
+    private long[] timestamps = new long[64];
+
+    public OrderBookCheckpoint() {
+        packageHeader.setEntries(entries);
+    }
+
+    /**
+     * Calculates exact number of bytes required to write given book with {@link #write(OrderBook, ByteBuffer)}.
+     *
+     * @param book - order book to use
+     * @return number of bytes
+     */
+    public int getEncodedSize(final OrderBook<? extends OrderBookQuote> book) {
+        final boolean isL3 = book.getQuoteLevels() == DataModelType.LEVEL_THREE;
+        int size = Integer.BYTES + Short.BYTES + Byte.BYTES + Integer.BYTES;
+        final Option<String> bookSymbol = book.getSymbol();
+        if (bookSymbol.hasValue()) {
+            size += bookSymbol.get().length();
+        }
+        final ExchangeList<? extends Exchange<? extends OrderBookQuote>> exchanges = book.getExchanges();
+        if (exchanges == null) {
+            return size;
+        }
+        for (final Exchange<? extends OrderBookQuote> exchange : exchanges) {
+            size += Long.BYTES + Byte.BYTES;
+            size += getEncodedSize(exchange.getMarketSide(ASK), isL3);
+            size += getEncodedSize(exchange.getMarketSide(BID), isL3);
+        }
+        return size;
+    }
+
+    /**
+     * Writes state of the book into buffer starting from current buffer position.
+     *
+     * @param book   - order book to use
+     * @param buffer - destination buffer
+     * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer
+     * @see #getEncodedSize(OrderBook)
+     */
+    public void write(final OrderBook<? extends OrderBookQuote> book, final ByteBuffer buffer) {
+        final boolean isL3 = book.getQuoteLevels() == DataModelType.LEVEL_THREE;
+        final int start = buffer.position();
+        buffer.putInt(0); // reserved for record length
+
+        final Option<String> bookSymbol = book.getSymbol();
+        putAscii(bookSymbol.hasValue() ? bookSymbol.get() : null, buffer);
+        buffer.put((byte) book.getQuoteLevels().ordinal());
+
+        final ExchangeList<? extends Exchange<? extends OrderBookQuote>> exchanges = book.getExchanges();
+        if (exchanges == null) {
+            buffer.putInt(0);
+        } else {
+            buffer.putInt(exchanges.size());
+            for (final Exchange<? extends OrderBookQuote> exchange : exchanges) {
+                buffer.putLong(exchange.getExchangeId());
+                buffer.put(isWaitingForSnapshot(exchange) ? FLAG_WAITING_FOR_SNAPSHOT : 0);
+                writeSide(exchange.getMarketSide(ASK), isL3, buffer);
+                writeSide(exchange.getMarketSide(BID), isL3, buffer);
+            }
+        }
+        buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+    }
+
+    /**
+     * Reads symbol of the record at current buffer position without consuming it.
+     *
+     * @param buffer - source buffer
+     * @return symbol of the record or {@code null} if book was written without symbol.
+     * Returned value is reused by next call.
+     */
+    public CharSequence peekSymbol(final ByteBuffer buffer) {
+        final int position = buffer.position();
+        buffer.position(position + Integer.BYTES);
+        final boolean hasSymbol = getAscii(buffer, symbol);
+        buffer.position(position);
+        return hasSymbol ? symbol : null;
+    }
+
+    /**
+     * Skips the record at current buffer position.
+     *
+     * @param buffer - source buffer
+     */
+    public void skip(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Restores state of the book from record at current buffer position.
+     * Buffer position is moved to the end of the record in any case.
+     * <p>
+     * Book should be empty and have the same quote levels as the book the record was written from.
+     *
+     * @param buffer - source buffer
+     * @param book   - order book to restore
+     * @return true if all exchanges of the record were restored
+     */
+    public boolean read(final ByteBuffer buffer, final OrderBook<? extends OrderBookQuote> book) {
+        final int length = buffer.getInt();
+        final int end = buffer.position() + length;
+        try {
+            final boolean hasSymbol = getAscii(buffer, symbol);
+            final int quoteLevels = buffer.get();
+            if (quoteLevels != book.getQuoteLevels().ordinal()) {
+                return false;
+            }
+            final boolean isL3 = book.getQuoteLevels() == DataModelType.LEVEL_THREE;
+            final boolean isL1 = book.getQuoteLevels() == DataModelType.LEVEL_ONE;
+
+            final Option<String> bookSymbol = book.getSymbol();
+            final CharSequence packageSymbol = bookSymbol.hasValue() ? bookSymbol.get() : (hasSymbol ? symbol : null);
+
+            boolean result = true;
+            final int numberOfExchanges = buffer.getInt();
+            for (int i = 0; i < numberOfExchanges; i++) {
+                @Alphanumeric final long exchangeId = buffer.getLong();
+                final boolean isWaitingForSnapshot = (buffer.get() & FLAG_WAITING_FOR_SNAPSHOT) != 0;
+
+                entries.clear();
+                final int askDepth = readSide(buffer, exchangeId, ASK, isL1, isL3, 0);
+                final int bidDepth = readSide(buffer, exchangeId, BID, isL1, isL3, askDepth);
+
+                if (isWaitingForSnapshot || entries.size() == 0) {
+                    // Nothing to restore, exchange keeps waiting for the next vendor snapshot.
+                    continue;
+                }
+
+                packageHeader.setSymbol(packageSymbol);
+                packageHeader.setPackageType(PackageType.VENDOR_SNAPSHOT);
+                packageHeader.setOriginalTimestamp(latestTimestamp(0, askDepth + bidDepth, 0));
+                packageHeader.setTimeStampMs(latestTimestamp(0, askDepth + bidDepth, 1));
+                if (book.update(packageHeader)) {
+                    restoreTimestamps(book, exchangeId, askDepth);
+                } else {
+                    result = false;
+                }
+            }
+            return result;
+        } finally {
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * Writes checkpoint of given books into file. Existing file is overwritten.
+     *
+     * @param path  - path to use
+     * @param books - order books to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(final Path path,
+                     final Collection<? extends OrderBook<? extends OrderBookQuote>> books) throws IOException {
+        long size = FILE_HEADER_SIZE;
+        for (final OrderBook<? extends OrderBookQuote> book : books) {
+            size += getEncodedSize(book);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Checkpoint is too large: " + size + " byte(s)");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect((int) size).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(books.size());
+        for (final OrderBook<? extends OrderBookQuote> book : books) {
+            write(book, buffer);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Restores books from checkpoint file.
+     * <p>
+     * Resolver is called with symbol of each record (may be {@code null}); it should return the book to restore
+     * or {@code null} to skip the record.
+     *
+     * @param path     - path to use
+     * @param resolver - resolves order book by symbol
+     * @return number of restored books
+     * @throws IOException if an I/O error occurs or file is not a checkpoint
+     */
+    public int restore(final Path path,
+                       final Function<CharSequence, OrderBook<? extends OrderBookQuote>> resolver) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an order book checkpoint: " + path);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version: " + version);
+            }
+
+            int restored = 0;
+            final int numberOfRecords = buffer.getInt();
+            for (int i = 0; i < numberOfRecords; i++) {
+                final OrderBook<? extends OrderBookQuote> book = resolver.apply(peekSymbol(buffer));
+                if (book == null) {
+                    skip(buffer);
+                } else if (read(buffer, book)) {
+                    restored++;
+                }
+            }
+            return restored;
+        }
+    }
+
+    private static int getEncodedSize(final MarketSide<? extends OrderBookQuote> side, final boolean isL3) {
+        int size = Integer.BYTES + side.depth() * QUOTE_SIZE;
+        if (isL3) {
+            for (final OrderBookQuote quote : side) {
+                size += Short.BYTES + length(quote.getQuoteId());
+                size += Short.BYTES + length(quote.getParticipantId());
+            }
+        }
+        return size;
+    }
+
+    private static void writeSide(final MarketSide<? extends OrderBookQuote> side,
+                                  final boolean isL3,
+                                  final ByteBuffer buffer) {
+        buffer.putInt(side.depth());
+        for (final OrderBookQuote quote : side) {
+            buffer.putLong(quote.getPrice());
+            buffer.putLong(quote.getSize());
+            buffer.putLong(quote.getNumberOfOrders());
+            buffer.putLong(quote.getOriginalTimestamp());
+            buffer.putLong(quote.getTimestamp());
+            if (isL3) {
+                putAscii(quote.getQuoteId(), buffer);
+                putAscii(quote.getParticipantId(), buffer);
+            }
+        }
+    }
+
+    private int readSide(final ByteBuffer buffer,
+                         @Alphanumeric final long exchangeId,
+                         final QuoteSide side,
+                         final boolean isL1,
+                         final boolean isL3,
+                         final int offset) {
+        final int depth = buffer.getInt();
+        ensureTimestampsCapacity(offset + depth);
+        for (int level = 0; level < depth; level++) {
+            final long price = buffer.getLong();
+            final long size = buffer.getLong();
+            final long numberOfOrders = buffer.getLong();
+            timestamps[(offset + level) << 1] = buffer.getLong();
+            timestamps[((offset + level) << 1) + 1] = buffer.getLong();
+
+            final BasePriceEntry entry;
+            if (isL3) {
+                final int idx = entries.size();
+                final L3EntryNew l3Entry = borrowL3Entry(idx);
+                final StringBuilder quoteId = quoteIds.get(idx);
+                l3Entry.setQuoteId(getAscii(buffer, quoteId) ? quoteId : null);
+                final StringBuilder participantId = participantIds.get(idx);
+                l3Entry.setParticipantId(getAscii(buffer, participantId) ? participantId : null);
+                l3Entry.setInsertType(InsertType.ADD_BACK);
+                entry = l3Entry;
+            } else if (isL1) {
+                entry = borrowL1Entry(entries.size());
+            } else {
+                final L2EntryNew l2Entry = borrowL2Entry(entries.size());
+                l2Entry.setLevel((short) level);
+                entry = l2Entry;
+            }
+            entry.setPrice(price);
+            entry.setSize(size);
+            entry.setNumberOfOrders(numberOfOrders);
+            entry.setExchangeId(exchangeId);
+            entry.setSide(side);
+            entries.add(entry);
+        }
+        return depth;
+    }
+
+    /**
+     * Snapshot path stamps all quotes with package timestamps, so we bring back original quote timestamps.
+     */
+    private void restoreTimestamps(final OrderBook<? extends OrderBookQuote> book,
+                                   @Alphanumeric final long exchangeId,
+                                   final int askDepth) {
+        final ExchangeList<? extends Exchange<? extends OrderBookQuote>> exchanges = book.getExchanges();
+        final Option<? extends Exchange<? extends OrderBookQuote>> exchange = exchanges.getById(exchangeId);
+        if (!exchange.hasValue()) {
+            return;
+        }
+        int idx = 0;
+        for (final OrderBookQuote quote : exchange.get().getMarketSide(ASK)) {
+            restoreTimestamps(quote, idx++);
+        }
+        idx = askDepth;
+        for (final OrderBookQuote quote : exchange.get().getMarketSide(BID)) {
+            restoreTimestamps(quote, idx++);
+        }
+    }
+
+    private void restoreTimestamps(final OrderBookQuote quote, final int idx) {
+        if (quote instanceof MutableOrderBookQuote && idx < entries.size()) {
+            final MutableOrderBookQuote mutableQuote = (MutableOrderBookQuote) quote;
+            mutableQuote.setOriginalTimestamp(timestamps[idx << 1]);
+            mutableQuote.setTimestamp(timestamps[(idx << 1) + 1]);
+        }
+    }
+
+    private long latestTimestamp(final int from, final int to, final int shift) {
+        long result = TIMESTAMP_UNKNOWN;
+        for (int i = from; i < to; i++) {
+            result = Math.max(result, timestamps[(i << 1) + shift]);
+        }
+        return result;
+    }
+
+    private void ensureTimestampsCapacity(final int count) {
+        if (timestamps.length < count << 1) {
+            final long[] tmp = new long[Math.max(timestamps.length << 1, count << 1)];
+            System.arraycopy(timestamps, 0, tmp, 0, timestamps.length);
+            timestamps = tmp;
+        }
+    }
+
+    private L1Entry borrowL1Entry(final int idx) {
+        while (l1Entries.size() <= idx) {
+            l1Entries.add(new L1Entry());
+        }
+        return l1Entries.get(idx);
+    }
+
+    private L2EntryNew borrowL2Entry(final int idx) {
+        while (l2Entries.size() <= idx) {
+            l2Entries.add(new L2EntryNew());
+        }
+        return l2Entries.get(idx);
+    }
+
+    private L3EntryNew borrowL3Entry(final int idx) {
+        while (l3Entries.size() <= idx) {
+            l3Entries.add(new L3EntryNew());
+            quoteIds.add(new StringBuilder());
+            participantIds.add(new StringBuilder());
+        }
+        return l3Entries.get(idx);
+    }
+
+    private static boolean isWaitingForSnapshot(final Exchange<?> exchange) {
+        return exchange instanceof MutableExchange && ((MutableExchange<?, ?>) exchange).isWaitingForSnapshot();
+    }
+
+    private static int length(final CharSequence value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void putAscii(final CharSequence value, final ByteBuffer buffer) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        final int length = value.length();
+        buffer.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private static boolean getAscii(final ByteBuffer buffer, final StringBuilder dst) {
+        dst.setLength(0);
+        final int length = buffer.getShort();
+        if (length < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            dst.append((char) buffer.get());
+        }
+        return true;
+    }
+
+}
@@ -17,10 +17,13 @@
 package com.epam.deltix.orderbook.core.impl;
 
 import com.epam.deltix.containers.CharSequenceUtils;
+import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.orderbook.core.api.Exchange;
 import com.epam.deltix.orderbook.core.api.ExchangeList;
 import com.epam.deltix.orderbook.core.api.MarketSide;
 import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
+import com.epam.deltix.orderbook.core.options.Defaults;
 import com.epam.deltix.orderbook.core.options.Option;
 import com.epam.deltix.timebase.messages.MessageInfo;
 import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
@@ -35,15 +38,47 @@ import java.util.Objects;
  * @author Andrii_Ostapenko
  */
 class OrderBookDecorator<Quote, Processor extends QuoteProcessor<Quote>> implements OrderBook<Quote> {
-    private final Processor processor;
+    final Processor processor;
     private final Option<String> symbol;
+    private final OrderBookJournal journal;
+    private final OrderBookMetrics metrics;
+    private final boolean isLatencyEnabled;
+    private final OrderBookAnalytics analytics;
+    private final OrderBookBuckets buckets;
+    private final OrderBookSequenceTracker sequenceTracker;
 
     OrderBookDecorator(final Option<String> symbol,
-                       final Processor processor) {
+                       final Processor processor,
+                       final Option<OrderBookJournal> journal,
+                       final Option<OrderBookMetrics> metrics,
+                       final Option<OrderBookAnalytics> analytics,
+                       final Option<OrderBookBuckets> buckets,
+                       final Option<OrderBookSequenceTracker> sequenceTracker) {
         Objects.requireNonNull(symbol);
         Objects.requireNonNull(processor);
+        Objects.requireNonNull(journal);
+        Objects.requireNonNull(metrics);
+        Objects.requireNonNull(analytics);
+        Objects.requireNonNull(buckets);
+        Objects.requireNonNull(sequenceTracker);
         this.processor = processor;
         this.symbol = symbol.orAnother(Option.empty());
+        this.journal = journal.hasValue() ? journal.get() : null;
+        this.metrics = metrics.orElse(Defaults.METRICS);
+        this.isLatencyEnabled = this.metrics.isLatencyEnabled();
+        this.analytics = analytics.hasValue() ? analytics.get() : null;
+        this.buckets = buckets.hasValue() ? buckets.get() : null;
+        this.sequenceTracker = sequenceTracker.hasValue() ? sequenceTracker.get() : null;
+        // Options may be shared by several books, but these attachments keep state of one book
+        if (this.analytics != null) {
+            this.analytics.attach();
+        }
+        if (this.buckets != null) {
+            this.buckets.attach();
+        }
+        if (this.sequenceTracker != null) {
+            this.sequenceTracker.attach();
+        }
     }
 
     public static boolean isMarketDatePackage(final MessageInfo msg) {
@@ -74,10 +109,30 @@ class OrderBookDecorator<Quote, Processor extends QuoteProcessor<Quote>> impleme
             }
         }
         if (isMarketDatePackage(msg)) {
-            return updateOrderBook((PackageHeaderInfo) msg);
+            if (journal != null) {
+                journal.append((PackageHeaderInfo) msg);
+            }
+            final boolean isProcess;
+            if (sequenceTracker != null) {
+                isProcess = sequenceTracker.update((PackageHeaderInfo) msg, this);
+            } else {
+                isProcess = updateOrderBook((PackageHeaderInfo) msg);
+            }
+            // Book may be crossed in the middle of package, so it is checked only when the whole package is applied
+            if (processor.checkCrossedBook()) {
+                onChange();
+            }
+            return afterUpdate(isProcess);
         }
         if (isSecurityFeedStatusMessage(msg)) {
-            return updateOrderBook((SecurityFeedStatusMessage) msg);
+            if (journal != null) {
+                journal.append((SecurityFeedStatusMessage) msg);
+            }
+            if (sequenceTracker != null) {
+                sequenceTracker.onSecurityFeedStatus((SecurityFeedStatusMessage) msg);
+            }
+            onChange();
+            return afterUpdate(updateOrderBook((SecurityFeedStatusMessage) msg));
         }
 
         return false;
@@ -111,6 +166,8 @@ class OrderBookDecorator<Quote, Processor extends QuoteProcessor<Quote>> impleme
     @Override
     public void clear() {
         this.processor.clear();
+        onChange();
+        afterUpdate(true);
     }
 
     @Override
@@ -123,23 +180,99 @@ class OrderBookDecorator<Quote, Processor extends QuoteProcessor<Quote>> impleme
         return processor.isWaitingForSnapshot();
     }
 
-    private boolean updateOrderBook(final PackageHeaderInfo msg) {
+    /**
+     * Reports change of one level or quote of the book to analytics and price buckets (if any).
+     *
+     * @param side  - side of the change or {@code null} if both sides could change
+     * @param level - level of the change or {@link TopLevelChanges#UNKNOWN_LEVEL}
+     * @param price - price of the change
+     */
+    void onChange(final QuoteSide side, final int level, @Decimal final long price) {
+        if (analytics != null) {
+            analytics.onChange(side, level, price);
+        }
+        if (buckets != null) {
+            buckets.onChange(side, level, price);
+        }
+    }
+
+    /**
+     * Reports change of the whole book to analytics and price buckets (if any).
+     */
+    void onChange() {
+        if (analytics != null) {
+            analytics.onChange();
+        }
+        if (buckets != null) {
+            buckets.onChange();
+        }
+    }
+
+    /**
+     * Reports change of L3 quote. Only modification keeps the price of the quote,
+     * quote cancelled or replaced by id could be at any price of any side.
+     */
+    void onChange(final QuoteSide side, final QuoteUpdateAction action, @Decimal final long price) {
+        if (action == QuoteUpdateAction.MODIFY) {
+            onChange(side, TopLevelChanges.UNKNOWN_LEVEL, price);
+        } else {
+            onChange();
+        }
+    }
+
+    /**
+     * Recalculates analytics and price buckets (if any) of changed sides after the book has been changed.
+     *
+     * @param isProcess - result of processing
+     * @return result of processing
+     */
+    boolean afterUpdate(final boolean isProcess) {
+        if (analytics != null) {
+            analytics.update(processor.getMarketSide(QuoteSide.ASK), processor.getMarketSide(QuoteSide.BID));
+        }
+        if (buckets != null) {
+            buckets.update(processor.getMarketSide(QuoteSide.ASK), processor.getMarketSide(QuoteSide.BID));
+        }
+        return isProcess;
+    }
+
+    /**
+     * Clears data of given exchange and makes it wait for the next snapshot.
+     *
+     * @param exchangeId - exchange id
+     */
+    void invalidate(final long exchangeId) {
+        processor.invalidate(exchangeId);
+        onChange();
+    }
+
+    boolean updateOrderBook(final PackageHeaderInfo msg) {
         try {
             if (!isValid(msg)) {
                 // TODO add logger
                 return false;
             } else if (isIncrementalUpdate(msg.getPackageType())) {
+                final long start = isLatencyEnabled ? System.nanoTime() : 0;
                 final ObjectList<BaseEntryInfo> entries = msg.getEntries();
                 boolean isProcess = true;
                 for (int i = 0; i < entries.size(); i++) {
                     final BaseEntryInfo pck = entries.get(i);
-                    if (!processor.processIncrementalUpdate(msg, pck)) {
+                    final boolean isApplied = processor.processIncrementalUpdate(msg, pck);
+                    if (!isApplied) {
                         isProcess = false;
                     }
+                    onEntry(pck, isApplied);
                 }
+                metrics.onIncrementalUpdate(isLatencyEnabled ? System.nanoTime() - start : 0);
                 return isProcess;
             } else if (isSnapshot(msg.getPackageType())) {
-                return processor.processSnapshot(msg);
+                final long start = isLatencyEnabled ? System.nanoTime() : 0;
+                final boolean isProcess = processor.processSnapshot(msg);
+                onChange();
+                if (isProcess) {
+                    metrics.onSnapshot(isLatencyEnabled ? System.nanoTime() - start : 0);
+                }
+                return isProcess;
             }
         } catch (final Throwable e) {
             throw new Error("Error processing market data entries:: " + msg.getEntries() +
@@ -149,6 +282,32 @@ class OrderBookDecorator<Quote, Processor extends QuoteProcessor<Quote>> impleme
         return false;
     }
 
+    private void onEntry(final BaseEntryInfo entry, final boolean isApplied) {
+        if (!isApplied) {
+            // Invalid quote entry may clear the book, other entries are just skipped
+            if (entry instanceof L1EntryInfo || entry instanceof L2EntryNewInfo || entry instanceof L2EntryUpdateInfo ||
+                    entry instanceof L3EntryNewInfo || entry instanceof L3EntryUpdateInfo) {
+                onChange();
+            }
+        } else if (entry instanceof L2EntryNewInfo) {
+            final L2EntryNewInfo l2EntryNew = (L2EntryNewInfo) entry;
+            onChange(l2EntryNew.getSide(), l2EntryNew.getLevel(), l2EntryNew.getPrice());
+        } else if (entry instanceof L2EntryUpdateInfo) {
+            final L2EntryUpdateInfo l2EntryUpdate = (L2EntryUpdateInfo) entry;
+            onChange(l2EntryUpdate.getSide(), l2EntryUpdate.getLevel(), l2EntryUpdate.getPrice());
+        } else if (entry instanceof L3EntryNewInfo) {
+            final L3EntryNewInfo l3EntryNew = (L3EntryNewInfo) entry;
+            onChange(l3EntryNew.getSide(), TopLevelChanges.UNKNOWN_LEVEL, l3EntryNew.getPrice());
+        } else if (entry instanceof L3EntryUpdateInfo) {
+            final L3EntryUpdateInfo l3EntryUpdate = (L3EntryUpdateInfo) entry;
+            onChange(l3EntryUpdate.getSide(), l3EntryUpdate.getAction(), l3EntryUpdate.getPrice());
+        } else if (entry instanceof L1EntryInfo) {
+            final L1EntryInfo l1Entry = (L1EntryInfo) entry;
+            onChange(l1Entry.getSide(), 0, l1Entry.getPrice());
+        }
+        // Statistics entries do not change quotes
+    }
+
     /**
      * Simple validation of package header.
      *
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.Option;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.annotations.Alphanumeric;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.util.ArrayList;
+
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
+
+/**
+ * Generates L2 messages which move subscriber from the last seen state of the book to the current one,
+ * for fan-out of conflated books to many subscribers at different rates.
+ * <p>
+ * Every {@link Subscriber} keeps a compact shadow (primitive arrays) of top {@code N} price levels it has seen.
+ * On {@link #diff(OrderBook, Subscriber, long, PackageHeader)} generator compares current top {@code N} levels
+ * of the book with the shadow and fills package with the minimal set of entries, all deletes first, then inserts
+ * and updates from best to worst level, so subscriber never holds more than {@code N} levels:
+ * <ul>
+ *     <li>{@link L2EntryUpdate} with {@link BookUpdateAction#DELETE} for prices which left top levels;</li>
+ *     <li>{@link L2EntryNew} for new prices;</li>
+ *     <li>{@link L2EntryUpdate} with {@link BookUpdateAction#UPDATE} for prices with changed size or number of orders.</li>
+ * </ul>
+ * The first diff of subscriber (and the first diff after {@link Subscriber#reset()}) is a
+ * {@link PackageType#VENDOR_SNAPSHOT} of top levels.
+ * <p>
+ * Levels are distinct prices, so several quotes of consolidated book (or orders of L3 book) with the same price
+ * form one level, its size and number of orders are totals of the quotes. All entries are stamped with exchange id
+ * of the generator, so subscriber should maintain single exchange L2 book with max depth not less than {@code N}.
+ * <p>
+ * Not thread safe! Generator keeps pool of reusable entries, so diff does not allocate memory once the pool
+ * is warmed up. Entries of the package are valid until the next diff.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookDeltaGenerator {
+
+    private final int maxLevels;
+    @Alphanumeric
+    private final long exchangeId;
+
+    private final PriceLevels asks;
+    private final PriceLevels bids;
+
+    private final ObjectArrayList<BaseEntryInfo> entries = new ObjectArrayList<>();
+    private final ArrayList<L2EntryNew> newEntries = new ArrayList<>();
+    private final ArrayList<L2EntryUpdate> updateEntries = new ArrayList<>();
+    private int newCount;
+    private int updateCount;
+
+    /**
+     * Creates generator.
+     *
+     * @param maxLevels  - number of top price levels to keep subscribers up to date with
+     * @param exchangeId - exchange id of generated entries
+     */
+    public OrderBookDeltaGenerator(final int maxLevels, @Alphanumeric final long exchangeId) {
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("Illegal number of levels: " + maxLevels);
+        }
+        this.maxLevels = maxLevels;
+        this.exchangeId = exchangeId;
+        this.asks = new PriceLevels(maxLevels);
+        this.bids = new PriceLevels(maxLevels);
+    }
+
+    /**
+     * @return number of top price levels
+     */
+    public int getMaxLevels() {
+        return maxLevels;
+    }
+
+    /**
+     * Creates state of new subscriber. The first diff for subscriber is a snapshot.
+     *
+     * @return new subscriber
+     */
+    public Subscriber newSubscriber() {
+        return new Subscriber(maxLevels);
+    }
+
+    /**
+     * Fills package with entries which move subscriber to the current state of the book
+     * and remembers the current state as seen by subscriber.
+     * <p>
+     * Package gets symbol of the book (symbol of the package is kept if book has no symbol), package type,
+     * given timestamp and the list of pooled entries of this generator.
+     *
+     * @param book       - order book to use
+     * @param subscriber - subscriber to use, should be created by this generator
+     * @param timestamp  - timestamp of the package
+     * @param pck        - destination package
+     * @return true if package is filled, false if subscriber is up to date (or nothing to send as a snapshot)
+     */
+    public boolean diff(final OrderBook<? extends OrderBookQuote> book,
+                        final Subscriber subscriber,
+                        final long timestamp,
+                        final PackageHeader pck) {
+        if (subscriber.asks.capacity() != maxLevels) {
+            throw new IllegalArgumentException("Subscriber is created by another generator");
+        }
+        entries.clear();
+        newCount = 0;
+        updateCount = 0;
+        asks.collect(book.getMarketSide(ASK));
+        bids.collect(book.getMarketSide(BID));
+
+        final PackageType packageType;
+        if (subscriber.isSnapshotSent) {
+            addDeletes(ASK, subscriber.asks, asks);
+            addDeletes(BID, subscriber.bids, bids);
+            addChanges(ASK, subscriber.asks, asks);
+            addChanges(BID, subscriber.bids, bids);
+            packageType = PackageType.INCREMENTAL_UPDATE;
+        } else {
+            addChanges(ASK, PriceLevels.EMPTY, asks);
+            addChanges(BID, PriceLevels.EMPTY, bids);
+            packageType = PackageType.VENDOR_SNAPSHOT;
+        }
+        if (entries.size() == 0) {
+            return false;
+        }
+
+        subscriber.asks.copyFrom(asks);
+        subscriber.bids.copyFrom(bids);
+        subscriber.isSnapshotSent = true;
+
+        final Option<String> symbol = book.getSymbol();
+        if (symbol.hasValue()) {
+            pck.setSymbol(symbol.get());
+        }
+        pck.setPackageType(packageType);
+        pck.setTimeStampMs(timestamp);
+        pck.setEntries(entries);
+        return true;
+    }
+
+    /**
+     * Deletes levels of the shadow which are absent in the current state, level of every delete
+     * takes into account previous deletes.
+     */
+    private void addDeletes(final QuoteSide side, final PriceLevels seen, final PriceLevels current) {
+        int kept = 0;
+        int i = 0;
+        for (int j = 0; j < seen.depth; j++) {
+            @Decimal final long price = seen.prices[j];
+            while (i < current.depth && isBetter(side, current.prices[i], price)) {
+                i++;
+            }
+            if (i < current.depth && Decimal64Utils.isEqual(current.prices[i], price)) {
+                kept++;
+                i++;
+            } else {
+                addUpdate(side, kept, BookUpdateAction.DELETE, seen, j);
+            }
+        }
+    }
+
+    /**
+     * Inserts and updates levels of the current state after deletes, so levels of the shadow before level {@code i}
+     * are equal to the current ones.
+     */
+    private void addChanges(final QuoteSide side, final PriceLevels seen, final PriceLevels current) {
+        int j = 0;
+        for (int i = 0; i < current.depth; i++) {
+            @Decimal final long price = current.prices[i];
+            while (j < seen.depth && isBetter(side, seen.prices[j], price)) {
+                j++;
+            }
+            if (j < seen.depth && Decimal64Utils.isEqual(seen.prices[j], price)) {
+                if (Decimal64Utils.isNotEqual(seen.sizes[j], current.sizes[i]) ||
+                        seen.numberOfOrders[j] != current.numberOfOrders[i]) {
+                    addUpdate(side, i, BookUpdateAction.UPDATE, current, i);
+                }
+                j++;
+            } else {
+                addNew(side, i, current, i);
+            }
+        }
+    }
+
+    private void addNew(final QuoteSide side, final int level, final PriceLevels levels, final int idx) {
+        if (newEntries.size() == newCount) {
+            newEntries.add(new L2EntryNew());
+        }
+        final L2EntryNew entry = newEntries.get(newCount++);
+        entry.setLevel((short) level);
+        set(entry, side, levels, idx);
+    }
+
+    private void addUpdate(final QuoteSide side,
+                           final int level,
+                           final BookUpdateAction action,
+                           final PriceLevels levels,
+                           final int idx) {
+        if (updateEntries.size() == updateCount) {
+            updateEntries.add(new L2EntryUpdate());
+        }
+        final L2EntryUpdate entry = updateEntries.get(updateCount++);
+        entry.setLevel((short) level);
+        entry.setAction(action);
+        set(entry, side, levels, idx);
+    }
+
+    private void set(final BasePriceEntry entry, final QuoteSide side, final PriceLevels levels, final int idx) {
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setPrice(levels.prices[idx]);
+        entry.setSize(levels.sizes[idx]);
+        entry.setNumberOfOrders(levels.numberOfOrders[idx]);
+        entries.add(entry);
+    }
+
+    private static boolean isBetter(final QuoteSide side, @Decimal final long price, @Decimal final long other) {
+        return side == ASK ? Decimal64Utils.isLess(price, other) : Decimal64Utils.isGreater(price, other);
+    }
+
+    /**
+     * State of the book seen by subscriber.
+     */
+    public static final class Subscriber {
+
+        private final PriceLevels asks;
+        private final PriceLevels bids;
+        private boolean isSnapshotSent;
+
+        private Subscriber(final int maxLevels) {
+            this.asks = new PriceLevels(maxLevels);
+            this.bids = new PriceLevels(maxLevels);
+        }
+
+        /**
+         * Forgets seen state, so the next diff for subscriber is a snapshot (e.g. after reconnect).
+         */
+        public void reset() {
+            asks.clear();
+            bids.clear();
+            isSnapshotSent = false;
+        }
+
+        /**
+         * @return true if subscriber has received snapshot
+         */
+        public boolean isSnapshotSent() {
+            return isSnapshotSent;
+        }
+    }
+
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.timebase.messages.MessageInfo;
+import com.epam.deltix.timebase.messages.TypeConstants;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped journal of market data messages applied to order books.
+ * <p>
+ * Every {@link PackageHeaderInfo} and {@link SecurityFeedStatusMessage} accepted by a book is encoded into a compact
+ * binary record. Use {@link OrderBookJournalReader} to replay the journal into books.
+ * <p>
+ * Appending does not allocate memory and does not wait for the storage device: records are written directly into
+ * the mapped segment, and when the segment is exhausted journal switches to the next segment mapped ahead of time
+ * by {@link #flush()}. Call {@link #flush()} periodically outside the hot path (at least once per segment),
+ * otherwise the next segment is mapped (and the previous one is forced to the storage device) on append.
+ * Entries which do not affect order book state (statistics, trades, etc.) are not journaled.
+ * <p>
+ * File is divided into segments of fixed size. Records never cross segment boundaries (record larger than segment
+ * occupies dedicated whole segments), unused tail of a segment is left zero-filled and skipped by the reader.
+ * <p>
+ * Record layout (big-endian, enums are stored as ordinal + 1, zero for {@code null}):
+ * <pre>
+ * int    record length (without this field)
+ * byte   record type (1 - package header, 2 - security feed status)
+ * long   timestamp, long original timestamp
+ * short  symbol length (-1 if absent), symbol ASCII bytes
+ * package header:
+ *   byte   package type
+ *   long   sequence number ({@link TypeConstants#INT64_NULL} if absent)
+ *   int    number of entries
+ *     byte   entry type (1 - L1, 2 - L2 new, 3 - L2 update, 4 - L3 new, 5 - L3 update, 6 - book reset)
+ *     long   exchange id
+ *     (book reset) byte model type
+ *     (others)     byte side, long price, long size, long numberOfOrders
+ *       (L2 new)    short level
+ *       (L2 update) short level, byte action
+ *       (L3 new)    byte insert type, quoteId, participantId
+ *       (L3 update) byte action, quoteId, participantId
+ * security feed status:
+ *   long   exchange id
+ *   byte   status
+ * </pre>
+ * File starts with {@code int magic, int version, int segment size}.
+ * <p>
+ * Not thread safe! Several books may share one journal only if they are updated from one thread:
+ * journal throws {@link IllegalStateException} on append from other thread than the first one.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x4F424A4C; // "OBJL"
+    static final int VERSION = 3;
+    static final int FILE_HEADER_SIZE = 12;
+
+    static final byte PACKAGE_HEADER = 1;
+    static final byte SECURITY_FEED_STATUS = 2;
+
+    static final byte L1_ENTRY = 1;
+    static final byte L2_ENTRY_NEW = 2;
+    static final byte L2_ENTRY_UPDATE = 3;
+    static final byte L3_ENTRY_NEW = 4;
+    static final byte L3_ENTRY_UPDATE = 5;
+    static final byte BOOK_RESET_ENTRY = 6;
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    // Unmaps mapped buffers without waiting for Java Garbage Collector, if JVM allows it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // Mapped buffers are released by Java Garbage Collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    // Current segment
+    private MappedByteBuffer buffer;
+    private long segmentOffset;
+    // Segment following the current one, mapped ahead of time (may be null)
+    private MappedByteBuffer next;
+    // Previous segment which is not forced to the storage device yet (may be null)
+    private MappedByteBuffer retired;
+    private long recordCount;
+    // The only thread allowed to append
+    private Thread writer;
+
+    /**
+     * Creates new journal or truncates existing one.
+     *
+     * @param path - path to use
+     * @throws IOException if an I/O error occurs
+     */
+    public OrderBookJournal(final Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates new journal or truncates existing one.
+     *
+     * @param path        - path to use
+     * @param segmentSize - size of the memory-mapped segment
+     * @throws IOException if an I/O error occurs
+     */
+    public OrderBookJournal(final Path path, final int segmentSize) throws IOException {
+        if (segmentSize < FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("Illegal segment size: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.segmentOffset = 0;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        this.buffer.putInt(MAGIC);
+        this.buffer.putInt(VERSION);
+        this.buffer.putInt(segmentSize);
+        this.next = channel.map(FileChannel.MapMode.READ_WRITE, segmentSize, segmentSize);
+    }
+
+    /**
+     * Appends message into journal. Messages other than {@link PackageHeaderInfo} and
+     * {@link SecurityFeedStatusMessage} are ignored.
+     *
+     * @param msg - message to append
+     * @return true if message was appended
+     */
+    public boolean append(final MessageInfo msg) {
+        if (msg instanceof PackageHeaderInfo) {
+            append((PackageHeaderInfo) msg);
+            return true;
+        }
+        if (msg instanceof SecurityFeedStatusMessage) {
+            append((SecurityFeedStatusMessage) msg);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends package into journal.
+     *
+     * @param pck - package to append
+     * @throws IllegalStateException if journal is appended from several threads
+     */
+    public void append(final PackageHeaderInfo pck) {
+        checkWriter();
+        ensureCapacity(getEncodedSize(pck));
+        putPackageHeader(pck, buffer);
+        recordCount++;
+    }
+
+    /**
+     * Appends security feed status message into journal.
+     *
+     * @param msg - message to append
+     * @throws IllegalStateException if journal is appended from several threads
+     */
+    public void append(final SecurityFeedStatusMessage msg) {
+        checkWriter();
+        ensureCapacity(getEncodedSize(msg));
+        final int start = beginRecord(SECURITY_FEED_STATUS, msg, buffer);
+        buffer.putLong(msg.getExchangeId());
+        buffer.put(encodeEnum(msg.getStatus()));
+        endRecord(start, buffer);
+        recordCount++;
+    }
+
+    /**
+     * @return number of records appended to the journal
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return number of bytes written to the journal including file header
+     */
+    public long getSize() {
+        return segmentOffset + buffer.position();
+    }
+
+    /**
+     * Flushes written records to the storage device and maps the next segment ahead of time,
+     * so that switching to the next segment on append neither maps memory nor waits for the storage device.
+     */
+    public void flush() {
+        buffer.force();
+        if (retired != null) {
+            retired.force();
+            unmap(retired);
+            retired = null;
+        }
+        if (next == null) {
+            next = map(segmentOffset + buffer.capacity(), segmentSize);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        final long size = getSize();
+        buffer.force();
+        if (retired != null) {
+            retired.force();
+        }
+        unmap(retired);
+        unmap(next);
+        unmap(buffer);
+        retired = null;
+        next = null;
+        buffer = null;
+        channel.truncate(size);
+        channel.close();
+    }
+
+    /**
+     * Writes package header record starting from current buffer position.
+     *
+     * @param pck    - package to write
+     * @param buffer - destination buffer
+     * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer
+     * @see #getEncodedSize(PackageHeaderInfo)
+     */
+    static void putPackageHeader(final PackageHeaderInfo pck, final ByteBuffer buffer) {
+        final int start = beginRecord(PACKAGE_HEADER, pck, buffer);
+        buffer.put(encodeEnum(pck.getPackageType()));
+        buffer.putLong(pck.hasSequenceNumber() ? pck.getSequenceNumber() : TypeConstants.INT64_NULL);
+
+        final ObjectList<BaseEntryInfo> entries = pck.getEntries();
+        final int countPosition = buffer.position();
+        buffer.putInt(0);
+        int count = 0;
+        if (entries != null) {
+            for (int i = 0; i < entries.size(); i++) {
+                if (putEntry(entries.get(i), buffer)) {
+                    count++;
+                }
+            }
+        }
+        buffer.putInt(countPosition, count);
+        endRecord(start, buffer);
+    }
+
+    private static int beginRecord(final byte type, final MessageInfo msg, final ByteBuffer buffer) {
+        final int start = buffer.position();
+        buffer.putInt(0); // reserved for record length
+        buffer.put(type);
+        buffer.putLong(msg.getTimeStampMs());
+        buffer.putLong(msg instanceof PackageHeaderInfo ? ((PackageHeaderInfo) msg).getOriginalTimestamp() : Long.MIN_VALUE);
+        putAscii(msg.getSymbol(), buffer);
+        return start;
+    }
+
+    private static void endRecord(final int start, final ByteBuffer buffer) {
+        buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+    }
+
+    private static boolean putEntry(final BaseEntryInfo e, final ByteBuffer buffer) {
+        if (e instanceof L2EntryNewInfo) {
+            final L2EntryNewInfo entry = (L2EntryNewInfo) e;
+            putPriceEntry(L2_ENTRY_NEW, entry, buffer);
+            buffer.putShort(entry.getLevel());
+        } else if (e instanceof L2EntryUpdateInfo) {
+            final L2EntryUpdateInfo entry = (L2EntryUpdateInfo) e;
+            putPriceEntry(L2_ENTRY_UPDATE, entry, buffer);
+            buffer.putShort(entry.getLevel());
+            buffer.put(encodeEnum(entry.getAction()));
+        } else if (e instanceof L3EntryNewInfo) {
+            final L3EntryNewInfo entry = (L3EntryNewInfo) e;
+            putPriceEntry(L3_ENTRY_NEW, entry, buffer);
+            buffer.put(encodeEnum(entry.getInsertType()));
+            putAscii(entry.getQuoteId(), buffer);
+            putAscii(entry.getParticipantId(), buffer);
+        } else if (e instanceof L3EntryUpdateInfo) {
+            final L3EntryUpdateInfo entry = (L3EntryUpdateInfo) e;
+            putPriceEntry(L3_ENTRY_UPDATE, entry, buffer);
+            buffer.put(encodeEnum(entry.getAction()));
+            putAscii(entry.getQuoteId(), buffer);
+            putAscii(entry.getParticipantId(), buffer);
+        } else if (e instanceof L1EntryInfo) {
+            putPriceEntry(L1_ENTRY, (L1EntryInfo) e, buffer);
+        } else if (e instanceof BookResetEntryInfo) {
+            final BookResetEntryInfo entry = (BookResetEntryInfo) e;
+            buffer.put(BOOK_RESET_ENTRY);
+            buffer.putLong(entry.getExchangeId());
+            buffer.put(encodeEnum(entry.getModelType()));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void putPriceEntry(final byte type, final BasePriceEntryInfo entry, final ByteBuffer buffer) {
+        buffer.put(type);
+        buffer.putLong(entry.getExchangeId());
+        buffer.put(encodeEnum(entry.getSide()));
+        buffer.putLong(entry.getPrice());
+        buffer.putLong(entry.getSize());
+        buffer.putLong(entry.getNumberOfOrders());
+    }
+
+    private static void putAscii(final CharSequence value, final ByteBuffer buffer) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        final int length = value.length();
+        buffer.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void checkWriter() {
+        final Thread thread = Thread.currentThread();
+        if (writer != thread) {
+            if (writer != null) {
+                throw new IllegalStateException("Journal is appended from several threads: " +
+                        writer.getName() + " and " + thread.getName());
+            }
+            writer = thread;
+        }
+    }
+
+    private void ensureCapacity(final int size) {
+        if (buffer.remaining() < size) {
+            nextSegment(size);
+        }
+    }
+
+    /**
+     * Switches to the segment following the current one, unused tail of the current segment is left zero-filled.
+     * Does not map memory and does not wait for the storage device if {@link #flush()} was called since
+     * the previous switch.
+     *
+     * @param size - size of the record to write
+     */
+    private void nextSegment(final int size) {
+        final long offset = segmentOffset + buffer.capacity();
+        if (retired != null) {
+            // Journal was not flushed during the whole segment
+            retired.force();
+            unmap(retired);
+        }
+        retired = buffer;
+        if (size <= segmentSize) {
+            buffer = (next != null) ? next : map(offset, segmentSize);
+        } else {
+            // Record larger than segment occupies dedicated whole segments, nothing else is written there
+            unmap(next);
+            final long segments = ((long) size + segmentSize - 1) / segmentSize;
+            buffer = map(offset, segments * segmentSize);
+            buffer.limit(size);
+        }
+        next = null;
+        segmentOffset = offset;
+    }
+
+    private MappedByteBuffer map(final long offset, final long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal record is too large: " + size + " byte(s)");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't extend journal", e);
+        }
+    }
+
+    private static void unmap(final MappedByteBuffer buffer) {
+        if (buffer != null && INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                // Buffer is released by Java Garbage Collector
+            }
+        }
+    }
+
+    /**
+     * @param pck - package to use
+     * @return number of bytes required to write package header record
+     */
+    static int getEncodedSize(final PackageHeaderInfo pck) {
+        int size = getHeaderSize(pck) + Byte.BYTES + Long.BYTES + Integer.BYTES;
+        final ObjectList<BaseEntryInfo> entries = pck.getEntries();
+        if (entries != null) {
+            for (int i = 0; i < entries.size(); i++) {
+                size += getEncodedSize(entries.get(i));
+            }
+        }
+        return size;
+    }
+
+    private static int getEncodedSize(final SecurityFeedStatusMessage msg) {
+        return getHeaderSize(msg) + Long.BYTES + Byte.BYTES;
+    }
+
+    private static int getHeaderSize(final MessageInfo msg) {
+        return Integer.BYTES + Byte.BYTES + Long.BYTES + Long.BYTES + getEncodedSize(msg.getSymbol());
+    }
+
+    private static int getEncodedSize(final BaseEntryInfo e) {
+        final int priceEntrySize = Byte.BYTES + Long.BYTES + Byte.BYTES + 3 * Long.BYTES;
+        if (e instanceof L2EntryNewInfo) {
+            return priceEntrySize + Short.BYTES;
+        } else if (e instanceof L2EntryUpdateInfo) {
+            return priceEntrySize + Short.BYTES + Byte.BYTES;
+        } else if (e instanceof L3EntryNewInfo || e instanceof L3EntryUpdateInfo) {
+            final BasePriceEntryInfo entry = (BasePriceEntryInfo) e;
+            return priceEntrySize + Byte.BYTES + getEncodedSize(entry.getQuoteId()) + getEncodedSize(entry.getParticipantId());
+        } else if (e instanceof L1EntryInfo) {
+            return priceEntrySize;
+        } else if (e instanceof BookResetEntryInfo) {
+            return Byte.BYTES + Long.BYTES + Byte.BYTES;
+        }
+        return 0;
+    }
+
+    private static int getEncodedSize(final CharSequence value) {
+        return Short.BYTES + (value == null ? 0 : value.length());
+    }
+
+    /**
+     * Enum values are stored as ordinal + 1, zero means {@code null}.
+     */
+    private static byte encodeEnum(final Enum<?> value) {
+        return value == null ? 0 : (byte) (value.ordinal() + 1);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.timebase.messages.MessageInfo;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.PackageHeader;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import static com.epam.deltix.orderbook.core.impl.OrderBookJournal.*;
+
+/**
+ * Reads journal written by {@link OrderBookJournal} and replays it into order books.
+ * <p>
+ * Messages are decoded into reusable instances: message returned by {@link #next()} is valid only until
+ * the next call. Replay does not allocate memory once internal entry pools are warmed up.
+ * <p>
+ * Not thread safe!
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookJournalReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int segmentSize;
+    // Segment size of the journal, records never cross its boundaries
+    private final int journalSegmentSize;
+
+    private MappedByteBuffer buffer;
+    private long segmentOffset;
+
+    private final JournalRecordDecoder decoder = new JournalRecordDecoder();
+
+    /**
+     * Opens journal for reading.
+     *
+     * @param path - path to use
+     * @throws IOException if an I/O error occurs or file is not a journal
+     */
+    public OrderBookJournalReader(final Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens journal for reading.
+     *
+     * @param path        - path to use
+     * @param segmentSize - size of the memory-mapped region (may differ from segment size of the journal)
+     * @throws IOException if an I/O error occurs or file is not a journal
+     */
+    public OrderBookJournalReader(final Path path, final int segmentSize) throws IOException {
+        if (segmentSize < FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("Illegal segment size: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        try {
+            if (!map(0, FILE_HEADER_SIZE) || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an order book journal: " + path);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version: " + version);
+            }
+            journalSegmentSize = buffer.getInt();
+            if (journalSegmentSize < FILE_HEADER_SIZE) {
+                throw new IOException("Illegal journal segment size: " + journalSegmentSize);
+            }
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads next message from the journal.
+     *
+     * @return reusable instance of {@link PackageHeader} or {@link SecurityFeedStatusMessage},
+     * or {@code null} if end of the journal is reached
+     * @throws IOException if an I/O error occurs
+     */
+    public MessageInfo next() throws IOException {
+        int length = 0;
+        while (length == 0) {
+            if (buffer.remaining() < Integer.BYTES) {
+                if (!map(segmentOffset + buffer.position(), Integer.BYTES)) {
+                    return null;
+                }
+            }
+            final long position = segmentOffset + buffer.position();
+            final int tail = (int) (journalSegmentSize - position % journalSegmentSize);
+            // Zero length means unused tail of the segment (or of the last segment if journal was not closed properly)
+            length = (tail < Integer.BYTES) ? 0 : buffer.getInt(buffer.position());
+            if (length == 0 && !seek(position + tail)) {
+                return null;
+            }
+        }
+        if (length < 0) {
+            throw new IOException("Corrupted journal record at " + (segmentOffset + buffer.position()));
+        }
+        if (buffer.remaining() < Integer.BYTES + length) {
+            if (!map(segmentOffset + buffer.position(), Integer.BYTES + length)) {
+                throw new IOException("Truncated journal record at " + (segmentOffset + buffer.position()));
+            }
+        }
+        final long offset = segmentOffset + buffer.position();
+        final int end = buffer.position() + Integer.BYTES + length;
+        final int limit = buffer.limit();
+        buffer.getInt();
+        // Decoder can't read past the record
+        buffer.limit(end);
+        final MessageInfo msg;
+        try {
+            final byte type = buffer.get();
+            switch (type) {
+                case PACKAGE_HEADER:
+                    msg = decoder.readPackageHeader(buffer);
+                    break;
+                case SECURITY_FEED_STATUS:
+                    msg = decoder.readSecurityFeedStatus(buffer);
+                    break;
+                default:
+                    throw new IOException("Unknown journal record type: " + type);
+            }
+        } catch (final BufferUnderflowException | IllegalStateException e) {
+            throw new IOException("Corrupted journal record at " + offset, e);
+        } finally {
+            buffer.limit(limit);
+        }
+        // Next record starts right after this one regardless of how many bytes were decoded
+        buffer.position(end);
+        return msg;
+    }
+
+    /**
+     * Replays remaining messages of the journal into the order book.
+     *
+     * @param book - order book to update
+     * @return number of replayed messages
+     * @throws IOException if an I/O error occurs
+     */
+    public long replay(final OrderBook<?> book) throws IOException {
+        long count = 0;
+        MessageInfo msg;
+        while ((msg = next()) != null) {
+            book.update(msg);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Replays remaining messages of the journal into consumer.
+     * Consumer should not keep references to the messages.
+     *
+     * @param consumer - consumer of messages
+     * @return number of replayed messages
+     * @throws IOException if an I/O error occurs
+     */
+    public long replay(final Consumer<? super MessageInfo> consumer) throws IOException {
+        long count = 0;
+        MessageInfo msg;
+        while ((msg = next()) != null) {
+            consumer.accept(msg);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Moves to given offset of the journal.
+     *
+     * @return false if end of the journal is reached
+     */
+    private boolean seek(final long offset) throws IOException {
+        final long position = offset - segmentOffset;
+        if (position <= buffer.limit()) {
+            buffer.position((int) position);
+            return true;
+        }
+        return map(offset, Integer.BYTES);
+    }
+
+    private boolean map(final long offset, final int required) throws IOException {
+        if (fileSize - offset < required) {
+            return false;
+        }
+        segmentOffset = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(fileSize - offset, Math.max(segmentSize, required)));
+        return true;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+
+/**
+ * Consistent primitive view of top price levels of order book, published by {@link OrderBookSampler}.
+ * <p>
+ * Levels are distinct prices, so several quotes of consolidated book (or orders of L3 book) with the same price
+ * form one level, its size and number of orders are totals of the quotes. Level {@code 0} is the best one.
+ * <p>
+ * Instance is reused by sampler: it is valid only inside the consumer call, copy values you need to keep.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookSample {
+
+    private final PriceLevels asks;
+    private final PriceLevels bids;
+
+    private long timestamp;
+    private long sequence;
+    private int updates;
+
+    OrderBookSample(final int maxLevels) {
+        this.asks = new PriceLevels(maxLevels);
+        this.bids = new PriceLevels(maxLevels);
+    }
+
+    /**
+     * @return max number of levels per side
+     */
+    public int getMaxLevels() {
+        return asks.capacity();
+    }
+
+    /**
+     * @return timestamp of the update which triggered the sample
+     * ({@link com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp#TIMESTAMP_UNKNOWN} if unknown)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return number of the sample, starting from 1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return number of updates of the book since the previous sample
+     */
+    public int getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Number of levels of the side.
+     *
+     * @param side - side to use
+     * @return number of levels
+     */
+    public int depth(final QuoteSide side) {
+        return levels(side).depth;
+    }
+
+    /**
+     * Price of the level.
+     *
+     * @param side  - side to use
+     * @param level - level to use
+     * @return price
+     * @throws IndexOutOfBoundsException if there is no such level
+     */
+    @Decimal
+    public long getPrice(final QuoteSide side, final int level) {
+        final PriceLevels levels = levels(side);
+        return levels.prices[levels.indexOf(level)];
+    }
+
+    /**
+     * Total size of quotes of the level.
+     *
+     * @param side  - side to use
+     * @param level - level to use
+     * @return size
+     * @throws IndexOutOfBoundsException if there is no such level
+     */
+    @Decimal
+    public long getSize(final QuoteSide side, final int level) {
+        final PriceLevels levels = levels(side);
+        return levels.sizes[levels.indexOf(level)];
+    }
+
+    /**
+     * Total number of orders of quotes of the level.
+     *
+     * @param side  - side to use
+     * @param level - level to use
+     * @return number of orders
+     * @throws IndexOutOfBoundsException if there is no such level
+     */
+    public long getNumberOfOrders(final QuoteSide side, final int level) {
+        final PriceLevels levels = levels(side);
+        return levels.numberOfOrders[levels.indexOf(level)];
+    }
+
+    void collect(final OrderBook<? extends OrderBookQuote> book, final long timestamp, final int updates) {
+        asks.collect(book.getMarketSide(QuoteSide.ASK));
+        bids.collect(book.getMarketSide(QuoteSide.BID));
+        this.timestamp = timestamp;
+        this.updates = updates;
+        this.sequence++;
+    }
+
+    private PriceLevels levels(final QuoteSide side) {
+        return side == QuoteSide.ASK ? asks : bids;
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.Exchange;
+import com.epam.deltix.orderbook.core.api.ExchangeList;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.options.Option;
+import com.epam.deltix.timebase.messages.MessageInfo;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import com.epam.deltix.timebase.messages.universal.InsertType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.QuoteUpdateAction;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
+
+/**
+ * Order book wrapper which publishes throttled samples of top price levels of the book on the owning thread.
+ * <p>
+ * After every update sampler checks whether the configured number of updates has been processed or the configured
+ * time interval has elapsed since the previous sample, and if the book has changed since the previous sample,
+ * calls consumer with {@link OrderBookSample} of the current state. Time is taken from updates: timestamp
+ * of the message or {@code timestamp} argument of {@link #getUpdater() updater} methods, so replay of recorded data
+ * gives the same samples. Updates with unknown timestamp are checked by count only.
+ * <p>
+ * Book is considered changed if it has processed an update successfully, has received security feed status
+ * or has been cleared. Between samples the cost of update is an increment and a couple of comparisons;
+ * sampling itself does not allocate memory.
+ * <p>
+ * Not thread safe! Sampler should be updated from the thread which owns the book, instead of the book itself.
+ *
+ * @param <Quote> type of quote in order book
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookSampler<Quote extends OrderBookQuote> implements OrderBook<Quote> {
+
+    private final OrderBook<Quote> book;
+    private final Option<OrderBookUpdater> updater;
+    private final Consumer<? super OrderBookSample> consumer;
+    private final OrderBookSample sample;
+
+    private final long intervalMs;
+    private final int intervalUpdates;
+
+    private int updates;
+    private boolean isChanged;
+    private long lastSampleTimestamp = TIMESTAMP_UNKNOWN;
+
+    /**
+     * Creates sampler.
+     *
+     * @param book            - order book to wrap
+     * @param maxLevels       - max number of price levels per side in sample
+     * @param intervalMs      - min time between samples in milliseconds, zero to sample by count only
+     * @param intervalUpdates - number of updates between samples, zero to sample by time only
+     * @param consumer        - consumer of samples
+     */
+    public OrderBookSampler(final OrderBook<Quote> book,
+                            final int maxLevels,
+                            final long intervalMs,
+                            final int intervalUpdates,
+                            final Consumer<? super OrderBookSample> consumer) {
+        Objects.requireNonNull(book);
+        Objects.requireNonNull(consumer);
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("Illegal number of levels: " + maxLevels);
+        }
+        if (intervalMs < 0 || intervalUpdates < 0 || (intervalMs == 0 && intervalUpdates == 0)) {
+            throw new IllegalArgumentException("Illegal sampling interval: " + intervalMs + " ms, " +
+                    intervalUpdates + " update(s)");
+        }
+        this.book = book;
+        this.updater = book instanceof OrderBookUpdater ?
+                Option.wrap(new SamplingUpdater((OrderBookUpdater) book)) : Option.empty();
+        this.consumer = consumer;
+        this.sample = new OrderBookSample(maxLevels);
+        this.intervalMs = intervalMs;
+        this.intervalUpdates = intervalUpdates;
+    }
+
+    /**
+     * @return wrapped order book
+     */
+    public OrderBook<Quote> getOrderBook() {
+        return book;
+    }
+
+    /**
+     * Primitive API of wrapped order book, updates through it are sampled as well.
+     *
+     * @return updater or empty option if wrapped book doesn't implement {@link OrderBookUpdater}
+     */
+    public Option<OrderBookUpdater> getUpdater() {
+        return updater;
+    }
+
+    /**
+     * Publishes sample of the current state immediately if the book has changed since the previous sample,
+     * e.g. at the end of data.
+     *
+     * @param timestamp - timestamp of the sample
+     * @return true if sample is published
+     */
+    public boolean flush(final long timestamp) {
+        if (!isChanged) {
+            return false;
+        }
+        publish(timestamp);
+        return true;
+    }
+
+    @Override
+    public boolean update(final MessageInfo message) {
+        final boolean isProcessed = book.update(message);
+        if (message != null) {
+            onUpdate(isProcessed || message instanceof SecurityFeedStatusMessage, message.getTimeStampMs());
+        }
+        return isProcessed;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return book.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        book.clear();
+        isChanged = true;
+    }
+
+    @Override
+    public String getDescription() {
+        return book.getDescription();
+    }
+
+    @Override
+    public DataModelType getQuoteLevels() {
+        return book.getQuoteLevels();
+    }
+
+    @Override
+    public Option<String> getSymbol() {
+        return book.getSymbol();
+    }
+
+    @Override
+    public MarketSide<Quote> getMarketSide(final QuoteSide side) {
+        return book.getMarketSide(side);
+    }
+
+    @Override
+    public ExchangeList<? extends Exchange<Quote>> getExchanges() {
+        return book.getExchanges();
+    }
+
+    @Override
+    public boolean isWaitingForSnapshot() {
+        return book.isWaitingForSnapshot();
+    }
+
+    private boolean onUpdate(final boolean isProcessed, final long timestamp) {
+        updates++;
+        if (isProcessed) {
+            isChanged = true;
+        }
+        if (isChanged && (isCountElapsed() || isTimeElapsed(timestamp))) {
+            publish(timestamp);
+        }
+        return isProcessed;
+    }
+
+    private boolean isCountElapsed() {
+        return intervalUpdates > 0 && updates >= intervalUpdates;
+    }
+
+    private boolean isTimeElapsed(final long timestamp) {
+        return intervalMs > 0 && timestamp != TIMESTAMP_UNKNOWN &&
+                (lastSampleTimestamp == TIMESTAMP_UNKNOWN || timestamp - lastSampleTimestamp >= intervalMs);
+    }
+
+    private void publish(final long timestamp) {
+        sample.collect(book, timestamp, updates);
+        updates = 0;
+        isChanged = false;
+        if (timestamp != TIMESTAMP_UNKNOWN) {
+            lastSampleTimestamp = timestamp;
+        }
+        consumer.accept(sample);
+    }
+
+    /**
+     * Primitive updates of the wrapped book, which are sampled the same way as {@link #update}.
+     */
+    private final class SamplingUpdater implements OrderBookUpdater {
+
+        private final OrderBookUpdater target;
+
+        private SamplingUpdater(final OrderBookUpdater target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean applyL1(final long exchangeId, final QuoteSide side, final long price, final long size,
+                               final long numberOfOrders, final long timestamp) {
+            return onUpdate(target.applyL1(exchangeId, side, price, size, numberOfOrders, timestamp), timestamp);
+        }
+
+        @Override
+        public boolean applyL2New(final long exchangeId, final QuoteSide side, final int level, final long price,
+                                  final long size, final long numberOfOrders, final long timestamp) {
+            return onUpdate(target.applyL2New(exchangeId, side, level, price, size, numberOfOrders, timestamp),
+                    timestamp);
+        }
+
+        @Override
+        public boolean applyL2Update(final long exchangeId, final QuoteSide side, final int level,
+                                     final BookUpdateAction action, final long price, final long size,
+                                     final long numberOfOrders, final long timestamp) {
+            return onUpdate(
+                    target.applyL2Update(exchangeId, side, level, action, price, size, numberOfOrders, timestamp),
+                    timestamp);
+        }
+
+        @Override
+        public boolean applyL3New(final long exchangeId, final QuoteSide side, final InsertType insertType,
+                                  final CharSequence quoteId, final CharSequence participantId,
+                                  final long price, final long size, final long timestamp) {
+            return onUpdate(
+                    target.applyL3New(exchangeId, side, insertType, quoteId, participantId, price, size, timestamp),
+                    timestamp);
+        }
+
+        @Override
+        public boolean applyL3Update(final long exchangeId, final QuoteSide side, final QuoteUpdateAction action,
+                                     final CharSequence quoteId, final CharSequence participantId,
+                                     final long price, final long size, final long timestamp) {
+            return onUpdate(
+                    target.applyL3Update(exchangeId, side, action, quoteId, participantId, price, size, timestamp),
+                    timestamp);
+        }
+    }
+
+}
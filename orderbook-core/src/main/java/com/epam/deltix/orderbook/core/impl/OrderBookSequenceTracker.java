@@ -0,0 +1,346 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.options.SequenceGapMode;
+import com.epam.deltix.timebase.messages.service.FeedStatus;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.PackageHeader;
+import com.epam.deltix.timebase.messages.universal.PackageHeaderInfo;
+import com.epam.deltix.timebase.messages.universal.PackageType;
+import com.epam.deltix.util.annotations.Alphanumeric;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * Per exchange tracking of sequence numbers of market data packages with targeted resynchronization on gaps.
+ * <p>
+ * Incremental update package of an exchange is expected to have sequence number of the previous package
+ * of this exchange plus one. Packages with smaller or equal sequence numbers are duplicates and are skipped,
+ * greater sequence number means that packages are lost, then the exchange is handled according to
+ * {@link SequenceGapMode}, while other exchanges of the book continue to be updated.
+ * Snapshot starts new sequence from its sequence number. Packages without sequence numbers are not tracked.
+ * Exchange of package is the exchange of its first entry: all entries of package are assumed to be of one exchange.
+ * <p>
+ * Attach tracker to order book with
+ * {@link com.epam.deltix.orderbook.core.options.BindOrderBookOptionsBuilder#sequenceTracker(OrderBookSequenceTracker)}.
+ * With {@link SequenceGapMode#REPLAY_AFTER_SNAPSHOT} incremental updates are buffered in the journal format,
+ * up to configured number of bytes per exchange; if the buffer overflows, buffered updates are dropped
+ * and the exchange just waits for snapshot. Tracking does not allocate memory, except buffers allocated
+ * on the first gap of an exchange.
+ * <p>
+ * Not thread safe! One instance can be attached to one order book only.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookSequenceTracker {
+
+    /**
+     * Sequence number of exchange which has no tracked packages.
+     */
+    public static final long NO_SEQUENCE = Long.MIN_VALUE;
+
+    /**
+     * Default capacity of buffer of incremental updates of one exchange in bytes.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 1 << 20;
+
+    private final SequenceGapMode mode;
+    private final int bufferCapacity;
+    private final ArrayList<ExchangeSequence> exchanges = new ArrayList<>();
+    private final JournalRecordDecoder decoder = new JournalRecordDecoder();
+
+    private long gaps;
+    private boolean isAttached;
+
+    /**
+     * Creates tracker with {@link #DEFAULT_BUFFER_CAPACITY}.
+     *
+     * @param mode - reaction on gap
+     */
+    public OrderBookSequenceTracker(final SequenceGapMode mode) {
+        this(mode, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * @param mode           - reaction on gap
+     * @param bufferCapacity - capacity of buffer of incremental updates of one exchange in bytes,
+     *                       used with {@link SequenceGapMode#REPLAY_AFTER_SNAPSHOT} only
+     */
+    public OrderBookSequenceTracker(final SequenceGapMode mode, final int bufferCapacity) {
+        Objects.requireNonNull(mode);
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal buffer capacity: " + bufferCapacity);
+        }
+        this.mode = mode;
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public SequenceGapMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of detected gaps of all exchanges
+     */
+    public long getGapCount() {
+        return gaps;
+    }
+
+    /**
+     * @param exchangeId - exchange id
+     * @return sequence number of the last tracked package of exchange or {@link #NO_SEQUENCE}
+     */
+    public long getSequenceNumber(@Alphanumeric final long exchangeId) {
+        final ExchangeSequence exchange = find(exchangeId);
+        return exchange != null ? exchange.sequence : NO_SEQUENCE;
+    }
+
+    /**
+     * Data of exchange is suspect if packages were lost and it has not received snapshot since then.
+     * Used with {@link SequenceGapMode#KEEP_STALE_DATA}.
+     *
+     * @param exchangeId - exchange id
+     * @return true if data of exchange may be stale
+     */
+    public boolean isSuspect(@Alphanumeric final long exchangeId) {
+        final ExchangeSequence exchange = find(exchangeId);
+        return exchange != null && exchange.isSuspect;
+    }
+
+    /**
+     * @return true if data of any exchange may be stale
+     */
+    public boolean isSuspect() {
+        for (int i = 0; i < exchanges.size(); i++) {
+            if (exchanges.get(i).isSuspect) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param exchangeId - exchange id
+     * @return true if incremental updates of exchange are buffered until snapshot
+     */
+    public boolean isBuffering(@Alphanumeric final long exchangeId) {
+        final ExchangeSequence exchange = find(exchangeId);
+        return exchange != null && exchange.isBuffering;
+    }
+
+    /**
+     * Attaches tracker to the order book. Called once by every order book created with tracker.
+     *
+     * @throws IllegalStateException if tracker is already attached to another order book
+     */
+    void attach() {
+        if (isAttached) {
+            throw new IllegalStateException("Sequence tracker is already attached to another order book");
+        }
+        isAttached = true;
+    }
+
+    /**
+     * Tracks sequence number of market data package and applies it to the book, if it is not skipped or buffered.
+     *
+     * @param pck  - market data package
+     * @param book - order book to update
+     * @return true if package (or snapshot with replayed updates) is processed
+     */
+    boolean update(final PackageHeaderInfo pck, final OrderBookDecorator<?, ?> book) {
+        final PackageType type = pck.getPackageType();
+        if (!pck.hasSequenceNumber() || !pck.hasEntries() || pck.getEntries().size() == 0 ||
+                !(OrderBookDecorator.isSnapshot(type) || OrderBookDecorator.isIncrementalUpdate(type))) {
+            return book.updateOrderBook(pck);
+        }
+        final ExchangeSequence exchange = getOrCreate(pck.getEntries().get(0).getExchangeId());
+        if (OrderBookDecorator.isSnapshot(type)) {
+            return onSnapshot(exchange, pck, book);
+        }
+        return onIncrementalUpdate(exchange, pck, pck.getSequenceNumber(), book);
+    }
+
+    /**
+     * Starts new sequence of exchange after disconnect.
+     *
+     * @param msg - security feed status message
+     */
+    void onSecurityFeedStatus(final SecurityFeedStatusMessage msg) {
+        if (msg.getStatus() == FeedStatus.NOT_AVAILABLE) {
+            final ExchangeSequence exchange = find(msg.getExchangeId());
+            if (exchange != null) {
+                exchange.sequence = NO_SEQUENCE;
+                exchange.stopBuffering();
+            }
+        }
+    }
+
+    private boolean onSnapshot(final ExchangeSequence exchange,
+                               final PackageHeaderInfo pck,
+                               final OrderBookDecorator<?, ?> book) {
+        final long sequence = pck.getSequenceNumber();
+        final boolean isProcessed = book.updateOrderBook(pck);
+        if (!isProcessed && exchange.isBuffering) {
+            return false; // still waiting for snapshot
+        }
+        exchange.sequence = sequence;
+        if (isProcessed) {
+            exchange.isSuspect = false;
+        }
+        if (exchange.isBuffering) {
+            replay(exchange, sequence, book);
+        }
+        return isProcessed;
+    }
+
+    private boolean onIncrementalUpdate(final ExchangeSequence exchange,
+                                        final PackageHeaderInfo pck,
+                                        final long sequence,
+                                        final OrderBookDecorator<?, ?> book) {
+        if (exchange.isBuffering) {
+            exchange.buffer(pck, sequence);
+            return false;
+        }
+        if (exchange.sequence != NO_SEQUENCE) {
+            if (sequence <= exchange.sequence) {
+                return false; // duplicate
+            }
+            if (sequence != exchange.sequence + 1) {
+                gaps++;
+                exchange.sequence = sequence;
+                switch (mode) {
+                    case WAITING_FOR_SNAPSHOT:
+                        book.invalidate(exchange.exchangeId);
+                        return false;
+                    case REPLAY_AFTER_SNAPSHOT:
+                        book.invalidate(exchange.exchangeId);
+                        exchange.isBuffering = true;
+                        exchange.buffer(pck, sequence);
+                        return false;
+                    case KEEP_STALE_DATA:
+                    default:
+                        exchange.isSuspect = true;
+                        break;
+                }
+            }
+        }
+        exchange.sequence = sequence;
+        return book.updateOrderBook(pck);
+    }
+
+    /**
+     * Applies buffered updates newer than snapshot. If another gap is found, following updates are buffered again.
+     */
+    private void replay(final ExchangeSequence exchange, final long snapshotSequence, final OrderBookDecorator<?, ?> book) {
+        final ByteBuffer buffer = exchange.swapBuffers();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            final long sequence = buffer.getLong();
+            final int end = buffer.position() + Integer.BYTES + buffer.getInt(buffer.position());
+            buffer.position(buffer.position() + Integer.BYTES + Byte.BYTES);
+            final PackageHeader pck = decoder.readPackageHeader(buffer);
+            buffer.position(end);
+            if (sequence > snapshotSequence) {
+                pck.setSequenceNumber(sequence);
+                onIncrementalUpdate(exchange, pck, sequence, book);
+            }
+        }
+        buffer.clear();
+    }
+
+    private ExchangeSequence getOrCreate(@Alphanumeric final long exchangeId) {
+        ExchangeSequence exchange = find(exchangeId);
+        if (exchange == null) {
+            exchange = new ExchangeSequence(exchangeId);
+            exchanges.add(exchange);
+        }
+        return exchange;
+    }
+
+    private ExchangeSequence find(@Alphanumeric final long exchangeId) {
+        for (int i = 0; i < exchanges.size(); i++) {
+            final ExchangeSequence exchange = exchanges.get(i);
+            if (exchange.exchangeId == exchangeId) {
+                return exchange;
+            }
+        }
+        return null;
+    }
+
+    private final class ExchangeSequence {
+
+        @Alphanumeric
+        private final long exchangeId;
+        private long sequence = NO_SEQUENCE;
+        private boolean isSuspect;
+
+        private boolean isBuffering;
+        // Buffer is dropped on overflow
+        private boolean isOverflow;
+        private ByteBuffer buffer;
+        private ByteBuffer spare;
+
+        private ExchangeSequence(@Alphanumeric final long exchangeId) {
+            this.exchangeId = exchangeId;
+        }
+
+        /**
+         * Appends package to buffer as sequence number followed by journal record.
+         */
+        private void buffer(final PackageHeaderInfo pck, final long sequence) {
+            if (isOverflow) {
+                return;
+            }
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(bufferCapacity);
+            }
+            if (buffer.remaining() < Long.BYTES + OrderBookJournal.getEncodedSize(pck)) {
+                isOverflow = true;
+                buffer.clear();
+                return;
+            }
+            buffer.putLong(sequence);
+            OrderBookJournal.putPackageHeader(pck, buffer);
+        }
+
+        /**
+         * Stops buffering and returns buffered updates to replay; updates buffered during replay go to another buffer.
+         */
+        private ByteBuffer swapBuffers() {
+            final ByteBuffer result = buffer; // empty after overflow
+            isBuffering = false;
+            isOverflow = false;
+            if (spare == null) {
+                spare = ByteBuffer.allocate(bufferCapacity);
+            }
+            buffer = spare;
+            spare = result;
+            return result;
+        }
+
+        private void stopBuffering() {
+            isBuffering = false;
+            isOverflow = false;
+            if (buffer != null) {
+                buffer.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.Exchange;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.Option;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.annotations.Alphanumeric;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp.TIMESTAMP_UNKNOWN;
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.ASK;
+import static com.epam.deltix.timebase.messages.universal.QuoteSide.BID;
+
+/**
+ * Exports current state of an exchange of order book as {@link PackageType#VENDOR_SNAPSHOT} package,
+ * e.g. to republish the book to late joiners.
+ * <p>
+ * Snapshot contains quotes of the exchange in priority order: {@link L1Entry}, {@link L2EntryNew} or
+ * {@link L3EntryNew} (with {@link InsertType#ADD_BACK}) entries depending on quote levels of the book, ASK side first.
+ * Snapshot can be limited to given number of top levels of each side; for L3 book limit is applied to quotes.
+ * Multi-exchange books accept snapshots of one exchange at a time, so the book is exported per exchange.
+ * <p>
+ * Snapshot can be exported into caller provided {@link PackageHeader} or into primitive buffer
+ * as a package header record of {@link OrderBookJournal} layout, so it can be decoded with the same code
+ * as journal records.
+ * <p>
+ * Not thread safe! Exporter keeps pool of reusable entries, so export does not allocate memory
+ * once the pool is warmed up. Exported entries (and quote ids they refer to) are valid until the next export
+ * and the next update of the book.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class OrderBookSnapshotExporter {
+
+    /**
+     * Levels limit which exports the whole book.
+     */
+    public static final int ALL_LEVELS = Integer.MAX_VALUE;
+
+    private final PackageHeader packageHeader = new PackageHeader();
+    private final ObjectArrayList<BaseEntryInfo> entries = new ObjectArrayList<>();
+
+    private final ArrayList<L1Entry> l1Entries = new ArrayList<>();
+    private final ArrayList<L2EntryNew> l2Entries = new ArrayList<>();
+    private final ArrayList<L3EntryNew> l3Entries = new ArrayList<>();
+
+    private long timestamp;
+    private long originalTimestamp;
+
+    /**
+     * Fills package with full snapshot of the exchange.
+     *
+     * @param book       - order book to use
+     * @param exchangeId - exchange to export
+     * @param pck        - destination package
+     * @return true if snapshot is exported, false if exchange is unknown, waiting for snapshot or empty
+     * @see #export(OrderBook, long, int, PackageHeader)
+     */
+    public boolean export(final OrderBook<? extends OrderBookQuote> book,
+                          @Alphanumeric final long exchangeId,
+                          final PackageHeader pck) {
+        return export(book, exchangeId, ALL_LEVELS, pck);
+    }
+
+    /**
+     * Fills package with snapshot of top levels of the exchange.
+     * <p>
+     * Package gets symbol of the book (symbol of the package is kept if book has no symbol), package type,
+     * the latest timestamps of exported quotes and the list of pooled entries of this exporter.
+     * Caller may override timestamps of the package before publishing.
+     *
+     * @param book       - order book to use
+     * @param exchangeId - exchange to export
+     * @param maxLevels  - maximum number of levels of each side, {@link #ALL_LEVELS} to export the whole book
+     * @param pck        - destination package
+     * @return true if snapshot is exported, false if exchange is unknown, waiting for snapshot or empty
+     */
+    public boolean export(final OrderBook<? extends OrderBookQuote> book,
+                          @Alphanumeric final long exchangeId,
+                          final int maxLevels,
+                          final PackageHeader pck) {
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("Illegal number of levels: " + maxLevels);
+        }
+        entries.clear();
+        final Option<? extends Exchange<? extends OrderBookQuote>> exchange = book.getExchanges().getById(exchangeId);
+        if (!exchange.hasValue() || isWaitingForSnapshot(exchange.get())) {
+            return false;
+        }
+
+        timestamp = TIMESTAMP_UNKNOWN;
+        originalTimestamp = TIMESTAMP_UNKNOWN;
+        final DataModelType quoteLevels = book.getQuoteLevels();
+        addSide(exchange.get().getMarketSide(ASK), exchangeId, quoteLevels, maxLevels);
+        addSide(exchange.get().getMarketSide(BID), exchangeId, quoteLevels, maxLevels);
+        if (entries.size() == 0) {
+            return false;
+        }
+
+        final Option<String> symbol = book.getSymbol();
+        if (symbol.hasValue()) {
+            pck.setSymbol(symbol.get());
+        }
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(timestamp);
+        pck.setOriginalTimestamp(originalTimestamp);
+        pck.setEntries(entries);
+        return true;
+    }
+
+    /**
+     * Calculates exact number of bytes required to write snapshot with {@link #write(OrderBook, long, int, ByteBuffer)}.
+     *
+     * @param book       - order book to use
+     * @param exchangeId - exchange to export
+     * @param maxLevels  - maximum number of levels of each side
+     * @return number of bytes or 0 if there is nothing to export
+     */
+    public int getEncodedSize(final OrderBook<? extends OrderBookQuote> book,
+                              @Alphanumeric final long exchangeId,
+                              final int maxLevels) {
+        packageHeader.setSymbol(null);
+        if (!export(book, exchangeId, maxLevels, packageHeader)) {
+            return 0;
+        }
+        return OrderBookJournal.getEncodedSize(packageHeader);
+    }
+
+    /**
+     * Writes snapshot of top levels of the exchange into buffer starting from current buffer position
+     * as a package header record of {@link OrderBookJournal} layout.
+     *
+     * @param book       - order book to use
+     * @param exchangeId - exchange to export
+     * @param maxLevels  - maximum number of levels of each side, {@link #ALL_LEVELS} to export the whole book
+     * @param buffer     - destination buffer
+     * @return number of written bytes or 0 if exchange is unknown, waiting for snapshot or empty
+     * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer
+     * @see #getEncodedSize(OrderBook, long, int)
+     */
+    public int write(final OrderBook<? extends OrderBookQuote> book,
+                     @Alphanumeric final long exchangeId,
+                     final int maxLevels,
+                     final ByteBuffer buffer) {
+        packageHeader.setSymbol(null);
+        if (!export(book, exchangeId, maxLevels, packageHeader)) {
+            return 0;
+        }
+        final int start = buffer.position();
+        OrderBookJournal.putPackageHeader(packageHeader, buffer);
+        return buffer.position() - start;
+    }
+
+    private void addSide(final MarketSide<? extends OrderBookQuote> side,
+                         @Alphanumeric final long exchangeId,
+                         final DataModelType quoteLevels,
+                         final int maxLevels) {
+        int level = 0;
+        for (final OrderBookQuote quote : side) {
+            if (level == maxLevels) {
+                return;
+            }
+            final int idx = entries.size();
+            final BasePriceEntry entry;
+            if (quoteLevels == DataModelType.LEVEL_THREE) {
+                final L3EntryNew l3Entry = borrowL3Entry(idx);
+                l3Entry.setQuoteId(quote.getQuoteId());
+                l3Entry.setParticipantId(quote.getParticipantId());
+                l3Entry.setInsertType(InsertType.ADD_BACK);
+                entry = l3Entry;
+            } else if (quoteLevels == DataModelType.LEVEL_ONE) {
+                entry = borrowL1Entry(idx);
+            } else {
+                final L2EntryNew l2Entry = borrowL2Entry(idx);
+                l2Entry.setLevel((short) level);
+                entry = l2Entry;
+            }
+            entry.setPrice(quote.getPrice());
+            entry.setSize(quote.getSize());
+            entry.setNumberOfOrders(quote.getNumberOfOrders());
+            entry.setExchangeId(exchangeId);
+            entry.setSide(side.getSide());
+            entries.add(entry);
+
+            timestamp = Math.max(timestamp, quote.getTimestamp());
+            originalTimestamp = Math.max(originalTimestamp, quote.getOriginalTimestamp());
+            level++;
+        }
+    }
+
+    private L1Entry borrowL1Entry(final int idx) {
+        while (l1Entries.size() <= idx) {
+            l1Entries.add(new L1Entry());
+        }
+        return l1Entries.get(idx);
+    }
+
+    private L2EntryNew borrowL2Entry(final int idx) {
+        while (l2Entries.size() <= idx) {
+            l2Entries.add(new L2EntryNew());
+        }
+        return l2Entries.get(idx);
+    }
+
+    private L3EntryNew borrowL3Entry(final int idx) {
+        while (l3Entries.size() <= idx) {
+            l3Entries.add(new L3EntryNew());
+        }
+        return l3Entries.get(idx);
+    }
+
+    private static boolean isWaitingForSnapshot(final Exchange<?> exchange) {
+        return exchange instanceof MutableExchange && ((MutableExchange<?, ?>) exchange).isWaitingForSnapshot();
+    }
+
+}
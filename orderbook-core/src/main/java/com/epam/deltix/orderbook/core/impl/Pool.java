@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+/**
+ * Pool of reusable objects with statistics.
+ *
+ * @param <T> type of pooled objects
+ * @author Andrii_Ostapenko1
+ * @see ObjectPool
+ * @see ConcurrentObjectPool
+ */
+public interface Pool<T> {
+
+    /**
+     * Takes idle item from the pool or creates new one by factory if pool is empty.
+     *
+     * @return item
+     */
+    T borrow();
+
+    /**
+     * Returns item to the pool.
+     *
+     * @param item item to release, {@code null} is ignored
+     */
+    void release(T item);
+
+    /**
+     * Creates items until pool holds at least {@code idleSize} idle items (but not more than max idle size).
+     *
+     * @param idleSize desired number of idle items
+     */
+    void prewarm(int idleSize);
+
+    /**
+     * Releases idle items above {@code idleSize} to Java Garbage Collector.
+     *
+     * @param idleSize number of idle items to keep
+     */
+    void trim(int idleSize);
+
+    /**
+     * Clear all entries and release all cached objects to Java Garbage Collector
+     */
+    void clear();
+
+    /**
+     * Number of idle items.
+     */
+    int getTotalSize();
+
+    /**
+     * Number of items borrowed and not yet released.
+     */
+    int getBorrowedCount();
+
+    /**
+     * Max number of items borrowed at the same time.
+     */
+    int getHighWaterMark();
+
+    /**
+     * Number of items created by factory on borrow from empty pool.
+     */
+    long getMissCount();
+
+    /**
+     * Number of items dropped on release because of max idle size.
+     */
+    long getDroppedCount();
+
+    /**
+     * Max number of idle items kept by pool.
+     */
+    int getMaxIdleSize();
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.PriceDirection;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+
+import java.util.Objects;
+
+/**
+ * Market side with quotes indexed by level: price lookups are binary searches over levels.
+ *
+ * @author Andrii_Ostapenko1
+ */
+interface PriceLevelMarketSide<Quote> extends MarketSide<Quote> {
+
+    /**
+     * Get price of quote by level without touching quote instance.
+     *
+     * @param level - existing level
+     * @return price
+     */
+    @Decimal
+    long getPrice(int level);
+
+    @Override
+    default Quote getQuoteByPrice(@Decimal final long price) {
+        final int level = getLevelByPrice(price);
+        return level == NOT_FOUND ? null : getQuote(level);
+    }
+
+    @Override
+    default int getLevelByPrice(@Decimal final long price) {
+        final int level = lowerBound(price);
+        return level < depth() && Decimal64Utils.isEqual(getPrice(level), price) ? level : NOT_FOUND;
+    }
+
+    @Override
+    default int getNearestLevel(@Decimal final long price, final PriceDirection direction) {
+        Objects.requireNonNull(direction);
+        final int level = lowerBound(price);
+        // Search towards worse prices: first level not better than price is the answer
+        if ((getSide() == QuoteSide.ASK) == (direction == PriceDirection.UP)) {
+            return level < depth() ? level : NOT_FOUND;
+        }
+        if (level < depth() && Decimal64Utils.isEqual(getPrice(level), price)) {
+            return level;
+        }
+        // Previous level has better price, find the first quote with it
+        return level == 0 ? NOT_FOUND : lowerBound(getPrice(level - 1));
+    }
+
+    @Override
+    default Quote getNearestQuote(@Decimal final long price, final PriceDirection direction) {
+        final int level = getNearestLevel(price, direction);
+        return level == NOT_FOUND ? null : getQuote(level);
+    }
+
+    /**
+     * Finds the first level with price equal to or worse than given price.
+     *
+     * @param price - price to use
+     * @return level or {@link #depth()} if all prices are better
+     */
+    private int lowerBound(@Decimal final long price) {
+        final boolean isAsk = getSide() == QuoteSide.ASK;
+        int low = 0;
+        int high = depth();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = Decimal64Utils.compareTo(getPrice(mid), price);
+            if (isAsk ? cmp < 0 : cmp > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
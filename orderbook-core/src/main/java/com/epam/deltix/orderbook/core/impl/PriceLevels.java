@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+
+/**
+ * Top price levels of one market side, best first, stored in primitive arrays.
+ * <p>
+ * Levels are distinct prices, so several quotes of consolidated book (or orders of L3 book) with the same price
+ * form one level, its size and number of orders are totals of the quotes.
+ *
+ * @author Andrii_Ostapenko1
+ */
+final class PriceLevels {
+
+    static final PriceLevels EMPTY = new PriceLevels(0);
+
+    final long[] prices;
+    final long[] sizes;
+    final long[] numberOfOrders;
+    int depth;
+
+    PriceLevels(final int maxLevels) {
+        this.prices = new long[maxLevels];
+        this.sizes = new long[maxLevels];
+        this.numberOfOrders = new long[maxLevels];
+    }
+
+    /**
+     * @return max number of levels
+     */
+    int capacity() {
+        return prices.length;
+    }
+
+    /**
+     * Collects top levels of market side, quotes with the same price are merged into one level.
+     *
+     * @param side - market side to use
+     */
+    void collect(final MarketSide<? extends OrderBookQuote> side) {
+        depth = 0;
+        for (final OrderBookQuote quote : side) {
+            @Decimal final long price = quote.getPrice();
+            if (depth > 0 && Decimal64Utils.isEqual(prices[depth - 1], price)) {
+                sizes[depth - 1] = Decimal64Utils.add(sizes[depth - 1], quote.getSize());
+                numberOfOrders[depth - 1] += quote.getNumberOfOrders();
+                continue;
+            }
+            if (depth == prices.length) {
+                return;
+            }
+            prices[depth] = price;
+            sizes[depth] = quote.getSize();
+            numberOfOrders[depth] = quote.getNumberOfOrders();
+            depth++;
+        }
+    }
+
+    void copyFrom(final PriceLevels other) {
+        System.arraycopy(other.prices, 0, prices, 0, other.depth);
+        System.arraycopy(other.sizes, 0, sizes, 0, other.depth);
+        System.arraycopy(other.numberOfOrders, 0, numberOfOrders, 0, other.depth);
+        depth = other.depth;
+    }
+
+    void clear() {
+        depth = 0;
+    }
+
+    int indexOf(final int level) {
+        if (level < 0 || level >= depth) {
+            throw new IndexOutOfBoundsException("Level: " + level + ", depth: " + depth);
+        }
+        return level;
+    }
+
+}
@@ -6,6 +6,9 @@ import com.epam.deltix.orderbook.core.options.Defaults;
 import com.epam.deltix.orderbook.core.options.OrderBookOptions;
 import com.epam.deltix.timebase.messages.universal.DataModelType;
 
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * @author Andrii_Ostapenko1
  */
@@ -18,19 +21,60 @@ public final class QuotePoolFactory {
     }
 
     //TODO add javadoc
-    public static ObjectPool<? extends OrderBookQuote> create(final OrderBookOptions options,
-                                                              final int initialSize) {
-        final ObjectPool<? extends MutableOrderBookQuote> pool;
+    public static Pool<? extends OrderBookQuote> create(final OrderBookOptions options,
+                                                        final int initialSize) {
+        return create(options, initialSize, 0);
+    }
+
+    /**
+     * Creates thread safe quote pool, which can be shared by order books updated from different threads
+     * (see {@link com.epam.deltix.orderbook.core.options.BindOrderBookOptionsBuilder#sharedQuotePool}).
+     * Pool misses are not reported to order book metrics of the options, use {@link Pool#getMissCount()}.
+     *
+     * @param options     options of order books which will use the pool
+     * @param initialSize number of quotes created upfront
+     * @return pool
+     * @see ConcurrentObjectPool
+     */
+    public static Pool<? extends OrderBookQuote> createConcurrent(final OrderBookOptions options,
+                                                                  final int initialSize) {
+        return createConcurrent(options, initialSize, ConcurrentObjectPool.DEFAULT_MAGAZINE_SIZE);
+    }
+
+    /**
+     * Creates thread safe quote pool, which can be shared by order books updated from different threads.
+     *
+     * @param options      options of order books which will use the pool
+     * @param initialSize  number of quotes created upfront
+     * @param magazineSize number of quotes exchanged between thread cache and global depot at once
+     * @return pool
+     * @see ConcurrentObjectPool
+     */
+    public static Pool<? extends OrderBookQuote> createConcurrent(final OrderBookOptions options,
+                                                                  final int initialSize,
+                                                                  final int magazineSize) {
+        if (magazineSize <= 0) {
+            throw new IllegalArgumentException("Illegal magazine size: " + magazineSize);
+        }
+        return create(options, initialSize, magazineSize);
+    }
+
+    private static Pool<? extends OrderBookQuote> create(final OrderBookOptions options,
+                                                         final int initialSize,
+                                                         final int magazineSize) {
+        final Pool<? extends MutableOrderBookQuote> pool;
         // TODO: need to refactor
         final DataModelType quoteLevels = options.getQuoteLevels().get();
+        final int maxIdleSize = options.getMaxQuotePoolIdleSize().orElse(Defaults.MAX_QUOTE_POOL_IDLE_SIZE);
+        final Runnable onMiss = options.getMetrics().hasValue() ? options.getMetrics().get()::onPoolMiss : null;
         if (options.shouldStoreQuoteTimestamps().orElse(Defaults.SHOULD_STORE_QUOTE_TIMESTAMPS)) {
             switch (quoteLevels) {
                 case LEVEL_ONE:
                 case LEVEL_TWO:
-                    pool = new ObjectPool<>(initialSize, MutableOrderBookQuoteTimestampImpl::new, MutableOrderBookQuoteTimestampImpl::release);
+                    pool = newPool(initialSize, MutableOrderBookQuoteTimestampImpl::new, MutableOrderBookQuoteTimestampImpl::release, onMiss, maxIdleSize, magazineSize);
                     break;
                 case LEVEL_THREE:
-                    pool = new ObjectPool<>(initialSize, MutableOrderBookQuoteL3TimestampImpl::new, MutableOrderBookQuoteL3TimestampImpl::release);
+                    pool = newPool(initialSize, MutableOrderBookQuoteL3TimestampImpl::new, MutableOrderBookQuoteL3TimestampImpl::release, onMiss, maxIdleSize, magazineSize);
                     break;
                 default:
                     throw new IllegalArgumentException("Unsupported book type: " + options.getBookType() +
@@ -40,10 +84,10 @@ public final class QuotePoolFactory {
             switch (quoteLevels) {
                 case LEVEL_ONE:
                 case LEVEL_TWO:
-                    pool = new ObjectPool<>(initialSize, MutableOrderBookQuoteImpl::new, MutableOrderBookQuoteImpl::release);
+                    pool = newPool(initialSize, MutableOrderBookQuoteImpl::new, MutableOrderBookQuoteImpl::release, onMiss, maxIdleSize, magazineSize);
                     break;
                 case LEVEL_THREE:
-                    pool = new ObjectPool<>(initialSize, MutableOrderBookQuoteL3Impl::new, MutableOrderBookQuoteL3Impl::release);
+                    pool = newPool(initialSize, MutableOrderBookQuoteL3Impl::new, MutableOrderBookQuoteL3Impl::release, onMiss, maxIdleSize, magazineSize);
                     break;
                 default:
                     throw new IllegalArgumentException("Unsupported book type: " + options.getBookType() +
@@ -53,4 +97,17 @@ public final class QuotePoolFactory {
         }
         return pool;
     }
+
+    private static <Quote extends MutableOrderBookQuote> Pool<Quote> newPool(final int initialSize,
+                                                                             final Supplier<Quote> factory,
+                                                                             final Consumer<Quote> releaseCallback,
+                                                                             final Runnable onMiss,
+                                                                             final int maxIdleSize,
+                                                                             final int magazineSize) {
+        if (magazineSize > 0) {
+            // Metrics of the book are not thread safe, concurrent pool counts misses of all threads itself
+            return new ConcurrentObjectPool<>(initialSize, factory, releaseCallback, null, maxIdleSize, magazineSize);
+        }
+        return new ObjectPool<>(initialSize, factory, releaseCallback, onMiss, maxIdleSize);
+    }
 }
@@ -21,9 +21,8 @@ import com.epam.deltix.orderbook.core.api.OrderBook;
 import com.epam.deltix.orderbook.core.options.Option;
 import com.epam.deltix.timebase.messages.MessageInfo;
 import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
-import com.epam.deltix.timebase.messages.universal.BaseEntryInfo;
-import com.epam.deltix.timebase.messages.universal.BookResetEntryInfo;
-import com.epam.deltix.timebase.messages.universal.PackageHeaderInfo;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.annotations.Alphanumeric;
 
 /**
  * @author Andrii_Ostapenko1
@@ -78,4 +77,34 @@ interface QuoteProcessor<Quote> extends OrderBook<Quote> {
      * @return true if process is success
      */
     boolean processBookResetEntry(PackageHeaderInfo pck, BookResetEntryInfo resetEntry);
+
+    /**
+     * Clears the book and makes it wait for the next snapshot, as if inconsistent market data were received.
+     * Used by multi exchange processors to drop data of a single exchange which is known to be stale.
+     */
+    default void invalidate() {
+        throw new UnsupportedOperationException("Unsupported for processor: " + getDescription());
+    }
+
+    /**
+     * Clears data of given exchange and makes it wait for the next snapshot, data of other exchanges is kept.
+     * Single exchange processors invalidate the whole book.
+     *
+     * @param exchangeId - exchange id
+     */
+    default void invalidate(@Alphanumeric final long exchangeId) {
+        invalidate();
+    }
+
+    /**
+     * Called by order book when market data package is completely applied, never in the middle of package.
+     * Multi exchange processors check here that the best ask is above the best bid
+     * and clear one stale exchange at most per call.
+     *
+     * @return true if data of stale exchange has been cleared
+     * @see com.epam.deltix.orderbook.core.options.CrossedBookMode
+     */
+    default boolean checkCrossedBook() {
+        return false;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+
+/**
+ * Tracks changes of top levels of order book sides, which are used by data derived from the book
+ * (analytics, price buckets), so the data is recalculated only when its part of the book changes.
+ * <p>
+ * After recalculation of a side, owner sets the region of the side the data depends on: number of top levels
+ * (for changes given by level, e.g. L2 entries) and the worst price (for changes given by price, e.g. L3 entries).
+ * Changes beyond the region are ignored, any other change marks the side as changed.
+ *
+ * @author Andrii_Ostapenko1
+ */
+final class TopLevelChanges {
+
+    /**
+     * Level of the change is unknown, the change is checked by price.
+     */
+    static final int UNKNOWN_LEVEL = -1;
+
+    private static final int ASK_INDEX = 0;
+    private static final int BID_INDEX = 1;
+
+    // Changes of levels starting from these ones are ignored
+    private final int[] levels = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+    // Changes of prices worse than these ones are ignored (NaN - nothing is ignored)
+    private final long[] worstPrices = {Decimal64Utils.NaN, Decimal64Utils.NaN};
+    private final boolean[] isChanged = {true, true};
+
+    /**
+     * Records change of one level or quote of the book.
+     *
+     * @param side  - side of the change or {@code null} if both sides could change
+     * @param level - level of the change or {@link #UNKNOWN_LEVEL}
+     * @param price - price of the change or {@link Decimal64Utils#NaN} if unknown
+     */
+    void onChange(final QuoteSide side, final int level, @Decimal final long price) {
+        if (side == null) {
+            onChange();
+            return;
+        }
+        final int index = indexOf(side);
+        if (isChanged[index]) {
+            return;
+        }
+        if (level != UNKNOWN_LEVEL) {
+            isChanged[index] = level < levels[index];
+        } else {
+            @Decimal final long worstPrice = worstPrices[index];
+            isChanged[index] = Decimal64Utils.isNaN(price) || Decimal64Utils.isNaN(worstPrice) ||
+                    (side == QuoteSide.ASK ?
+                            Decimal64Utils.isLessOrEqual(price, worstPrice) :
+                            Decimal64Utils.isGreaterOrEqual(price, worstPrice));
+        }
+    }
+
+    /**
+     * Records change of the whole book (snapshot, reset, clear, rejected entry).
+     */
+    void onChange() {
+        isChanged[ASK_INDEX] = true;
+        isChanged[BID_INDEX] = true;
+    }
+
+    /**
+     * @param side - side to check
+     * @return true if side has changed since its last recalculation
+     */
+    boolean isChanged(final QuoteSide side) {
+        return isChanged[indexOf(side)];
+    }
+
+    /**
+     * Marks side as recalculated.
+     *
+     * @param side       - recalculated side
+     * @param levels     - number of top levels the data depends on, {@link Integer#MAX_VALUE} for all levels
+     * @param worstPrice - the worst price the data depends on, {@link Decimal64Utils#NaN} for all prices
+     */
+    void onRecalculated(final QuoteSide side, final int levels, @Decimal final long worstPrice) {
+        final int index = indexOf(side);
+        this.levels[index] = levels;
+        this.worstPrices[index] = worstPrice;
+        this.isChanged[index] = false;
+    }
+
+    private static int indexOf(final QuoteSide side) {
+        return side == QuoteSide.ASK ? ASK_INDEX : BID_INDEX;
+    }
+
+}
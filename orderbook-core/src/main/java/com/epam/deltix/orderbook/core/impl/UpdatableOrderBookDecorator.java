@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.options.Option;
+import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
+import com.epam.deltix.timebase.messages.universal.InsertType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.QuoteUpdateAction;
+
+/**
+ * {@link OrderBook} which also accepts book changes given as primitives (single exchange books only).
+ *
+ * @author Andrii_Ostapenko1
+ */
+class UpdatableOrderBookDecorator<Quote, Processor extends UpdatableQuoteProcessor<Quote>>
+        extends OrderBookDecorator<Quote, Processor> implements OrderBookUpdater {
+
+    UpdatableOrderBookDecorator(final Option<String> symbol,
+                                final Processor processor,
+                                final Option<OrderBookJournal> journal,
+                                final Option<OrderBookMetrics> metrics,
+                                final Option<OrderBookAnalytics> analytics,
+                                final Option<OrderBookBuckets> buckets,
+                                final Option<OrderBookSequenceTracker> sequenceTracker) {
+        super(symbol, processor, journal, metrics, analytics, buckets, sequenceTracker);
+    }
+
+    @Override
+    public boolean applyL1(final long exchangeId, final QuoteSide side, final long price, final long size,
+                           final long numberOfOrders, final long timestamp) {
+        final boolean isProcess = processor.applyL1(exchangeId, side, price, size, numberOfOrders, timestamp);
+        onApply(isProcess, side, 0, price);
+        return afterUpdate(isProcess);
+    }
+
+    @Override
+    public boolean applyL2New(final long exchangeId, final QuoteSide side, final int level, final long price,
+                              final long size, final long numberOfOrders, final long timestamp) {
+        final boolean isProcess =
+                processor.applyL2New(exchangeId, side, level, price, size, numberOfOrders, timestamp);
+        onApply(isProcess, side, level, price);
+        return afterUpdate(isProcess);
+    }
+
+    @Override
+    public boolean applyL2Update(final long exchangeId, final QuoteSide side, final int level,
+                                 final BookUpdateAction action, final long price, final long size,
+                                 final long numberOfOrders, final long timestamp) {
+        final boolean isProcess =
+                processor.applyL2Update(exchangeId, side, level, action, price, size, numberOfOrders, timestamp);
+        onApply(isProcess, side, level, price);
+        return afterUpdate(isProcess);
+    }
+
+    @Override
+    public boolean applyL3New(final long exchangeId, final QuoteSide side, final InsertType insertType,
+                              final CharSequence quoteId, final CharSequence participantId,
+                              final long price, final long size, final long timestamp) {
+        final boolean isProcess =
+                processor.applyL3New(exchangeId, side, insertType, quoteId, participantId, price, size, timestamp);
+        onApply(isProcess, side, TopLevelChanges.UNKNOWN_LEVEL, price);
+        return afterUpdate(isProcess);
+    }
+
+    @Override
+    public boolean applyL3Update(final long exchangeId, final QuoteSide side, final QuoteUpdateAction action,
+                                 final CharSequence quoteId, final CharSequence participantId,
+                                 final long price, final long size, final long timestamp) {
+        final boolean isProcess =
+                processor.applyL3Update(exchangeId, side, action, quoteId, participantId, price, size, timestamp);
+        if (isProcess) {
+            onChange(side, action, price);
+        } else {
+            onChange();
+        }
+        return afterUpdate(isProcess);
+    }
+
+    private void onApply(final boolean isProcess, final QuoteSide side, final int level, final long price) {
+        if (isProcess) {
+            onChange(side, level, price);
+        } else {
+            // Invalid change may clear the book
+            onChange();
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.impl;
+
+
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.timebase.messages.universal.BookUpdateAction;
+import com.epam.deltix.timebase.messages.universal.InsertType;
+import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.QuoteUpdateAction;
+
+/**
+ * Processor which applies book changes given as primitives, without market data messages.
+ * <p>
+ * Implemented by single exchange processors only. Processor implements methods of its own quote levels,
+ * entries of other quote levels are rejected, as {@link #processIncrementalUpdate} does with such entries.
+ *
+ * @author Andrii_Ostapenko1
+ */
+interface UpdatableQuoteProcessor<Quote> extends QuoteProcessor<Quote>, OrderBookUpdater {
+
+    @Override
+    default boolean applyL1(final long exchangeId, final QuoteSide side, final long price, final long size,
+                            final long numberOfOrders, final long timestamp) {
+        return false;
+    }
+
+    @Override
+    default boolean applyL2New(final long exchangeId, final QuoteSide side, final int level, final long price,
+                               final long size, final long numberOfOrders, final long timestamp) {
+        return false;
+    }
+
+    @Override
+    default boolean applyL2Update(final long exchangeId, final QuoteSide side, final int level,
+                                  final BookUpdateAction action, final long price, final long size,
+                                  final long numberOfOrders, final long timestamp) {
+        return false;
+    }
+
+    @Override
+    default boolean applyL3New(final long exchangeId, final QuoteSide side, final InsertType insertType,
+                               final CharSequence quoteId, final CharSequence participantId,
+                               final long price, final long size, final long timestamp) {
+        return false;
+    }
+
+    @Override
+    default boolean applyL3Update(final long exchangeId, final QuoteSide side, final QuoteUpdateAction action,
+                                  final CharSequence quoteId, final CharSequence participantId,
+                                  final long price, final long size, final long timestamp) {
+        return false;
+    }
+}
@@ -252,6 +252,74 @@ public class RBTree<K, V> {
         return key(getLastEntry());
     }
 
+    /**
+     * Returns the least key greater than or equal to the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key to search for
+     * @return the least key greater than or equal to {@code key}, or {@code null} if there is no such key
+     * @throws ClassCastException if the specified key cannot be compared with the keys currently in the map
+     */
+    public K ceilingKey(final K key) {
+        Entry<K, V> result = null;
+        Entry<K, V> p = root;
+        while (p != null) {
+            final int cmp = compare(key, p.key);
+            if (cmp < 0) {
+                result = p;
+                p = p.left;
+            } else if (cmp > 0) {
+                p = p.right;
+            } else {
+                return p.key;
+            }
+        }
+        return result == null ? null : result.key;
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key to search for
+     * @return the least key greater than {@code key}, or {@code null} if there is no such key
+     * @throws ClassCastException if the specified key cannot be compared with the keys currently in the map
+     */
+    public K higherKey(final K key) {
+        Entry<K, V> result = null;
+        Entry<K, V> p = root;
+        while (p != null) {
+            final int cmp = compare(key, p.key);
+            if (cmp < 0) {
+                result = p;
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        }
+        return result == null ? null : result.key;
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key to search for
+     * @return the greatest key less than {@code key}, or {@code null} if there is no such key
+     * @throws ClassCastException if the specified key cannot be compared with the keys currently in the map
+     */
+    public K lowerKey(final K key) {
+        Entry<K, V> result = null;
+        Entry<K, V> p = root;
+        while (p != null) {
+            final int cmp = compare(key, p.key);
+            if (cmp > 0) {
+                result = p;
+                p = p.right;
+            } else {
+                p = p.left;
+            }
+        }
+        return result == null ? null : result.key;
+    }
+
     /**
      * Returns this map's entry for the given key, or {@code null} if the map
      * does not contain an entry for the key.
@@ -776,12 +844,16 @@ public class RBTree<K, V> {
     /**
      * Linear time tree building algorithm from sorted data.
      * It is assumed that the comparator of the TreeMap is already set prior
-     * to calling this method.
+     * to calling this method. Current entries of the tree are released.
      *
      * @param values new entries are created from entries
      *               in this array.
      */
     public void buildFromSorted(final ArrayList<V> values) {
+        if (root != null) {
+            clear();
+        }
+        modCount++;
         size = values.size();
         currentIndex = 0;
         root = buildFromSorted(0, 0, size - 1, computeRedLevel(size), values);
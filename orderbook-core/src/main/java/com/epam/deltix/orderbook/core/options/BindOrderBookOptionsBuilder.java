@@ -17,9 +17,15 @@
 package com.epam.deltix.orderbook.core.options;
 
 
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
 import com.epam.deltix.orderbook.core.api.ErrorListener;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.api.OrderBookQuote;
-import com.epam.deltix.orderbook.core.impl.ObjectPool;
+import com.epam.deltix.orderbook.core.impl.OrderBookAnalytics;
+import com.epam.deltix.orderbook.core.impl.OrderBookBuckets;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.orderbook.core.impl.OrderBookSequenceTracker;
+import com.epam.deltix.orderbook.core.impl.Pool;
 import com.epam.deltix.timebase.messages.universal.DataModelType;
 
 /**
@@ -123,7 +129,10 @@ public interface BindOrderBookOptionsBuilder {
 
     /**
      * How large maximum (limit) depth of market should be?
-     * Supported for L2 quote level
+     * Supported for L2 and L3 quote levels.
+     * <p>
+     * Aggregated and consolidated books keep only the best {@code maxDepth} levels (quotes for consolidated) of
+     * merged side, deeper levels of exchanges are promoted when top levels are removed.
      *
      * @param value initial max depth.
      * @return builder
@@ -180,17 +189,45 @@ public interface BindOrderBookOptionsBuilder {
      */
     BindOrderBookOptionsBuilder errorListener(ErrorListener errorListener);
 
+    /**
+     * How consolidated and aggregated order books will react on crossed or locked state
+     * (best ask of one exchange is not above best bid of another one).
+     *
+     * @param mode to use
+     * @return builder
+     * @see Defaults#CROSSED_BOOK_MODE
+     * @see OrderBookType#CONSOLIDATED
+     * @see OrderBookType#AGGREGATED
+     */
+    BindOrderBookOptionsBuilder crossedBookMode(CrossedBookMode mode);
+
+    /**
+     * Handler of crossed or locked state of consolidated and aggregated order books,
+     * receives exchanges of the best ask and the best bid.
+     * <p>
+     * By default, crossed book is not reported ({@link Defaults#CROSSED_BOOK_LISTENER}).
+     *
+     * @param listener listener to use
+     * @return builder
+     * @see #crossedBookMode(CrossedBookMode)
+     */
+    BindOrderBookOptionsBuilder crossedBookListener(CrossedBookListener listener);
+
     //TODO add javadoc
     BindOrderBookOptionsBuilder sharedQuotePool(int initialSize);
 
     //TODO This method may not make sense
 
     /**
-     * When defined allows sharing pool of OrderBookQuote objects between multiple order books
+     * When defined allows sharing pool of OrderBookQuote objects between multiple order books.
+     * Regular pool is not thread safe, use {@link com.epam.deltix.orderbook.core.impl.QuotePoolFactory#createConcurrent}
+     * to share the pool between books updated from different threads. Every updating thread caches some quotes
+     * of the concurrent pool: call {@link com.epam.deltix.orderbook.core.impl.ConcurrentObjectPool#releaseThreadCache()}
+     * from a worker thread which stops updating the books, caches of terminated threads are reclaimed by the pool lazily.
      * @param sharedObjectPool shared object pool to use
      * @return builder
      */
-    BindOrderBookOptionsBuilder sharedQuotePool(ObjectPool<? extends OrderBookQuote> sharedObjectPool);
+    BindOrderBookOptionsBuilder sharedQuotePool(Pool<? extends OrderBookQuote> sharedObjectPool);
 
     /**
      * Use compact version of order book?
@@ -202,4 +239,86 @@ public interface BindOrderBookOptionsBuilder {
      * @return builder
      */
     BindOrderBookOptionsBuilder isCompactVersion(boolean value);
+
+    /**
+     * Journal of inbound market data.
+     * If you set this option, every market data package and security feed status message accepted by the order book
+     * (i.e. matching the book symbol) is appended to the journal before processing,
+     * so the book can be later rebuilt with {@link com.epam.deltix.orderbook.core.impl.OrderBookJournalReader}.
+     * Call {@link OrderBookJournal#flush()} periodically outside the hot path.
+     * Journal may be shared by order books updated from one thread only, append from other thread throws
+     * {@link IllegalStateException}.
+     * <p>
+     * By default, journal is not used.
+     *
+     * @param journal journal to use
+     * @return builder
+     */
+    BindOrderBookOptionsBuilder journal(OrderBookJournal journal);
+
+    /**
+     * Sink of order book processing metrics: processed packages, rejected entries, broken book events,
+     * quote pool misses and (optionally) update latencies.
+     * <p>
+     * By default, metrics are not collected ({@link Defaults#METRICS}).
+     *
+     * @param metrics metrics to use
+     * @return builder
+     * @see com.epam.deltix.orderbook.core.impl.CountingOrderBookMetrics
+     */
+    BindOrderBookOptionsBuilder metrics(OrderBookMetrics metrics);
+
+    /**
+     * Microstructure analytics (imbalance, microprice, weighted mid over top levels) kept up to date by the order book.
+     * If you set this option, metrics are recalculated after messages which change top levels of the book
+     * (changes deeper than the maximal depth are ignored) and can be read from analytics in constant time.
+     * Analytics instance must not be shared between order books: creation of the second order book with the same
+     * instance (e.g. from the same or inherited options) throws {@link IllegalStateException}.
+     * <p>
+     * By default, analytics is not calculated.
+     *
+     * @param analytics analytics to use
+     * @return builder
+     */
+    BindOrderBookOptionsBuilder analytics(OrderBookAnalytics analytics);
+
+    /**
+     * Views of the order book with prices coarsened to buckets of configured sizes, kept up to date by the order book.
+     * If you set this option, buckets of changed sides are rebuilt after messages which change quotes within
+     * the last buckets, reads never access the book. Buckets instance belongs to one order book,
+     * factory throws {@link IllegalStateException} if it is already attached to another one.
+     * <p>
+     * By default, buckets are not calculated.
+     *
+     * @param buckets buckets to use
+     * @return builder
+     */
+    BindOrderBookOptionsBuilder buckets(OrderBookBuckets buckets);
+
+    /**
+     * Per exchange tracking of sequence numbers of market data packages.
+     * If you set this option, lost packages of an exchange are detected by gaps in sequence numbers
+     * and only this exchange is resynchronized, according to {@link SequenceGapMode} of the tracker.
+     * Options with tracker can be used to create one order book only, the next one is rejected
+     * with {@link IllegalStateException}.
+     * <p>
+     * By default, sequence numbers are not tracked.
+     *
+     * @param sequenceTracker tracker to use
+     * @return builder
+     */
+    BindOrderBookOptionsBuilder sequenceTracker(OrderBookSequenceTracker sequenceTracker);
+
+    /**
+     * Max number of idle quotes kept by quote pool of the order book (or by shared quote pool,
+     * if it is created with these options). Quotes released above this limit are dropped
+     * and collected by Java Garbage Collector, which bounds memory retained after bursts of market activity.
+     * <p>
+     * By default, quote pool is unbounded ({@link Defaults#MAX_QUOTE_POOL_IDLE_SIZE}).
+     *
+     * @param maxIdleSize max number of idle quotes
+     * @return builder
+     * @see com.epam.deltix.orderbook.core.impl.Pool#trim(int)
+     */
+    BindOrderBookOptionsBuilder maxQuotePoolIdleSize(int maxIdleSize);
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.options;
+
+/**
+ * Enumeration of possible values for customization of the reaction of consolidated and aggregated order books
+ * on crossed or locked state, when the best ask of one exchange is not above the best bid of another one
+ * (usually because feed of one exchange stalls and its quotes are stale).
+ *
+ * @author Andrii_Ostapenko1
+ * @see com.epam.deltix.orderbook.core.api.CrossedBookListener
+ */
+public enum CrossedBookMode {
+    /**
+     * Only report crossed book to listener, keep data of all exchanges.
+     */
+    REPORT,
+    /**
+     * Report crossed book to listener, then clear data of stale exchange and wait for its snapshot.
+     * Stale is the exchange which was not updated last; if the exchange is crossed itself, this exchange is cleared.
+     * Book is checked when market data package is completely applied and one exchange at most is cleared per package.
+     */
+    CLEAR_STALE_EXCHANGE
+}
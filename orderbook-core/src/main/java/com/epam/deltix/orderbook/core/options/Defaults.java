@@ -17,7 +17,9 @@
 package com.epam.deltix.orderbook.core.options;
 
 
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
 import com.epam.deltix.orderbook.core.api.ErrorListener;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.timebase.messages.universal.DataModelType;
 
 /**
@@ -82,13 +84,34 @@ public final class Defaults {
      */
     public static final Integer INITIAL_EXCHANGES_POOL_SIZE = 1;
 
+    /**
+     * Max number of idle quotes kept by quote pool: unbounded.
+     */
+    public static final Integer MAX_QUOTE_POOL_IDLE_SIZE = Integer.MAX_VALUE;
+
     /**
      * Default {@link DisconnectMode}.
      */
     public static final DisconnectMode DISCONNECT_MODE = DisconnectMode.CLEAR_EXCHANGE;
 
+    /**
+     * Default {@link CrossedBookMode}.
+     */
+    public static final CrossedBookMode CROSSED_BOOK_MODE = CrossedBookMode.REPORT;
+
+    /**
+     * Default {@link CrossedBookListener}: no-op.
+     */
+    public static final CrossedBookListener CROSSED_BOOK_LISTENER = (askExchangeId, bidExchangeId, askPrice, bidPrice) -> {
+    };
+
     public static final ErrorListener DEFAULT_ERROR_LISTENER = (message, errorCode)
             -> System.err.println("Error parsing message for " + message.getSymbol() + " at " + message.getTimeStampMs() + ": " + errorCode);
 
+    /**
+     * Default {@link OrderBookMetrics}: no-op.
+     */
+    public static final OrderBookMetrics METRICS = new OrderBookMetrics() {
+    };
 
 }
@@ -17,9 +17,15 @@
 package com.epam.deltix.orderbook.core.options;
 
 
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
 import com.epam.deltix.orderbook.core.api.ErrorListener;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.api.OrderBookQuote;
-import com.epam.deltix.orderbook.core.impl.ObjectPool;
+import com.epam.deltix.orderbook.core.impl.OrderBookAnalytics;
+import com.epam.deltix.orderbook.core.impl.OrderBookBuckets;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.orderbook.core.impl.OrderBookSequenceTracker;
+import com.epam.deltix.orderbook.core.impl.Pool;
 import com.epam.deltix.timebase.messages.universal.DataModelType;
 
 /**
@@ -116,11 +122,25 @@ public interface OrderBookOptions {
     //TODO add javadoc
     Option<ErrorListener> getErrorListener();
 
+    /**
+     * How consolidated and aggregated order books will react on crossed or locked state.
+     *
+     * @return crossedBookMode.
+     */
+    Option<CrossedBookMode> getCrossedBookMode();
+
+    /**
+     * Handler of crossed or locked state of consolidated and aggregated order books.
+     *
+     * @return crossed book listener.
+     */
+    Option<CrossedBookListener> getCrossedBookListener();
+
     //TODO add javadoc
     Option<Integer> getInitialSharedQuotePoolSize();
 
     //TODO add javadoc
-    Option<ObjectPool<? extends OrderBookQuote>> getSharedObjectPool();
+    Option<Pool<? extends OrderBookQuote>> getSharedObjectPool();
 
     /**
      * Whether compact version of L2 order book is used
@@ -128,4 +148,46 @@ public interface OrderBookOptions {
      * @return flag
      */
     Option<Boolean> isCompactVersion();
+
+    /**
+     * Journal of inbound market data.
+     *
+     * @return journal
+     */
+    Option<OrderBookJournal> getJournal();
+
+    /**
+     * Sink of order book processing metrics.
+     *
+     * @return metrics
+     */
+    Option<OrderBookMetrics> getMetrics();
+
+    /**
+     * Microstructure analytics of the order book.
+     *
+     * @return analytics
+     */
+    Option<OrderBookAnalytics> getAnalytics();
+
+    /**
+     * Price-bucketed views of the order book.
+     *
+     * @return buckets
+     */
+    Option<OrderBookBuckets> getBuckets();
+
+    /**
+     * Tracker of sequence numbers of market data packages.
+     *
+     * @return sequence tracker
+     */
+    Option<OrderBookSequenceTracker> getSequenceTracker();
+
+    /**
+     * Max number of idle quotes kept by quote pool.
+     *
+     * @return max idle size
+     */
+    Option<Integer> getMaxQuotePoolIdleSize();
 }
@@ -16,9 +16,15 @@
  */
 package com.epam.deltix.orderbook.core.options;
 
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
 import com.epam.deltix.orderbook.core.api.ErrorListener;
+import com.epam.deltix.orderbook.core.api.OrderBookMetrics;
 import com.epam.deltix.orderbook.core.api.OrderBookQuote;
-import com.epam.deltix.orderbook.core.impl.ObjectPool;
+import com.epam.deltix.orderbook.core.impl.OrderBookAnalytics;
+import com.epam.deltix.orderbook.core.impl.OrderBookBuckets;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.orderbook.core.impl.OrderBookSequenceTracker;
+import com.epam.deltix.orderbook.core.impl.Pool;
 import com.epam.deltix.orderbook.core.impl.QuotePoolFactory;
 import com.epam.deltix.timebase.messages.universal.DataModelType;
 
@@ -38,9 +44,17 @@ public class OrderBookOptionsBuilder implements OrderBookOptions, BindOrderBookO
     private Option<DisconnectMode> disconnectMode = Option.empty();
     private Option<ResetMode> resetMode = Option.empty();
     private Option<ErrorListener> errorListener = Option.empty();
+    private Option<CrossedBookMode> crossedBookMode = Option.empty();
+    private Option<CrossedBookListener> crossedBookListener = Option.empty();
     private Option<Integer> initialSharedQuotePoolSize = Option.empty();
-    private Option<ObjectPool<? extends OrderBookQuote>> sharedObjectPool = Option.empty();
+    private Option<Pool<? extends OrderBookQuote>> sharedObjectPool = Option.empty();
     private Option<Boolean> isCompactVersion = Option.empty();
+    private Option<OrderBookJournal> journal = Option.empty();
+    private Option<OrderBookMetrics> metrics = Option.empty();
+    private Option<OrderBookAnalytics> analytics = Option.empty();
+    private Option<OrderBookBuckets> buckets = Option.empty();
+    private Option<OrderBookSequenceTracker> sequenceTracker = Option.empty();
+    private Option<Integer> maxQuotePoolIdleSize = Option.empty();
 
     @Override
     public BindOrderBookOptionsBuilder parent(final OrderBookOptions other) {
@@ -237,6 +251,36 @@ public class OrderBookOptionsBuilder implements OrderBookOptions, BindOrderBookO
         }
     }
 
+    @Override
+    public BindOrderBookOptionsBuilder crossedBookMode(final CrossedBookMode mode) {
+        this.crossedBookMode = Option.wrap(mode);
+        return this;
+    }
+
+    @Override
+    public Option<CrossedBookMode> getCrossedBookMode() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getCrossedBookMode().orAnother(crossedBookMode);
+        } else {
+            return crossedBookMode;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder crossedBookListener(final CrossedBookListener listener) {
+        this.crossedBookListener = Option.wrap(listener);
+        return this;
+    }
+
+    @Override
+    public Option<CrossedBookListener> getCrossedBookListener() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getCrossedBookListener().orAnother(crossedBookListener);
+        } else {
+            return crossedBookListener;
+        }
+    }
+
     @Override
     public Option<Integer> getInitialSharedQuotePoolSize() {
         if (otherOptions.hasValue()) {
@@ -253,13 +297,13 @@ public class OrderBookOptionsBuilder implements OrderBookOptions, BindOrderBookO
     }
 
     @Override
-    public BindOrderBookOptionsBuilder sharedQuotePool(final ObjectPool<? extends OrderBookQuote> sharedObjectPool) {
+    public BindOrderBookOptionsBuilder sharedQuotePool(final Pool<? extends OrderBookQuote> sharedObjectPool) {
         this.sharedObjectPool = Option.wrap(sharedObjectPool);
         return this;
     }
 
     @Override
-    public Option<ObjectPool<? extends OrderBookQuote>> getSharedObjectPool() {
+    public Option<Pool<? extends OrderBookQuote>> getSharedObjectPool() {
         if (sharedObjectPool.hasValue()) {
             return otherOptions.get().getSharedObjectPool().orAnother(sharedObjectPool);
         } else {
@@ -297,4 +341,94 @@ public class OrderBookOptionsBuilder implements OrderBookOptions, BindOrderBookO
         }
     }
 
+    @Override
+    public BindOrderBookOptionsBuilder journal(final OrderBookJournal journal) {
+        this.journal = Option.wrap(journal);
+        return this;
+    }
+
+    @Override
+    public Option<OrderBookJournal> getJournal() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getJournal().orAnother(journal);
+        } else {
+            return journal;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder metrics(final OrderBookMetrics metrics) {
+        this.metrics = Option.wrap(metrics);
+        return this;
+    }
+
+    @Override
+    public Option<OrderBookMetrics> getMetrics() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getMetrics().orAnother(metrics);
+        } else {
+            return metrics;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder analytics(final OrderBookAnalytics analytics) {
+        this.analytics = Option.wrap(analytics);
+        return this;
+    }
+
+    @Override
+    public Option<OrderBookAnalytics> getAnalytics() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getAnalytics().orAnother(analytics);
+        } else {
+            return analytics;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder buckets(final OrderBookBuckets buckets) {
+        this.buckets = Option.wrap(buckets);
+        return this;
+    }
+
+    @Override
+    public Option<OrderBookBuckets> getBuckets() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getBuckets().orAnother(buckets);
+        } else {
+            return buckets;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder sequenceTracker(final OrderBookSequenceTracker sequenceTracker) {
+        this.sequenceTracker = Option.wrap(sequenceTracker);
+        return this;
+    }
+
+    @Override
+    public Option<OrderBookSequenceTracker> getSequenceTracker() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getSequenceTracker().orAnother(sequenceTracker);
+        } else {
+            return sequenceTracker;
+        }
+    }
+
+    @Override
+    public BindOrderBookOptionsBuilder maxQuotePoolIdleSize(final int maxIdleSize) {
+        this.maxQuotePoolIdleSize = Option.wrap(maxIdleSize);
+        return this;
+    }
+
+    @Override
+    public Option<Integer> getMaxQuotePoolIdleSize() {
+        if (otherOptions.hasValue()) {
+            return otherOptions.get().getMaxQuotePoolIdleSize().orAnother(maxQuotePoolIdleSize);
+        } else {
+            return maxQuotePoolIdleSize;
+        }
+    }
+
 }
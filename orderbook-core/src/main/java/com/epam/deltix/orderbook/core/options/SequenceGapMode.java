@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core.options;
+
+/**
+ * Enumeration of possible values for customization of the reaction of order book on a gap in sequence numbers
+ * of incremental update packages of one exchange (some packages are lost).
+ *
+ * @author Andrii_Ostapenko1
+ * @see com.epam.deltix.orderbook.core.impl.OrderBookSequenceTracker
+ */
+public enum SequenceGapMode {
+    /**
+     * Clear data of the exchange and wait for its next snapshot. Other exchanges of the book are not affected.
+     */
+    WAITING_FOR_SNAPSHOT,
+    /**
+     * Keep applying incremental updates to possibly stale data of the exchange, which is flagged as suspect
+     * until its next snapshot.
+     */
+    KEEP_STALE_DATA,
+    /**
+     * Clear data of the exchange and wait for its next snapshot, buffering incremental updates in the meantime.
+     * Buffered updates with sequence numbers greater than sequence number of the snapshot are applied right after it.
+     */
+    REPLAY_AFTER_SNAPSHOT
+}
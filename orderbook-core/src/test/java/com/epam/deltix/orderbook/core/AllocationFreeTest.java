@@ -0,0 +1,339 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.service.FeedStatus;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Regression gate for "no memory allocations in main processing cycle": every book type runs steady-state
+ * workloads and test fails if calling thread allocates any bytes during measured operations.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public class AllocationFreeTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+    private static final String PARTICIPANT_ID = "PARTICIPANT";
+
+    private static final int WARMUP_ITERATIONS = 50_000;
+    private static final int ITERATIONS = 10_000;
+    private static final int ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Non-capturing, so iteration doesn't allocate lambda
+    private static final Predicate<OrderBookQuote> VISITOR = quote -> quote.getSize() != Decimal64Utils.ZERO;
+
+    static Stream<Arguments> books() {
+        return Stream.of(
+                Arguments.of(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false, false),
+                Arguments.of(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false, true),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false, false),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false, true),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, true, false),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false, false),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false, true),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false, false),
+                Arguments.of(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false, true),
+                Arguments.of(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false, false),
+                Arguments.of(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false, true),
+                Arguments.of(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false, false),
+                Arguments.of(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false, true));
+    }
+
+    @ParameterizedTest
+    @MethodSource("books")
+    public void incrementalUpdate(final DataModelType quoteLevels,
+                                  final OrderBookType type,
+                                  final boolean isCompact,
+                                  final boolean withTimestamps) {
+        final OrderBook<OrderBookQuote> book = createBook(quoteLevels, type, isCompact, withTimestamps);
+        final PackageHeader update = incrementalUpdate(quoteLevels);
+        assertAllocationFree(() -> Assertions.assertTrue(book.update(update)), book);
+    }
+
+    @ParameterizedTest
+    @MethodSource("books")
+    public void snapshot(final DataModelType quoteLevels,
+                         final OrderBookType type,
+                         final boolean isCompact,
+                         final boolean withTimestamps) {
+        final OrderBook<OrderBookQuote> book = createBook(quoteLevels, type, isCompact, withTimestamps);
+        final PackageHeader snapshot = snapshot(quoteLevels);
+        assertAllocationFree(() -> Assertions.assertTrue(book.update(snapshot)), book);
+    }
+
+    @ParameterizedTest
+    @MethodSource("books")
+    public void reset(final DataModelType quoteLevels,
+                      final OrderBookType type,
+                      final boolean isCompact,
+                      final boolean withTimestamps) {
+        final OrderBook<OrderBookQuote> book = createBook(quoteLevels, type, isCompact, withTimestamps);
+        final PackageHeader snapshot = snapshot(quoteLevels);
+        assertAllocationFree(() -> {
+            book.clear();
+            Assertions.assertTrue(book.update(snapshot));
+        }, book);
+    }
+
+    @ParameterizedTest
+    @MethodSource("books")
+    public void disconnect(final DataModelType quoteLevels,
+                           final OrderBookType type,
+                           final boolean isCompact,
+                           final boolean withTimestamps) {
+        final OrderBook<OrderBookQuote> book = createBook(quoteLevels, type, isCompact, withTimestamps);
+        final PackageHeader snapshot = snapshot(quoteLevels);
+        final SecurityFeedStatusMessage disconnect = new SecurityFeedStatusMessage();
+        disconnect.setSymbol(SYMBOL);
+        disconnect.setExchangeId(COINBASE);
+        disconnect.setStatus(FeedStatus.NOT_AVAILABLE);
+        assertAllocationFree(() -> {
+            book.update(disconnect);
+            Assertions.assertTrue(book.update(snapshot));
+        }, book);
+    }
+
+    @ParameterizedTest
+    @MethodSource("books")
+    public void iteration(final DataModelType quoteLevels,
+                          final OrderBookType type,
+                          final boolean isCompact,
+                          final boolean withTimestamps) {
+        final OrderBook<OrderBookQuote> book = createBook(quoteLevels, type, isCompact, withTimestamps);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+        final MarketSide<OrderBookQuote> bids = book.getMarketSide(QuoteSide.BID);
+        assertAllocationFree(() -> {
+            int count = 0;
+            for (final OrderBookQuote quote : asks) {
+                if (quote.getSize() != Decimal64Utils.ZERO) {
+                    count++;
+                }
+            }
+            bids.forEach(VISITOR);
+            Assertions.assertEquals(asks.depth(), count);
+        }, book);
+    }
+
+    /**
+     * Runs operation in warmed-up steady state and checks that calling thread doesn't allocate.
+     */
+    private static void assertAllocationFree(final Runnable operation, final OrderBook<OrderBookQuote> book) {
+        Assumptions.assumeTrue(THREAD_BEAN.isThreadAllocatedMemorySupported());
+        THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+
+        // Reading of allocated bytes may allocate itself (e.g. result array of MXBean call). Measured interval
+        // contains exactly one reading (the closing one), so its cost is measured once and subtracted
+        long readingCost = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            readingCost = Math.min(readingCost, THREAD_BEAN.getThreadAllocatedBytes(threadId) - start);
+        }
+
+        // Total of all rounds: even a single allocation in a single round fails the test
+        long allocated = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ITERATIONS; i++) {
+                operation.run();
+            }
+            final long end = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            allocated += end - start - readingCost;
+        }
+        Assertions.assertEquals(0, allocated,
+                "Allocated " + allocated + " byte(s) per " + ROUNDS * ITERATIONS + " operations: " +
+                        book.getDescription());
+    }
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                        final OrderBookType type,
+                                                        final boolean isCompact,
+                                                        final boolean withTimestamps) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .isCompactVersion(isCompact)
+                .shouldStoreQuoteTimestamps(withTimestamps)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        final OrderBook<OrderBookQuote> book = OrderBookFactory.create(opt);
+        Assertions.assertTrue(book.update(snapshot(quoteLevels)));
+        return book;
+    }
+
+    /**
+     * Three quotes (levels) per side: asks 101, 102, 103 and bids 99, 98, 97.
+     */
+    private static PackageHeader snapshot(final DataModelType quoteLevels) {
+        final PackageHeader pck = newPackage(PackageType.VENDOR_SNAPSHOT);
+        if (quoteLevels == DataModelType.LEVEL_ONE) {
+            pck.getEntries().add(l1(QuoteSide.ASK, 101));
+            pck.getEntries().add(l1(QuoteSide.BID, 99));
+            return pck;
+        }
+        for (int i = 0; i < 3; i++) {
+            if (quoteLevels == DataModelType.LEVEL_TWO) {
+                pck.getEntries().add(l2New(QuoteSide.ASK, i, 101 + i));
+            } else {
+                pck.getEntries().add(l3New(QuoteSide.ASK, "A" + i, 101 + i, 1));
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (quoteLevels == DataModelType.LEVEL_TWO) {
+                pck.getEntries().add(l2New(QuoteSide.BID, i, 99 - i));
+            } else {
+                pck.getEntries().add(l3New(QuoteSide.BID, "B" + i, 99 - i, 1));
+            }
+        }
+        return pck;
+    }
+
+    /**
+     * Package which leaves the book in the same state, so it can be applied in a loop.
+     * L2: insert of new best ask, its delete and update of the best bid.
+     * L3: add of new order, its modify, replace and cancel.
+     */
+    private static PackageHeader incrementalUpdate(final DataModelType quoteLevels) {
+        final PackageHeader pck = newPackage(PackageType.INCREMENTAL_UPDATE);
+        switch (quoteLevels) {
+            case LEVEL_ONE:
+                pck.getEntries().add(l1(QuoteSide.ASK, 100));
+                pck.getEntries().add(l1(QuoteSide.ASK, 101));
+                break;
+            case LEVEL_TWO:
+                pck.getEntries().add(l2New(QuoteSide.ASK, 0, 100));
+                pck.getEntries().add(l2Update(QuoteSide.ASK, 0, BookUpdateAction.DELETE, 100));
+                pck.getEntries().add(l2Update(QuoteSide.BID, 0, BookUpdateAction.UPDATE, 99));
+                break;
+            case LEVEL_THREE:
+                pck.getEntries().add(l3New(QuoteSide.ASK, "N", 101, 2));
+                pck.getEntries().add(l3Update(QuoteSide.ASK, "N", QuoteUpdateAction.MODIFY, 101, 1));
+                pck.getEntries().add(l3Update(QuoteSide.ASK, "N", QuoteUpdateAction.REPLACE, 102, 1));
+                pck.getEntries().add(l3Update(QuoteSide.ASK, "N", QuoteUpdateAction.CANCEL, 102, 1));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported quote levels: " + quoteLevels);
+        }
+        return pck;
+    }
+
+    private static PackageHeader newPackage(final PackageType type) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private static L1Entry l1(final QuoteSide side, final int price) {
+        final L1Entry entry = new L1Entry();
+        entry.setSide(side);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L2EntryNew l2New(final QuoteSide side, final int level, final int price) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L2EntryUpdate l2Update(final QuoteSide side,
+                                          final int level,
+                                          final BookUpdateAction action,
+                                          final int price) {
+        final L2EntryUpdate entry = new L2EntryUpdate();
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setAction(action);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L3EntryNew l3New(final QuoteSide side, final String quoteId, final int price, final int size) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setSide(side);
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setQuoteId(quoteId);
+        entry.setParticipantId(PARTICIPANT_ID);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L3EntryUpdate l3Update(final QuoteSide side,
+                                          final String quoteId,
+                                          final QuoteUpdateAction action,
+                                          final int price,
+                                          final int size) {
+        final L3EntryUpdate entry = new L3EntryUpdate();
+        entry.setSide(side);
+        entry.setQuoteId(quoteId);
+        entry.setParticipantId(PARTICIPANT_ID);
+        entry.setAction(action);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+}
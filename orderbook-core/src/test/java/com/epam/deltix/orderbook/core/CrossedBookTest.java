@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.CrossedBookListener;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.CrossedBookMode;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class CrossedBookTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final long KRAKEN = AlphanumericUtils.toAlphanumericUInt64("KRAKEN");
+    private static final String SYMBOL = "BTC";
+
+    private final List<long[]> crosses = new ArrayList<>();
+    private final CrossedBookListener listener = (askExchangeId, bidExchangeId, askPrice, bidPrice) ->
+            crosses.add(new long[]{askExchangeId, bidExchangeId, askPrice, bidPrice});
+
+    private OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                 final OrderBookType type,
+                                                 final CrossedBookMode mode) {
+        return OrderBookFactory.create(new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .crossedBookMode(mode)
+                .crossedBookListener(listener)
+                .build());
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final BaseEntryInfo... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final BaseEntryInfo entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final long exchangeId, final QuoteSide side, final int level, final int price) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static L2EntryUpdate l2Delete(final long exchangeId, final QuoteSide side, final int level, final int price) {
+        final L2EntryUpdate entry = new L2EntryUpdate();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setAction(BookUpdateAction.DELETE);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static L3EntryNew l3New(final long exchangeId, final QuoteSide side, final String quoteId, final int price) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setSide(side);
+        entry.setQuoteId(quoteId);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        return entry;
+    }
+
+    private static PackageHeader l2Snapshot(final long exchangeId, final int bestAsk, final int bestBid) {
+        return newPackage(PackageType.VENDOR_SNAPSHOT,
+                l2New(exchangeId, QuoteSide.ASK, 0, bestAsk),
+                l2New(exchangeId, QuoteSide.ASK, 1, bestAsk + 1),
+                l2New(exchangeId, QuoteSide.BID, 0, bestBid),
+                l2New(exchangeId, QuoteSide.BID, 1, bestBid - 1));
+    }
+
+    private void assertCross(final int index,
+                             final long askExchangeId,
+                             final long bidExchangeId,
+                             final int askPrice,
+                             final int bidPrice) {
+        final long[] cross = crosses.get(index);
+        Assertions.assertEquals(askExchangeId, cross[0]);
+        Assertions.assertEquals(bidExchangeId, cross[1]);
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(askPrice), cross[2]));
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(bidPrice), cross[3]));
+    }
+
+    private static void assertTop(final OrderBook<OrderBookQuote> book, final int bestAsk, final int bestBid) {
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(bestAsk),
+                book.getMarketSide(QuoteSide.ASK).getBestQuote().getPrice()));
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(bestBid),
+                book.getMarketSide(QuoteSide.BID).getBestQuote().getPrice()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"CONSOLIDATED", "AGGREGATED"})
+    public void l2Report(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type, CrossedBookMode.REPORT);
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 99)));
+        Assertions.assertTrue(crosses.isEmpty());
+
+        // Ask of BINANCE is below bid of COINBASE
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 98, 97)));
+        Assertions.assertEquals(1, crosses.size());
+        assertCross(0, BINANCE, COINBASE, 98, 99);
+        assertTop(book, 98, 99);
+
+        // Still crossed (locked): reported once
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2Delete(COINBASE, QuoteSide.BID, 0, 99))));
+        assertTop(book, 98, 98);
+        Assertions.assertEquals(1, crosses.size());
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2Delete(COINBASE, QuoteSide.BID, 0, 98))));
+        assertTop(book, 98, 97);
+
+        // Exchange is locked itself
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(BINANCE, QuoteSide.BID, 0, 98))));
+        Assertions.assertEquals(2, crosses.size());
+        assertCross(1, BINANCE, BINANCE, 98, 98);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"CONSOLIDATED", "AGGREGATED"})
+    public void l2ClearStaleExchange(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type,
+                CrossedBookMode.CLEAR_STALE_EXCHANGE);
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 99)));
+
+        // COINBASE was not updated last, so its levels are stale
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 98, 97)));
+        Assertions.assertEquals(1, crosses.size());
+        assertCross(0, BINANCE, COINBASE, 98, 99);
+        assertTop(book, 98, 97);
+        Assertions.assertEquals(2, book.getMarketSide(QuoteSide.ASK).depth());
+        Assertions.assertTrue(book.getExchanges().getById(COINBASE).get().getMarketSide(QuoteSide.BID).isEmpty());
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+
+        // Incremental updates of COINBASE are ignored until snapshot
+        Assertions.assertFalse(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 99, 96)));
+        Assertions.assertFalse(book.isWaitingForSnapshot());
+        assertTop(book, 98, 97);
+
+        // BINANCE is crossed itself
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(BINANCE, QuoteSide.BID, 0, 99))));
+        Assertions.assertEquals(2, crosses.size());
+        assertCross(1, BINANCE, BINANCE, 98, 99);
+        assertTop(book, 99, 96);
+        Assertions.assertTrue(book.getExchanges().getById(BINANCE).get().getMarketSide(QuoteSide.ASK).isEmpty());
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"CONSOLIDATED", "AGGREGATED"})
+    public void l2CrossedInsidePackage(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type,
+                CrossedBookMode.CLEAR_STALE_EXCHANGE);
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 99)));
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 102, 98)));
+
+        // Bid of BINANCE is above asks in the middle of package only
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(BINANCE, QuoteSide.BID, 0, 103),
+                l2Delete(BINANCE, QuoteSide.BID, 0, 103))));
+        Assertions.assertTrue(crosses.isEmpty());
+        Assertions.assertFalse(book.isWaitingForSnapshot());
+        assertTop(book, 101, 99);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"CONSOLIDATED", "AGGREGATED"})
+    public void l2ClearOneExchangePerPackage(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type,
+                CrossedBookMode.CLEAR_STALE_EXCHANGE);
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 99)));
+        Assertions.assertTrue(book.update(l2Snapshot(KRAKEN, 103, 100)));
+
+        // Both COINBASE and KRAKEN bids are above ask of BINANCE, only the best one is cleared
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 97, 96)));
+        Assertions.assertEquals(1, crosses.size());
+        assertCross(0, BINANCE, KRAKEN, 97, 100);
+        Assertions.assertTrue(book.getExchanges().getById(KRAKEN).get().getMarketSide(QuoteSide.BID).isEmpty());
+        assertTop(book, 97, 99);
+
+        // The book is still crossed, the next package clears COINBASE
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(BINANCE, QuoteSide.ASK, 2, 99))));
+        Assertions.assertEquals(2, crosses.size());
+        assertCross(1, BINANCE, COINBASE, 97, 99);
+        Assertions.assertTrue(book.getExchanges().getById(COINBASE).get().getMarketSide(QuoteSide.BID).isEmpty());
+        assertTop(book, 97, 96);
+    }
+
+    @Test
+    public void l3ClearStaleExchange() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED,
+                CrossedBookMode.CLEAR_STALE_EXCHANGE);
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(COINBASE, QuoteSide.ASK, "A1", 101),
+                l3New(COINBASE, QuoteSide.BID, "B1", 99))));
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(BINANCE, QuoteSide.ASK, "A2", 98),
+                l3New(BINANCE, QuoteSide.BID, "B2", 97))));
+
+        Assertions.assertEquals(1, crosses.size());
+        assertCross(0, BINANCE, COINBASE, 98, 99);
+        assertTop(book, 98, 97);
+        Assertions.assertEquals(1, book.getMarketSide(QuoteSide.ASK).depth());
+        Assertions.assertEquals(1, book.getMarketSide(QuoteSide.BID).depth());
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+
+        // Ask below bid of the same exchange
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l3New(BINANCE, QuoteSide.ASK, "A3", 96))));
+        Assertions.assertEquals(2, crosses.size());
+        assertCross(1, BINANCE, BINANCE, 96, 97);
+        Assertions.assertTrue(book.isEmpty());
+    }
+
+}
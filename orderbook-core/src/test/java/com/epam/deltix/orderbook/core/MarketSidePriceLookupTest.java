@@ -0,0 +1,263 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static com.epam.deltix.orderbook.core.api.MarketSide.NOT_FOUND;
+import static com.epam.deltix.orderbook.core.api.PriceDirection.DOWN;
+import static com.epam.deltix.orderbook.core.api.PriceDirection.UP;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class MarketSidePriceLookupTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                        final OrderBookType type,
+                                                        final boolean isCompact) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .isCompactVersion(isCompact)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader snapshot(final BaseEntryInfo... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final BaseEntryInfo entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static PackageHeader l2Snapshot(final long exchangeId) {
+        return snapshot(
+                l2New(exchangeId, QuoteSide.ASK, 0, 101, 1),
+                l2New(exchangeId, QuoteSide.ASK, 1, 102, 2),
+                l2New(exchangeId, QuoteSide.ASK, 2, 103, 3),
+                l2New(exchangeId, QuoteSide.BID, 0, 99, 3),
+                l2New(exchangeId, QuoteSide.BID, 1, 98, 2),
+                l2New(exchangeId, QuoteSide.BID, 2, 97, 1));
+    }
+
+    private static L2EntryNew l2New(final long exchangeId,
+                                    final QuoteSide side,
+                                    final int level,
+                                    final int price,
+                                    final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static L3EntryNew l3New(final long exchangeId,
+                                    final QuoteSide side,
+                                    final String quoteId,
+                                    final int price,
+                                    final int size) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setQuoteId(quoteId);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        return entry;
+    }
+
+    private static long price(final double price) {
+        return Decimal64Utils.fromDouble(price);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void l2SingleExchange(final boolean isCompact) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE,
+                isCompact);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+        final MarketSide<OrderBookQuote> bids = book.getMarketSide(QuoteSide.BID);
+        Assertions.assertEquals(NOT_FOUND, asks.getLevelByPrice(price(101)));
+        Assertions.assertNull(asks.getNearestQuote(price(101), UP));
+
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE)));
+
+        Assertions.assertEquals(1, asks.getLevelByPrice(price(102)));
+        Assertions.assertEquals(NOT_FOUND, asks.getLevelByPrice(price(101.5)));
+        Assertions.assertEquals(NOT_FOUND, asks.getLevelByPrice(price(104)));
+        Assertions.assertTrue(Decimal64Utils.isEqual(price(3), asks.getQuoteByPrice(price(103)).getSize()));
+        Assertions.assertNull(asks.getQuoteByPrice(price(99)));
+
+        Assertions.assertEquals(0, asks.getNearestLevel(price(100), UP));
+        Assertions.assertEquals(1, asks.getNearestLevel(price(101.5), UP));
+        Assertions.assertEquals(0, asks.getNearestLevel(price(101.5), DOWN));
+        Assertions.assertEquals(2, asks.getNearestLevel(price(103), UP));
+        Assertions.assertEquals(2, asks.getNearestLevel(price(103), DOWN));
+        Assertions.assertEquals(2, asks.getNearestLevel(price(110), DOWN));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(100), DOWN));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(104), UP));
+
+        Assertions.assertEquals(1, bids.getLevelByPrice(price(98)));
+        Assertions.assertEquals(0, bids.getNearestLevel(price(98.5), UP));
+        Assertions.assertEquals(1, bids.getNearestLevel(price(98.5), DOWN));
+        Assertions.assertEquals(2, bids.getNearestLevel(price(97), DOWN));
+        Assertions.assertEquals(NOT_FOUND, bids.getNearestLevel(price(100), UP));
+        Assertions.assertEquals(NOT_FOUND, bids.getNearestLevel(price(96), DOWN));
+        Assertions.assertTrue(Decimal64Utils.isEqual(price(97), bids.getNearestQuote(price(90), UP).getPrice()));
+    }
+
+    @Test
+    public void l2Consolidated() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false);
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE)));
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE)));
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+        final MarketSide<OrderBookQuote> bids = book.getMarketSide(QuoteSide.BID);
+
+        // All venues at a price follow the first one
+        Assertions.assertEquals(2, asks.getLevelByPrice(price(102)));
+        Assertions.assertEquals(0, asks.getNearestLevel(price(101.5), DOWN));
+        Assertions.assertEquals(2, asks.getNearestLevel(price(101.5), UP));
+        Assertions.assertEquals(4, asks.getNearestLevel(price(110), DOWN));
+        Assertions.assertEquals(0, bids.getNearestLevel(price(100), DOWN));
+        Assertions.assertEquals(2, bids.getNearestLevel(price(98.5), DOWN));
+        Assertions.assertEquals(2, bids.getNearestLevel(price(97.5), UP));
+
+        final OrderBookQuote quote = bids.getQuoteByPrice(price(98));
+        Assertions.assertSame(bids.getQuote(2), quote);
+        Assertions.assertTrue(Decimal64Utils.isEqual(price(98), bids.getQuote(3).getPrice()));
+    }
+
+    @Test
+    public void l1SingleExchange() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false);
+        final L1Entry entry = new L1Entry();
+        entry.setExchangeId(COINBASE);
+        entry.setSide(QuoteSide.ASK);
+        entry.setPrice(price(101));
+        entry.setSize(price(1));
+        Assertions.assertTrue(book.update(snapshot(entry)));
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertEquals(0, asks.getLevelByPrice(price(101)));
+        Assertions.assertEquals(NOT_FOUND, asks.getLevelByPrice(price(102)));
+        Assertions.assertEquals(0, asks.getNearestLevel(price(100), UP));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(100), DOWN));
+        Assertions.assertEquals(0, asks.getNearestLevel(price(102), DOWN));
+        Assertions.assertNull(book.getMarketSide(QuoteSide.BID).getQuoteByPrice(price(101)));
+    }
+
+    @Test
+    public void l3SingleExchange() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE,
+                false);
+        Assertions.assertTrue(book.update(snapshot(
+                l3New(COINBASE, QuoteSide.ASK, "A1", 101, 1),
+                l3New(COINBASE, QuoteSide.ASK, "A2", 101, 2),
+                l3New(COINBASE, QuoteSide.ASK, "A3", 103, 3),
+                l3New(COINBASE, QuoteSide.BID, "B1", 99, 1),
+                l3New(COINBASE, QuoteSide.BID, "B2", 97, 2),
+                l3New(COINBASE, QuoteSide.BID, "B3", 97, 3))));
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+        final MarketSide<OrderBookQuote> bids = book.getMarketSide(QuoteSide.BID);
+
+        Assertions.assertEquals("A1", asks.getQuoteByPrice(price(101)).getQuoteId().toString());
+        Assertions.assertNull(asks.getQuoteByPrice(price(102)));
+        Assertions.assertEquals("A1", asks.getNearestQuote(price(102), DOWN).getQuoteId().toString());
+        Assertions.assertEquals("A3", asks.getNearestQuote(price(102), UP).getQuoteId().toString());
+        Assertions.assertNull(asks.getNearestQuote(price(104), UP));
+        Assertions.assertNull(asks.getNearestQuote(price(100), DOWN));
+
+        Assertions.assertEquals("B2", bids.getQuoteByPrice(price(97)).getQuoteId().toString());
+        Assertions.assertEquals("B2", bids.getNearestQuote(price(98), DOWN).getQuoteId().toString());
+        Assertions.assertEquals("B1", bids.getNearestQuote(price(98), UP).getQuoteId().toString());
+        Assertions.assertNull(bids.getNearestQuote(price(96), DOWN));
+
+        // Orders with the same price form one level
+        Assertions.assertEquals(0, asks.getLevelByPrice(price(101)));
+        Assertions.assertEquals(1, asks.getLevelByPrice(price(103)));
+        Assertions.assertEquals(NOT_FOUND, asks.getLevelByPrice(price(102)));
+        Assertions.assertEquals(1, asks.getNearestLevel(price(102), UP));
+        Assertions.assertEquals(0, asks.getNearestLevel(price(102), DOWN));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(104), UP));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(100), DOWN));
+
+        Assertions.assertEquals(1, bids.getLevelByPrice(price(97)));
+        Assertions.assertEquals(1, bids.getNearestLevel(price(98), DOWN));
+        Assertions.assertEquals(0, bids.getNearestLevel(price(98), UP));
+        Assertions.assertEquals(NOT_FOUND, bids.getNearestLevel(price(96), DOWN));
+    }
+
+    @Test
+    public void l3Consolidated() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED,
+                false);
+        Assertions.assertTrue(book.update(snapshot(
+                l3New(COINBASE, QuoteSide.ASK, "C1", 101, 1),
+                l3New(COINBASE, QuoteSide.ASK, "C2", 102, 2))));
+        Assertions.assertTrue(book.update(snapshot(
+                l3New(BINANCE, QuoteSide.ASK, "B1", 101, 3),
+                l3New(BINANCE, QuoteSide.ASK, "B2", 104, 4))));
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertEquals("C1", asks.getQuoteByPrice(price(101)).getQuoteId().toString());
+        Assertions.assertEquals("C2", asks.getNearestQuote(price(103), DOWN).getQuoteId().toString());
+        Assertions.assertEquals("B2", asks.getNearestQuote(price(103), UP).getQuoteId().toString());
+        Assertions.assertEquals("C1", asks.getNearestQuote(price(101.5), DOWN).getQuoteId().toString());
+        Assertions.assertNull(asks.getNearestQuote(price(105), UP));
+
+        // Orders of both exchanges with the same price form one level
+        Assertions.assertEquals(0, asks.getLevelByPrice(price(101)));
+        Assertions.assertEquals(1, asks.getLevelByPrice(price(102)));
+        Assertions.assertEquals(2, asks.getNearestLevel(price(103), UP));
+        Assertions.assertEquals(1, asks.getNearestLevel(price(103), DOWN));
+        Assertions.assertEquals(NOT_FOUND, asks.getNearestLevel(price(105), UP));
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Merged sides of aggregated and consolidated books are limited by max depth.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public class MultiExchangeMaxDepthTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+    private static final int MAX_DEPTH = 3;
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels, final OrderBookType type) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(MAX_DEPTH)
+                .maxDepth(MAX_DEPTH)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final BaseEntryInfo... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final BaseEntryInfo entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static PackageHeader l2Snapshot(final long exchangeId, final int... askPrices) {
+        final L2EntryNew[] entries = new L2EntryNew[askPrices.length];
+        for (int level = 0; level < askPrices.length; level++) {
+            final L2EntryNew entry = new L2EntryNew();
+            entry.setExchangeId(exchangeId);
+            entry.setSide(QuoteSide.ASK);
+            entry.setLevel((short) level);
+            entry.setPrice(Decimal64Utils.fromInt(askPrices[level]));
+            entry.setSize(Decimal64Utils.fromInt(level + 1));
+            entry.setNumberOfOrders(1);
+            entries[level] = entry;
+        }
+        return newPackage(PackageType.VENDOR_SNAPSHOT, entries);
+    }
+
+    private static PackageHeader l2Delete(final long exchangeId, final int level, final int price) {
+        final L2EntryUpdate entry = new L2EntryUpdate();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(QuoteSide.ASK);
+        entry.setLevel((short) level);
+        entry.setAction(BookUpdateAction.DELETE);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(level + 1));
+        return newPackage(PackageType.INCREMENTAL_UPDATE, entry);
+    }
+
+    private static L3EntryNew l3New(final long exchangeId, final String quoteId, final int price) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(QuoteSide.ASK);
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setQuoteId(quoteId);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.ONE);
+        return entry;
+    }
+
+    private static PackageHeader l3Cancel(final long exchangeId, final String quoteId) {
+        final L3EntryUpdate entry = new L3EntryUpdate();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(QuoteSide.ASK);
+        entry.setAction(QuoteUpdateAction.CANCEL);
+        entry.setQuoteId(quoteId);
+        return newPackage(PackageType.INCREMENTAL_UPDATE, entry);
+    }
+
+    private static double[] prices(final MarketSide<OrderBookQuote> side) {
+        final double[] prices = new double[side.depth()];
+        int i = 0;
+        for (final OrderBookQuote quote : side) {
+            prices[i++] = Decimal64Utils.toDouble(quote.getPrice());
+        }
+        return prices;
+    }
+
+    private static String[] quoteIds(final MarketSide<OrderBookQuote> side) {
+        final String[] quoteIds = new String[side.depth()];
+        int i = 0;
+        for (final OrderBookQuote quote : side) {
+            quoteIds[i++] = quote.getQuoteId().toString();
+        }
+        return quoteIds;
+    }
+
+    private static double[] sizes(final MarketSide<OrderBookQuote> side) {
+        final double[] sizes = new double[side.depth()];
+        int i = 0;
+        for (final OrderBookQuote quote : side) {
+            sizes[i++] = Decimal64Utils.toDouble(quote.getSize());
+        }
+        return sizes;
+    }
+
+    @Test
+    public void l2Consolidated() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 103, 105)));
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 102, 104, 106)));
+        Assertions.assertArrayEquals(new double[]{101, 102, 103}, prices(asks));
+
+        // Truncated quote of another exchange is promoted
+        Assertions.assertTrue(book.update(l2Delete(COINBASE, 0, 101)));
+        Assertions.assertArrayEquals(new double[]{102, 103, 104}, prices(asks));
+
+        // New snapshot of exchange replaces its quotes, deeper quotes fill up free levels
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 110)));
+        Assertions.assertArrayEquals(new double[]{103, 105, 110}, prices(asks));
+
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 100, 102)));
+        Assertions.assertArrayEquals(new double[]{100, 102, 103}, prices(asks));
+    }
+
+    @Test
+    public void l2Aggregated() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertTrue(book.update(l2Snapshot(COINBASE, 101, 103, 105)));
+        Assertions.assertTrue(book.update(l2Snapshot(BINANCE, 101, 104, 105)));
+        Assertions.assertArrayEquals(new double[]{101, 103, 104}, prices(asks));
+        Assertions.assertArrayEquals(new double[]{2, 2, 2}, sizes(asks));
+
+        Assertions.assertTrue(book.update(l2Delete(COINBASE, 0, 101)));
+        Assertions.assertArrayEquals(new double[]{101, 103, 104}, prices(asks));
+        Assertions.assertArrayEquals(new double[]{1, 2, 2}, sizes(asks));
+
+        // Promoted level aggregates truncated quotes of all exchanges with its price
+        Assertions.assertTrue(book.update(l2Delete(BINANCE, 0, 101)));
+        Assertions.assertArrayEquals(new double[]{103, 104, 105}, prices(asks));
+        Assertions.assertArrayEquals(new double[]{2, 2, 6}, sizes(asks));
+    }
+
+    @Test
+    public void l3Consolidated() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(COINBASE, "C1", 101), l3New(COINBASE, "C2", 103), l3New(COINBASE, "C3", 105))));
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(BINANCE, "B1", 102), l3New(BINANCE, "B2", 104), l3New(BINANCE, "B3", 104))));
+        Assertions.assertArrayEquals(new double[]{101, 102, 103}, prices(asks));
+
+        Assertions.assertTrue(book.update(l3Cancel(COINBASE, "C1")));
+        Assertions.assertArrayEquals(new double[]{102, 103, 104}, prices(asks));
+        Assertions.assertEquals("B2", asks.getWorstQuote().getQuoteId().toString());
+
+        Assertions.assertTrue(book.update(l3Cancel(BINANCE, "B1")));
+        Assertions.assertArrayEquals(new double[]{103, 104, 104}, prices(asks));
+
+        // Quote deeper than max depth is kept by exchange book only
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE, l3New(COINBASE, "C4", 106))));
+        Assertions.assertArrayEquals(new double[]{103, 104, 104}, prices(asks));
+        Assertions.assertTrue(book.update(l3Cancel(COINBASE, "C2")));
+        Assertions.assertTrue(book.update(l3Cancel(BINANCE, "B2")));
+        Assertions.assertArrayEquals(new double[]{104, 105, 106}, prices(asks));
+    }
+
+    @Test
+    public void l3ConsolidatedBulkSnapshot() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED);
+        final MarketSide<OrderBookQuote> asks = book.getMarketSide(QuoteSide.ASK);
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(COINBASE, "C1", 101), l3New(COINBASE, "C2", 102), l3New(COINBASE, "C3", 104))));
+        // Merged quotes of exchange follow quotes with the same price
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(BINANCE, "B1", 102), l3New(BINANCE, "B2", 103), l3New(BINANCE, "B3", 105))));
+        Assertions.assertArrayEquals(new String[]{"C1", "C2", "B1"}, quoteIds(asks));
+
+        // Exchange is removed, only quotes better than truncated ones are merged
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l3New(BINANCE, "B4", 100), l3New(BINANCE, "B5", 106))));
+        Assertions.assertArrayEquals(new String[]{"B4", "C1", "C2"}, quoteIds(asks));
+
+        Assertions.assertTrue(book.update(l3Cancel(COINBASE, "C1")));
+        Assertions.assertArrayEquals(new double[]{100, 102, 104}, prices(asks));
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT, l3New(COINBASE, "C5", 99))));
+        Assertions.assertArrayEquals(new String[]{"C5", "B4", "B5"}, quoteIds(asks));
+    }
+
+}
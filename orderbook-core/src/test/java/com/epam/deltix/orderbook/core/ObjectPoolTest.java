@@ -0,0 +1,225 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.ConcurrentObjectPool;
+import com.epam.deltix.orderbook.core.impl.CountingOrderBookMetrics;
+import com.epam.deltix.orderbook.core.impl.ObjectPool;
+import com.epam.deltix.orderbook.core.impl.Pool;
+import com.epam.deltix.orderbook.core.impl.QuotePoolFactory;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class ObjectPoolTest {
+
+    @Test
+    public void statistics() {
+        final ObjectPool<Object> pool = new ObjectPool<>(2, Object::new);
+        Assertions.assertEquals(2, pool.getTotalSize());
+
+        final List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(pool.borrow());
+        }
+        Assertions.assertEquals(0, pool.getTotalSize());
+        Assertions.assertEquals(5, pool.getBorrowedCount());
+        Assertions.assertEquals(5, pool.getHighWaterMark());
+        Assertions.assertEquals(3, pool.getMissCount());
+
+        items.forEach(pool::release);
+        Assertions.assertEquals(5, pool.getTotalSize());
+        Assertions.assertEquals(0, pool.getBorrowedCount());
+        Assertions.assertEquals(5, pool.getHighWaterMark());
+
+        pool.borrow();
+        Assertions.assertEquals(3, pool.getMissCount());
+    }
+
+    @Test
+    public void prewarmAndTrim() {
+        final ObjectPool<Object> pool = new ObjectPool<>(0, Object::new);
+        pool.prewarm(100);
+        Assertions.assertEquals(100, pool.getTotalSize());
+
+        pool.prewarm(10);
+        Assertions.assertEquals(100, pool.getTotalSize());
+
+        pool.trim(10);
+        Assertions.assertEquals(10, pool.getTotalSize());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertNotNull(pool.borrow());
+        }
+        Assertions.assertEquals(0, pool.getMissCount());
+        Assertions.assertNotNull(pool.borrow());
+        Assertions.assertEquals(1, pool.getMissCount());
+
+        pool.clear();
+        Assertions.assertEquals(0, pool.getTotalSize());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.trim(-1));
+    }
+
+    @Test
+    public void maxIdleSize() {
+        final ObjectPool<Object> pool = new ObjectPool<>(1, Object::new, null, null, 3);
+        final List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(pool.borrow());
+        }
+        items.forEach(pool::release);
+
+        Assertions.assertEquals(3, pool.getTotalSize());
+        Assertions.assertEquals(7, pool.getDroppedCount());
+        Assertions.assertEquals(0, pool.getBorrowedCount());
+
+        pool.prewarm(10);
+        Assertions.assertEquals(3, pool.getTotalSize());
+    }
+
+    @Test
+    public void quotePoolOptions() {
+        final OrderBookOptions options = new OrderBookOptionsBuilder()
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .maxQuotePoolIdleSize(4)
+                .build();
+        final Pool<? extends OrderBookQuote> pool = QuotePoolFactory.create(options, 16);
+        Assertions.assertEquals(4, pool.getMaxIdleSize());
+        Assertions.assertEquals(4, pool.getTotalSize());
+    }
+
+    @Test
+    public void concurrentPoolSingleThread() {
+        final ConcurrentObjectPool<Object> pool = new ConcurrentObjectPool<>(8, Object::new, null, null, 32, 8);
+        Assertions.assertEquals(8, pool.getTotalSize());
+
+        final List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(pool.borrow());
+        }
+        Assertions.assertEquals(100, pool.getBorrowedCount());
+        Assertions.assertEquals(92, pool.getMissCount());
+
+        items.forEach(pool::release);
+        Assertions.assertEquals(0, pool.getBorrowedCount());
+        // 2 magazines in thread cache and 4 magazines in depot
+        Assertions.assertEquals(48, pool.getTotalSize());
+        Assertions.assertEquals(52, pool.getDroppedCount());
+
+        pool.releaseThreadCache();
+        Assertions.assertEquals(32, pool.getTotalSize());
+        Assertions.assertEquals(52, pool.getDroppedCount());
+
+        pool.trim(8);
+        Assertions.assertEquals(8, pool.getTotalSize());
+    }
+
+    @Test
+    public void concurrentPoolReclaimsTerminatedThreadCache() throws Exception {
+        final ConcurrentObjectPool<Object> pool = new ConcurrentObjectPool<>(0, Object::new, null, null, 32, 8);
+        final Thread worker = new Thread(() -> {
+            final List<Object> items = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                items.add(pool.borrow());
+            }
+            items.forEach(pool::release);
+            // Thread exits without releaseThreadCache()
+        });
+        worker.start();
+        worker.join();
+
+        // Both magazines of the terminated thread are moved to depot when statistics are read
+        Assertions.assertEquals(16, pool.getTotalSize());
+        Assertions.assertEquals(16, pool.getMissCount());
+        Assertions.assertEquals(0, pool.getBorrowedCount());
+
+        Assertions.assertNotNull(pool.borrow());
+        Assertions.assertEquals(16, pool.getMissCount());
+        Assertions.assertEquals(1, pool.getBorrowedCount());
+    }
+
+    @Test
+    public void concurrentPoolMultipleThreads() throws Exception {
+        final ConcurrentObjectPool<AtomicBoolean> pool = new ConcurrentObjectPool<>(256, AtomicBoolean::new);
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    final List<AtomicBoolean> items = new ArrayList<>();
+                    for (int i = 0; i < 10_000; i++) {
+                        final AtomicBoolean item = pool.borrow();
+                        // Item can't be used by two threads at the same time
+                        Assertions.assertTrue(item.compareAndSet(false, true));
+                        items.add(item);
+                        if (items.size() == 100) {
+                            for (final AtomicBoolean inUse : items) {
+                                inUse.set(false);
+                                pool.release(inUse);
+                            }
+                            items.clear();
+                        }
+                    }
+                    pool.releaseThreadCache();
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(0, pool.getBorrowedCount());
+    }
+
+    @Test
+    public void concurrentQuotePool() {
+        final CountingOrderBookMetrics metrics = new CountingOrderBookMetrics();
+        final OrderBookOptions options = new OrderBookOptionsBuilder()
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .metrics(metrics)
+                .build();
+        final Pool<? extends OrderBookQuote> pool = QuotePoolFactory.createConcurrent(options, 100, 10);
+        Assertions.assertTrue(pool instanceof ConcurrentObjectPool);
+        Assertions.assertEquals(100, pool.getTotalSize());
+        Assertions.assertNotNull(pool.borrow());
+        Assertions.assertEquals(0, pool.getMissCount());
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertNotNull(pool.borrow());
+        }
+        // Misses of shared pool are counted by the pool only, metrics of the book are not thread safe
+        Assertions.assertEquals(1, pool.getMissCount());
+        Assertions.assertEquals(0, metrics.getPoolMisses());
+    }
+
+}
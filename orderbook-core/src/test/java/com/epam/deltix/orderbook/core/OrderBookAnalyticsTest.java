@@ -0,0 +1,248 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.impl.OrderBookAnalytics;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookAnalyticsTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+    private static final double DELTA = 1e-9;
+
+    private static OrderBook<OrderBookQuote> createBook(final OrderBookAnalytics analytics,
+                                                        final OrderBookType type,
+                                                        final boolean isCompact) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(10)
+                .isCompactVersion(isCompact)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .analytics(analytics)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final L2EntryNew... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final L2EntryNew entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final long exchangeId,
+                                    final QuoteSide side,
+                                    final int level,
+                                    final int price,
+                                    final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static PackageHeader snapshot(final long exchangeId) {
+        return newPackage(PackageType.VENDOR_SNAPSHOT,
+                l2New(exchangeId, QuoteSide.ASK, 0, 101, 1),
+                l2New(exchangeId, QuoteSide.ASK, 1, 102, 2),
+                l2New(exchangeId, QuoteSide.ASK, 2, 103, 3),
+                l2New(exchangeId, QuoteSide.BID, 0, 99, 3),
+                l2New(exchangeId, QuoteSide.BID, 1, 98, 2),
+                l2New(exchangeId, QuoteSide.BID, 2, 97, 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void singleExchange(final boolean isCompact) {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(2, 1, 10);
+        final OrderBook<OrderBookQuote> book = createBook(analytics, OrderBookType.SINGLE_EXCHANGE, isCompact);
+        Assertions.assertArrayEquals(new int[]{1, 2, 10}, analytics.getDepths());
+        Assertions.assertTrue(Double.isNaN(analytics.getImbalance(1)));
+
+        Assertions.assertTrue(book.update(snapshot(COINBASE)));
+
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals((101.0 * 3 + 99.0 * 1) / 4, analytics.getMicroprice(1), DELTA);
+        Assertions.assertEquals(100, analytics.getWeightedMid(1), DELTA);
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromDouble(100.5),
+                analytics.getMicropriceDecimal(1)));
+
+        final double bidVwap = (99.0 * 3 + 98.0 * 2) / 5;
+        final double askVwap = (101.0 + 102.0 * 2) / 3;
+        Assertions.assertEquals(0.25, analytics.getImbalance(2), DELTA);
+        Assertions.assertEquals((askVwap * 5 + bidVwap * 3) / 8, analytics.getMicroprice(2), DELTA);
+        Assertions.assertEquals((bidVwap + askVwap) / 2, analytics.getWeightedMid(2), DELTA);
+
+        // Side has fewer levels than depth: all levels are used
+        Assertions.assertEquals(0, analytics.getImbalance(10), DELTA);
+        Assertions.assertEquals(100, analytics.getWeightedMid(10), DELTA);
+
+        // New best ask shifts levels of depth 1 and 2
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE,
+                l2New(COINBASE, QuoteSide.ASK, 0, 100, 3))));
+        Assertions.assertEquals(0, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals(99.5, analytics.getMicroprice(1), DELTA);
+        Assertions.assertEquals((3.0 + 2 - 3 - 1) / 9, analytics.getImbalance(2), DELTA);
+
+        // Primitive API updates analytics too
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.BID, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.fromInt(99), Decimal64Utils.fromInt(3), 1, System.currentTimeMillis()));
+        Assertions.assertEquals((2.0 - 3) / 5, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals(99, analytics.getWeightedMid(1), DELTA);
+
+        book.clear();
+        Assertions.assertTrue(Double.isNaN(analytics.getImbalance(1)));
+        Assertions.assertTrue(Double.isNaN(analytics.getMicroprice(2)));
+        Assertions.assertTrue(Decimal64Utils.isNaN(analytics.getWeightedMidDecimal(10)));
+    }
+
+    @Test
+    public void consolidatedLevelsByPrice() {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(1, 2);
+        final OrderBook<OrderBookQuote> book = createBook(analytics, OrderBookType.CONSOLIDATED, false);
+
+        Assertions.assertTrue(book.update(snapshot(COINBASE)));
+        Assertions.assertTrue(book.update(snapshot(BINANCE)));
+
+        // Quotes of both exchanges with the same price form one level
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals(100.5, analytics.getMicroprice(1), DELTA);
+        Assertions.assertEquals(0.25, analytics.getImbalance(2), DELTA);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void changesBelowDepth(final boolean isCompact) {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(1);
+        final OrderBook<OrderBookQuote> book = createBook(analytics, OrderBookType.SINGLE_EXCHANGE, isCompact);
+        Assertions.assertTrue(book.update(snapshot(COINBASE)));
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+
+        // Level below the depth does not change metrics
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 2, BookUpdateAction.UPDATE,
+                Decimal64Utils.fromInt(103), Decimal64Utils.fromInt(5), 1, System.currentTimeMillis()));
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+
+        // ... but it is used when it moves to the top
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.fromInt(101), Decimal64Utils.fromInt(1), 1, System.currentTimeMillis()));
+        Assertions.assertEquals((3.0 - 2) / 5, analytics.getImbalance(1), DELTA);
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.fromInt(102), Decimal64Utils.fromInt(2), 1, System.currentTimeMillis()));
+        Assertions.assertEquals((3.0 - 5) / 8, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals(101, analytics.getWeightedMid(1), DELTA);
+    }
+
+    @Test
+    public void l3Orders() {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(1);
+        final OrderBook<OrderBookQuote> book = OrderBookFactory.create(new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .quoteLevels(DataModelType.LEVEL_THREE)
+                .updateMode(UpdateMode.NON_WAITING_FOR_SNAPSHOT)
+                .analytics(analytics)
+                .build());
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        final long timestamp = System.currentTimeMillis();
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A1", null,
+                Decimal64Utils.fromInt(101), Decimal64Utils.fromInt(1), timestamp));
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.BID, InsertType.ADD_BACK, "B1", null,
+                Decimal64Utils.fromInt(99), Decimal64Utils.fromInt(3), timestamp));
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+
+        // Order below the top level does not change metrics, order at the top level does
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A2", null,
+                Decimal64Utils.fromInt(102), Decimal64Utils.fromInt(3), timestamp));
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A3", null,
+                Decimal64Utils.fromInt(101), Decimal64Utils.fromInt(1), timestamp));
+        Assertions.assertEquals((3.0 - 2) / 5, analytics.getImbalance(1), DELTA);
+
+        // Cancel carries no price, the next level becomes the top one
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.ASK, QuoteUpdateAction.CANCEL, "A1", null,
+                Decimal64Utils.NaN, Decimal64Utils.NaN, timestamp));
+        Assertions.assertEquals(0.5, analytics.getImbalance(1), DELTA);
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.ASK, QuoteUpdateAction.CANCEL, "A3", null,
+                Decimal64Utils.NaN, Decimal64Utils.NaN, timestamp));
+        Assertions.assertEquals(0, analytics.getImbalance(1), DELTA);
+
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.BID, QuoteUpdateAction.MODIFY, "B1", null,
+                Decimal64Utils.fromInt(99), Decimal64Utils.fromInt(1), timestamp));
+        Assertions.assertEquals(-0.5, analytics.getImbalance(1), DELTA);
+        Assertions.assertEquals((102.0 * 1 + 99.0 * 3) / 4, analytics.getMicroprice(1), DELTA);
+    }
+
+    @Test
+    public void unknownDepth() {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(5);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> analytics.getImbalance(1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> analytics.getMicroprice(6));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> analytics.getWeightedMid(0));
+        Assertions.assertThrows(IllegalArgumentException.class, OrderBookAnalytics::new);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookAnalytics(0, 1));
+    }
+
+    @Test
+    public void sharedAnalytics_rejected() {
+        final OrderBookAnalytics analytics = new OrderBookAnalytics(1);
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .analytics(analytics)
+                .build();
+        OrderBookFactory.create(opt);
+        Assertions.assertThrows(IllegalStateException.class, () -> OrderBookFactory.create(opt));
+        final OrderBookOptions inherited = new OrderBookOptionsBuilder()
+                .parent(opt)
+                .symbol("ETH")
+                .build();
+        Assertions.assertThrows(IllegalStateException.class, () -> OrderBookFactory.create(inherited));
+    }
+
+}
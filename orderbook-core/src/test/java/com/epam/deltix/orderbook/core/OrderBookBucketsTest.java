@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.impl.OrderBookBuckets;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookBucketsTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+    private static final long ONE = Decimal64Utils.ONE;
+    private static final long HALF = Decimal64Utils.parse("0.5");
+
+    private static OrderBook<OrderBookQuote> createBook(final OrderBookBuckets buckets,
+                                                        final DataModelType quoteLevels) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .buckets(buckets)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newSnapshot() {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private static void addL2(final PackageHeader pck, final QuoteSide side, final String... prices) {
+        for (int level = 0; level < prices.length; level++) {
+            final L2EntryNew entry = new L2EntryNew();
+            entry.setExchangeId(COINBASE);
+            entry.setSide(side);
+            entry.setLevel((short) level);
+            entry.setPrice(Decimal64Utils.parse(prices[level]));
+            entry.setSize(Decimal64Utils.fromInt(level + 1));
+            entry.setNumberOfOrders(1);
+            pck.getEntries().add(entry);
+        }
+    }
+
+    private static void addL3(final PackageHeader pck, final QuoteSide side, final String price, final String quoteId) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setExchangeId(COINBASE);
+        entry.setSide(side);
+        entry.setPrice(Decimal64Utils.parse(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setQuoteId(quoteId);
+        pck.getEntries().add(entry);
+    }
+
+    private static void assertBucket(final OrderBookBuckets buckets,
+                                     final long bucketSize,
+                                     final QuoteSide side,
+                                     final int bucket,
+                                     final String price,
+                                     final int size) {
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.parse(price),
+                buckets.getPrice(bucketSize, side, bucket)));
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(size),
+                buckets.getSize(bucketSize, side, bucket)));
+    }
+
+    @Test
+    public void l2Book() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(2, ONE, HALF);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_TWO);
+        Assertions.assertEquals(0, buckets.depth(ONE, QuoteSide.ASK));
+        Assertions.assertTrue(Decimal64Utils.isEqual(HALF, buckets.getBucketSizes()[0]));
+
+        final PackageHeader snapshot = newSnapshot();
+        addL2(snapshot, QuoteSide.ASK, "100.2", "100.7", "101", "101.3", "102.5");
+        addL2(snapshot, QuoteSide.BID, "99.9", "99.5", "99", "98.4");
+        Assertions.assertTrue(book.update(snapshot));
+
+        // Asks are rounded up, the third bucket is out of range
+        Assertions.assertEquals(2, buckets.depth(ONE, QuoteSide.ASK));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1 + 2 + 3);
+        Assertions.assertEquals(3, buckets.getNumberOfOrders(ONE, QuoteSide.ASK, 0));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 1, "102", 4);
+        Assertions.assertEquals(2, buckets.depth(HALF, QuoteSide.ASK));
+        assertBucket(buckets, HALF, QuoteSide.ASK, 0, "100.5", 1);
+        assertBucket(buckets, HALF, QuoteSide.ASK, 1, "101", 2 + 3);
+
+        // Bids are rounded down
+        assertBucket(buckets, ONE, QuoteSide.BID, 0, "99", 1 + 2 + 3);
+        assertBucket(buckets, ONE, QuoteSide.BID, 1, "98", 4);
+        assertBucket(buckets, HALF, QuoteSide.BID, 0, "99.5", 1 + 2);
+        assertBucket(buckets, HALF, QuoteSide.BID, 1, "99", 3);
+
+        // Primitive API updates buckets too
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.parse("100.2"), Decimal64Utils.fromInt(1), 1, System.currentTimeMillis()));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 2 + 3);
+        assertBucket(buckets, HALF, QuoteSide.ASK, 0, "101", 2 + 3);
+        assertBucket(buckets, HALF, QuoteSide.ASK, 1, "101.5", 4);
+
+        book.clear();
+        Assertions.assertEquals(0, buckets.depth(ONE, QuoteSide.ASK));
+        Assertions.assertEquals(0, buckets.depth(HALF, QuoteSide.BID));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> buckets.getPrice(ONE, QuoteSide.BID, 0));
+    }
+
+    @Test
+    public void l3OrdersFormBuckets() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(10, ONE);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_THREE);
+
+        final PackageHeader snapshot = newSnapshot();
+        addL3(snapshot, QuoteSide.ASK, "100.5", "A1");
+        addL3(snapshot, QuoteSide.ASK, "100.5", "A2");
+        addL3(snapshot, QuoteSide.ASK, "101", "A3");
+        addL3(snapshot, QuoteSide.BID, "99", "B1");
+        addL3(snapshot, QuoteSide.BID, "98.25", "B2");
+        Assertions.assertTrue(book.update(snapshot));
+
+        Assertions.assertEquals(1, buckets.depth(ONE, QuoteSide.ASK));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 3);
+        Assertions.assertEquals(2, buckets.depth(ONE, QuoteSide.BID));
+        assertBucket(buckets, ONE, QuoteSide.BID, 0, "99", 1);
+        assertBucket(buckets, ONE, QuoteSide.BID, 1, "98", 1);
+    }
+
+    @Test
+    public void severalMessagesBetweenReads() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(2, ONE);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_TWO);
+
+        final PackageHeader snapshot = newSnapshot();
+        addL2(snapshot, QuoteSide.ASK, "100.2", "101.3");
+        addL2(snapshot, QuoteSide.BID, "99.9");
+        Assertions.assertTrue(book.update(snapshot));
+
+        // Every change is applied to views of its side, reads see the latest state of the book
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.parse("100.2"), Decimal64Utils.fromInt(1), 1, System.currentTimeMillis()));
+        Assertions.assertTrue(updater.applyL2New(COINBASE, QuoteSide.BID, 1,
+                Decimal64Utils.parse("98.5"), Decimal64Utils.fromInt(5), 1, System.currentTimeMillis()));
+        Assertions.assertEquals(1, buckets.depth(ONE, QuoteSide.ASK));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "102", 2);
+        Assertions.assertEquals(2, buckets.depth(ONE, QuoteSide.BID));
+        assertBucket(buckets, ONE, QuoteSide.BID, 0, "99", 1);
+        assertBucket(buckets, ONE, QuoteSide.BID, 1, "98", 5);
+
+        // Repeated reads without changes return the same views
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "102", 2);
+        Assertions.assertEquals(2, buckets.depth(ONE, QuoteSide.BID));
+    }
+
+    @Test
+    public void changesBeyondLastBuckets() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(1, ONE);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_TWO);
+
+        final PackageHeader snapshot = newSnapshot();
+        addL2(snapshot, QuoteSide.ASK, "100.2", "105", "106");
+        addL2(snapshot, QuoteSide.BID, "99.9");
+        Assertions.assertTrue(book.update(snapshot));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1);
+
+        // Level next to the last used one may still fall into the last bucket
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        final long timestamp = System.currentTimeMillis();
+        Assertions.assertTrue(updater.applyL2New(COINBASE, QuoteSide.ASK, 1,
+                Decimal64Utils.parse("100.7"), Decimal64Utils.fromInt(5), 1, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1 + 5);
+
+        // Deeper levels do not change buckets, but they are used when they move to the top
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 2, BookUpdateAction.UPDATE,
+                Decimal64Utils.parse("105"), Decimal64Utils.fromInt(7), 1, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1 + 5);
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.parse("100.2"), Decimal64Utils.fromInt(1), 1, timestamp));
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.DELETE,
+                Decimal64Utils.parse("100.7"), Decimal64Utils.fromInt(5), 1, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "105", 7);
+    }
+
+    @Test
+    public void l3OrdersBeyondLastBuckets() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(1, ONE);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_THREE);
+
+        final PackageHeader snapshot = newSnapshot();
+        addL3(snapshot, QuoteSide.ASK, "100.5", "A1");
+        addL3(snapshot, QuoteSide.ASK, "103", "A2");
+        addL3(snapshot, QuoteSide.BID, "99", "B1");
+        Assertions.assertTrue(book.update(snapshot));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1);
+
+        // Orders are checked by price: within the last bucket or beyond it
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        final long timestamp = System.currentTimeMillis();
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A3", null,
+                Decimal64Utils.parse("100.8"), ONE, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 2);
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A4", null,
+                Decimal64Utils.parse("101.5"), ONE, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 2);
+
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.ASK, QuoteUpdateAction.CANCEL, "A1", null,
+                Decimal64Utils.NaN, Decimal64Utils.NaN, timestamp));
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.ASK, QuoteUpdateAction.CANCEL, "A3", null,
+                Decimal64Utils.NaN, Decimal64Utils.NaN, timestamp));
+        assertBucket(buckets, ONE, QuoteSide.ASK, 0, "102", 1);
+    }
+
+    @Test
+    public void readWhileIteratingBook() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(2, ONE);
+        final OrderBook<OrderBookQuote> book = createBook(buckets, DataModelType.LEVEL_TWO);
+
+        final PackageHeader snapshot = newSnapshot();
+        addL2(snapshot, QuoteSide.ASK, "100.2", "101.3", "102.5");
+        addL2(snapshot, QuoteSide.BID, "99.9");
+        Assertions.assertTrue(book.update(snapshot));
+
+        // Reads do not touch market sides of the book, so they do not break iteration over them
+        int quotes = 0;
+        for (final OrderBookQuote quote : book.getMarketSide(QuoteSide.ASK)) {
+            Assertions.assertEquals(2, buckets.depth(ONE, QuoteSide.ASK));
+            assertBucket(buckets, ONE, QuoteSide.ASK, 0, "101", 1);
+            Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(quotes + 1), quote.getSize()));
+            quotes++;
+        }
+        Assertions.assertEquals(3, quotes);
+    }
+
+    @Test
+    public void illegalArguments() {
+        final OrderBookBuckets buckets = new OrderBookBuckets(5, ONE);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> buckets.depth(HALF, QuoteSide.ASK));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookBuckets(0, ONE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookBuckets(5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookBuckets(5, Decimal64Utils.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookBuckets(5, ONE, HALF, ONE));
+    }
+
+}
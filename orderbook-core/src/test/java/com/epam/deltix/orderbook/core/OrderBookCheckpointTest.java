@@ -0,0 +1,287 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.containers.CharSequenceUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookCheckpoint;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookCheckpointTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+
+    private final OrderBookCheckpoint checkpoint = new OrderBookCheckpoint();
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels, final OrderBookType type) {
+        return createBook(quoteLevels, type, false);
+    }
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                        final OrderBookType type,
+                                                        final boolean withTimestamps) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .shouldStoreQuoteTimestamps(withTimestamps)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader l1Package(final PackageType packageType,
+                                           final long originalTimestamp,
+                                           final long timestamp) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(packageType);
+        pck.setOriginalTimestamp(originalTimestamp);
+        pck.setTimeStampMs(timestamp);
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private static void addL1(final PackageHeader pck, final QuoteSide side, final int price, final int size) {
+        final L1Entry entry = new L1Entry();
+        entry.setSide(side);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(size);
+        entry.setExchangeId(COINBASE);
+        pck.getEntries().add(entry);
+    }
+
+    private static PackageHeader l2Snapshot(final long exchangeId, final int depth, final int bbo) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final QuoteSide side : QuoteSide.values()) {
+            for (int level = 0; level < depth; level++) {
+                final L2EntryNew entry = new L2EntryNew();
+                entry.setSide(side);
+                entry.setLevel((short) level);
+                entry.setPrice(Decimal64Utils.fromInt(side == QuoteSide.ASK ? bbo + level : bbo - level - 1));
+                entry.setSize(Decimal64Utils.fromInt(level + 1));
+                entry.setNumberOfOrders(level + 1);
+                entry.setExchangeId(exchangeId);
+                pck.getEntries().add(entry);
+            }
+        }
+        return pck;
+    }
+
+    private static PackageHeader l3Snapshot(final long exchangeId) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        addL3(pck, exchangeId, QuoteSide.ASK, "100.5", "A1");
+        addL3(pck, exchangeId, QuoteSide.ASK, "100.5", "A2");
+        addL3(pck, exchangeId, QuoteSide.ASK, "101", "A3");
+        addL3(pck, exchangeId, QuoteSide.BID, "99", "B1");
+        addL3(pck, exchangeId, QuoteSide.BID, "98.25", "B2");
+        return pck;
+    }
+
+    private static void addL3(final PackageHeader pck,
+                              final long exchangeId,
+                              final QuoteSide side,
+                              final String price,
+                              final String quoteId) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setSide(side);
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setPrice(Decimal64Utils.parse(price));
+        entry.setQuoteId(quoteId);
+        entry.setExchangeId(exchangeId);
+        pck.getEntries().add(entry);
+    }
+
+    private OrderBook<OrderBookQuote> copy(final OrderBook<OrderBookQuote> source,
+                                           final DataModelType quoteLevels,
+                                           final OrderBookType type) {
+        final ByteBuffer buffer = ByteBuffer.allocate(checkpoint.getEncodedSize(source));
+        checkpoint.write(source, buffer);
+        Assertions.assertFalse(buffer.hasRemaining(), "Encoded size should be exact");
+        buffer.flip();
+
+        final OrderBook<OrderBookQuote> target = createBook(quoteLevels, type, hasTimestamps(source));
+        Assertions.assertTrue(checkpoint.read(buffer, target));
+        Assertions.assertFalse(buffer.hasRemaining());
+        return target;
+    }
+
+    private static boolean hasTimestamps(final OrderBook<OrderBookQuote> book) {
+        final OrderBookQuote quote = book.getMarketSide(QuoteSide.ASK).getBestQuote();
+        return quote != null && quote.hasTimestamp();
+    }
+
+    private static void assertSameSide(final MarketSide<OrderBookQuote> expected,
+                                       final MarketSide<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.depth(), actual.depth());
+        final Iterator<OrderBookQuote> actualItr = actual.iterator();
+        for (final OrderBookQuote quote : expected) {
+            final OrderBookQuote restored = actualItr.next();
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getPrice(), restored.getPrice()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getSize(), restored.getSize()));
+            Assertions.assertEquals(quote.getNumberOfOrders(), restored.getNumberOfOrders());
+            Assertions.assertEquals(quote.getExchangeId(), restored.getExchangeId());
+            Assertions.assertEquals(quote.getOriginalTimestamp(), restored.getOriginalTimestamp());
+            Assertions.assertEquals(quote.getTimestamp(), restored.getTimestamp());
+            if (quote.hasQuoteId()) {
+                Assertions.assertTrue(CharSequenceUtils.equals(quote.getQuoteId(), restored.getQuoteId()));
+            }
+        }
+    }
+
+    private static void assertSameBook(final OrderBook<OrderBookQuote> expected,
+                                       final OrderBook<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.isWaitingForSnapshot(), actual.isWaitingForSnapshot());
+        assertSameSide(expected.getMarketSide(QuoteSide.ASK), actual.getMarketSide(QuoteSide.ASK));
+        assertSameSide(expected.getMarketSide(QuoteSide.BID), actual.getMarketSide(QuoteSide.BID));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class)
+    public void l2Book_restoreFromBuffer(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type);
+        book.update(l2Snapshot(COINBASE, 5, 100));
+        if (type != OrderBookType.SINGLE_EXCHANGE) {
+            book.update(l2Snapshot(BINANCE, 3, 101));
+        }
+
+        final OrderBook<OrderBookQuote> restored = copy(book, DataModelType.LEVEL_TWO, type);
+        assertSameBook(book, restored);
+        Assertions.assertEquals(book.getExchanges().size(), restored.getExchanges().size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"SINGLE_EXCHANGE", "CONSOLIDATED"})
+    public void l3Book_restoreFromBuffer(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, type);
+        book.update(l3Snapshot(COINBASE));
+
+        final OrderBook<OrderBookQuote> restored = copy(book, DataModelType.LEVEL_THREE, type);
+        assertSameBook(book, restored);
+        Assertions.assertTrue(restored.getExchanges().getById(COINBASE).get().getMarketSide(QuoteSide.ASK).hasQuote("A2"));
+    }
+
+    @Test
+    public void l1Book_restoreWithTimestamps() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, true);
+        final PackageHeader snapshot = l1Package(PackageType.VENDOR_SNAPSHOT, 1_000, 2_000);
+        addL1(snapshot, QuoteSide.ASK, 101, 1);
+        addL1(snapshot, QuoteSide.BID, 99, 2);
+        Assertions.assertTrue(book.update(snapshot));
+
+        // Quotes of the sides have different timestamps, restore should not stamp them with timestamps of the package
+        final PackageHeader update = l1Package(PackageType.INCREMENTAL_UPDATE, 3_000, 4_000);
+        addL1(update, QuoteSide.ASK, 100, 3);
+        Assertions.assertTrue(book.update(update));
+
+        final OrderBook<OrderBookQuote> restored = copy(book, DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE);
+        assertSameBook(book, restored);
+        final OrderBookQuote ask = restored.getMarketSide(QuoteSide.ASK).getBestQuote();
+        Assertions.assertEquals(3_000, ask.getOriginalTimestamp());
+        Assertions.assertEquals(4_000, ask.getTimestamp());
+        final OrderBookQuote bid = restored.getMarketSide(QuoteSide.BID).getBestQuote();
+        Assertions.assertEquals(1_000, bid.getOriginalTimestamp());
+        Assertions.assertEquals(2_000, bid.getTimestamp());
+    }
+
+    @Test
+    public void waitingExchange_keepsWaiting() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED);
+        book.update(l2Snapshot(COINBASE, 5, 100));
+
+        // Insert with gap breaks the book and exchange has to wait for the next snapshot
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        pck.setEntries(new ObjectArrayList<>());
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setSide(QuoteSide.ASK);
+        entry.setLevel((short) 42);
+        entry.setPrice(Decimal64Utils.fromInt(200));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setExchangeId(COINBASE);
+        pck.getEntries().add(entry);
+        book.update(pck);
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+
+        final OrderBook<OrderBookQuote> restored = copy(book, DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED);
+        Assertions.assertTrue(restored.isWaitingForSnapshot());
+        Assertions.assertTrue(restored.isEmpty());
+    }
+
+    @Test
+    public void saveAndRestoreFile(@TempDir final Path dir) throws Exception {
+        final OrderBook<OrderBookQuote> l2Book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE);
+        l2Book.update(l2Snapshot(COINBASE, 10, 50));
+        final OrderBook<OrderBookQuote> l3Book = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE);
+        l3Book.update(l3Snapshot(BINANCE));
+
+        final Path file = dir.resolve("books.checkpoint");
+        checkpoint.save(file, Arrays.asList(l2Book, l3Book));
+
+        final OrderBook<OrderBookQuote> restoredL2 = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE);
+        final OrderBook<OrderBookQuote> restoredL3 = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE);
+        final List<OrderBook<OrderBookQuote>> books = Arrays.asList(restoredL2, restoredL3);
+        final int[] next = {0};
+        final int count = checkpoint.restore(file, symbol -> {
+            Assertions.assertTrue(CharSequenceUtils.equals(SYMBOL, symbol));
+            return books.get(next[0]++);
+        });
+
+        Assertions.assertEquals(2, count);
+        assertSameBook(l2Book, restoredL2);
+        assertSameBook(l3Book, restoredL3);
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookDeltaGenerator;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookDeltaGeneratorTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final long FANOUT = AlphanumericUtils.toAlphanumericUInt64("FANOUT");
+    private static final String SYMBOL = "BTC";
+    private static final int MAX_LEVELS = 3;
+
+    private final OrderBookDeltaGenerator generator = new OrderBookDeltaGenerator(MAX_LEVELS, FANOUT);
+    private final PackageHeader pck = new PackageHeader();
+
+    private static OrderBook<OrderBookQuote> createBook(final OrderBookType type, final int maxDepth) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(maxDepth)
+                .maxDepth(maxDepth)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader snapshot(final long exchangeId, final int[] asks, final int[] bids, final int[] sizes) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (int level = 0; level < asks.length; level++) {
+            pck.getEntries().add(l2New(exchangeId, QuoteSide.ASK, level, asks[level], sizes[level]));
+        }
+        for (int level = 0; level < bids.length; level++) {
+            pck.getEntries().add(l2New(exchangeId, QuoteSide.BID, level, bids[level], sizes[level]));
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final long exchangeId,
+                                    final QuoteSide side,
+                                    final int level,
+                                    final int price,
+                                    final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static void assertTopLevels(final MarketSide<OrderBookQuote> expected,
+                                        final MarketSide<OrderBookQuote> actual) {
+        Assertions.assertEquals(Math.min(MAX_LEVELS, expected.depth()), actual.depth());
+        for (int level = 0; level < actual.depth(); level++) {
+            final OrderBookQuote quote = expected.getQuote(level);
+            final OrderBookQuote published = actual.getQuote(level);
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getPrice(), published.getPrice()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getSize(), published.getSize()));
+            Assertions.assertEquals(quote.getNumberOfOrders(), published.getNumberOfOrders());
+        }
+    }
+
+    private static int[] randomPrices(final Random random, final int from, final int step) {
+        final int[] prices = new int[random.nextInt(6)];
+        int price = from;
+        for (int level = 0; level < prices.length; level++) {
+            price += step * (1 + random.nextInt(2));
+            prices[level] = price;
+        }
+        return prices;
+    }
+
+    @Test
+    public void snapshotThenDeltas() {
+        final OrderBook<OrderBookQuote> book = createBook(OrderBookType.SINGLE_EXCHANGE, 10);
+        final OrderBook<OrderBookQuote> client = createBook(OrderBookType.SINGLE_EXCHANGE, MAX_LEVELS);
+        final OrderBookDeltaGenerator.Subscriber subscriber = generator.newSubscriber();
+
+        // Nothing to send yet
+        Assertions.assertFalse(generator.diff(book, subscriber, 1, pck));
+        Assertions.assertFalse(subscriber.isSnapshotSent());
+
+        book.update(snapshot(COINBASE, new int[]{101, 102, 103, 104}, new int[]{99, 98, 97, 96}, new int[]{1, 2, 3, 4}));
+        Assertions.assertTrue(generator.diff(book, subscriber, 1, pck));
+        Assertions.assertEquals(PackageType.VENDOR_SNAPSHOT, pck.getPackageType());
+        Assertions.assertEquals(2 * MAX_LEVELS, pck.getEntries().size());
+        Assertions.assertTrue(client.update(pck));
+        assertTopLevels(book.getMarketSide(QuoteSide.ASK), client.getMarketSide(QuoteSide.ASK));
+        assertTopLevels(book.getMarketSide(QuoteSide.BID), client.getMarketSide(QuoteSide.BID));
+
+        // Subscriber is up to date
+        Assertions.assertFalse(generator.diff(book, subscriber, 2, pck));
+
+        // Ask: size of level 1 is changed, level below top 3 is ignored.
+        // Bid: new best price pushes 97 out of top 3, sizes of shifted levels are changed.
+        book.update(snapshot(COINBASE, new int[]{101, 102, 103, 105}, new int[]{100, 99, 98, 97}, new int[]{1, 5, 3, 4}));
+        Assertions.assertTrue(generator.diff(book, subscriber, 3, pck));
+        Assertions.assertEquals(PackageType.INCREMENTAL_UPDATE, pck.getPackageType());
+        Assertions.assertEquals(5, pck.getEntries().size());
+
+        final L2EntryUpdate delete = (L2EntryUpdate) pck.getEntries().get(0);
+        Assertions.assertEquals(BookUpdateAction.DELETE, delete.getAction());
+        Assertions.assertEquals(QuoteSide.BID, delete.getSide());
+        Assertions.assertEquals(2, delete.getLevel());
+        Assertions.assertEquals(FANOUT, delete.getExchangeId());
+
+        final L2EntryUpdate update = (L2EntryUpdate) pck.getEntries().get(1);
+        Assertions.assertEquals(BookUpdateAction.UPDATE, update.getAction());
+        Assertions.assertEquals(QuoteSide.ASK, update.getSide());
+        Assertions.assertEquals(1, update.getLevel());
+
+        final L2EntryNew insert = (L2EntryNew) pck.getEntries().get(2);
+        Assertions.assertEquals(QuoteSide.BID, insert.getSide());
+        Assertions.assertEquals(0, insert.getLevel());
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(100), insert.getPrice()));
+
+        Assertions.assertTrue(client.update(pck));
+        assertTopLevels(book.getMarketSide(QuoteSide.ASK), client.getMarketSide(QuoteSide.ASK));
+        assertTopLevels(book.getMarketSide(QuoteSide.BID), client.getMarketSide(QuoteSide.BID));
+
+        // After reset subscriber gets snapshot again
+        subscriber.reset();
+        Assertions.assertTrue(generator.diff(book, subscriber, 4, pck));
+        Assertions.assertEquals(PackageType.VENDOR_SNAPSHOT, pck.getPackageType());
+    }
+
+    @Test
+    public void randomStates() {
+        final Random random = new Random(42);
+        final OrderBook<OrderBookQuote> book = createBook(OrderBookType.SINGLE_EXCHANGE, 10);
+        final OrderBook<OrderBookQuote> client = createBook(OrderBookType.SINGLE_EXCHANGE, MAX_LEVELS);
+        final OrderBookDeltaGenerator.Subscriber subscriber = generator.newSubscriber();
+
+        for (int i = 0; i < 1000; i++) {
+            final int[] asks = randomPrices(random, 100, 1);
+            final int[] bids = randomPrices(random, 100, -1);
+            if (asks.length == 0 && bids.length == 0) {
+                continue;
+            }
+            final int[] sizes = new int[Math.max(asks.length, bids.length)];
+            for (int level = 0; level < sizes.length; level++) {
+                sizes[level] = 1 + random.nextInt(3);
+            }
+            Assertions.assertTrue(book.update(snapshot(COINBASE, asks, bids, sizes)));
+
+            // Client may skip some states
+            if (random.nextBoolean() && generator.diff(book, subscriber, i, pck)) {
+                Assertions.assertTrue(client.update(pck), "Rejected package: " + pck);
+                assertTopLevels(book.getMarketSide(QuoteSide.ASK), client.getMarketSide(QuoteSide.ASK));
+                assertTopLevels(book.getMarketSide(QuoteSide.BID), client.getMarketSide(QuoteSide.BID));
+            }
+        }
+    }
+
+    @Test
+    public void consolidatedLevelsByPrice() {
+        final OrderBook<OrderBookQuote> book = createBook(OrderBookType.CONSOLIDATED, 10);
+        final OrderBook<OrderBookQuote> client = createBook(OrderBookType.SINGLE_EXCHANGE, MAX_LEVELS);
+        final OrderBookDeltaGenerator.Subscriber subscriber = generator.newSubscriber();
+
+        book.update(snapshot(COINBASE, new int[]{101, 102}, new int[]{99}, new int[]{1, 2}));
+        book.update(snapshot(BINANCE, new int[]{101, 103}, new int[]{98}, new int[]{3, 4}));
+
+        Assertions.assertTrue(generator.diff(book, subscriber, 1, pck));
+        Assertions.assertTrue(client.update(pck));
+
+        final MarketSide<OrderBookQuote> asks = client.getMarketSide(QuoteSide.ASK);
+        Assertions.assertEquals(3, asks.depth());
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(4), asks.getQuote(0).getSize()));
+        Assertions.assertEquals(2, asks.getQuote(0).getNumberOfOrders());
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(103), asks.getQuote(2).getPrice()));
+        Assertions.assertEquals(2, client.getMarketSide(QuoteSide.BID).depth());
+    }
+
+    @Test
+    public void foreignSubscriber() {
+        final OrderBookDeltaGenerator other = new OrderBookDeltaGenerator(MAX_LEVELS + 1, FANOUT);
+        final OrderBook<OrderBookQuote> book = createBook(OrderBookType.SINGLE_EXCHANGE, 10);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> generator.diff(book, other.newSubscriber(), 1, pck));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderBookDeltaGenerator(0, FANOUT));
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.containers.CharSequenceUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournalReader;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.service.FeedStatus;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookJournalTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                        final OrderBookJournal journal) {
+        final OrderBookOptionsBuilder builder = new OrderBookOptionsBuilder();
+        builder.symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT);
+        if (journal != null) {
+            builder.journal(journal);
+        }
+        final OrderBookOptions opt = builder.build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final QuoteSide side, final int level, final int price, final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L3EntryNew l3New(final QuoteSide side, final String price, final String quoteId) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setSide(side);
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setPrice(Decimal64Utils.parse(price));
+        entry.setQuoteId(quoteId);
+        entry.setParticipantId("P-" + quoteId);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static void assertSameSide(final MarketSide<OrderBookQuote> expected,
+                                       final MarketSide<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.depth(), actual.depth());
+        final Iterator<OrderBookQuote> actualItr = actual.iterator();
+        for (final OrderBookQuote quote : expected) {
+            final OrderBookQuote replayed = actualItr.next();
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getPrice(), replayed.getPrice()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getSize(), replayed.getSize()));
+            Assertions.assertEquals(quote.getNumberOfOrders(), replayed.getNumberOfOrders());
+            if (quote.hasQuoteId()) {
+                Assertions.assertTrue(CharSequenceUtils.equals(quote.getQuoteId(), replayed.getQuoteId()));
+                Assertions.assertTrue(CharSequenceUtils.equals(quote.getParticipantId(), replayed.getParticipantId()));
+            }
+        }
+    }
+
+    private static void assertSameBook(final OrderBook<OrderBookQuote> expected,
+                                       final OrderBook<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.isWaitingForSnapshot(), actual.isWaitingForSnapshot());
+        assertSameSide(expected.getMarketSide(QuoteSide.ASK), actual.getMarketSide(QuoteSide.ASK));
+        assertSameSide(expected.getMarketSide(QuoteSide.BID), actual.getMarketSide(QuoteSide.BID));
+    }
+
+    @Test
+    public void l2Book_replay(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("l2.journal");
+        final OrderBook<OrderBookQuote> book;
+        // Small segment forces remapping of the journal
+        try (OrderBookJournal journal = new OrderBookJournal(file, 256)) {
+            book = createBook(DataModelType.LEVEL_TWO, journal);
+
+            final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+            for (int level = 0; level < 5; level++) {
+                snapshot.getEntries().add(l2New(QuoteSide.ASK, level, 100 + level, level + 1));
+                snapshot.getEntries().add(l2New(QuoteSide.BID, level, 99 - level, level + 1));
+            }
+            book.update(snapshot);
+
+            final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+            increment.getEntries().add(l2New(QuoteSide.ASK, 0, 99, 7));
+            final L2EntryUpdate update = new L2EntryUpdate();
+            update.setSide(QuoteSide.BID);
+            update.setLevel((short) 1);
+            update.setAction(BookUpdateAction.UPDATE);
+            update.setPrice(Decimal64Utils.fromInt(98));
+            update.setSize(Decimal64Utils.fromInt(42));
+            update.setNumberOfOrders(3);
+            update.setExchangeId(COINBASE);
+            increment.getEntries().add(update);
+            increment.getEntries().add(new TradeEntry()); // not journaled
+            book.update(increment);
+
+            // Message of other symbol is rejected by the book and is not journaled
+            final PackageHeader other = newPackage(PackageType.INCREMENTAL_UPDATE);
+            other.setSymbol("ETH");
+            other.getEntries().add(l2New(QuoteSide.ASK, 0, 1, 1));
+            book.update(other);
+
+            Assertions.assertEquals(2, journal.getRecordCount());
+        }
+
+        final OrderBook<OrderBookQuote> replayed = createBook(DataModelType.LEVEL_TWO, null);
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(file, 256)) {
+            Assertions.assertEquals(2, reader.replay(replayed));
+        }
+        assertSameBook(book, replayed);
+    }
+
+    @Test
+    public void l3Book_replayWithFeedStatus(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("l3.journal");
+        final OrderBook<OrderBookQuote> book;
+        try (OrderBookJournal journal = new OrderBookJournal(file)) {
+            book = createBook(DataModelType.LEVEL_THREE, journal);
+
+            final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+            snapshot.getEntries().add(l3New(QuoteSide.ASK, "100.5", "A1"));
+            snapshot.getEntries().add(l3New(QuoteSide.ASK, "101", "A2"));
+            snapshot.getEntries().add(l3New(QuoteSide.BID, "99", "B1"));
+            book.update(snapshot);
+
+            final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+            increment.getEntries().add(l3New(QuoteSide.BID, "99.5", "B2"));
+            final L3EntryUpdate cancel = new L3EntryUpdate();
+            cancel.setAction(QuoteUpdateAction.CANCEL);
+            cancel.setQuoteId("A1");
+            cancel.setSide(QuoteSide.ASK);
+            cancel.setExchangeId(COINBASE);
+            increment.getEntries().add(cancel);
+            book.update(increment);
+            Assertions.assertFalse(book.isEmpty());
+
+            final SecurityFeedStatusMessage status = new SecurityFeedStatusMessage();
+            status.setSymbol(SYMBOL);
+            status.setExchangeId(COINBASE);
+            status.setStatus(FeedStatus.NOT_AVAILABLE);
+            book.update(status);
+
+            final PackageHeader restart = newPackage(PackageType.VENDOR_SNAPSHOT);
+            restart.getEntries().add(l3New(QuoteSide.ASK, "102", "A3"));
+            book.update(restart);
+        }
+
+        final OrderBook<OrderBookQuote> replayed = createBook(DataModelType.LEVEL_THREE, null);
+        final int[] statusCount = {0};
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(file)) {
+            final long count = reader.replay(msg -> {
+                if (msg instanceof SecurityFeedStatusMessage) {
+                    Assertions.assertEquals(FeedStatus.NOT_AVAILABLE, ((SecurityFeedStatusMessage) msg).getStatus());
+                    statusCount[0]++;
+                }
+                replayed.update(msg);
+            });
+            Assertions.assertEquals(4, count);
+        }
+        Assertions.assertEquals(1, statusCount[0]);
+        assertSameBook(book, replayed);
+    }
+
+    @Test
+    public void largePackage_readBack(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("large.journal");
+        // More entries than fit into short
+        final int count = Short.MAX_VALUE + 10_000;
+        try (OrderBookJournal journal = new OrderBookJournal(file, 1 << 16)) {
+            final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+            snapshot.setSequenceNumber(42);
+            for (int i = 0; i < count; i++) {
+                snapshot.getEntries().add(l3New(QuoteSide.ASK, Integer.toString(100 + i), "A" + i));
+            }
+            journal.append(snapshot);
+
+            final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+            increment.getEntries().add(l2New(QuoteSide.BID, 0, 99, 1));
+            journal.append(increment);
+        }
+
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(file, 1 << 16)) {
+            final PackageHeader snapshot = (PackageHeader) reader.next();
+            Assertions.assertEquals(PackageType.VENDOR_SNAPSHOT, snapshot.getPackageType());
+            Assertions.assertEquals(42, snapshot.getSequenceNumber());
+            Assertions.assertEquals(count, snapshot.getEntries().size());
+            final L3EntryNew last = (L3EntryNew) snapshot.getEntries().get(count - 1);
+            Assertions.assertTrue(CharSequenceUtils.equals("A" + (count - 1), last.getQuoteId()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(100 + count - 1), last.getPrice()));
+
+            final PackageHeader increment = (PackageHeader) reader.next();
+            Assertions.assertEquals(PackageType.INCREMENTAL_UPDATE, increment.getPackageType());
+            Assertions.assertFalse(increment.hasSequenceNumber());
+            Assertions.assertEquals(1, increment.getEntries().size());
+            Assertions.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void flushedSegments_readBack(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("segments.journal");
+        final int count = 100;
+        try (OrderBookJournal journal = new OrderBookJournal(file, 256)) {
+            for (int i = 0; i < count; i++) {
+                final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+                increment.getEntries().add(l2New(QuoteSide.BID, 0, 99, i + 1));
+                journal.append(increment);
+                if (i % 3 == 0) {
+                    // Next segment is mapped ahead of time, unused tails of segments are skipped by reader
+                    journal.flush();
+                }
+            }
+            Assertions.assertEquals(count, journal.getRecordCount());
+        }
+
+        // Reader maps regions of other size than segments of the journal
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(file, 100)) {
+            for (int i = 0; i < count; i++) {
+                final PackageHeader increment = (PackageHeader) reader.next();
+                Assertions.assertNotNull(increment);
+                final L2EntryNew entry = (L2EntryNew) increment.getEntries().get(0);
+                Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(i + 1), entry.getSize()));
+            }
+            Assertions.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void appendFromOtherThread_rejected(@TempDir final Path dir) throws Exception {
+        try (OrderBookJournal journal = new OrderBookJournal(dir.resolve("threads.journal"), 1 << 12)) {
+            journal.append(newPackage(PackageType.INCREMENTAL_UPDATE));
+            final Throwable[] error = new Throwable[1];
+            final Thread other = new Thread(() -> {
+                try {
+                    journal.append(newPackage(PackageType.INCREMENTAL_UPDATE));
+                } catch (final Throwable e) {
+                    error[0] = e;
+                }
+            });
+            other.start();
+            other.join();
+            Assertions.assertTrue(error[0] instanceof IllegalStateException);
+            Assertions.assertEquals(1, journal.getRecordCount());
+        }
+    }
+
+}
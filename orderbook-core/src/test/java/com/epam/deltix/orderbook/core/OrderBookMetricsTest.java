@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.CountingOrderBookMetrics;
+import com.epam.deltix.orderbook.core.impl.LatencyHistogram;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookMetricsTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+
+    private static OrderBook<OrderBookQuote> createBook(final CountingOrderBookMetrics metrics, final boolean isCompact) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(1)
+                .isCompactVersion(isCompact)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .metrics(metrics)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final L2EntryNew... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final L2EntryNew entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final QuoteSide side, final int level, final int price) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void countersL2Book(final boolean isCompact) {
+        final CountingOrderBookMetrics metrics = new CountingOrderBookMetrics(true);
+        final OrderBook<OrderBookQuote> book = createBook(metrics, isCompact);
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT,
+                l2New(QuoteSide.ASK, 0, 101), l2New(QuoteSide.ASK, 1, 102), l2New(QuoteSide.ASK, 2, 103),
+                l2New(QuoteSide.BID, 0, 99), l2New(QuoteSide.BID, 1, 98), l2New(QuoteSide.BID, 2, 97))));
+        Assertions.assertEquals(1, metrics.getSnapshots());
+        Assertions.assertEquals(1, metrics.getSnapshotLatency().getTotalCount());
+
+        Assertions.assertTrue(book.update(newPackage(PackageType.INCREMENTAL_UPDATE, l2New(QuoteSide.ASK, 3, 104))));
+        Assertions.assertEquals(1, metrics.getIncrementalUpdates());
+        Assertions.assertEquals(0, metrics.getRejectedEntries());
+
+        // Gap in levels
+        Assertions.assertFalse(book.update(newPackage(PackageType.INCREMENTAL_UPDATE, l2New(QuoteSide.ASK, 10, 110))));
+        Assertions.assertEquals(2, metrics.getIncrementalUpdates());
+        Assertions.assertEquals(2, metrics.getUpdateLatency().getTotalCount());
+        Assertions.assertEquals(1, metrics.getRejectedEntries());
+        Assertions.assertEquals(1, metrics.getBrokenEvents());
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+
+        // Entries are ignored while book is waiting for snapshot
+        book.update(newPackage(PackageType.INCREMENTAL_UPDATE, l2New(QuoteSide.ASK, 10, 110)));
+        Assertions.assertEquals(1, metrics.getRejectedEntries());
+
+        if (!isCompact) {
+            // Pool has been created with single quote
+            Assertions.assertTrue(metrics.getPoolMisses() > 0);
+        }
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getIncrementalUpdates());
+        Assertions.assertEquals(0, metrics.getUpdateLatency().getTotalCount());
+    }
+
+    @Test
+    public void countersWithoutLatency() {
+        final CountingOrderBookMetrics metrics = new CountingOrderBookMetrics();
+        final OrderBook<OrderBookQuote> book = createBook(metrics, false);
+
+        book.update(newPackage(PackageType.VENDOR_SNAPSHOT, l2New(QuoteSide.ASK, 0, 101), l2New(QuoteSide.BID, 0, 99)));
+        Assertions.assertEquals(1, metrics.getSnapshots());
+        Assertions.assertFalse(metrics.isLatencyEnabled());
+        Assertions.assertNull(metrics.getSnapshotLatency());
+    }
+
+    @Test
+    public void latencyHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(0);
+        histogram.record(5000);
+
+        Assertions.assertEquals(100, histogram.getTotalCount());
+        Assertions.assertEquals(5000, histogram.getMax());
+        Assertions.assertEquals(127, histogram.getValueAtPercentile(50));
+        Assertions.assertEquals(127, histogram.getValueAtPercentile(99));
+        Assertions.assertEquals(5000, histogram.getValueAtPercentile(100));
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(0));
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getTotalCount());
+    }
+
+}
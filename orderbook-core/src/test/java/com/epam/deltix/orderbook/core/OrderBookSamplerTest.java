@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookSample;
+import com.epam.deltix.orderbook.core.impl.OrderBookSampler;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookSamplerTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+
+    private final List<long[]> samples = new ArrayList<>();
+
+    private static OrderBook<OrderBookQuote> createBook() {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.SINGLE_EXCHANGE)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final long timestamp, final L2EntryNew... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(timestamp);
+        pck.setEntries(new ObjectArrayList<>());
+        for (final L2EntryNew entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final QuoteSide side, final int level, final int price, final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(COINBASE);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static PackageHeader snapshot(final long timestamp) {
+        return newPackage(PackageType.VENDOR_SNAPSHOT, timestamp,
+                l2New(QuoteSide.ASK, 0, 101, 1),
+                l2New(QuoteSide.ASK, 1, 102, 2),
+                l2New(QuoteSide.ASK, 2, 103, 3),
+                l2New(QuoteSide.BID, 0, 97, 1),
+                l2New(QuoteSide.BID, 1, 96, 2));
+    }
+
+    private void onSample(final OrderBookSample sample) {
+        // Sample is reused, keep copy of interesting values
+        samples.add(new long[]{
+                sample.getSequence(),
+                sample.getTimestamp(),
+                sample.getUpdates(),
+                sample.depth(QuoteSide.ASK),
+                sample.depth(QuoteSide.BID),
+                sample.depth(QuoteSide.ASK) > 0 ? Decimal64Utils.toInt(sample.getPrice(QuoteSide.ASK, 0)) : 0,
+                sample.depth(QuoteSide.ASK) > 0 ? Decimal64Utils.toInt(sample.getSize(QuoteSide.ASK, 0)) : 0});
+    }
+
+    @Test
+    public void byCount() {
+        final OrderBookSampler<OrderBookQuote> sampler = new OrderBookSampler<>(createBook(), 2, 0, 3, this::onSample);
+
+        Assertions.assertTrue(sampler.update(snapshot(1)));
+        Assertions.assertTrue(sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 2,
+                l2New(QuoteSide.ASK, 0, 100, 5))));
+        Assertions.assertTrue(samples.isEmpty());
+        Assertions.assertTrue(sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 3,
+                l2New(QuoteSide.BID, 2, 95, 7))));
+
+        Assertions.assertEquals(1, samples.size());
+        // Sample is limited to 2 levels
+        Assertions.assertArrayEquals(new long[]{1, 3, 3, 2, 2, 100, 5}, samples.get(0));
+
+        // Messages of other symbols don't change the book, so there is nothing to sample
+        final PackageHeader foreign = snapshot(4);
+        foreign.setSymbol("ETH");
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertFalse(sampler.update(foreign));
+        }
+        Assertions.assertEquals(1, samples.size());
+
+        // Primitive API is sampled too: book changed, count is elapsed
+        Assertions.assertTrue(sampler.getUpdater().get().applyL2Update(COINBASE, QuoteSide.ASK, 0, BookUpdateAction.UPDATE,
+                Decimal64Utils.fromInt(100), Decimal64Utils.fromInt(9), 1, 10));
+        Assertions.assertEquals(2, samples.size());
+        Assertions.assertArrayEquals(new long[]{2, 10, 6, 2, 2, 100, 9}, samples.get(1));
+    }
+
+    @Test
+    public void byTime() {
+        final OrderBookSampler<OrderBookQuote> sampler = new OrderBookSampler<>(createBook(), 5, 100, 0, this::onSample);
+
+        // The first change is sampled immediately
+        sampler.update(snapshot(1000));
+        Assertions.assertEquals(1, samples.size());
+
+        sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 1050, l2New(QuoteSide.ASK, 0, 100, 5)));
+        sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 1099, l2New(QuoteSide.ASK, 0, 99, 4)));
+        Assertions.assertEquals(1, samples.size());
+
+        sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 1100, l2New(QuoteSide.BID, 0, 98, 4)));
+        Assertions.assertEquals(2, samples.size());
+        Assertions.assertArrayEquals(new long[]{2, 1100, 3, 5, 3, 99, 4}, samples.get(1));
+
+        // Flush publishes pending change only
+        Assertions.assertFalse(sampler.flush(1150));
+        sampler.update(newPackage(PackageType.INCREMENTAL_UPDATE, 1150, l2New(QuoteSide.ASK, 5, 104, 1)));
+        Assertions.assertTrue(sampler.flush(1160));
+        Assertions.assertEquals(3, samples.size());
+        Assertions.assertEquals(1160, samples.get(2)[1]);
+
+        // Clear is a change too
+        sampler.clear();
+        Assertions.assertTrue(sampler.flush(1170));
+        Assertions.assertArrayEquals(new long[]{4, 1170, 0, 0, 0, 0, 0}, samples.get(3));
+    }
+
+    @Test
+    public void illegalArguments() {
+        final OrderBook<OrderBookQuote> book = createBook();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookSampler<>(book, 0, 100, 0, this::onSample));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookSampler<>(book, 5, 0, 0, this::onSample));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookSampler<>(book, 5, -1, 10, this::onSample));
+    }
+
+}
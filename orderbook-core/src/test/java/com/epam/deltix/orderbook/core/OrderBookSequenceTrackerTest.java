@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookSequenceTracker;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.SequenceGapMode;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookSequenceTrackerTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+
+    private static OrderBook<OrderBookQuote> createBook(final OrderBookSequenceTracker tracker) {
+        return OrderBookFactory.create(new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(OrderBookType.CONSOLIDATED)
+                .quoteLevels(DataModelType.LEVEL_TWO)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .sequenceTracker(tracker)
+                .build());
+    }
+
+    private static PackageHeader newPackage(final PackageType type, final long sequence, final BaseEntryInfo... entries) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setSequenceNumber(sequence);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final BaseEntryInfo entry : entries) {
+            pck.getEntries().add(entry);
+        }
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final long exchangeId, final QuoteSide side, final int level, final int price) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static L2EntryUpdate l2Delete(final long exchangeId, final QuoteSide side, final int level, final int price) {
+        final L2EntryUpdate entry = new L2EntryUpdate();
+        entry.setExchangeId(exchangeId);
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setAction(BookUpdateAction.DELETE);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setNumberOfOrders(1);
+        return entry;
+    }
+
+    private static PackageHeader snapshot(final long exchangeId, final long sequence, final int bestAsk, final int bestBid) {
+        return newPackage(PackageType.VENDOR_SNAPSHOT, sequence,
+                l2New(exchangeId, QuoteSide.ASK, 0, bestAsk),
+                l2New(exchangeId, QuoteSide.ASK, 1, bestAsk + 1),
+                l2New(exchangeId, QuoteSide.BID, 0, bestBid),
+                l2New(exchangeId, QuoteSide.BID, 1, bestBid - 1));
+    }
+
+    private static PackageHeader increment(final long sequence, final BaseEntryInfo entry) {
+        return newPackage(PackageType.INCREMENTAL_UPDATE, sequence, entry);
+    }
+
+    private static void assertSide(final OrderBook<OrderBookQuote> book, final QuoteSide side, final int... prices) {
+        Assertions.assertEquals(prices.length, book.getMarketSide(side).depth());
+        for (int i = 0; i < prices.length; i++) {
+            Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(prices[i]),
+                    book.getMarketSide(side).getQuote(i).getPrice()));
+        }
+    }
+
+    @Test
+    public void waitingForSnapshot() {
+        final OrderBookSequenceTracker tracker = new OrderBookSequenceTracker(SequenceGapMode.WAITING_FOR_SNAPSHOT);
+        final OrderBook<OrderBookQuote> book = createBook(tracker);
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 10, 101, 99)));
+        Assertions.assertTrue(book.update(snapshot(BINANCE, 100, 103, 97)));
+
+        Assertions.assertTrue(book.update(increment(11, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        // Duplicate
+        Assertions.assertFalse(book.update(increment(11, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        assertSide(book, QuoteSide.ASK, 100, 101, 102, 103, 104);
+        Assertions.assertEquals(11, tracker.getSequenceNumber(COINBASE));
+
+        // Package 12 is lost: only COINBASE is cleared
+        Assertions.assertFalse(book.update(increment(13, l2New(COINBASE, QuoteSide.BID, 2, 97))));
+        Assertions.assertEquals(1, tracker.getGapCount());
+        Assertions.assertTrue(book.isWaitingForSnapshot());
+        assertSide(book, QuoteSide.ASK, 103, 104);
+        assertSide(book, QuoteSide.BID, 97, 96);
+
+        Assertions.assertTrue(book.update(increment(101, l2New(BINANCE, QuoteSide.ASK, 2, 105))));
+        Assertions.assertFalse(book.update(increment(14, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        assertSide(book, QuoteSide.ASK, 103, 104, 105);
+
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 20, 101, 99)));
+        Assertions.assertFalse(book.isWaitingForSnapshot());
+        Assertions.assertEquals(20, tracker.getSequenceNumber(COINBASE));
+        Assertions.assertEquals(101, tracker.getSequenceNumber(BINANCE));
+        assertSide(book, QuoteSide.BID, 99, 98, 97, 96);
+    }
+
+    @Test
+    public void keepStaleData() {
+        final OrderBookSequenceTracker tracker = new OrderBookSequenceTracker(SequenceGapMode.KEEP_STALE_DATA);
+        final OrderBook<OrderBookQuote> book = createBook(tracker);
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 10, 101, 99)));
+        Assertions.assertTrue(book.update(snapshot(BINANCE, 100, 103, 97)));
+
+        Assertions.assertTrue(book.update(increment(12, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        Assertions.assertEquals(1, tracker.getGapCount());
+        Assertions.assertTrue(tracker.isSuspect(COINBASE));
+        Assertions.assertFalse(tracker.isSuspect(BINANCE));
+        Assertions.assertTrue(tracker.isSuspect());
+        Assertions.assertFalse(book.isWaitingForSnapshot());
+        assertSide(book, QuoteSide.ASK, 100, 101, 102, 103, 104);
+
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 20, 101, 99)));
+        Assertions.assertFalse(tracker.isSuspect());
+    }
+
+    @Test
+    public void replayAfterSnapshot() {
+        final OrderBookSequenceTracker tracker = new OrderBookSequenceTracker(SequenceGapMode.REPLAY_AFTER_SNAPSHOT);
+        final OrderBook<OrderBookQuote> book = createBook(tracker);
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 10, 101, 99)));
+
+        // Package 11 is lost, following packages are buffered
+        Assertions.assertFalse(book.update(increment(12, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        Assertions.assertFalse(book.update(increment(13, l2Delete(COINBASE, QuoteSide.BID, 0, 99))));
+        Assertions.assertFalse(book.update(increment(14, l2New(COINBASE, QuoteSide.ASK, 0, 99))));
+        Assertions.assertTrue(tracker.isBuffering(COINBASE));
+        Assertions.assertTrue(book.isEmpty());
+
+        // Snapshot includes package 12, packages 13 and 14 are replayed
+        Assertions.assertTrue(book.update(newPackage(PackageType.VENDOR_SNAPSHOT, 12,
+                l2New(COINBASE, QuoteSide.ASK, 0, 100),
+                l2New(COINBASE, QuoteSide.ASK, 1, 101),
+                l2New(COINBASE, QuoteSide.ASK, 2, 102),
+                l2New(COINBASE, QuoteSide.BID, 0, 99),
+                l2New(COINBASE, QuoteSide.BID, 1, 98))));
+        Assertions.assertFalse(tracker.isBuffering(COINBASE));
+        Assertions.assertEquals(14, tracker.getSequenceNumber(COINBASE));
+        assertSide(book, QuoteSide.ASK, 99, 100, 101, 102);
+        assertSide(book, QuoteSide.BID, 98);
+
+        // Gap inside of buffered packages
+        Assertions.assertFalse(book.update(increment(16, l2New(COINBASE, QuoteSide.BID, 0, 97))));
+        Assertions.assertFalse(book.update(increment(17, l2New(COINBASE, QuoteSide.BID, 2, 96))));
+        Assertions.assertFalse(book.update(increment(19, l2New(COINBASE, QuoteSide.BID, 2, 95))));
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 16, 101, 98)));
+        Assertions.assertEquals(3, tracker.getGapCount());
+        Assertions.assertTrue(tracker.isBuffering(COINBASE));
+        Assertions.assertTrue(book.isEmpty());
+    }
+
+    @Test
+    public void bufferOverflow() {
+        final OrderBookSequenceTracker tracker = new OrderBookSequenceTracker(SequenceGapMode.REPLAY_AFTER_SNAPSHOT, 64);
+        final OrderBook<OrderBookQuote> book = createBook(tracker);
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 10, 101, 99)));
+
+        Assertions.assertFalse(book.update(increment(12, l2New(COINBASE, QuoteSide.ASK, 0, 100))));
+        Assertions.assertTrue(book.update(snapshot(COINBASE, 11, 101, 99)));
+        Assertions.assertFalse(tracker.isBuffering(COINBASE));
+        assertSide(book, QuoteSide.ASK, 101, 102);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new OrderBookSequenceTracker(SequenceGapMode.REPLAY_AFTER_SNAPSHOT, 0));
+    }
+
+}
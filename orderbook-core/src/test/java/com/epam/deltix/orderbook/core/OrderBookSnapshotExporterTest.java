@@ -0,0 +1,302 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.containers.CharSequenceUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournalReader;
+import com.epam.deltix.orderbook.core.impl.OrderBookSnapshotExporter;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookSnapshotExporterTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final long BINANCE = AlphanumericUtils.toAlphanumericUInt64("BINANCE");
+    private static final String SYMBOL = "BTC";
+
+    private final OrderBookSnapshotExporter exporter = new OrderBookSnapshotExporter();
+    private final PackageHeader pck = new PackageHeader();
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels, final OrderBookType type) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader l2Snapshot(final long exchangeId, final int depth, final int bbo) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        for (final QuoteSide side : QuoteSide.values()) {
+            for (int level = 0; level < depth; level++) {
+                final L2EntryNew entry = new L2EntryNew();
+                entry.setSide(side);
+                entry.setLevel((short) level);
+                entry.setPrice(Decimal64Utils.fromInt(side == QuoteSide.ASK ? bbo + level : bbo - level - 1));
+                entry.setSize(Decimal64Utils.fromInt(level + 1));
+                entry.setNumberOfOrders(level + 1);
+                entry.setExchangeId(exchangeId);
+                pck.getEntries().add(entry);
+            }
+        }
+        return pck;
+    }
+
+    private static PackageHeader l3Snapshot(final long exchangeId) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        addL3(pck, exchangeId, QuoteSide.ASK, "100.5", "A1");
+        addL3(pck, exchangeId, QuoteSide.ASK, "100.5", "A2");
+        addL3(pck, exchangeId, QuoteSide.ASK, "101", "A3");
+        addL3(pck, exchangeId, QuoteSide.BID, "99", "B1");
+        addL3(pck, exchangeId, QuoteSide.BID, "98.25", "B2");
+        return pck;
+    }
+
+    private static void addL3(final PackageHeader pck,
+                              final long exchangeId,
+                              final QuoteSide side,
+                              final String price,
+                              final String quoteId) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setSide(side);
+        entry.setSize(Decimal64Utils.fromInt(1));
+        entry.setPrice(Decimal64Utils.parse(price));
+        entry.setQuoteId(quoteId);
+        entry.setExchangeId(exchangeId);
+        pck.getEntries().add(entry);
+    }
+
+    private static void assertSameSide(final MarketSide<OrderBookQuote> expected,
+                                       final MarketSide<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.depth(), actual.depth());
+        final Iterator<OrderBookQuote> actualItr = actual.iterator();
+        for (final OrderBookQuote quote : expected) {
+            final OrderBookQuote exported = actualItr.next();
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getPrice(), exported.getPrice()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getSize(), exported.getSize()));
+            Assertions.assertEquals(quote.getNumberOfOrders(), exported.getNumberOfOrders());
+            Assertions.assertEquals(quote.getExchangeId(), exported.getExchangeId());
+            if (quote.hasQuoteId()) {
+                Assertions.assertTrue(CharSequenceUtils.equals(quote.getQuoteId(), exported.getQuoteId()));
+            }
+        }
+    }
+
+    private static void assertSameBook(final OrderBook<OrderBookQuote> expected,
+                                       final OrderBook<OrderBookQuote> actual) {
+        assertSameSide(expected.getMarketSide(QuoteSide.ASK), actual.getMarketSide(QuoteSide.ASK));
+        assertSameSide(expected.getMarketSide(QuoteSide.BID), actual.getMarketSide(QuoteSide.BID));
+    }
+
+    private void copy(final OrderBook<OrderBookQuote> source, final OrderBook<OrderBookQuote> target) {
+        for (final long exchangeId : new long[]{COINBASE, BINANCE}) {
+            if (exporter.export(source, exchangeId, pck)) {
+                Assertions.assertTrue(target.update(pck));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class)
+    public void l2Book_exportAndApply(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, type);
+        book.update(l2Snapshot(COINBASE, 5, 100));
+        if (type != OrderBookType.SINGLE_EXCHANGE) {
+            book.update(l2Snapshot(BINANCE, 3, 101));
+        }
+
+        Assertions.assertTrue(exporter.export(book, COINBASE, pck));
+        Assertions.assertEquals(PackageType.VENDOR_SNAPSHOT, pck.getPackageType());
+        Assertions.assertTrue(CharSequenceUtils.equals(SYMBOL, pck.getSymbol()));
+        Assertions.assertEquals(10, pck.getEntries().size());
+        final L2EntryNew first = (L2EntryNew) pck.getEntries().get(0);
+        Assertions.assertEquals(QuoteSide.ASK, first.getSide());
+        Assertions.assertEquals(0, first.getLevel());
+        Assertions.assertEquals(COINBASE, first.getExchangeId());
+
+        final OrderBook<OrderBookQuote> target = createBook(DataModelType.LEVEL_TWO, type);
+        copy(book, target);
+        assertSameBook(book, target);
+        Assertions.assertEquals(book.getExchanges().size(), target.getExchanges().size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderBookType.class, names = {"SINGLE_EXCHANGE", "CONSOLIDATED"})
+    public void l3Book_exportAndApply(final OrderBookType type) {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, type);
+        book.update(l3Snapshot(COINBASE));
+
+        Assertions.assertTrue(exporter.export(book, COINBASE, pck));
+        Assertions.assertEquals(5, pck.getEntries().size());
+        final L3EntryNew entry = (L3EntryNew) pck.getEntries().get(1);
+        Assertions.assertEquals(InsertType.ADD_BACK, entry.getInsertType());
+        Assertions.assertTrue(CharSequenceUtils.equals("A2", entry.getQuoteId()));
+
+        final OrderBook<OrderBookQuote> target = createBook(DataModelType.LEVEL_THREE, type);
+        copy(book, target);
+        assertSameBook(book, target);
+    }
+
+    @Test
+    public void l1Book_exportAndApply() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE);
+        final PackageHeader snapshot = new PackageHeader();
+        snapshot.setSymbol(SYMBOL);
+        snapshot.setPackageType(PackageType.VENDOR_SNAPSHOT);
+        snapshot.setTimeStampMs(System.currentTimeMillis());
+        snapshot.setEntries(new ObjectArrayList<>());
+        for (final QuoteSide side : QuoteSide.values()) {
+            final L1Entry entry = new L1Entry();
+            entry.setSide(side);
+            entry.setPrice(Decimal64Utils.fromInt(side == QuoteSide.ASK ? 101 : 99));
+            entry.setSize(Decimal64Utils.fromInt(5));
+            entry.setNumberOfOrders(1);
+            entry.setExchangeId(COINBASE);
+            snapshot.getEntries().add(entry);
+        }
+        Assertions.assertTrue(book.update(snapshot));
+
+        Assertions.assertTrue(exporter.export(book, COINBASE, pck));
+        Assertions.assertEquals(2, pck.getEntries().size());
+        Assertions.assertTrue(pck.getEntries().get(0) instanceof L1Entry);
+
+        final OrderBook<OrderBookQuote> target = createBook(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE);
+        copy(book, target);
+        assertSameBook(book, target);
+    }
+
+    @Test
+    public void maxLevels() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE);
+        book.update(l2Snapshot(COINBASE, 5, 100));
+
+        Assertions.assertTrue(exporter.export(book, COINBASE, 2, pck));
+        Assertions.assertEquals(4, pck.getEntries().size());
+        Assertions.assertEquals(1, ((L2EntryNew) pck.getEntries().get(1)).getLevel());
+        Assertions.assertEquals(QuoteSide.BID, pck.getEntries().get(2).getSide());
+
+        final OrderBook<OrderBookQuote> target = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE);
+        Assertions.assertTrue(target.update(pck));
+        Assertions.assertEquals(2, target.getMarketSide(QuoteSide.ASK).depth());
+        Assertions.assertEquals(2, target.getMarketSide(QuoteSide.BID).depth());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> exporter.export(book, COINBASE, 0, pck));
+    }
+
+    @Test
+    public void nothingToExport() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED);
+        Assertions.assertFalse(exporter.export(book, COINBASE, pck));
+        Assertions.assertEquals(0, exporter.getEncodedSize(book, COINBASE, OrderBookSnapshotExporter.ALL_LEVELS));
+
+        book.update(l2Snapshot(COINBASE, 5, 100));
+        Assertions.assertFalse(exporter.export(book, BINANCE, pck));
+        Assertions.assertEquals(0, exporter.write(book, BINANCE, 1, ByteBuffer.allocate(16)));
+    }
+
+    @Test
+    public void bufferIsJournalRecord(@TempDir final Path dir) throws Exception {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE);
+        book.update(l3Snapshot(COINBASE));
+
+        final int size = exporter.getEncodedSize(book, COINBASE, 2);
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        Assertions.assertEquals(size, exporter.write(book, COINBASE, 2, buffer));
+        Assertions.assertFalse(buffer.hasRemaining(), "Encoded size should be exact");
+
+        final Path path = dir.resolve("snapshot.journal");
+        new OrderBookJournal(path).close();
+        Files.write(path, Arrays.copyOf(buffer.array(), size), StandardOpenOption.APPEND);
+
+        final OrderBook<OrderBookQuote> target = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE);
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(path)) {
+            Assertions.assertEquals(1, reader.replay(target));
+        }
+        Assertions.assertEquals(2, target.getMarketSide(QuoteSide.ASK).depth());
+        Assertions.assertTrue(target.getMarketSide(QuoteSide.ASK).hasQuote("A2"));
+        Assertions.assertFalse(target.getMarketSide(QuoteSide.ASK).hasQuote("A3"));
+        Assertions.assertEquals(2, target.getMarketSide(QuoteSide.BID).depth());
+    }
+
+    @Test
+    public void exportDoesNotAllocate() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE);
+        book.update(l2Snapshot(COINBASE, 5, 100));
+        final ByteBuffer buffer = ByteBuffer.allocate(exporter.getEncodedSize(book, COINBASE, 3));
+
+        final long threadId = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            final long start = threadBean.getThreadAllocatedBytes(threadId);
+            final long calibration = threadBean.getThreadAllocatedBytes(threadId) - start;
+            for (int i = 0; i < 10_000; i++) {
+                exporter.export(book, COINBASE, pck);
+                buffer.clear();
+                exporter.write(book, COINBASE, 3, buffer);
+            }
+            final long end = threadBean.getThreadAllocatedBytes(threadId);
+            allocated = Math.min(allocated, Math.max(0, end - start - 2 * calibration));
+        }
+        Assertions.assertEquals(0, allocated / 10_000, "Allocated " + allocated + " byte(s)");
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.core;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.containers.CharSequenceUtils;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.api.MarketSide;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.api.OrderBookUpdater;
+import com.epam.deltix.orderbook.core.impl.OrderBookBufferDecoder;
+import com.epam.deltix.orderbook.core.impl.OrderBookSampler;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookUpdaterTest {
+
+    private static final long COINBASE = AlphanumericUtils.toAlphanumericUInt64("COINBASE");
+    private static final String SYMBOL = "BTC";
+    private static final long TIMESTAMP = 1_000_000L;
+
+    private final OrderBookBufferDecoder decoder = new OrderBookBufferDecoder();
+
+    private static OrderBook<OrderBookQuote> createBook(final DataModelType quoteLevels,
+                                                        final OrderBookType type,
+                                                        final boolean isCompact) {
+        final OrderBookOptions opt = new OrderBookOptionsBuilder()
+                .symbol(SYMBOL)
+                .orderBookType(type)
+                .quoteLevels(quoteLevels)
+                .initialDepth(10)
+                .isCompactVersion(isCompact)
+                .shouldStoreQuoteTimestamps(true)
+                .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                .build();
+        return OrderBookFactory.create(opt);
+    }
+
+    private static PackageHeader newPackage(final PackageType type) {
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(SYMBOL);
+        pck.setPackageType(type);
+        pck.setTimeStampMs(TIMESTAMP);
+        pck.setEntries(new ObjectArrayList<>());
+        return pck;
+    }
+
+    private static L2EntryNew l2New(final QuoteSide side, final int level, final int price, final int size) {
+        final L2EntryNew entry = new L2EntryNew();
+        entry.setSide(side);
+        entry.setLevel((short) level);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setSize(Decimal64Utils.fromInt(size));
+        entry.setNumberOfOrders(1);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static L3EntryNew l3New(final QuoteSide side, final int price, final String quoteId) {
+        final L3EntryNew entry = new L3EntryNew();
+        entry.setInsertType(InsertType.ADD_BACK);
+        entry.setSide(side);
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setPrice(Decimal64Utils.fromInt(price));
+        entry.setQuoteId(quoteId);
+        entry.setExchangeId(COINBASE);
+        return entry;
+    }
+
+    private static PackageHeader l2Snapshot() {
+        final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+        for (int level = 0; level < 3; level++) {
+            snapshot.getEntries().add(l2New(QuoteSide.ASK, level, 100 + level, 1));
+            snapshot.getEntries().add(l2New(QuoteSide.BID, level, 99 - level, 1));
+        }
+        return snapshot;
+    }
+
+    private static PackageHeader l3Snapshot() {
+        final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+        snapshot.getEntries().add(l3New(QuoteSide.ASK, 101, "A1"));
+        snapshot.getEntries().add(l3New(QuoteSide.BID, 99, "B1"));
+        return snapshot;
+    }
+
+    private static void assertSameSide(final MarketSide<OrderBookQuote> expected,
+                                       final MarketSide<OrderBookQuote> actual) {
+        Assertions.assertEquals(expected.depth(), actual.depth());
+        final Iterator<OrderBookQuote> actualItr = actual.iterator();
+        for (final OrderBookQuote quote : expected) {
+            final OrderBookQuote applied = actualItr.next();
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getPrice(), applied.getPrice()));
+            Assertions.assertTrue(Decimal64Utils.isEqual(quote.getSize(), applied.getSize()));
+            Assertions.assertEquals(quote.getTimestamp(), applied.getTimestamp());
+            if (quote.hasQuoteId()) {
+                Assertions.assertTrue(CharSequenceUtils.equals(quote.getQuoteId(), applied.getQuoteId()));
+            }
+        }
+    }
+
+    private static void assertSameBook(final OrderBook<OrderBookQuote> expected,
+                                       final OrderBook<OrderBookQuote> actual) {
+        assertSameSide(expected.getMarketSide(QuoteSide.ASK), actual.getMarketSide(QuoteSide.ASK));
+        assertSameSide(expected.getMarketSide(QuoteSide.BID), actual.getMarketSide(QuoteSide.BID));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void l2Book_primitivesMatchMessages(final boolean isCompact) {
+        final OrderBook<OrderBookQuote> expected = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, isCompact);
+        final OrderBook<OrderBookQuote> actual = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, isCompact);
+        expected.update(l2Snapshot());
+        actual.update(l2Snapshot());
+
+        final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+        increment.getEntries().add(l2New(QuoteSide.ASK, 0, 99, 5));
+        final L2EntryUpdate update = new L2EntryUpdate();
+        update.setSide(QuoteSide.BID);
+        update.setLevel((short) 2);
+        update.setAction(BookUpdateAction.DELETE);
+        update.setPrice(Decimal64Utils.fromInt(97));
+        update.setSize(Decimal64Utils.ONE);
+        update.setExchangeId(COINBASE);
+        increment.getEntries().add(update);
+        Assertions.assertTrue(expected.update(increment));
+
+        final OrderBookUpdater updater = (OrderBookUpdater) actual;
+        Assertions.assertTrue(updater.applyL2New(COINBASE, QuoteSide.ASK, 0,
+                Decimal64Utils.fromInt(99), Decimal64Utils.fromInt(5), 1, TIMESTAMP));
+        Assertions.assertTrue(updater.applyL2Update(COINBASE, QuoteSide.BID, 2, BookUpdateAction.DELETE,
+                Decimal64Utils.fromInt(97), Decimal64Utils.ONE, 1, TIMESTAMP));
+
+        assertSameBook(expected, actual);
+    }
+
+    @Test
+    public void l1Book_applyL1() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false);
+        final PackageHeader snapshot = newPackage(PackageType.VENDOR_SNAPSHOT);
+        final L1Entry entry = new L1Entry();
+        entry.setSide(QuoteSide.ASK);
+        entry.setPrice(Decimal64Utils.fromInt(100));
+        entry.setSize(Decimal64Utils.ONE);
+        entry.setExchangeId(COINBASE);
+        snapshot.getEntries().add(entry);
+        book.update(snapshot);
+
+        Assertions.assertTrue(((OrderBookUpdater) book).applyL1(COINBASE, QuoteSide.ASK,
+                Decimal64Utils.fromInt(101), Decimal64Utils.fromInt(3), 2, TIMESTAMP + 1));
+
+        final OrderBookQuote quote = book.getMarketSide(QuoteSide.ASK).getBestQuote();
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(101), quote.getPrice()));
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(3), quote.getSize()));
+        Assertions.assertEquals(2, quote.getNumberOfOrders());
+    }
+
+    @Test
+    public void l3Book_primitivesMatchMessages() {
+        final OrderBook<OrderBookQuote> expected = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false);
+        final OrderBook<OrderBookQuote> actual = createBook(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false);
+        expected.update(l3Snapshot());
+        actual.update(l3Snapshot());
+
+        final PackageHeader increment = newPackage(PackageType.INCREMENTAL_UPDATE);
+        increment.getEntries().add(l3New(QuoteSide.ASK, 100, "A2"));
+        final L3EntryUpdate cancel = new L3EntryUpdate();
+        cancel.setAction(QuoteUpdateAction.CANCEL);
+        cancel.setSide(QuoteSide.BID);
+        cancel.setQuoteId("B1");
+        cancel.setExchangeId(COINBASE);
+        increment.getEntries().add(cancel);
+        Assertions.assertTrue(expected.update(increment));
+
+        final OrderBookUpdater updater = (OrderBookUpdater) actual;
+        Assertions.assertTrue(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A2", null,
+                Decimal64Utils.fromInt(100), Decimal64Utils.ONE, TIMESTAMP));
+        Assertions.assertTrue(updater.applyL3Update(COINBASE, QuoteSide.BID, QuoteUpdateAction.CANCEL, "B1", null,
+                Decimal64Utils.NaN, Decimal64Utils.NaN, TIMESTAMP));
+
+        assertSameBook(expected, actual);
+        Assertions.assertTrue(actual.getMarketSide(QuoteSide.ASK).hasQuote("A2"));
+        Assertions.assertEquals(TIMESTAMP, actual.getMarketSide(QuoteSide.ASK).getBestQuote().getTimestamp());
+
+        // There is no message to pass to error listener, rejected primitive update is counted by metrics only
+        Assertions.assertDoesNotThrow(() -> updater.applyL3Update(COINBASE, QuoteSide.BID, QuoteUpdateAction.CANCEL,
+                "unknown", null, Decimal64Utils.NaN, Decimal64Utils.NaN, TIMESTAMP));
+    }
+
+    @Test
+    public void decoder_appliesBinaryEntries() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false);
+        book.update(l2Snapshot());
+
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        // L2 new: insert better ask
+        buffer.put((byte) 2).putLong(COINBASE).put((byte) (QuoteSide.ASK.ordinal() + 1))
+                .putLong(Decimal64Utils.fromInt(99)).putLong(Decimal64Utils.fromInt(7)).putLong(1)
+                .putShort((short) 0);
+        // L2 update: delete worst bid
+        buffer.put((byte) 3).putLong(COINBASE).put((byte) (QuoteSide.BID.ordinal() + 1))
+                .putLong(Decimal64Utils.fromInt(97)).putLong(Decimal64Utils.ONE).putLong(1)
+                .putShort((short) 2).put((byte) (BookUpdateAction.DELETE.ordinal() + 1));
+        buffer.flip();
+
+        Assertions.assertEquals(2, decoder.apply(buffer, 2, TIMESTAMP, (OrderBookUpdater) book));
+        Assertions.assertFalse(buffer.hasRemaining());
+        Assertions.assertEquals(4, book.getMarketSide(QuoteSide.ASK).depth());
+        Assertions.assertTrue(Decimal64Utils.isEqual(Decimal64Utils.fromInt(99),
+                book.getMarketSide(QuoteSide.ASK).getBestQuote().getPrice()));
+        Assertions.assertEquals(2, book.getMarketSide(QuoteSide.BID).depth());
+    }
+
+    @Test
+    public void multiExchangeBook_notUpdater() {
+        Assertions.assertFalse(createBook(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false)
+                instanceof OrderBookUpdater);
+        Assertions.assertFalse(createBook(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false)
+                instanceof OrderBookUpdater);
+        Assertions.assertFalse(createBook(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false)
+                instanceof OrderBookUpdater);
+
+        final OrderBookSampler<OrderBookQuote> sampler = new OrderBookSampler<>(
+                createBook(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false), 1, 0, 1, sample -> { });
+        Assertions.assertFalse(sampler.getUpdater().hasValue());
+    }
+
+    @Test
+    public void otherQuoteLevels_rejected() {
+        final OrderBook<OrderBookQuote> book = createBook(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false);
+        book.update(l2Snapshot());
+        final OrderBookUpdater updater = (OrderBookUpdater) book;
+        Assertions.assertFalse(updater.applyL1(COINBASE, QuoteSide.ASK, Decimal64Utils.ONE, Decimal64Utils.ONE, 1, TIMESTAMP));
+        Assertions.assertFalse(updater.applyL3New(COINBASE, QuoteSide.ASK, InsertType.ADD_BACK, "A1", null,
+                Decimal64Utils.ONE, Decimal64Utils.ONE, TIMESTAMP));
+        Assertions.assertEquals(3, book.getMarketSide(QuoteSide.ASK).depth());
+    }
+
+}
@@ -19,12 +19,13 @@ package com.epam.deltix.orderbook.core.fwk;
 import com.epam.deltix.dfp.Decimal;
 import com.epam.deltix.dfp.Decimal64Utils;
 
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
 import com.epam.deltix.orderbook.core.api.OrderBookQuoteTimestamp;
 import com.epam.deltix.orderbook.core.options.*;
 import com.epam.deltix.timebase.messages.TypeConstants;
 import com.epam.deltix.timebase.messages.service.FeedStatus;
-import com.epam.deltix.timebase.messages.universal.PackageType;
-import com.epam.deltix.timebase.messages.universal.QuoteSide;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -36,6 +37,8 @@ import java.util.stream.Stream;
 
 import static com.epam.deltix.timebase.messages.universal.PackageType.PERIODICAL_SNAPSHOT;
 import static com.epam.deltix.timebase.messages.universal.PackageType.VENDOR_SNAPSHOT;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 
@@ -708,4 +711,42 @@ public abstract class AbstractL2QuoteLevelTest extends AbstractOrderBookTest {
 //        assertExchangeBookSize(COINBASE, side, depth + 1);
 //    }
 
+    @Test
+    public void incrementalUpdate_customEntryImplementation_L2Quote() {
+        final int depth = 5;
+        simulateL2QuoteSnapshot(VENDOR_SNAPSHOT, COINBASE, depth, 25, 5, 1);
+
+        // Custom (e.g. pooled flyweight) implementations of entry interfaces should be processed as regular entries
+        final OrderBookQuote worstAsk = getBook().getMarketSide(QuoteSide.ASK).getWorstQuote();
+        final L2EntryNewInfo insert = mock(L2EntryNewInfo.class);
+        when(insert.getExchangeId()).thenReturn(COINBASE);
+        when(insert.getSide()).thenReturn(QuoteSide.ASK);
+        when(insert.getLevel()).thenReturn((short) depth);
+        when(insert.getPrice()).thenReturn(Decimal64Utils.add(worstAsk.getPrice(), Decimal64Utils.ONE));
+        when(insert.getSize()).thenReturn(Decimal64Utils.fromInt(3));
+        when(insert.getNumberOfOrders()).thenReturn(1L);
+
+        final OrderBookQuote bestBid = getBook().getMarketSide(QuoteSide.BID).getBestQuote();
+        final L2EntryUpdateInfo update = mock(L2EntryUpdateInfo.class);
+        when(update.getExchangeId()).thenReturn(COINBASE);
+        when(update.getSide()).thenReturn(QuoteSide.BID);
+        when(update.getLevel()).thenReturn((short) 0);
+        when(update.getAction()).thenReturn(BookUpdateAction.UPDATE);
+        when(update.getPrice()).thenReturn(bestBid.getPrice());
+        when(update.getSize()).thenReturn(Decimal64Utils.fromInt(42));
+        when(update.getNumberOfOrders()).thenReturn(1L);
+
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(DEFAULT_SYMBOL);
+        pck.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        pck.getEntries().add(insert);
+        pck.getEntries().add(update);
+
+        Assertions.assertTrue(getBook().update(pck));
+        assertExchangeBookSize(COINBASE, QuoteSide.ASK, depth + 1);
+        assertSize(QuoteSide.BID, (short) 0, 42);
+    }
+
 }
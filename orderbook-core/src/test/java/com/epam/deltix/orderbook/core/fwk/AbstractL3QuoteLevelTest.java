@@ -46,6 +46,8 @@ import java.util.stream.Stream;
 import static com.epam.deltix.timebase.messages.universal.PackageType.PERIODICAL_SNAPSHOT;
 import static com.epam.deltix.timebase.messages.universal.PackageType.VENDOR_SNAPSHOT;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Andrii_Ostapenko1
@@ -946,5 +948,51 @@ public abstract class AbstractL3QuoteLevelTest {
         assertBookSize(side, maxDepth + 1); // skips invalidUpdate
     }
 
+    @Test
+    public void incrementalUpdate_customEntryImplementation_L3Quote() {
+        final int depth = 5;
+        final int bbo = 25;
+        simulateQuoteSnapshot(VENDOR_SNAPSHOT, COINBASE, depth, bbo, 5);
+
+        // Custom (e.g. pooled flyweight) implementations of entry interfaces should be processed as regular entries
+        final L3EntryNewInfo insert = mock(L3EntryNewInfo.class);
+        when(insert.getExchangeId()).thenReturn(COINBASE);
+        when(insert.getSide()).thenReturn(QuoteSide.ASK);
+        when(insert.getInsertType()).thenReturn(InsertType.ADD_BACK);
+        when(insert.getQuoteId()).thenReturn("custom");
+        when(insert.getPrice()).thenReturn(Decimal64Utils.fromInt(bbo + depth));
+        when(insert.getSize()).thenReturn(Decimal64Utils.fromInt(3));
+
+        final OrderBookQuote bestAsk = getBook().getMarketSide(QuoteSide.ASK).getBestQuote();
+        final L3EntryUpdateInfo modify = mock(L3EntryUpdateInfo.class);
+        when(modify.getExchangeId()).thenReturn(COINBASE);
+        when(modify.getSide()).thenReturn(QuoteSide.ASK);
+        when(modify.getAction()).thenReturn(QuoteUpdateAction.MODIFY);
+        when(modify.getQuoteId()).thenReturn("id0");
+        when(modify.getPrice()).thenReturn(bestAsk.getPrice());
+        when(modify.getSize()).thenReturn(Decimal64Utils.fromInt(4));
+
+        final L3EntryUpdateInfo cancel = mock(L3EntryUpdateInfo.class);
+        when(cancel.getExchangeId()).thenReturn(COINBASE);
+        when(cancel.getSide()).thenReturn(QuoteSide.BID);
+        when(cancel.getAction()).thenReturn(QuoteUpdateAction.CANCEL);
+        when(cancel.getQuoteId()).thenReturn("id" + depth);
+
+        final PackageHeader pck = new PackageHeader();
+        pck.setSymbol(DEFAULT_SYMBOL);
+        pck.setPackageType(PackageType.INCREMENTAL_UPDATE);
+        pck.setTimeStampMs(System.currentTimeMillis());
+        pck.setEntries(new ObjectArrayList<>());
+        pck.getEntries().add(insert);
+        pck.getEntries().add(modify);
+        pck.getEntries().add(cancel);
+
+        Assertions.assertTrue(getBook().update(pck));
+        assertBookSize(QuoteSide.ASK, depth + 1);
+        assertId(getBook().getMarketSide(QuoteSide.ASK).getWorstQuote(), "custom");
+        assertSize(getBook().getMarketSide(QuoteSide.ASK).getBestQuote(), 4);
+        assertBookSize(QuoteSide.BID, depth - 1);
+    }
+
 }
 
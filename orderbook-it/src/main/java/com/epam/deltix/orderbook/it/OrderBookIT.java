@@ -21,6 +21,7 @@ import com.epam.deltix.gflog.api.LogFactory;
 import com.epam.deltix.orderbook.core.api.OrderBook;
 import com.epam.deltix.orderbook.core.api.OrderBookFactory;
 import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
 import com.epam.deltix.orderbook.core.options.OrderBookOptions;
 import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
 import com.epam.deltix.orderbook.core.options.OrderBookType;
@@ -33,10 +34,16 @@ import com.epam.deltix.timebase.messages.universal.PackageHeaderInfo;
 import com.epam.deltix.util.cmdline.DefaultApplication;
 import org.openjdk.jol.info.GraphLayout;
 
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.function.Consumer;
 
 /**
+ * Reads TimeBase stream and reports throughput of every book type.
+ * <p>
+ * With {@code -export <file>} stream is only written into {@link OrderBookJournal} file,
+ * which can be replayed offline by {@link OrderBookReplayIT}.
+ *
  * @author Andrii_Ostapenko1
  */
 public class OrderBookIT extends DefaultApplication {
@@ -73,7 +80,7 @@ public class OrderBookIT extends DefaultApplication {
             final long startTime = System.currentTimeMillis();
             final long streamTime = cursor.getMessage().getTimeStampMs();
             long prevStreamTime = streamTime;
-            while (cursor.next()) {
+            do {
                 final InstrumentMessage message = cursor.getMessage();
                 if (message.getTimeStampMs() >= endReadTime) {
                     break;
@@ -97,7 +104,7 @@ public class OrderBookIT extends DefaultApplication {
                 }
 
                 prevStreamTime = message.getTimeStampMs();
-            }
+            } while (cursor.next());
 
             logTime(startTime, prevStreamTime - startReadTime, msgCount, entriesCount);
 
@@ -107,10 +114,10 @@ public class OrderBookIT extends DefaultApplication {
         }
     }
 
-    private static void logTime(final long startTime,
-                                final long streamTime,
-                                final long msgCount,
-                                final long entriesCount) {
+    static void logTime(final long startTime,
+                        final long streamTime,
+                        final long msgCount,
+                        final long entriesCount) {
         final long timePass = System.currentTimeMillis() - startTime;
         final double timeSeconds = (double) timePass / 1000.0;
         final double sTimeMinutes = streamTime / (60 * 1000.0);
@@ -134,6 +141,7 @@ public class OrderBookIT extends DefaultApplication {
         final String timebasePassword = getArgValue("-password");
         final String streamKey = getArgValue("-stream", "bitmex");
         final String symbol = getArgValue("-symbol", "BTC/USD");
+        final String exportFile = getArgValue("-export");
 
         long startTime = getLongArgValue("-start_time_ms", Long.MIN_VALUE);
         final String startTimeStr = getArgValue("-start_time");
@@ -161,6 +169,15 @@ public class OrderBookIT extends DefaultApplication {
                 startTime = range[0];
             }
 
+            if (exportFile != null) {
+                try (OrderBookJournal journal = new OrderBookJournal(Paths.get(exportFile))) {
+                    readStream(stream, symbol, startTime, endTime, journal::append);
+                    LOGGER.info().append("Exported ").append(journal.getRecordCount())
+                            .append(" message(s) to ").append(exportFile).commit();
+                }
+                return;
+            }
+
             final StringBuilder resultBuilder = new StringBuilder();
 
             LOGGER.info().append("Warmup pass...").commit();
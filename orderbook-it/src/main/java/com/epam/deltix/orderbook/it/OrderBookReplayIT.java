@@ -0,0 +1,251 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.it;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import com.epam.deltix.orderbook.core.api.OrderBook;
+import com.epam.deltix.orderbook.core.api.OrderBookFactory;
+import com.epam.deltix.orderbook.core.api.OrderBookQuote;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournalReader;
+import com.epam.deltix.orderbook.core.options.OrderBookOptions;
+import com.epam.deltix.orderbook.core.options.OrderBookOptionsBuilder;
+import com.epam.deltix.orderbook.core.options.OrderBookType;
+import com.epam.deltix.orderbook.core.options.UpdateMode;
+import com.epam.deltix.timebase.messages.MessageInfo;
+import com.epam.deltix.timebase.messages.universal.DataModelType;
+import com.epam.deltix.timebase.messages.universal.PackageHeaderInfo;
+import com.epam.deltix.util.cmdline.DefaultApplication;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Offline version of {@link OrderBookIT}: replays market data recorded in {@link OrderBookJournalReader journal} file
+ * into every book type of given data model and reports throughput and latency of updates.
+ * <p>
+ * Journal can be exported from TimeBase stream by {@link OrderBookIT} ({@code -export <file>}) or generated
+ * by {@link ReplayFixture}. When {@code -file} is not specified, small fixture is generated into temporary file,
+ * so harness runs without TimeBase (CI, laptop).
+ * <p>
+ * Arguments:
+ * <ul>
+ *     <li>{@code -file} - journal to replay;</li>
+ *     <li>{@code -levels} - data model of the journal: LEVEL_ONE, LEVEL_TWO (default) or LEVEL_THREE;</li>
+ *     <li>{@code -books} - comma separated names of {@link Book} to run (default all books of the data model);</li>
+ *     <li>{@code -pace} - {@code max} (default) or {@code recorded}, in the last case messages are applied
+ *     at time of their timestamps divided by {@code -speed} (default 1);</li>
+ *     <li>{@code -iterations} - number of measured passes (default 5);</li>
+ *     <li>{@code -exchanges}, {@code -messages} - size of generated fixture.</li>
+ * </ul>
+ * Latency is time of {@link OrderBook#update}. In recorded pace it is measured from intended time of message,
+ * so stalls delay all following messages and are not hidden (coordinated omission).
+ *
+ * @author Andrii_Ostapenko1
+ */
+public class OrderBookReplayIT extends DefaultApplication {
+
+    private static final Log LOGGER = LogFactory.getLog(OrderBookReplayIT.class);
+
+    enum Book {
+        L1_SINGLE(DataModelType.LEVEL_ONE, OrderBookType.SINGLE_EXCHANGE, false),
+        L2_SINGLE(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, false),
+        L2_SINGLE_COMPACT(DataModelType.LEVEL_TWO, OrderBookType.SINGLE_EXCHANGE, true),
+        L2_AGGREGATED(DataModelType.LEVEL_TWO, OrderBookType.AGGREGATED, false),
+        L2_CONSOLIDATED(DataModelType.LEVEL_TWO, OrderBookType.CONSOLIDATED, false),
+        L3_SINGLE(DataModelType.LEVEL_THREE, OrderBookType.SINGLE_EXCHANGE, false),
+        L3_CONSOLIDATED(DataModelType.LEVEL_THREE, OrderBookType.CONSOLIDATED, false);
+
+        private final DataModelType quoteLevels;
+        private final OrderBookType type;
+        private final boolean isCompact;
+
+        Book(final DataModelType quoteLevels, final OrderBookType type, final boolean isCompact) {
+            this.quoteLevels = quoteLevels;
+            this.type = type;
+            this.isCompact = isCompact;
+        }
+    }
+
+    public OrderBookReplayIT(final String... args) {
+        super(args);
+    }
+
+    public static void main(final String[] args) {
+        new OrderBookReplayIT(args).start();
+    }
+
+    @Override
+    public void run() throws Throwable {
+        final String file = getArgValue("-file");
+        final DataModelType quoteLevels = DataModelType.valueOf(getArgValue("-levels", "LEVEL_TWO"));
+        final String books = getArgValue("-books");
+        final List<String> selected = books == null ? null : Arrays.asList(books.split(","));
+        final boolean isRecordedPace = "recorded".equalsIgnoreCase(getArgValue("-pace", "max"));
+        final double speed = Double.parseDouble(getArgValue("-speed", "1"));
+        final int iterations = Integer.parseInt(getArgValue("-iterations", "5"));
+
+        final Path path;
+        if (file != null) {
+            path = Paths.get(file);
+        } else {
+            final int numberOfExchanges = Integer.parseInt(getArgValue("-exchanges", "1"));
+            final int numberOfMessages = Integer.parseInt(getArgValue("-messages",
+                    String.valueOf(ReplayFixture.DEFAULT_NUMBER_OF_MESSAGES)));
+            path = Files.createTempFile("orderbook-replay", ".obj");
+            path.toFile().deleteOnExit();
+            final long count = ReplayFixture.write(path, quoteLevels, numberOfExchanges, numberOfMessages,
+                    ReplayFixture.DEFAULT_SEED);
+            LOGGER.info().append("Generated fixture ").append(path.toString())
+                    .append("; Messages: ").append(count)
+                    .append("; Exchanges: ").append(numberOfExchanges).commit();
+        }
+
+        try {
+            final StringBuilder resultBuilder = new StringBuilder();
+
+            LOGGER.info().append("Warmup pass...").commit();
+            final Histogram blackHole = new Histogram(3);
+            replayFile(path, p -> {
+            }, false, speed, blackHole);
+            blackHole.reset();
+            resultBuilder.append(result("Black Hole", blackHole, replayFile(path, p -> {
+            }, false, speed, blackHole)));
+            LOGGER.info().append("Main pass...").commit();
+
+            for (final Book book : Book.values()) {
+                if (book.quoteLevels != quoteLevels || (selected != null && !selected.contains(book.name()))) {
+                    continue;
+                }
+                final OrderBookOptions options = new OrderBookOptionsBuilder()
+                        .orderBookType(book.type)
+                        .quoteLevels(book.quoteLevels)
+                        .isCompactVersion(book.isCompact)
+                        .initialDepth(quoteLevels == DataModelType.LEVEL_ONE ? 1 : 40)
+                        .initialExchangesPoolSize(1)
+                        .updateMode(UpdateMode.WAITING_FOR_SNAPSHOT)
+                        .build();
+                final OrderBook<OrderBookQuote> orderBook = OrderBookFactory.create(options);
+                resultBuilder.append(executed(path, orderBook, isRecordedPace, speed, iterations));
+            }
+
+            LOGGER.info("\n %s").with(resultBuilder);
+        } catch (final Throwable t) {
+            LOGGER.error().append("Failed to replay").append(t).commit();
+        }
+    }
+
+    private static String executed(final Path path,
+                                   final OrderBook<OrderBookQuote> book,
+                                   final boolean isRecordedPace,
+                                   final double speed,
+                                   final int iterations) throws IOException {
+        final Histogram histogram = new Histogram(3);
+        // Warmup, not recorded
+        replayFile(path, book::update, false, speed, histogram);
+        book.clear();
+        histogram.reset();
+
+        double sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += replayFile(path, book::update, isRecordedPace, speed, histogram);
+            book.clear();
+        }
+        return result(book.getDescription(), histogram, sum / iterations);
+    }
+
+    private static double replayFile(final Path path,
+                                     final Consumer<MessageInfo> consumer,
+                                     final boolean isRecordedPace,
+                                     final double speed,
+                                     final Histogram histogram) throws IOException {
+        LOGGER.info().append("Start replaying file ").append(path.toString())
+                .append("; Pace: ").append(isRecordedPace ? "recorded x" + speed : "max").commit();
+
+        try (OrderBookJournalReader reader = new OrderBookJournalReader(path)) {
+            MessageInfo message = reader.next();
+            if (message == null) {
+                LOGGER.info().append("Empty file").commit();
+                return -1;
+            }
+
+            long msgCount = 0;
+            long entriesCount = 0;
+            final long startTime = System.currentTimeMillis();
+            final long startNanos = System.nanoTime();
+            final long streamTime = message.getTimeStampMs();
+            long prevStreamTime = streamTime;
+            do {
+                long start = System.nanoTime();
+                long intended = start;
+                if (isRecordedPace) {
+                    final long offset = TimeUnit.MILLISECONDS.toNanos(message.getTimeStampMs() - streamTime);
+                    intended = startNanos + (long) (offset / speed);
+                    while ((start = System.nanoTime()) < intended) {
+                        Thread.onSpinWait();
+                    }
+                }
+                if (message instanceof PackageHeaderInfo) {
+                    entriesCount += ((PackageHeaderInfo) message).getEntries().size();
+                }
+                consumer.accept(message);
+                final long end = System.nanoTime();
+                histogram.recordValue(end - (isRecordedPace ? intended : start));
+
+                msgCount++;
+                if (msgCount % 1000000 == 0) {
+                    OrderBookIT.logTime(startTime, prevStreamTime - streamTime, msgCount, entriesCount);
+                }
+                prevStreamTime = message.getTimeStampMs();
+            } while ((message = reader.next()) != null);
+
+            OrderBookIT.logTime(startTime, prevStreamTime - streamTime, msgCount, entriesCount);
+            logLatency(histogram);
+
+            final long timePass = System.currentTimeMillis() - startTime;
+            final double timeSeconds = (double) timePass / 1000.0;
+            return (msgCount / timeSeconds);
+        }
+    }
+
+    private static void logLatency(final Histogram histogram) {
+        LOGGER.info("Latency (ns) p50 = " + histogram.getValueAtPercentile(50) +
+                "; p99 = " + histogram.getValueAtPercentile(99) +
+                "; p99.9 = " + histogram.getValueAtPercentile(99.9) +
+                "; p99.99 = " + histogram.getValueAtPercentile(99.99) +
+                "; max = " + histogram.getMaxValue() +
+                "; count = " + histogram.getTotalCount());
+    }
+
+    private static String result(final String className, final Histogram histogram, final double msgPerSecond) {
+        return String.format("Book Name = %s, Replay AVG msg/s = %d, Latency (ns) p50 = %d, p99 = %d, " +
+                        "p99.9 = %d, max = %d \n",
+                className, (int) msgPerSecond,
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9),
+                histogram.getMaxValue());
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 EPAM Systems, Inc
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.epam.deltix.orderbook.it;
+
+import com.epam.deltix.containers.AlphanumericUtils;
+import com.epam.deltix.dfp.Decimal;
+import com.epam.deltix.dfp.Decimal64Utils;
+import com.epam.deltix.orderbook.core.impl.OrderBookJournal;
+import com.epam.deltix.timebase.messages.service.FeedStatus;
+import com.epam.deltix.timebase.messages.service.SecurityFeedStatusMessage;
+import com.epam.deltix.timebase.messages.universal.*;
+import com.epam.deltix.util.annotations.Alphanumeric;
+import com.epam.deltix.util.collections.generated.ObjectArrayList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generator of small deterministic fixture for {@link OrderBookReplayIT}, written in {@link OrderBookJournal} format.
+ * <p>
+ * Stream has given number of exchanges with {@value #DEPTH} levels (orders for L3) per side.
+ * Single exchange books accept only one exchange, so multi exchange fixture is useful for aggregated and consolidated
+ * books only. It starts with vendor snapshot of every exchange, followed by incremental updates
+ * (size updates for L2, cancel and add of order for L3, new top of book for L1).
+ * Every {@value #DISCONNECT_INTERVAL} messages one of exchanges is disconnected and snapshot is sent again.
+ * Prices never cross inside one exchange.
+ * <p>
+ * Usage: {@code ReplayFixture <file> [LEVEL_ONE|LEVEL_TWO|LEVEL_THREE] [number of exchanges] [number of messages]}.
+ *
+ * @author Andrii_Ostapenko1
+ */
+public final class ReplayFixture {
+
+    public static final String SYMBOL = "BTC/USD";
+    public static final int DEFAULT_NUMBER_OF_MESSAGES = 20_000;
+    public static final long DEFAULT_SEED = 42;
+
+    private static final int DEPTH = 20;
+    private static final int DISCONNECT_INTERVAL = 5_000;
+    private static final long START_TIME = 1_600_000_000_000L;
+    // Mid price in ticks of 0.01
+    private static final long MID = 1_000_000;
+
+    private final OrderBookJournal journal;
+    private final DataModelType quoteLevels;
+    @Alphanumeric
+    private final long[] exchangeIds;
+    private final Random random;
+
+    private final PackageHeader pck = new PackageHeader();
+    private final ObjectArrayList<BaseEntryInfo> entries = new ObjectArrayList<>();
+    private final SecurityFeedStatusMessage feedStatus = new SecurityFeedStatusMessage();
+    private final L1Entry l1Entry = new L1Entry();
+    private final L2EntryUpdate l2Update = new L2EntryUpdate();
+    private final L3EntryUpdate l3Cancel = new L3EntryUpdate();
+    private final L3EntryNew l3New = new L3EntryNew();
+
+    // L3 orders: [exchange][side][slot]
+    private final long[][][] orderIds;
+    private final long[][][] orderPrices;
+    private final StringBuilder quoteId = new StringBuilder();
+    private long nextOrderId;
+
+    private long timestamp = START_TIME;
+
+    private ReplayFixture(final OrderBookJournal journal,
+                          final DataModelType quoteLevels,
+                          final int numberOfExchanges,
+                          final long seed) {
+        this.journal = journal;
+        this.quoteLevels = quoteLevels;
+        this.random = new Random(seed);
+        this.exchangeIds = new long[numberOfExchanges];
+        for (int i = 0; i < numberOfExchanges; i++) {
+            exchangeIds[i] = AlphanumericUtils.toAlphanumericUInt64("EXCH" + i);
+        }
+        this.orderIds = new long[numberOfExchanges][2][DEPTH];
+        this.orderPrices = new long[numberOfExchanges][2][DEPTH];
+        pck.setSymbol(SYMBOL);
+        pck.setEntries(entries);
+        feedStatus.setSymbol(SYMBOL);
+        feedStatus.setStatus(FeedStatus.NOT_AVAILABLE);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayFixture <file> [LEVEL_ONE|LEVEL_TWO|LEVEL_THREE] [number of exchanges] " +
+                    "[number of messages]");
+            return;
+        }
+        final DataModelType quoteLevels = args.length > 1 ? DataModelType.valueOf(args[1]) : DataModelType.LEVEL_TWO;
+        final int numberOfExchanges = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        final int numberOfMessages = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_NUMBER_OF_MESSAGES;
+        final long count = write(Paths.get(args[0]), quoteLevels, numberOfExchanges, numberOfMessages, DEFAULT_SEED);
+        System.out.println("Written " + count + " message(s) to " + args[0]);
+    }
+
+    /**
+     * Writes fixture into the file.
+     *
+     * @param path              - path of journal, existing file is truncated
+     * @param quoteLevels       - data model of the stream
+     * @param numberOfExchanges - number of exchanges
+     * @param numberOfMessages  - number of messages to write (at least one snapshot per exchange is always written)
+     * @param seed              - seed of random generator, the same seed gives the same file
+     * @return number of written messages
+     * @throws IOException if an I/O error occurs
+     */
+    public static long write(final Path path,
+                             final DataModelType quoteLevels,
+                             final int numberOfExchanges,
+                             final int numberOfMessages,
+                             final long seed) throws IOException {
+        if (quoteLevels != DataModelType.LEVEL_ONE &&
+                quoteLevels != DataModelType.LEVEL_TWO &&
+                quoteLevels != DataModelType.LEVEL_THREE) {
+            throw new IllegalArgumentException("Unsupported quote levels: " + quoteLevels);
+        }
+        if (numberOfExchanges <= 0) {
+            throw new IllegalArgumentException("Illegal number of exchanges: " + numberOfExchanges);
+        }
+        try (OrderBookJournal journal = new OrderBookJournal(path)) {
+            new ReplayFixture(journal, quoteLevels, numberOfExchanges, seed).generate(numberOfMessages);
+            journal.flush();
+            return journal.getRecordCount();
+        }
+    }
+
+    private void generate(final int numberOfMessages) {
+        for (int exchange = 0; exchange < exchangeIds.length; exchange++) {
+            snapshot(exchange);
+        }
+        for (long count = exchangeIds.length; count < numberOfMessages; count++) {
+            if (count % DISCONNECT_INTERVAL == 0) {
+                final int exchange = random.nextInt(exchangeIds.length);
+                disconnect(exchange);
+                snapshot(exchange);
+                count++;
+            } else {
+                update(random.nextInt(exchangeIds.length), random.nextBoolean() ? QuoteSide.ASK : QuoteSide.BID);
+            }
+        }
+    }
+
+    private void snapshot(final int exchange) {
+        entries.clear();
+        if (quoteLevels == DataModelType.LEVEL_ONE) {
+            for (final QuoteSide side : QuoteSide.values()) {
+                entries.add(l1Entry(exchange, side, new L1Entry()));
+            }
+        } else if (quoteLevels == DataModelType.LEVEL_TWO) {
+            for (final QuoteSide side : QuoteSide.values()) {
+                for (int level = 0; level < DEPTH; level++) {
+                    final L2EntryNew entry = new L2EntryNew();
+                    setPriceEntry(entry, exchange, side, levelPrice(side, level));
+                    entry.setLevel((short) level);
+                    entries.add(entry);
+                }
+            }
+        } else {
+            for (final QuoteSide side : QuoteSide.values()) {
+                for (int slot = 0; slot < DEPTH; slot++) {
+                    final L3EntryNew entry = new L3EntryNew();
+                    newOrder(entry, exchange, side, slot);
+                    entry.setQuoteId(entry.getQuoteId().toString());
+                    entries.add(entry);
+                }
+            }
+        }
+        publish(PackageType.VENDOR_SNAPSHOT);
+    }
+
+    private void update(final int exchange, final QuoteSide side) {
+        entries.clear();
+        if (quoteLevels == DataModelType.LEVEL_ONE) {
+            entries.add(l1Entry(exchange, side, l1Entry));
+        } else if (quoteLevels == DataModelType.LEVEL_TWO) {
+            final int level = random.nextInt(DEPTH);
+            setPriceEntry(l2Update, exchange, side, levelPrice(side, level));
+            l2Update.setLevel((short) level);
+            l2Update.setAction(BookUpdateAction.UPDATE);
+            entries.add(l2Update);
+        } else {
+            final int slot = random.nextInt(DEPTH);
+            final int s = side.ordinal();
+            setPriceEntry(l3Cancel, exchange, side, orderPrices[exchange][s][slot]);
+            l3Cancel.setQuoteId(quoteId(orderIds[exchange][s][slot]).toString());
+            l3Cancel.setAction(QuoteUpdateAction.CANCEL);
+            entries.add(l3Cancel);
+            newOrder(l3New, exchange, side, slot);
+            entries.add(l3New);
+        }
+        publish(PackageType.INCREMENTAL_UPDATE);
+    }
+
+    private void disconnect(final int exchange) {
+        timestamp += random.nextInt(2);
+        feedStatus.setTimeStampMs(timestamp);
+        feedStatus.setExchangeId(exchangeId(exchange));
+        journal.append(feedStatus);
+    }
+
+    private void publish(final PackageType packageType) {
+        timestamp += random.nextInt(2);
+        pck.setTimeStampMs(timestamp);
+        pck.setPackageType(packageType);
+        journal.append(pck);
+    }
+
+    private L1Entry l1Entry(final int exchange, final QuoteSide side, final L1Entry entry) {
+        setPriceEntry(entry, exchange, side, levelPrice(side, random.nextInt(3)));
+        return entry;
+    }
+
+    private void newOrder(final L3EntryNew entry, final int exchange, final QuoteSide side, final int slot) {
+        final int s = side.ordinal();
+        final long id = nextOrderId++;
+        orderIds[exchange][s][slot] = id;
+        orderPrices[exchange][s][slot] = levelPrice(side, random.nextInt(DEPTH));
+        setPriceEntry(entry, exchange, side, orderPrices[exchange][s][slot]);
+        entry.setNumberOfOrders(1);
+        entry.setQuoteId(quoteId(id));
+        entry.setParticipantId(null);
+        entry.setInsertType(InsertType.ADD_BACK);
+    }
+
+    private void setPriceEntry(final BasePriceEntry entry,
+                               final int exchange,
+                               final QuoteSide side,
+                               @Decimal final long price) {
+        entry.setExchangeId(exchangeId(exchange));
+        entry.setSide(side);
+        entry.setPrice(price);
+        entry.setSize(Decimal64Utils.fromLong(1 + random.nextInt(100)));
+        entry.setNumberOfOrders(1 + random.nextInt(5));
+    }
+
+    private CharSequence quoteId(final long id) {
+        quoteId.setLength(0);
+        return quoteId.append('Q').append(id);
+    }
+
+    @Decimal
+    private static long levelPrice(final QuoteSide side, final int level) {
+        final long ticks = side == QuoteSide.ASK ? MID + 1 + level : MID - 1 - level;
+        return Decimal64Utils.fromFixedPoint(ticks, 2);
+    }
+
+    @Alphanumeric
+    private long exchangeId(final int exchange) {
+        return exchangeIds[exchange];
+    }
+
+}